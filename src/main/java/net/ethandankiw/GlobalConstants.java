@@ -1,5 +1,11 @@
 package net.ethandankiw;
 
+import net.ethandankiw.data.server.LoadBalancingStrategy;
+import net.ethandankiw.server.BackendMode;
+import net.ethandankiw.server.DispatchMode;
+import net.ethandankiw.server.ExecutionMode;
+import net.ethandankiw.server.HttpServerMode;
+
 public enum GlobalConstants {
 	/*
 	 * Create a singleton instance of the global constants enum
@@ -15,24 +21,177 @@ public enum GlobalConstants {
 	// Maximum number of threads to handle incoming client requests
 	public static final Integer MAX_THREADS_FOR_CLIENT_REQUESTS = 100;
 
-	// Threshold for creating a new server when balancing
+	// Maximum number of requests a server processes at once before it is at capacity
+	public static final Integer MAX_IN_FLIGHT_REQUESTS = 100;
+
+	// Predicted average server load above which servers are added when balancing
 	public static final Double SERVER_CREATION_THRESHOLD = 0.65;
 
-	// Threshold for removing a server when balancing
+	// Predicted average server load below which servers are removed when balancing
 	public static final Double SERVER_REMOVAL_THRESHOLD = 0.30;
 
+	// Average server load the balancer sizes the pool for whenever it scales
+	public static final Double TARGET_SERVER_LOAD = 0.50;
+
+	// How often the balancer samples the load of the servers
+	// Set at startup with -Dserver.balance.interval=<MS>
+	public static final Integer BALANCING_INTERVAL = Integer.getInteger("server.balance.interval", 1000); // milliseconds
+
+	// How long the balancer waits after scaling before adding servers, or before removing them
+	public static final Integer SCALE_OUT_COOLDOWN = 5_000; // milliseconds
+	public static final Integer SCALE_IN_COOLDOWN = 30_000; // milliseconds
+
 	// Default number of aggregation servers the load balancer starts with
 	public static final Integer DEFAULT_BALANCED_SERVERS = 3;
 
+	// Started servers kept in reserve, which are added to the pool as soon as every server is saturated
+	// Set at startup with -Dserver.standby=<N>
+	public static final Integer STANDBY_SERVERS = Integer.getInteger("server.standby", 1);
+
 	// Maximum allowed servers when balancing
 	public static final Integer MAX_SERVERS = 10;
 
 	// Minimum allowed server when balancing
 	public static final Integer MIN_SERVERS = 1;
 
+	// Most connections, or requests in NIO and H2C mode, the load balancer admits at once, and most waiting to be admitted
+	// Set at startup with -Dserver.admission.limit=<N> and -Dserver.admission.queue=<N>
+	public static final Integer ADMISSION_LIMIT = Integer.getInteger("server.admission.limit", MAX_SERVERS * MAX_IN_FLIGHT_REQUESTS);
+	public static final Integer ADMISSION_QUEUE = Integer.getInteger("server.admission.queue", 500);
+
+	// Longest a connection or request waits to be admitted before it is turned away
+	// Set at startup with -Dserver.admission.timeout=<MS>
+	public static final Integer ADMISSION_TIMEOUT = Integer.getInteger("server.admission.timeout", 1000); // milliseconds
+
+	// How long a client turned away by admission control is told to wait before retrying
+	public static final Integer RETRY_AFTER = 1; // seconds
+
 	// Version of HTTP used for requests
 	public static final String HTTP_VERSION = "HTTP/1.1";
 
-	// Define the header key for lamport clock values
-	public static final String LAMPORT_CLOCK_HEADER = "lamport-clock";
+	// How long an idle keep-alive connection is held open for the next request
+	public static final Integer KEEP_ALIVE_TIMEOUT = 5000; // milliseconds
+
+	// Maximum number of requests served over a single keep-alive connection
+	public static final Integer MAX_REQUESTS_PER_CONNECTION = 100;
+
+	// Maximum number of pipelined requests processed ahead of their responses
+	public static final Integer MAX_PIPELINED_REQUESTS = 16;
+
+	// Largest request, including its head and body, that is accepted from a client
+	public static final Integer MAX_REQUEST_SIZE = 1024 * 1024; // bytes
+
+	// Most headers, and the largest body, accepted in a single request
+	// Set at startup with -Dserver.maxHeaders=<N> and -Dserver.maxBodySize=<BYTES>
+	public static final Integer MAX_HEADER_COUNT = Integer.getInteger("server.maxHeaders", 100);
+	public static final Integer MAX_BODY_SIZE = Integer.getInteger("server.maxBodySize", 512 * 1024); // bytes
+
+	// Deadlines for receiving a request head, receiving its body, and writing a response
+	// Set at startup with -Dserver.headerTimeout, -Dserver.bodyTimeout and -Dserver.writeTimeout
+	public static final Integer HEADER_READ_TIMEOUT = Integer.getInteger("server.headerTimeout", 10_000); // milliseconds
+	public static final Integer BODY_READ_TIMEOUT = Integer.getInteger("server.bodyTimeout", 30_000); // milliseconds
+	public static final Integer WRITE_TIMEOUT = Integer.getInteger("server.writeTimeout", 10_000); // milliseconds
+
+	// Smallest response body that is compressed when the client accepts it
+	public static final Integer MIN_COMPRESSION_SIZE = 256; // bytes
+
+	// Front end used by the load balancer to accept client connections
+	// Select at startup with -Dserver.mode=BLOCKING|NIO|H2C
+	public static final HttpServerMode SERVER_MODE = HttpServerMode.valueOf(System.getProperty("server.mode", "BLOCKING"));
+
+	// Threads accepting connections in BLOCKING mode, each on its own SO_REUSEPORT socket where supported
+	// Set at startup with -Dserver.acceptors=<N>
+	public static final Integer ACCEPTOR_THREADS = Integer.getInteger("server.acceptors", 1);
+
+	// Connections the kernel holds for each listening socket until they are accepted
+	// Set at startup with -Dserver.backlog=<N>
+	public static final Integer ACCEPT_BACKLOG = Integer.getInteger("server.backlog", 1024);
+
+	// How long an acceptor waits after accepting fails, doubled for each failure in a row up to the maximum
+	public static final Integer ACCEPT_RETRY_DELAY = 10; // milliseconds
+	public static final Integer ACCEPT_RETRY_MAX_DELAY = 1000; // milliseconds
+
+	// Whether client connections send small writes straight away, and their buffer sizes, where 0 keeps the OS default
+	// Set at startup with -Dserver.tcpNoDelay=true|false, -Dserver.receiveBuffer=<BYTES> and -Dserver.sendBuffer=<BYTES>
+	public static final Boolean TCP_NO_DELAY = Boolean.parseBoolean(System.getProperty("server.tcpNoDelay", "true"));
+	public static final Integer SOCKET_RECEIVE_BUFFER = Integer.getInteger("server.receiveBuffer", 0); // bytes
+	public static final Integer SOCKET_SEND_BUFFER = Integer.getInteger("server.sendBuffer", 0); // bytes
+
+	// How accepted connections reach a server in BLOCKING mode: through a front pool, or straight from the acceptor
+	// Select at startup with -Dserver.dispatch=POOLED|DIRECT
+	public static final DispatchMode DISPATCH_MODE = DispatchMode.valueOf(System.getProperty("server.dispatch", "POOLED"));
+
+	// Number of reactor threads multiplexing connections in NIO mode
+	public static final Integer REACTOR_THREADS = Integer.getInteger("server.reactors", 2);
+
+	// Most streams a client may have open at once on an h2c connection
+	// Set at startup with -Dserver.h2c.maxStreams=<N>
+	public static final Integer H2C_MAX_CONCURRENT_STREAMS = Integer.getInteger("server.h2c.maxStreams", 100);
+
+	// Most h2c connections held open at once, each using two of the front end's threads
+	// Set at startup with -Dserver.h2c.maxConnections=<N>
+	public static final Integer H2C_MAX_CONNECTIONS = Integer.getInteger("server.h2c.maxConnections", 100);
+
+	// Flow control window for request bodies on an h2c connection, and on each of its streams
+	public static final Integer H2C_WINDOW_SIZE = MAX_REQUEST_SIZE; // bytes
+
+	// Most events buffered for an event stream subscriber before it is dropped for falling behind
+	// Set at startup with -Dserver.sse.bufferSize=<N>
+	public static final Integer SSE_BUFFER_SIZE = Integer.getInteger("server.sse.bufferSize", 64);
+
+	// How long an event stream stays silent before a comment is sent to check the client is still there
+	public static final Integer SSE_HEARTBEAT_INTERVAL = KEEP_ALIVE_TIMEOUT; // milliseconds
+
+	// Strategy used by the load balancer to choose a server for each connection or request
+	// Select at startup with -Dserver.strategy=ROUND_ROBIN|LEAST_IN_FLIGHT|P2C|LATENCY_WEIGHTED|STATION_HASH
+	public static final LoadBalancingStrategy LOAD_BALANCING_STRATEGY = LoadBalancingStrategy.valueOf(System.getProperty("server.strategy", "P2C"));
+
+	// Threads used by the aggregation servers to run client requests
+	// Select at startup with -Dexecution.mode=PLATFORM|VIRTUAL|SHARED
+	public static final ExecutionMode EXECUTION_MODE = ExecutionMode.valueOf(System.getProperty("execution.mode", "PLATFORM"));
+
+	// Most threads in the pool every server shares in SHARED mode, by default enough for every server to use its whole share
+	// Set at startup with -Dexecution.sharedThreads=<N>
+	public static final Integer SHARED_POOL_THREADS = Integer.getInteger("execution.sharedThreads", MAX_THREADS_FOR_CLIENT_REQUESTS * MAX_SERVERS);
+
+	// Where the aggregation servers run: inside the load balancer, or as local processes
+	// Select at startup with -Dserver.backend=IN_PROCESS|PROCESS
+	public static final BackendMode BACKEND_MODE = BackendMode.valueOf(System.getProperty("server.backend", "IN_PROCESS"));
+
+	// Running aggregation nodes to attach to before launching new ones, as a comma separated list
+	// Set at startup with -Dserver.backends=<HOST:PORT>,<HOST:PORT>
+	public static final String BACKEND_ADDRESSES = System.getProperty("server.backends", "");
+
+	// How often each aggregation node is health checked, and how long it may take to answer
+	// Set at startup with -Dserver.backend.healthInterval and -Dserver.backend.timeout
+	public static final Integer BACKEND_HEALTH_INTERVAL = Integer.getInteger("server.backend.healthInterval", 2000); // milliseconds
+	public static final Integer BACKEND_TIMEOUT = Integer.getInteger("server.backend.timeout", 30_000); // milliseconds
+
+	// How long a launched aggregation node has to pass its first health check
+	public static final Integer BACKEND_STARTUP_TIMEOUT = 15_000; // milliseconds
+
+	// Health checks in a row an aggregation node must fail before it is treated as down
+	public static final Integer BACKEND_FAILURE_THRESHOLD = 3;
+
+	// Idle keep-alive connections kept open to each server, for clients and for forwarding to aggregation nodes
+	// Set at startup with -Dserver.backend.connections=<N>
+	public static final Integer MAX_IDLE_CONNECTIONS = Integer.getInteger("server.backend.connections", 16);
+
+	// Replica nodes launched for each aggregation node, which follow its writes and share its reads
+	// Set at startup with -Dserver.backend.replicas=<N>
+	public static final Integer BACKEND_REPLICAS = Integer.getInteger("server.backend.replicas", 0);
+
+	// Secret that aggregation nodes require before following or changing their replication, so only the load balancer can
+	// Launched nodes are given a random one when unset, and attached nodes must be started with the load balancer's
+	// Set at startup with -Dserver.replication.token=<TOKEN>
+	public static final String REPLICATION_TOKEN = System.getProperty("server.replication.token", "");
+
+	// How often a primary node tells its replicas which of its clock values they have caught up to
+	public static final Integer REPLICATION_SYNC_INTERVAL = 50; // milliseconds
+
+	// How long a replica waits to catch up with a client before the read is sent to the primary
+	public static final Integer REPLICA_READ_WAIT = 2 * REPLICATION_SYNC_INTERVAL; // milliseconds
+
+	// How long a replica waits before following its primary again after the replication log is lost
+	public static final Integer REPLICATION_RETRY_INTERVAL = 500; // milliseconds
 }
@@ -0,0 +1,102 @@
+package net.ethandankiw.aggregation;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.store.ContentStore;
+import net.ethandankiw.server.HttpServer;
+import net.ethandankiw.utils.SocketUtils;
+
+/**
+ * Runs a single aggregation server, with its own content store, as a
+ * standalone process. The load balancer launches or attaches to nodes when
+ * started with {@code -Dserver.backend=PROCESS}, and forwards requests to
+ * them over local sockets.
+ * <p>
+ * Arguments: {@code <PORT> [<PARENT_PID>]}. When the ID of the parent
+ * process is given, the node exits once the parent does.
+ */
+public class AggregationNode {
+
+	private static final Logger logger = LoggerFactory.getLogger(AggregationNode.class);
+
+
+	private AggregationNode() {
+	}
+
+
+	public static void main(String[] args) {
+		// If the port to listen on was not provided
+		if (args.length < 1 || args[0].isBlank()) {
+			logger.error("Missing port for the aggregation node");
+			return;
+		}
+
+		int port = Integer.parseInt(args[0]);
+
+		// Exit with the load balancer that launched the node, so no node is left behind
+		if (args.length > 1) {
+			ProcessHandle.of(Long.parseLong(args[1]))
+						 .ifPresent(parent -> parent.onExit()
+													.thenRun(() -> System.exit(0)));
+		}
+
+		// Start the node's content store, which only holds the stations routed to this node
+		ContentStore.init();
+		ContentStore.startExpiryTask();
+		ContentStore.startProcessorThread();
+
+		// Listen for connections from the load balancer
+		HttpServer listener = new HttpServer(AggregationNode.class.getSimpleName(), port);
+		listener.start();
+
+		ServerSocket serverSocket = listener.getSocket();
+
+		// If the port could not be bound
+		if (serverSocket == null) {
+			logger.error("Unable to start aggregation node on port {}", port);
+			System.exit(1);
+		}
+
+		AggregationServer server = new AggregationServer(GlobalConstants.EXECUTION_MODE);
+
+		// Only let the load balancer follow or change the node's replication
+		server.setReplicationToken(GlobalConstants.REPLICATION_TOKEN);
+		LamportClock clock = new LamportClock();
+		logger.info("Aggregation node {} listening on port {}", server.getUUID(), port);
+
+		// Number of accepts in a row that have failed
+		int failures = 0;
+
+		// Serve every connection on the node's aggregation server
+		while (!serverSocket.isClosed()) {
+			Optional<Socket> optionalConnection;
+
+			try {
+				optionalConnection = SocketUtils.acceptClientConnection(serverSocket);
+				failures = 0;
+			} catch (RuntimeException re) {
+				// Keep accepting after a failed connection, until the server socket is closed, waiting in case the failure lasts
+				failures += 1;
+				if (!SocketUtils.backOffAccept(failures)) {
+					return;
+				}
+
+				continue;
+			}
+
+			// If the connection was unable to be established
+			if (optionalConnection.isEmpty()) {
+				continue;
+			}
+
+			server.handleClientConnection(optionalConnection.get(), clock);
+		}
+	}
+}
@@ -2,63 +2,128 @@ package net.ethandankiw.aggregation;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.ethandankiw.GlobalConstants;
 import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.WeatherData;
+import net.ethandankiw.data.http.ContentEncoding;
+import net.ethandankiw.data.http.HttpHeaders;
 import net.ethandankiw.data.http.HttpRequest;
 import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpResponse;
 import net.ethandankiw.data.http.HttpStatusCode;
 import net.ethandankiw.data.http.JSON;
+import net.ethandankiw.data.server.ServerLoad;
+import net.ethandankiw.data.store.CachedBody;
 import net.ethandankiw.data.store.ContentStore;
-import net.ethandankiw.data.store.FileManager;
+import net.ethandankiw.data.store.ResponseBodyCache;
+import net.ethandankiw.data.store.StationEvent;
+import net.ethandankiw.data.store.StationEventBroker;
+import net.ethandankiw.data.store.StationSubscription;
+import net.ethandankiw.server.ExecutionMode;
 import net.ethandankiw.utils.JsonUtils;
+import net.ethandankiw.utils.SocketUtils;
 import net.ethandankiw.utils.UuidUtils;
+import net.ethandankiw.utils.http.HttpRequestReader;
 import net.ethandankiw.utils.http.HttpRequestUtils;
+import net.ethandankiw.utils.http.HttpResponseEncoder;
 import net.ethandankiw.utils.http.HttpResponseUtils;
 
 public class AggregationServer {
 
 	private static final Logger logger = LoggerFactory.getLogger(AggregationServer.class);
 
+	// Comment sent on an idle event stream, which the client ignores
+	private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
 	// Lamport clock for determining the order of received requests
 	private final LamportClock clock = new LamportClock();
 
 	// Unique ID for the aggregation server
 	private final String uuid;
 
+	// Threads used to run client requests
+	private final ExecutionMode executionMode;
+
 	// Define a pool of threads to handle client requests
-	private final ExecutorService pool = Executors.newFixedThreadPool(GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS);
+	private final ExecutorService pool;
+
+	// Define a pool of threads to process pipelined requests concurrently
+	private final ExecutorService pipelinePool;
 
-	// Create a lock on the number of active request processing threads
+	// Create a lock on the number of in-flight requests and open connections
 	private final ReentrantLock lock = new ReentrantLock();
 
 	// Create a queue of threads waiting for the lock to be released
 	private final Condition drained = lock.newCondition();
 
-	// Current number of threads that are active
-	private final AtomicInteger activeThreads = new AtomicInteger(0);
+	// Current number of requests that have been read but not yet answered
+	private final AtomicInteger inFlightRequests = new AtomicInteger(0);
+
+	// Current number of client connections held by the server
+	private final AtomicInteger openConnections = new AtomicInteger(0);
+
+	// Current number of requests being handled on a thread
+	private final AtomicInteger runningRequests = new AtomicInteger(0);
+
+	// Current number of tasks submitted to the pool that have not started running
+	private final AtomicInteger queuedTasks = new AtomicInteger(0);
+
+	// Current number of running requests blocked on the content store
+	private final AtomicInteger storeWaits = new AtomicInteger(0);
+
+	// Moving average of the time taken to handle a request, weighting each new request by 1/8
+	private final AtomicLong averageLatency = new AtomicLong(0);
+
+	// Moving average of the time a request waited on the content store, weighting each new wait by 1/8
+	private final AtomicLong averageStoreWait = new AtomicLong(0);
+
+	// Number of requests the server has finished handling
+	private final AtomicLong handledRequests = new AtomicLong(0);
 
 	// Flag for if the server is accepting new requests
 	private volatile boolean acceptingNewRequests = true;
 
+	// Replication log of the primary node followed when the server runs as a replica, or null for a primary
+	private volatile ReplicationFollower follower = null;
+
+	// Secret a replication request must carry, or null if the server is not a node and has no replication
+	private volatile String replicationToken = null;
+
 
 	// Public constructor
 	public AggregationServer() {
+		this(GlobalConstants.EXECUTION_MODE);
+	}
+
+
+	public AggregationServer(ExecutionMode executionMode) {
 		// Generate a unique ID
 		uuid = UuidUtils.generateUUID();
+
+		// Create the thread pools for the execution mode
+		this.executionMode = executionMode;
+		pool = executionMode.createExecutor(GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS);
+		pipelinePool = executionMode.createDependentExecutor(GlobalConstants.MAX_PIPELINED_REQUESTS);
 	}
 
 
@@ -69,16 +134,73 @@ public class AggregationServer {
 
 	// Get the current load of the server as a percentage
 	public Double getLoad() {
-		// Calculate the server load as a percentage out of 100
-		return (double) getActiveRequestsCount()
-				/ (double) GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS;
+		return getServerLoad().getUtilization();
 	}
 
 
-	// Get the number of active requests
+	// Get a snapshot of the work held by the server
+	public ServerLoad getServerLoad() {
+		return new ServerLoad(executionMode, runningRequests.get(), queuedTasks.get(), storeWaits.get(), inFlightRequests.get(),
+				openConnections.get(), averageLatency.get(), averageStoreWait.get());
+	}
+
+
+	// Get the number of requests that are being processed
 	public Integer getActiveRequestsCount() {
-		// Get the number of active threads that are processing requests
-		return activeThreads.get();
+		// Get the number of requests that have been read but not yet answered
+		return inFlightRequests.get();
+	}
+
+
+	// Get the number of client connections held by the server
+	public Integer getOpenConnectionsCount() {
+		return openConnections.get();
+	}
+
+
+	// Get the average time taken to handle a request in nanoseconds, or 0 before any request
+	public long getAverageLatency() {
+		return averageLatency.get();
+	}
+
+
+	// Get the average time a request waited on the content store in nanoseconds, or 0 before any wait
+	public long getAverageStoreWait() {
+		return averageStoreWait.get();
+	}
+
+
+	// Get the number of requests the server has finished handling
+	public long getHandledRequestsCount() {
+		return handledRequests.get();
+	}
+
+
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+
+	// Get the pool of threads that handle client requests
+	ExecutorService getPool() {
+		return pool;
+	}
+
+
+	/**
+	 * Start every thread of the server before it takes any requests, so a
+	 * standby server can be added to the pool without creating them while
+	 * requests wait.
+	 */
+	public void prestartThreads() {
+		// Virtual threads are created per request, so only fixed pools are started
+		if (pool instanceof ThreadPoolExecutor executor) {
+			executor.prestartAllCoreThreads();
+		}
+
+		if (pipelinePool instanceof ThreadPoolExecutor executor) {
+			executor.prestartAllCoreThreads();
+		}
 	}
 
 
@@ -102,94 +224,658 @@ public class AggregationServer {
 
 
 	public void handleClientConnection(Socket client, LamportClock lbClock) {
+		handleClientConnection(client, lbClock, () -> {
+		});
+	}
+
+
+	/**
+	 * Serve a client connection on a thread from the pool.
+	 *
+	 * @param onClosed run once the server is done with the connection, or
+	 * if it was never taken
+	 */
+	public void handleClientConnection(Socket client, LamportClock lbClock, Runnable onClosed) {
 		// If the server is no longer accepting requests
 		if (isDraining()) {
+			onClosed.run();
 			return;
 		}
 
 		// Receive clock value from load balancer
 		clock.receive(lbClock.getClockValue());
 
-		// Increment the number of active request processing threads
-		incrementActiveThreads();
+		// Increment the number of open client connections
+		incrementOpenConnections();
 
 		try {
 			// Spawn a new thread from the pool to process the client request
-			pool.submit(() -> {
+			pool.submit(queue(() -> {
 				try {
-					// Process the client request
-					handleConnection(client);
-
-					// Update the load balancer clock value
-					lbClock.receive(clock.getClockValue());
+					// Process the client requests until the connection closes
+					handleConnection(client, lbClock);
 				} catch (Exception e) {
 					logger.error("Error occurred while handling client connection: {}", e.getMessage());
 				} finally {
-					decrementActiveThreads();
+					decrementOpenConnections();
+					onClosed.run();
 				}
-			});
+			}));
 		} catch (Exception e) {
 			logger.error("Error occurred while submitting task for execution: {}", e.getMessage());
+			cancelQueued();
+			decrementOpenConnections();
+			closeClientConnection(client);
+			onClosed.run();
+		}
+	}
+
+
+	/**
+	 * Process a single request that has already been read from the client by
+	 * the load balancer. The connection itself stays with the load balancer,
+	 * so no thread is held while the client is idle.
+	 *
+	 * @return a future that completes with the response to the request
+	 */
+	public CompletableFuture<HttpResponse> submitRequest(HttpRequest request, LamportClock lbClock) {
+		// Receive clock value from load balancer
+		clock.receive(lbClock.getClockValue());
 
+		// Increment the number of in-flight requests
+		incrementInFlightRequests();
+
+		try {
+			// Process the request on a thread from the pool
+			return CompletableFuture.supplyAsync(queue(() -> handleRequest(request)), pool)
+									.whenComplete((response, e) -> {
+										// Update the load balancer clock value
+										lbClock.receive(clock.getClockValue());
+										decrementInFlightRequests();
+									});
+		} catch (Exception e) {
+			logger.error("Error occurred while submitting request for execution: {}", e.getMessage());
+			cancelQueued();
+			decrementInFlightRequests();
+			return CompletableFuture.completedFuture(respond(HttpStatusCode.INTERNAL_SERVER_ERROR, "Error handling client request"));
 		}
 	}
 
 
-	private void handleConnection(Socket client) {
+	private void handleConnection(Socket client, LamportClock lbClock) {
+		// Responses for requests that have been read, in the order they were received
+		Deque<CompletableFuture<HttpResponse>> pending = new ArrayDeque<>();
+
 		try {
-			// Parse a possible request from the client
-			Optional<HttpRequest> optionalRequest = HttpRequestUtils.parseClientRequest(client);
-
-			// If the request was unable to be parsed
-			if (optionalRequest.isEmpty()) {
-				logger.error("Unable to parse client request");
-				String responseBody = "Unable to parse client request";
-				HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.BAD_REQUEST, responseBody, clock);
+			// Open a single reader so buffered data is kept between requests
+			Optional<HttpRequestReader> optionalReader = HttpRequestUtils.openRequestReader(client);
+
+			// If the connection cannot be read from
+			if (optionalReader.isEmpty()) {
 				return;
 			}
 
-			// If request is valid
-			HttpRequest request = optionalRequest.get();
+			HttpRequestReader fromClient = optionalReader.get();
+
+			// Completes once the most recent PUT request has been processed
+			CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null);
+
+			// Count the requests read over this connection
+			int served = 0;
+			boolean reading = true;
+
+			// Serve requests until the client or the server closes the connection
+			while (reading || !pending.isEmpty()) {
+				// Read another request if none are outstanding, or if the client has pipelined it
+				boolean readNext = reading
+						&& pending.size() < GlobalConstants.MAX_PIPELINED_REQUESTS
+						&& (pending.isEmpty() ? fromClient.awaitNextRequest(GlobalConstants.KEEP_ALIVE_TIMEOUT)
+								: fromClient.isNextRequestBuffered());
+
+				// If there is nothing more to read, write the oldest response
+				if (!readNext) {
+					// Stop reading once the client has closed or gone idle
+					reading = reading && !pending.isEmpty();
 
-			// Get the request method
-			HttpRequestMethod method = request.getMethod();
+					// If there are no responses left to write
+					if (pending.isEmpty()) {
+						break;
+					}
 
-			// Handle the request according to the method
-			switch (method) {
-				case GET -> {
-					logger.debug("Detected GET request");
-					handleGETRequest(client, request);
+					// If the response cannot be written, the connection is unusable
+					if (!sendNextResponse(client, pending, lbClock)) {
+						return;
+					}
+
+					continue;
 				}
-				case PUT -> {
-					logger.debug("Detected PUT request");
-					handlePUTRequest(client, request);
+
+				// The request is in flight from its first byte until its response is written
+				served += 1;
+				incrementInFlightRequests();
+
+				// Parse a possible request from the client
+				Optional<HttpRequest> optionalRequest = fromClient.readRequest();
+
+				// If the request was unable to be read, the stream position is unknown
+				if (optionalRequest.isEmpty()) {
+					reading = false;
+					Optional<HttpStatusCode> failure = fromClient.getFailureStatus();
+
+					// If the client closed the connection, there is no one to respond to
+					if (failure.isEmpty()) {
+						decrementInFlightRequests();
+						continue;
+					}
+
+					logger.error("Unable to read client request");
+					HttpResponse response = respond(failure.get(), "Unable to read client request");
+					pending.add(CompletableFuture.completedFuture(HttpResponseUtils.addConnectionHeaders(response, false, served)));
+					continue;
+				}
+
+				// If request is valid
+				HttpRequest request = optionalRequest.get();
+
+				// A subscription or a replica keeps the connection until it leaves
+				if (HttpRequestUtils.isEventStreamRequest(request) || (HttpRequestUtils.isReplicationStreamRequest(request) && isReplicationAllowed(request))) {
+					// Answer every earlier request before the stream starts
+					while (!pending.isEmpty()) {
+						if (!sendNextResponse(client, pending, lbClock)) {
+							decrementInFlightRequests();
+							return;
+						}
+					}
+
+					// The subscription is idle between events, so it is not counted as a request in flight
+					decrementInFlightRequests();
+					if (HttpRequestUtils.isReplicationStreamRequest(request)) {
+						streamReplication(client, request, lbClock);
+					} else {
+						streamEvents(client, request, lbClock);
+					}
+					return;
+				}
+
+				// Determine if the connection can be reused after this request
+				boolean keepAlive = isKeepAlive(request, served);
+				reading = keepAlive;
+				int count = served;
+
+				// If this is the only request outstanding, handle it on this thread
+				if (pending.isEmpty() && !fromClient.isNextRequestBuffered()) {
+					HttpResponse response = handleRequest(request);
+					pending.add(CompletableFuture.completedFuture(HttpResponseUtils.addConnectionHeaders(response, keepAlive, count)));
+					continue;
+				}
+
+				// Pipelined GET requests are processed concurrently after the last PUT
+				CompletableFuture<?> dependency = lastWrite;
+
+				// A PUT request waits for every earlier request on this connection
+				if (request.getMethod() != HttpRequestMethod.GET) {
+					dependency = CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new));
 				}
-				case null, default -> {
-					logger.error("Invalid request method: {}", method);
-					String responseBody = "Invalid request method";
-					HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.BAD_REQUEST, responseBody, clock);
+
+				// Process the request without waiting for earlier responses to be written
+				CompletableFuture<HttpResponse> future = dependency.thenCompose(ignored -> submitPipelinedRequest(request))
+																   .thenApply(response -> HttpResponseUtils.addConnectionHeaders(response, keepAlive, count));
+
+				// Later requests must observe the result of this PUT
+				if (request.getMethod() != HttpRequestMethod.GET) {
+					lastWrite = future;
 				}
+
+				pending.add(future);
 			}
-		} catch (Exception e) {
-			logger.error("Error handling client request: {}", e.getMessage());
-			String responseBody = "Error handling client request";
-			HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.INTERNAL_SERVER_ERROR, responseBody, clock);
 		} finally {
+			// Requests whose responses were never written are no longer in flight
+			pending.forEach(ignored -> decrementInFlightRequests());
+
 			// Safely close the client connection
 			closeClientConnection(client);
 		}
 	}
 
 
-	private void handlePUTRequest(Socket client, HttpRequest request) {
+	private boolean sendNextResponse(Socket client, Deque<CompletableFuture<HttpResponse>> pending, LamportClock lbClock) {
+		// Responses are written strictly in request order
+		HttpResponse response = pending.poll()
+									   .join();
+
+		try {
+			return HttpResponseUtils.sendResponse(client, response);
+		} finally {
+			// Update the load balancer clock value
+			lbClock.receive(clock.getClockValue());
+			decrementInFlightRequests();
+		}
+	}
+
+
+	private CompletableFuture<HttpResponse> submitPipelinedRequest(HttpRequest request) {
+		try {
+			// The request counts as queued from when its turn comes until a pipeline thread starts it
+			return CompletableFuture.supplyAsync(queue(() -> handleRequest(request)), pipelinePool);
+		} catch (Exception e) {
+			logger.error("Error occurred while submitting pipelined request for execution: {}", e.getMessage());
+			cancelQueued();
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+
+	/**
+	 * Stream the readings of a station, or of every station, to a subscribed
+	 * client until it disconnects, falls behind, or the server drains. Readings
+	 * newer than the client's Last-Event-ID are sent first, so a reconnecting
+	 * client resumes where it left off.
+	 */
+	private void streamEvents(Socket client, HttpRequest request, LamportClock lbClock) {
+		// Get the station to subscribe to, if any
+		String stationId = HttpRequestUtils.getStationId(request)
+										   .orElse(null);
+
+		// Subscribe before reading the stored data, so no reading is missed in between
+		StationSubscription subscription = StationEventBroker.subscribe(stationId);
+
+		try {
+			// Send the head, leaving the connection open for events
+			clock.tick();
+			HttpResponse head = HttpResponseUtils.generateEventStreamResponse(clock.getClockValue());
+			if (!SocketUtils.writeToSocket(client, HttpResponseEncoder.encodeStreamHead(head), GlobalConstants.WRITE_TIMEOUT)) {
+				return;
+			}
+
+			// Update the load balancer clock value
+			lbClock.receive(clock.getClockValue());
+
+			// Replay the readings the client has not received
+			for (StationEvent event : ContentStore.getEventsSince(stationId, HttpRequestUtils.getLastEventId(request))) {
+				if (!sendEvent(client, subscription, event)) {
+					return;
+				}
+			}
+
+			// If the client only wanted the stored readings
+			if (!HttpRequestUtils.isFollowRequested(request)) {
+				return;
+			}
+
+			// Push new readings until the server starts draining
+			while (!isDraining()) {
+				Optional<StationEvent> event = subscription.poll(GlobalConstants.SSE_HEARTBEAT_INTERVAL);
+
+				// If events were dropped, close the stream so the client resumes from its last event
+				if (subscription.isOverflowed()) {
+					logger.warn("Closing event stream as the client fell behind");
+					return;
+				}
+
+				// If nothing was published, send a comment to check the client is still there
+				boolean sent = event.isPresent() ? sendEvent(client, subscription, event.get())
+						: SocketUtils.writeToSocket(client, HEARTBEAT, GlobalConstants.WRITE_TIMEOUT);
+
+				// If the client has disconnected
+				if (!sent) {
+					return;
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread()
+				  .interrupt();
+		} finally {
+			StationEventBroker.unsubscribe(subscription);
+		}
+	}
+
+
+	/**
+	 * Stream every reading applied to the content store to a replica node,
+	 * with the Lamport clock it was applied with, until the replica
+	 * disconnects, falls behind, or the server drains. Whenever no write is
+	 * waiting to be applied and every applied reading has been sent, the
+	 * current clock of the server is sent as a sync event, so the replica
+	 * knows it holds every reading a client with that clock may have seen.
+	 */
+	private void streamReplication(Socket client, HttpRequest request, LamportClock lbClock) {
+		// Subscribe before reading the stored data, so no reading is missed in between
+		StationSubscription subscription = StationEventBroker.subscribe(null);
+
+		try {
+			// Send the head, leaving the connection open for the log
+			clock.tick();
+			HttpResponse head = HttpResponseUtils.generateEventStreamResponse(clock.getClockValue());
+			if (!SocketUtils.writeToSocket(client, HttpResponseEncoder.encodeStreamHead(head), GlobalConstants.WRITE_TIMEOUT)) {
+				return;
+			}
+
+			// Update the load balancer clock value
+			lbClock.receive(clock.getClockValue());
+
+			// Replay the readings the replica has not applied
+			for (StationEvent event : ContentStore.getEventsSince(null, HttpRequestUtils.getLastEventId(request))) {
+				if (!sendEvent(client, subscription, event)) {
+					return;
+				}
+			}
+
+			// Clock of the last sync event sent, so an idle log sends each clock only once
+			long lastSyncClock = -1;
+
+			// Push new readings until the server starts draining
+			while (!isDraining()) {
+				Optional<StationEvent> event = subscription.poll(GlobalConstants.REPLICATION_SYNC_INTERVAL);
+
+				// If readings were dropped, close the log so the replica resumes from its last reading
+				if (subscription.isOverflowed()) {
+					logger.warn("Closing replication log as the replica fell behind");
+					return;
+				}
+
+				// If the replica has disconnected
+				if (event.isPresent() && !sendEvent(client, subscription, event.get())) {
+					return;
+				}
+
+				// Read the clock before checking for writes, as any write accepted after it has a later clock
+				long syncClock = clock.getClockValue();
+
+				// If a write is still being applied, or its reading has not been sent yet
+				if (ContentStore.hasPendingWrites() || subscription.hasPending() || subscription.isOverflowed()) {
+					continue;
+				}
+
+				// If the replica already holds everything up to the clock
+				if (syncClock == lastSyncClock) {
+					continue;
+				}
+
+				// If the replica has disconnected
+				if (!SocketUtils.writeToSocket(client, StationEvent.encodeSync(syncClock), GlobalConstants.WRITE_TIMEOUT)) {
+					return;
+				}
+
+				lastSyncClock = syncClock;
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread()
+				  .interrupt();
+		} finally {
+			StationEventBroker.unsubscribe(subscription);
+		}
+	}
+
+
+	private static boolean sendEvent(Socket client, StationSubscription subscription, StationEvent event) {
+		// Skip readings the client already has
+		if (!subscription.markSent(event)) {
+			return true;
+		}
+
+		return SocketUtils.writeToSocket(client, event.encode(), GlobalConstants.WRITE_TIMEOUT);
+	}
+
+
+	private HttpResponse handleRequest(HttpRequest request) {
+		long start = startRequest();
+
+		try {
+			HttpResponse response = route(request);
+
+			// Tell the load balancer how far a replica has caught up, so it can promote the furthest
+			ReplicationFollower current = follower;
+			if (current != null) {
+				response.addHeader(HttpHeaders.APPLIED_CLOCK, String.valueOf(current.getCaughtUpClock()));
+			}
+
+			return response;
+		} catch (Exception e) {
+			logger.error("Error handling client request: {}", e.getMessage());
+			return respond(HttpStatusCode.INTERNAL_SERVER_ERROR, "Error handling client request");
+		} finally {
+			finishRequest(start);
+		}
+	}
+
+
+	private HttpResponse route(HttpRequest request) throws ExecutionException, InterruptedException {
+		// Answer health checks without touching the content store
+		if (HttpRequestUtils.isHealthCheckRequest(request)) {
+			return respond(HttpStatusCode.OK, "OK");
+		}
+
+		// Only the load balancer running the node may follow or change its replication
+		if (HttpRequestUtils.isReplicationRequest(request) && !isReplicationAllowed(request)) {
+			return respond(HttpStatusCode.FORBIDDEN, "Replication is only available to the load balancer.");
+		}
+
+		// Subscriptions are only streamed over dedicated HTTP/1.1 connections
+		if (HttpRequestUtils.isEventStreamRequest(request) || HttpRequestUtils.isReplicationStreamRequest(request)) {
+			return respond(HttpStatusCode.NOT_IMPLEMENTED, "Event streams are only served in BLOCKING mode.");
+		}
+
+		// Promote the node, or make it follow another primary
+		if (HttpRequestUtils.isReplicationControlRequest(request)) {
+			return handleReplicationRequest(request);
+		}
+
+		// Get the request method
+		HttpRequestMethod method = request.getMethod();
+
+		// A replica only answers reads it has caught up to, and leaves writes to its primary
+		ReplicationFollower current = follower;
+		if (current != null) {
+			if (method != HttpRequestMethod.GET) {
+				return respond(HttpStatusCode.SERVICE_UNAVAILABLE, "Writes are only accepted by the primary node.");
+			}
+
+			if (!current.awaitCaughtUp(HttpRequestUtils.getLamportClock(request), GlobalConstants.REPLICA_READ_WAIT)) {
+				return respond(HttpStatusCode.SERVICE_UNAVAILABLE, "Replica has not caught up with the client.");
+			}
+		}
+
+		// Handle the request according to the method
+		switch (method) {
+			case GET -> {
+				logger.debug("Detected GET request");
+				return handleGETRequest(request);
+			}
+			case PUT -> {
+				logger.debug("Detected PUT request");
+				return handlePUTRequest(request);
+			}
+			case null, default -> {
+				logger.error("Invalid request method: {}", method);
+				return respond(HttpStatusCode.BAD_REQUEST, "Invalid request method");
+			}
+		}
+	}
+
+
+	private HttpResponse handleReplicationRequest(HttpRequest request) {
+		Optional<String> primary = HttpRequestUtils.getQueryParameter(request.getPath(), "primary");
+
+		// If the node is being promoted, it now accepts writes
+		if (primary.isEmpty()) {
+			stopFollowing();
+			logger.info("Aggregation server {} promoted to primary", uuid);
+			return respond(HttpStatusCode.OK, "Promoted to primary.");
+		}
+
+		// Check the new primary before leaving the current one, so a bad address changes nothing
+		int colonIdx = primary.get()
+							  .lastIndexOf(':');
+		int port = colonIdx <= 0 ? -1 : parsePort(primary.get()
+														 .substring(colonIdx + 1));
+
+		// If the primary is not a host and port
+		if (port < 0) {
+			return respond(HttpStatusCode.BAD_REQUEST, "Invalid primary address.");
+		}
+
+		// Catch up with the new primary from the start of its clock, as clock values are only comparable within one primary
+		stopFollowing();
+		follower = new ReplicationFollower(primary.get()
+												  .substring(0, colonIdx), port, clock);
+		logger.info("Aggregation server {} following primary {}", uuid, primary.get());
+		return respond(HttpStatusCode.OK, "Following " + primary.get() + ".");
+	}
+
+
+	private void stopFollowing() {
+		// Stop following the current primary, if any
+		ReplicationFollower previous = follower;
+		follower = null;
+		if (previous != null) {
+			previous.stop();
+		}
+	}
+
+
+	private static int parsePort(String port) {
+		try {
+			int parsed = Integer.parseInt(port.trim());
+			return parsed > 0 && parsed <= 65535 ? parsed : -1;
+		} catch (NumberFormatException nfe) {
+			return -1;
+		}
+	}
+
+
+	private boolean isReplicationAllowed(HttpRequest request) {
+		String expected = replicationToken;
+		String token = request.getHeaderValue(HttpHeaders.REPLICATION_TOKEN);
+
+		// A server that is not a node has no replication, and a node needs the load balancer's secret
+		if (expected == null || expected.isEmpty() || token == null) {
+			return false;
+		}
+
+		// Compare in constant time, so the secret cannot be guessed from how long a rejection takes
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Let the load balancer running this server as a node follow and change
+	 * its replication, by sending the secret with each replication request.
+	 */
+	public void setReplicationToken(String replicationToken) {
+		this.replicationToken = replicationToken;
+	}
+
+
+	/**
+	 * Wrap a task for the pool, so it counts as queued until a thread starts
+	 * running it.
+	 */
+	Runnable queue(Runnable task) {
+		queuedTasks.incrementAndGet();
+		return () -> {
+			queuedTasks.decrementAndGet();
+			task.run();
+		};
+	}
+
+
+	<T> Supplier<T> queue(Supplier<T> task) {
+		queuedTasks.incrementAndGet();
+		return () -> {
+			queuedTasks.decrementAndGet();
+			return task.get();
+		};
+	}
+
+
+	// Stop counting a task the pool refused, as it will never start
+	void cancelQueued() {
+		queuedTasks.decrementAndGet();
+	}
+
+
+	// Count a request as running, returning the time it started
+	long startRequest() {
+		runningRequests.incrementAndGet();
+		return System.nanoTime();
+	}
+
+
+	void finishRequest(long start) {
+		runningRequests.decrementAndGet();
+
+		// Count the request as handled
+		handledRequests.incrementAndGet();
+		updateAverage(averageLatency, System.nanoTime() - start);
+	}
+
+
+	// Count a running request as blocked on the content store, returning the time it started waiting
+	long startStoreWait() {
+		storeWaits.incrementAndGet();
+		return System.nanoTime();
+	}
+
+
+	void finishStoreWait(long start) {
+		storeWaits.decrementAndGet();
+		updateAverage(averageStoreWait, System.nanoTime() - start);
+	}
+
+
+	private static void updateAverage(AtomicLong average, long sample) {
+		// The first sample sets the average, later samples move it an eighth of the way
+		average.updateAndGet(current -> current == 0 ? sample : current + (sample - current) / 8);
+	}
+
+
+	private boolean isKeepAlive(HttpRequest request, int served) {
+		// If the client asked for the connection to be closed
+		if (!HttpRequestUtils.isKeepAliveRequested(request)) {
+			return false;
+		}
+
+		// Close the connection once the request limit is reached, or when draining
+		return served < GlobalConstants.MAX_REQUESTS_PER_CONNECTION && !isDraining();
+	}
+
+
+	private HttpResponse respond(HttpStatusCode status, String body) {
+		// Increment clock value as response counts as causal event
+		clock.tick();
+		return HttpResponseUtils.generateResponse(status, body, clock.getClockValue());
+	}
+
+
+	private HttpResponse respond(HttpStatusCode status, CachedBody body, ContentEncoding encoding) {
+		// Increment clock value as response counts as causal event
+		clock.tick();
+
+		// Get the variant of the body for the encoding, compressed at most once
+		Map.Entry<ContentEncoding, byte[]> variant = body.get(encoding);
+		HttpResponse response = HttpResponseUtils.generateResponse(status, variant.getValue(), variant.getKey(), clock.getClockValue());
+
+		// Tag the body with the Lamport clock of its data so it can be revalidated
+		response.addHeader(HttpHeaders.ETAG, HttpResponseUtils.createETag(body.getLamportClock()));
+		return response;
+	}
+
+
+	private HttpResponse respondNotModified(long lamportClock) {
+		// Increment clock value as response counts as causal event
+		clock.tick();
+		return HttpResponseUtils.generateNotModifiedResponse(HttpResponseUtils.createETag(lamportClock), clock.getClockValue());
+	}
+
+
+	private HttpResponse handlePUTRequest(HttpRequest request) {
 		// Get the request body
 		String body = request.getBody();
 
 		// Check for no content
 		if (body == null || body.trim()
 								.isEmpty()) {
-			HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.NO_CONTENT, "No content provided in PUT request.", clock);
-			return;
+			return respond(HttpStatusCode.NO_CONTENT, "No content provided in PUT request.");
 		}
 
 		// Parse the request body to JSON
@@ -197,119 +883,175 @@ public class AggregationServer {
 
 		// Check if the JSON is valid and contains an ID
 		if (!json.containsKey("id")) {
-			HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.BAD_REQUEST, "Invalid JSON data or missing 'id' key.", clock);
-			return;
+			return respond(HttpStatusCode.BAD_REQUEST, "Invalid JSON data or missing 'id' key.");
 		}
 
 		String id = json.getValue("id");
 
 		// Causal event for successful PUT to content store
 		// Get the lamport clock from the request
-		String valueStr = request.getHeaderValue(GlobalConstants.LAMPORT_CLOCK_HEADER);
+		String valueStr = request.getHeaderValue(HttpHeaders.LAMPORT_CLOCK);
 		long value = valueStr == null ? 0 : Long.parseLong(valueStr);
 		// Update the lamport port request according to the received value
 		clock.receive(value);
 
 		// Store the JSON object in the content store
+		// The station's partition persists it once the write is applied
 		boolean created = ContentStore.put(id, json, clock.getClockValue());
 
-		// Persist the updated content store
-		FileManager.saveContentStore();
-
 		// If the data did not exist before putting in the content store
 		if (created) {
-			HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.CREATED,
-					"Content for ID " + id + " created.", clock);
-			return;
+			return respond(HttpStatusCode.CREATED, "Content for ID " + id + " created.");
 		}
 
 		// If the data did exist
-		HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.OK,
-				"Content for ID " + id + " updated.", clock);
-
+		return respond(HttpStatusCode.OK, "Content for ID " + id + " updated.");
 	}
 
 
-	private void handleGETRequest(Socket client, HttpRequest request)
+	private HttpResponse handleGETRequest(HttpRequest request)
 			throws ExecutionException, InterruptedException {
+		// Receive the client's clock, so the response comes after every write the client has seen
+		clock.receive(HttpRequestUtils.getLamportClock(request));
+
 		// Parse station ID from the request path
 		String path = request.getPath();
 		int eqIdx = path.indexOf("=");
 		int dotIdx = path.indexOf(".");
 
+		// Choose the body encoding the client prefers
+		ContentEncoding encoding = ContentEncoding.negotiate(request.getHeaderValue(HttpHeaders.ACCEPT_ENCODING));
+
 		// Check if the ID exists
 		if (eqIdx > 0 && dotIdx > 0) {
 			// Extract the Station ID
 			String id = path.substring(eqIdx + 1, dotIdx)
 							.trim();
 
-			// Get the JSON data for the ID
-			CompletableFuture<JSON> futureData = ContentStore.get(id, clock.getClockValue());
+			// Answer a revalidation without waiting in the store queue, if the data can be read directly
+			Optional<Long> version = ContentStore.getVersion(id);
+			if (version.isPresent() && HttpRequestUtils.isNotModified(request, HttpResponseUtils.createETag(version.get()))) {
+				return respondNotModified(version.get());
+			}
+
+			// Get the weather data for the ID
+			CompletableFuture<WeatherData> futureData = ContentStore.get(id, clock.getClockValue());
 
-			// Wait and extract the fetched JSON
-			JSON data = futureData.get();
+			// Wait and extract the fetched weather data
+			WeatherData data;
+			long waitStart = startStoreWait();
+			try {
+				data = futureData.get();
+			} finally {
+				finishStoreWait(waitStart);
+			}
 
 			// If there is no data
 			if (data == null) {
-				HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.NO_CONTENT, "No weather data available.", clock);
-				return;
+				return respond(HttpStatusCode.NO_CONTENT, "No weather data available.");
 			}
 
-			// Convert the aggregated JSON to a string
-			String responseBody = JsonUtils.parseJSONToString(data);
+			// If the data has not changed since the client cached it
+			if (HttpRequestUtils.isNotModified(request, HttpResponseUtils.createETag(data.getLamportClock()))) {
+				return respondNotModified(data.getLamportClock());
+			}
 
-			// Send the aggregated JSON back to the client
-			HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.OK, responseBody, clock);
-			return;
+			// Reuse the serialized body unless the data has changed
+			CachedBody body = ResponseBodyCache.get(id, data.getLamportClock(), () -> JsonUtils.parseJSONToString(data.getJson()));
+
+			// Send the JSON back to the client
+			return respond(HttpStatusCode.OK, body, encoding);
 		}
 
 		// If no ID is present, get all the weather data
+		// Read the version of the data before the data itself, so the cached body is never older than its version
+		long lastModified = ContentStore.getLastModified();
+
+		// If no station has changed since the client cached the data
+		if (lastModified > 0 && HttpRequestUtils.isNotModified(request, HttpResponseUtils.createETag(lastModified))) {
+			return respondNotModified(lastModified);
+		}
+
 		// Get all data from the content store
 		Map<String, JSON> allData = ContentStore.getAll();
 
 		// Check if there is no content to return
 		if (allData.isEmpty()) {
-			HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.NO_CONTENT, "No weather data available.", clock);
-			return;
+			return respond(HttpStatusCode.NO_CONTENT, "No weather data available.");
 		}
 
 		// Causal event for successful GET from content store
 		clock.tick();
 
+		// Reuse the serialized body unless any station has changed
+		CachedBody body = ResponseBodyCache.get(ResponseBodyCache.AGGREGATE_KEY, lastModified, () -> aggregate(allData));
+
+		// Send the aggregated JSON back to the client
+		return respond(HttpStatusCode.OK, body, encoding);
+	}
+
+
+	private static String aggregate(Map<String, JSON> allData) {
 		// Create a single JSON object to hold the aggregated data
 		JSON aggregatedJSON = new JSON();
 		allData.forEach((id, json) -> aggregatedJSON.add(id, JsonUtils.parseJSONToString(json)));
 
 		// Convert the aggregated JSON to a string
-		String responseBody = JsonUtils.parseJSONToString(aggregatedJSON);
+		return JsonUtils.parseJSONToString(aggregatedJSON);
+	}
 
-		// Send the aggregated JSON back to the client
-		HttpResponseUtils.generateAndSendResponse(client, HttpStatusCode.OK, responseBody, clock);
+
+	public void incrementInFlightRequests() {
+		// Increment the number of requests that are being processed
+		inFlightRequests.incrementAndGet();
+	}
+
+
+	public void decrementInFlightRequests() {
+		// Decrement the number of requests that are being processed
+		inFlightRequests.decrementAndGet();
+
+		// Signal waiting threads if the server is done processing
+		signalIfDrained();
 	}
 
 
-	public void incrementActiveThreads() {
-		// Increment the number of active threads that are processing requests
-		activeThreads.incrementAndGet();
+	public void incrementOpenConnections() {
+		// Increment the number of connections held by the server
+		openConnections.incrementAndGet();
 	}
 
 
-	public void decrementActiveThreads() {
-		// Decrement the number of active threads that are processing requests
-		int count = activeThreads.decrementAndGet();
+	public void decrementOpenConnections() {
+		// Decrement the number of connections held by the server
+		openConnections.decrementAndGet();
 
-		// If done processing
-		if (count == 0) {
-			// Acquire the lock on the drained condition
-			lock.lock();
+		// Signal waiting threads if the server is done processing
+		signalIfDrained();
+	}
 
-			try {
-				// Signal that the server is done processing
-				drained.signalAll();
-			} finally {
-				// Release the lock
-				lock.unlock();
-			}
+
+	private boolean isDrained() {
+		// Done once no requests are in flight and every connection is closed
+		return getActiveRequestsCount() == 0 && getOpenConnectionsCount() == 0;
+	}
+
+
+	private void signalIfDrained() {
+		// If still processing
+		if (!isDrained()) {
+			return;
+		}
+
+		// Acquire the lock on the drained condition
+		lock.lock();
+
+		try {
+			// Signal that the server is done processing
+			drained.signalAll();
+		} finally {
+			// Release the lock
+			lock.unlock();
 		}
 	}
 
@@ -330,8 +1072,8 @@ public class AggregationServer {
 		lock.lock();
 
 		try {
-			// While there are requests being processed
-			while (getActiveRequestsCount() > 0) {
+			// While there are requests being processed or connections open
+			while (!isDrained()) {
 				// Wait for there to be no more processed threads
 				drained.await();
 			}
@@ -342,8 +1084,9 @@ public class AggregationServer {
 
 
 	public void shutdown() {
-		// Start the shutdown process for the thread pool
+		// Start the shutdown process for the thread pools
 		pool.shutdown();
+		pipelinePool.shutdown();
 
 		try {
 			// Wait for the pool to shut down
@@ -3,9 +3,11 @@ package net.ethandankiw.aggregation;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -13,12 +15,30 @@ import org.slf4j.LoggerFactory;
 
 import net.ethandankiw.GlobalConstants;
 import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.data.http.JSON;
+import net.ethandankiw.data.server.LoadBalancingStrategy;
 import net.ethandankiw.data.server.ServerPoolImpl;
 import net.ethandankiw.data.store.ContentStore;
+import net.ethandankiw.data.store.StationEvent;
+import net.ethandankiw.server.AdmissionController;
+import net.ethandankiw.server.BackendMode;
 import net.ethandankiw.server.BalancingScheduler;
+import net.ethandankiw.server.DispatchMode;
+import net.ethandankiw.server.ExecutionMode;
+import net.ethandankiw.server.Http2HttpServer;
 import net.ethandankiw.server.HttpServer;
+import net.ethandankiw.server.HttpServerMode;
+import net.ethandankiw.server.SelectorHttpServer;
 import net.ethandankiw.server.ServerBalancerImpl;
+import net.ethandankiw.utils.JsonUtils;
 import net.ethandankiw.utils.SocketUtils;
+import net.ethandankiw.utils.http.HttpRequestUtils;
+import net.ethandankiw.utils.http.HttpResponseUtils;
 
 public class LoadBalancer {
 
@@ -28,9 +48,12 @@ public class LoadBalancer {
 	// Lamport clock for determining the order of received requests
 	private static LamportClock clock;
 
-	// Thread pool for handling client connections
+	// Thread pool for handling client connections, and for choosing the server for requests read by the NIO and H2C front ends
 	private static ExecutorService clientRequestPool;
 
+	// Limits the connections, or requests in NIO and H2C mode, taken on at once
+	private static AdmissionController admission;
+
 	// Server pool of aggregation servers
 	private static ServerPoolImpl serverPool;
 
@@ -38,16 +61,34 @@ public class LoadBalancer {
 	private static HttpServer clientListener;
 
 	// Accepting new requests
-	private static boolean acceptingRequests;
+	private static volatile boolean acceptingRequests;
+
+	// Front end used to accept client connections
+	private static HttpServerMode serverMode = GlobalConstants.SERVER_MODE;
+
+	// Threads used to run client requests
+	private static ExecutionMode executionMode = GlobalConstants.EXECUTION_MODE;
+
+	// Strategy used to choose a server for each connection or request
+	private static LoadBalancingStrategy loadBalancingStrategy = GlobalConstants.LOAD_BALANCING_STRATEGY;
+
+	// Where the aggregation servers run
+	private static BackendMode backendMode = GlobalConstants.BACKEND_MODE;
+
+	// How accepted connections reach a server in BLOCKING mode
+	private static DispatchMode dispatchMode = GlobalConstants.DISPATCH_MODE;
 
 
 	public static void main(String[] args) {
 		// Init the thread pool
-		clientRequestPool = Executors.newFixedThreadPool(GlobalConstants.MAX_SERVERS);
+		clientRequestPool = executionMode.createExecutor(GlobalConstants.MAX_SERVERS);
 
 		// Start a new lamport clock
 		clock = new LamportClock();
 
+		// Turn away clients beyond the concurrency limit once enough are waiting
+		admission = new AdmissionController(GlobalConstants.ADMISSION_LIMIT, GlobalConstants.ADMISSION_QUEUE, GlobalConstants.ADMISSION_TIMEOUT, clientRequestPool);
+
 		// Port to listen for requests on
 		// Default: 4567
 		Integer serverPort = GlobalConstants.SERVER_PORT;
@@ -64,14 +105,17 @@ public class LoadBalancer {
 			}
 		}
 
-		// Create a new HTTP server
-		clientListener = new HttpServer(LoadBalancer.class.getSimpleName(), serverPort);
+		// Create a new HTTP server for the configured front end
+		clientListener = createListener(serverPort);
 
 		// Initialise the server
 		clientListener.start();
 
+		// Initialise the content store before the servers claim its partitions
+		ContentStore.init();
+
 		// Create a new server pool
-		serverPool = new ServerPoolImpl(GlobalConstants.DEFAULT_BALANCED_SERVERS);
+		serverPool = new ServerPoolImpl(GlobalConstants.DEFAULT_BALANCED_SERVERS, executionMode, loadBalancingStrategy.create(), backendMode);
 
 		// Create a new server scaler
 		ServerBalancerImpl serverBalancer = new ServerBalancerImpl(serverPool);
@@ -82,9 +126,6 @@ public class LoadBalancer {
 		// Start the balancing scheduler
 		BalancingScheduler.startBalancingScheduler();
 
-		// Initialise the content store
-		ContentStore.init();
-
 		// Load the content store from disk
 		ContentStore.loadFromDisk();
 
@@ -102,20 +143,89 @@ public class LoadBalancer {
 	}
 
 
+	private static HttpServer createListener(Integer serverPort) {
+		String name = LoadBalancer.class.getSimpleName();
+
+		// Aggregation nodes each hold their own stations, so every request must be routed on its own
+		if (backendMode == BackendMode.PROCESS && serverMode == HttpServerMode.BLOCKING) {
+			logger.warn("Using the NIO front end, as requests to aggregation nodes are routed one at a time");
+			serverMode = HttpServerMode.NIO;
+		}
+
+		// If connections are multiplexed over reactor threads
+		if (serverMode == HttpServerMode.NIO) {
+			return new SelectorHttpServer(name, serverPort, GlobalConstants.REACTOR_THREADS, clock, LoadBalancer::dispatchRequest);
+		}
+
+		// If requests are multiplexed as HTTP/2 streams
+		if (serverMode == HttpServerMode.H2C) {
+			return new Http2HttpServer(name, serverPort, executionMode, clock, LoadBalancer::dispatchRequest);
+		}
+
+		// By default, accept connections on blocking server sockets
+		return new HttpServer(name, serverPort, GlobalConstants.ACCEPTOR_THREADS);
+	}
+
+
 	static void startAcceptingRequests() {
-		// Get the socket from the HTTP server
-		ServerSocket serverSocket = clientListener.getSocket();
+		// If the reactor threads accept connections themselves
+		if (clientListener instanceof SelectorHttpServer selectorListener) {
+			selectorListener.startReactors();
+			return;
+		}
+
+		// If each h2c connection is served by its own threads
+		if (clientListener instanceof Http2HttpServer h2cListener) {
+			h2cListener.startAccepting();
+			return;
+		}
+
+		// Get the sockets from the HTTP server
+		List<ServerSocket> serverSockets = clientListener.getSockets();
 
 		// If the socket doesn't exist
-		if (serverSocket == null) {
+		if (serverSockets.isEmpty()) {
 			logger.error("Unable to make connection to client as server socket doesn't exist");
 			return;
 		}
 
+		// Start the other acceptors, each on its own socket if the port is shared, otherwise all on the one socket
+		for (int i = 1; i < clientListener.getAcceptorCount(); i++) {
+			ServerSocket serverSocket = serverSockets.get(i % serverSockets.size());
+			new Thread(() -> acceptConnections(serverSocket), clientListener.getName() + "-Acceptor-" + i).start();
+		}
+
+		// Accept on the calling thread as well
+		acceptConnections(serverSockets.getFirst());
+	}
+
+
+	private static void acceptConnections(ServerSocket serverSocket) {
+		// Number of accepts in a row that have failed
+		int failures = 0;
+
 		// Loop infinitely
 		while (acceptingRequests) {
-			// Accept a connection from a client
-			Optional<Socket> optionalConnection = SocketUtils.acceptClientConnection(serverSocket);
+			Optional<Socket> optionalConnection;
+
+			try {
+				// Accept a connection from a client
+				optionalConnection = SocketUtils.acceptClientConnection(serverSocket);
+				failures = 0;
+			} catch (RuntimeException re) {
+				// Accepting fails for good once the server socket is closed on shutdown
+				if (serverSocket.isClosed()) {
+					return;
+				}
+
+				// Wait before trying again, in case the failure lasts
+				failures += 1;
+				if (!SocketUtils.backOffAccept(failures)) {
+					return;
+				}
+
+				continue;
+			}
 
 			// If the connection was unable to be established
 			if (optionalConnection.isEmpty()) {
@@ -126,9 +236,29 @@ public class LoadBalancer {
 			// Get the connection
 			Socket client = optionalConnection.get();
 
-			// Handle the client request on a separate thread
-			clientRequestPool.submit(() -> handleClient(client));
+			try {
+				// Hand the connection to a server once admitted, turning it away if it waits too long
+				if (!admission.admit(() -> dispatchConnection(client), () -> shedConnection(client))) {
+					shedConnection(client);
+				}
+			} catch (RuntimeException re) {
+				// Only this connection is lost, so keep accepting others
+				logger.error("Unable to hand off client connection: {}", re.getMessage());
+				SocketUtils.closeSocket(client);
+			}
+		}
+	}
+
+
+	private static void dispatchConnection(Socket client) {
+		// Choose the server on the accepting thread, so the connection only waits in the server's own queue
+		if (dispatchMode == DispatchMode.DIRECT) {
+			handleClient(client);
+			return;
 		}
+
+		// Otherwise, choose the server on a separate thread
+		clientRequestPool.submit(() -> handleClient(client));
 	}
 
 
@@ -136,8 +266,205 @@ public class LoadBalancer {
 		// Get the first server that is accepting requests with the least load
 		AggregationServer leastLoaded = serverPool.getAvailableServer();
 
-		// Handle the client's request on the server
-		leastLoaded.handleClientConnection(client, clock);
+		// Handle the client's request on the server, admitting another connection once it closes
+		leastLoaded.handleClientConnection(client, clock, admission::release);
+	}
+
+
+	private static void shedConnection(Socket client) {
+		logger.debug("Turning away a client connection as too many are waiting");
+
+		// Answer straight away, without reading the request, and close the connection
+		HttpResponse response = HttpResponseUtils.addConnectionHeaders(createOverloadedResponse(), false, 0);
+		HttpResponseUtils.sendResponse(client, response);
+
+		try {
+			client.close();
+		} catch (IOException ioe) {
+			logger.error("Unable to close turned away connection: {}", ioe.getMessage());
+		}
+	}
+
+
+	static CompletableFuture<HttpResponse> dispatchRequest(HttpRequest request) {
+		// Replication is only followed and changed by the load balancer itself, over its own connections to the nodes
+		if (HttpRequestUtils.isReplicationRequest(request)) {
+			logger.warn("Refusing a client request for {}", request.getPath());
+			clock.tick();
+			return CompletableFuture.completedFuture(HttpResponseUtils.generateResponse(HttpStatusCode.FORBIDDEN, "Replication is only available to the load balancer.", clock.getClockValue()));
+		}
+
+		CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+
+		// Dispatch the request off the calling thread once admitted, as choosing a server may start one
+		// Admit another request once it is answered, and answer it as overloaded if it waits too long to be admitted
+		boolean admitted = admission.admit(() -> CompletableFuture.completedFuture(request)
+																  .thenComposeAsync(LoadBalancer::dispatchAdmittedRequest, clientRequestPool)
+																  .whenComplete((result, e) -> {
+																	  admission.release();
+
+																	  if (e != null) {
+																		  response.completeExceptionally(e);
+																	  } else {
+																		  response.complete(result);
+																	  }
+																  }), () -> response.complete(createOverloadedResponse()));
+
+		// If too many requests are already waiting
+		if (!admitted) {
+			logger.debug("Turning away a request as too many are waiting");
+			return CompletableFuture.completedFuture(createOverloadedResponse());
+		}
+
+		return response;
+	}
+
+
+	private static HttpResponse createOverloadedResponse() {
+		// Causal event for the response
+		clock.tick();
+
+		// Tell the client when to try again
+		HttpResponse response = HttpResponseUtils.generateResponse(HttpStatusCode.SERVICE_UNAVAILABLE, "Server is overloaded, retry later.", clock.getClockValue());
+		response.addHeader(HttpHeaders.RETRY_AFTER, String.valueOf(GlobalConstants.RETRY_AFTER));
+		return response;
+	}
+
+
+	// Get the number of connections, or requests in NIO and H2C mode, turned away by admission control
+	public static long getShedCount() {
+		return admission == null ? 0 : admission.getShedCount();
+	}
+
+
+	private static CompletableFuture<HttpResponse> dispatchAdmittedRequest(HttpRequest request) {
+		// If the servers are separate processes, each holding their own stations
+		if (backendMode == BackendMode.PROCESS) {
+			return dispatchToNode(request);
+		}
+
+		// Choose a server for the request, which may depend on the station it is for
+		String stationId = HttpRequestUtils.getStationId(request)
+										   .orElse(null);
+		AggregationServer server = serverPool.getAvailableServer(stationId);
+
+		// Process the parsed request on the server
+		return server.submitRequest(request, clock);
+	}
+
+
+	private static CompletableFuture<HttpResponse> dispatchToNode(HttpRequest request) {
+		Optional<String> stationId = getNodeStationId(request);
+
+		// If the request reads every station, gather them from every node
+		if (stationId.isEmpty() && request.getMethod() == HttpRequestMethod.GET && !HttpRequestUtils.isHealthCheckRequest(request)) {
+			return gatherFromNodes();
+		}
+
+		// Send the request to the node that holds the station, even if it is busy
+		AggregationServer server = serverPool.selectServer(stationId.orElse(null));
+
+		// If there are no nodes to send the request to
+		if (server == null) {
+			server = serverPool.createAndRegister();
+		}
+
+		return server.submitRequest(request, clock);
+	}
+
+
+	private static Optional<String> getNodeStationId(HttpRequest request) {
+		// Use the station in the query, without the file extension the aggregation server ignores
+		Optional<String> stationId = HttpRequestUtils.getStationId(request)
+													 .map(id -> id.contains(".") ? id.substring(0, id.indexOf('.')) : id);
+
+		// If the request is not a PUT, or names its station already
+		if (stationId.isPresent() || request.getMethod() != HttpRequestMethod.PUT) {
+			return stationId;
+		}
+
+		// Otherwise, read the station from the body, as the aggregation server would
+		String body = request.getBody();
+		JSON json = JsonUtils.parseStringToJSON(body == null ? "" : body);
+		return json.containsKey("id") ? Optional.of(json.getValue("id")) : Optional.empty();
+	}
+
+
+	private static CompletableFuture<HttpResponse> gatherFromNodes() {
+		List<RemoteAggregationServer> nodes = new ArrayList<>();
+		List<CompletableFuture<Optional<List<StationEvent>>>> parts = new ArrayList<>();
+
+		// Read the stations held by every node at once
+		serverPool.getAllServers()
+				  .forEach(server -> {
+					  if (server instanceof RemoteAggregationServer node) {
+						  nodes.add(node);
+						  parts.add(node.submitReadStations());
+					  }
+				  });
+
+		// Combine the stations of every node into a single object
+		return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+								.thenApply(ignored -> combineNodeStations(nodes, parts));
+	}
+
+
+	private static HttpResponse combineNodeStations(List<RemoteAggregationServer> nodes, List<CompletableFuture<Optional<List<StationEvent>>>> parts) {
+		JSON aggregated = new JSON();
+
+		for (int i = 0; i < nodes.size(); i++) {
+			Optional<List<StationEvent>> stations = parts.get(i)
+														 .join();
+
+			// If a node could not be read, the stations it holds are missing, so fail the whole read
+			if (stations.isEmpty()) {
+				clock.tick();
+				return HttpResponseUtils.generateResponse(HttpStatusCode.BAD_GATEWAY, "Aggregation node is unavailable", clock.getClockValue());
+			}
+
+			// Only use stations the node owns, as a node may still hold a copy of a station that moved
+			for (StationEvent station : stations.get()) {
+				if (serverPool.selectServer(station.getStationId()) == nodes.get(i)) {
+					aggregated.add(station.getStationId(), station.getJson());
+				}
+			}
+		}
+
+		// Causal event for the combined response
+		clock.tick();
+
+		// If no node has any data
+		if (aggregated.get()
+					  .isEmpty()) {
+			return HttpResponseUtils.generateResponse(HttpStatusCode.NO_CONTENT, "No weather data available.", clock.getClockValue());
+		}
+
+		return HttpResponseUtils.generateResponse(HttpStatusCode.OK, JsonUtils.parseJSONToString(aggregated), clock.getClockValue());
+	}
+
+
+	public static void setServerMode(HttpServerMode mode) {
+		serverMode = mode;
+	}
+
+
+	public static void setExecutionMode(ExecutionMode mode) {
+		executionMode = mode;
+	}
+
+
+	public static void setLoadBalancingStrategy(LoadBalancingStrategy strategy) {
+		loadBalancingStrategy = strategy;
+	}
+
+
+	public static void setBackendMode(BackendMode mode) {
+		backendMode = mode;
+	}
+
+
+	public static void setDispatchMode(DispatchMode mode) {
+		dispatchMode = mode;
 	}
 
 
@@ -152,6 +479,11 @@ public class LoadBalancer {
 			}
 		}
 
+		// Stop timing out connections and requests waiting to be admitted
+		if (admission != null) {
+			admission.shutdown();
+		}
+
 		// Shut down the thread pool
 		clientRequestPool.shutdown();
 		try {
@@ -164,6 +496,17 @@ public class LoadBalancer {
 				  .interrupt();
 		}
 
+		// Stop the aggregation nodes, which would otherwise outlive the load balancer's pool
+		if (backendMode == BackendMode.PROCESS && serverPool != null) {
+			serverPool.getAllServers()
+					  .forEach(AggregationServer::shutdown);
+		}
+
+		// Stop the servers waiting in reserve
+		if (serverPool != null) {
+			serverPool.shutdownStandbyServers();
+		}
+
 		// Shut down other services
 		BalancingScheduler.shutdown();
 		ContentStore.stopExpiryTask();
@@ -177,6 +520,11 @@ public class LoadBalancer {
 		serverPool = null;
 
 		acceptingRequests = false;
+		serverMode = GlobalConstants.SERVER_MODE;
+		executionMode = GlobalConstants.EXECUTION_MODE;
+		loadBalancingStrategy = GlobalConstants.LOAD_BALANCING_STRATEGY;
+		backendMode = GlobalConstants.BACKEND_MODE;
+		dispatchMode = GlobalConstants.DISPATCH_MODE;
 
 		BalancingScheduler.reset();
 		ContentStore.reset();
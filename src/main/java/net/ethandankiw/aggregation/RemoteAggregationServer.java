@@ -0,0 +1,909 @@
+package net.ethandankiw.aggregation;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.data.store.StationEvent;
+import net.ethandankiw.server.ExecutionMode;
+import net.ethandankiw.utils.SocketUtils;
+import net.ethandankiw.utils.UuidUtils;
+import net.ethandankiw.utils.http.HttpClientConnection;
+import net.ethandankiw.utils.http.HttpRequestUtils;
+import net.ethandankiw.utils.http.HttpResponseUtils;
+
+/**
+ * An aggregation server that runs as a separate {@link AggregationNode}
+ * process. Requests are forwarded to the node over pooled keep-alive
+ * connections, and the load of the server is counted here, so the load
+ * balancer chooses and scales nodes exactly as it does servers in its own
+ * process. The node is health checked in the background, and a node this
+ * load balancer launched is started again if its process exits.
+ * <p>
+ * Each node only holds the stations routed to it, so the pool routes every
+ * request about a station to the same node, and hands stations over to
+ * their new node whenever nodes are added or removed.
+ * <p>
+ * With {@code -Dserver.backend.replicas=<N>}, each primary node has replica
+ * nodes that follow its replication log. Reads are spread over the primary
+ * and its replicas, and a replica that has not caught up with the client
+ * leaves the read to the primary. If the primary goes down, the replica that
+ * has caught up the furthest is promoted in its place.
+ */
+public class RemoteAggregationServer extends AggregationServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(RemoteAggregationServer.class);
+
+	// Prefixes of the system properties passed on to launched nodes
+	private static final List<String> FORWARDED_PROPERTIES = List.of("server.", "execution.", "org.slf4j.");
+
+	// Headers that only describe how a message was sent over one connection
+	private static final List<String> CONNECTION_HEADERS = List.of(HttpHeaders.CONNECTION, HttpHeaders.KEEP_ALIVE, HttpHeaders.TRANSFER_ENCODING);
+
+	// Secret sent with every replication request, which launched nodes are given, so only this load balancer can change a node's role
+	private static final String REPLICATION_TOKEN = GlobalConstants.REPLICATION_TOKEN.isEmpty() ? UuidUtils.generateUUID() : GlobalConstants.REPLICATION_TOKEN;
+
+	// Running nodes that have not been attached to yet
+	private static final Queue<InetSocketAddress> unattached = new ConcurrentLinkedQueue<>(parseAddresses(GlobalConstants.BACKEND_ADDRESSES));
+
+	// Clock for readings handed from one node to another, which keep their own clocks
+	private static final LamportClock handOffClock = new LamportClock();
+
+	// Checks the health of every node in the background
+	private static final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "NodeHealthChecker");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Node that accepts the server's writes
+	private volatile Node primary;
+
+	// Nodes that follow the primary's writes and share its reads
+	private final List<Node> replicas = new CopyOnWriteArrayList<>();
+
+	// Periodic health check of the nodes
+	private final ScheduledFuture<?> healthCheck;
+
+
+	private RemoteAggregationServer(ExecutionMode executionMode, Node primary) {
+		super(executionMode);
+		this.primary = primary;
+
+		// Check the node until the server is shut down
+		healthCheck = healthChecker.scheduleWithFixedDelay(this::checkHealth, GlobalConstants.BACKEND_HEALTH_INTERVAL,
+				GlobalConstants.BACKEND_HEALTH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Attach to a running node given in {@code -Dserver.backends}, or launch
+	 * a new node on a free local port if every running node is attached, then
+	 * launch its replicas. Waits for each node to pass a health check, so the
+	 * server can take requests as soon as it is registered.
+	 *
+	 * @return the server, which is unhealthy if the primary could not be reached
+	 */
+	public static RemoteAggregationServer create(ExecutionMode executionMode) {
+		RemoteAggregationServer server;
+
+		// Attach to a running node if one is left
+		InetSocketAddress running = unattached.poll();
+		if (running != null) {
+			server = new RemoteAggregationServer(executionMode, new Node(running, false, null));
+
+			// An attached node may have been left following another primary
+			if (server.awaitHealthy(server.primary)) {
+				sendRole(server.primary, null);
+			}
+		} else {
+			// Otherwise, launch a node on a free port
+			server = new RemoteAggregationServer(executionMode, launchNode());
+			server.awaitHealthy(server.primary);
+		}
+
+		// Launch the replicas, which follow the primary once they are up
+		for (int i = 0; i < GlobalConstants.BACKEND_REPLICAS; i++) {
+			Node replica = launchNode();
+			server.replicas.add(replica);
+
+			if (server.awaitHealthy(replica)) {
+				server.follow(replica, server.primary);
+			}
+		}
+
+		return server;
+	}
+
+
+	public String getAddress() {
+		return primary.getAddress();
+	}
+
+
+	public boolean isHealthy() {
+		return primary.healthy;
+	}
+
+
+	// A server whose primary is down cannot take more requests
+	@Override
+	public boolean atCapacity() {
+		return !primary.healthy || super.atCapacity();
+	}
+
+
+	/**
+	 * Relay a client connection to the node byte for byte, so the node reads
+	 * and answers every request sent over it.
+	 */
+	@Override
+	public void handleClientConnection(Socket client, LamportClock lbClock, Runnable onClosed) {
+		// If the server is no longer accepting requests
+		if (isDraining()) {
+			onClosed.run();
+			return;
+		}
+
+		// Increment the number of open client connections
+		incrementOpenConnections();
+
+		try {
+			getPool().submit(queue(() -> {
+				try {
+					relay(client);
+				} finally {
+					decrementOpenConnections();
+					onClosed.run();
+				}
+			}));
+		} catch (Exception e) {
+			logger.error("Error occurred while submitting connection for relaying: {}", e.getMessage());
+			cancelQueued();
+			decrementOpenConnections();
+			closeClientConnection(client);
+			onClosed.run();
+		}
+	}
+
+
+	/**
+	 * Forward a single request that has already been read by the load
+	 * balancer to the node, over a pooled connection.
+	 *
+	 * @return a future that completes with the node's response
+	 */
+	@Override
+	public CompletableFuture<HttpResponse> submitRequest(HttpRequest request, LamportClock lbClock) {
+		// Increment the number of in-flight requests
+		incrementInFlightRequests();
+
+		try {
+			// Wait for the node on a thread from the pool
+			return CompletableFuture.supplyAsync(queue(() -> forward(request, lbClock)), getPool())
+									.whenComplete((response, e) -> decrementInFlightRequests());
+		} catch (Exception e) {
+			logger.error("Error occurred while submitting request for forwarding: {}", e.getMessage());
+			cancelQueued();
+			decrementInFlightRequests();
+			return CompletableFuture.completedFuture(HttpResponseUtils.generateResponse(HttpStatusCode.INTERNAL_SERVER_ERROR, "Error handling client request", lbClock.getClockValue()));
+		}
+	}
+
+
+	/**
+	 * Read every reading the node holds, as a snapshot of its event stream,
+	 * on a thread from the pool.
+	 *
+	 * @return a future that completes with the readings, or empty if the node
+	 * could not be read
+	 */
+	public CompletableFuture<Optional<List<StationEvent>>> submitReadStations() {
+		// Increment the number of in-flight requests
+		incrementInFlightRequests();
+
+		try {
+			return CompletableFuture.supplyAsync(this::readStations, getPool())
+									.whenComplete((stations, e) -> decrementInFlightRequests());
+		} catch (Exception e) {
+			logger.error("Error occurred while submitting read of aggregation node {}: {}", getAddress(), e.getMessage());
+			decrementInFlightRequests();
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+	}
+
+
+	/**
+	 * Move readings to the servers that now own their stations, after the
+	 * servers have changed. Each reading is sent with its Lamport clock, so
+	 * the new owner orders it after any earlier write.
+	 *
+	 * @param sources the servers whose stations may have moved
+	 * @param ownerOf gives the server that now owns a station
+	 */
+	public static void handOffStations(Iterable<AggregationServer> sources, Function<String, AggregationServer> ownerOf) {
+		for (AggregationServer source : sources) {
+			// Only nodes hold their own stations
+			if (!(source instanceof RemoteAggregationServer node)) {
+				continue;
+			}
+
+			int moved = 0;
+			for (StationEvent reading : node.readStations()
+											.orElse(List.of())) {
+				AggregationServer owner = ownerOf.apply(reading.getStationId());
+
+				// If the station has not moved
+				if (owner == source || !(owner instanceof RemoteAggregationServer target)) {
+					continue;
+				}
+
+				target.forward(createHandOffRequest(reading), handOffClock);
+				moved += 1;
+			}
+
+			logger.info("Handed off {} stations from aggregation node {}", moved, node.getAddress());
+		}
+	}
+
+
+	@Override
+	public void shutdown() {
+		// Stop checking the nodes
+		healthCheck.cancel(false);
+
+		for (Node node : getNodes()) {
+			node.healthy = false;
+
+			// Stop a node this load balancer launched
+			Process running = node.process;
+			if (node.launched && running != null) {
+				stopProcess(running);
+			}
+
+			// A launched node without a process never started, or could not be started again
+			if (node.launched && running == null) {
+				logger.warn("Aggregation node {} was not running as it failed to launch", node.getAddress());
+			}
+
+			// Leave an attached node running, so it can be attached to again
+			if (!node.launched) {
+				unattached.offer(node.address);
+			}
+		}
+
+		super.shutdown();
+	}
+
+
+	private HttpResponse forward(HttpRequest request, LamportClock lbClock) {
+		long start = startRequest();
+
+		// The node holds the content store, so the whole request is spent waiting on it
+		long waitStart = startStoreWait();
+
+		try {
+			HttpRequest forwarded = copyForNode(request);
+			Node current = primary;
+			Node node = chooseNode(request, current);
+			Optional<HttpResponse> response = send(node, forwarded);
+
+			// If a replica could not answer the read, such as when it has not caught up with the client
+			if (node != current && (response.isEmpty() || response.get()
+																 .getStatus() == HttpStatusCode.SERVICE_UNAVAILABLE)) {
+				node = current;
+				response = send(node, forwarded);
+			}
+
+			// A GET is safe to send again if the pooled connection was closed under it
+			if (response.isEmpty() && request.getMethod() == HttpRequestMethod.GET) {
+				response = send(node, forwarded);
+			}
+
+			// If the node did not answer
+			if (response.isEmpty()) {
+				logger.error("Aggregation node {} did not answer the request", getAddress());
+				return HttpResponseUtils.generateResponse(HttpStatusCode.BAD_GATEWAY, "Aggregation node is unavailable", lbClock.getClockValue());
+			}
+
+			// Update the load balancer clock value with the node's
+			String clockValue = response.get()
+										.getHeaderValue(HttpHeaders.LAMPORT_CLOCK);
+			Optional<Long> nodeClock = clockValue == null ? Optional.of(0L) : parseClock(clockValue);
+
+			// Remember how far a replica has caught up, which is only meant for the load balancer
+			// If either clock is malformed, the node's answer cannot be trusted
+			if (nodeClock.isEmpty() || !readCaughtUpClock(node, response.get())) {
+				logger.error("Aggregation node {} answered with a malformed clock", node.getAddress());
+				return HttpResponseUtils.generateResponse(HttpStatusCode.BAD_GATEWAY, "Aggregation node is unavailable", lbClock.getClockValue());
+			}
+
+			lbClock.receive(nodeClock.get());
+			return stripConnectionHeaders(response.get());
+		} catch (Exception e) {
+			logger.error("Error forwarding request to aggregation node {}: {}", getAddress(), e.getMessage());
+			return HttpResponseUtils.generateResponse(HttpStatusCode.BAD_GATEWAY, "Aggregation node is unavailable", lbClock.getClockValue());
+		} finally {
+			finishStoreWait(waitStart);
+			finishRequest(start);
+		}
+	}
+
+
+	/**
+	 * Choose the node to send a request to. Writes go to the primary, and
+	 * reads are spread over the primary and every replica following it.
+	 */
+	private Node chooseNode(HttpRequest request, Node current) {
+		// If the request may change the stored data
+		if (request.getMethod() != HttpRequestMethod.GET) {
+			return current;
+		}
+
+		// Choose at random from the nodes that can answer reads
+		List<Node> readers = new ArrayList<>();
+		readers.add(current);
+		for (Node replica : replicas) {
+			if (replica.healthy && replica.following) {
+				readers.add(replica);
+			}
+		}
+
+		return readers.get(ThreadLocalRandom.current()
+											.nextInt(readers.size()));
+	}
+
+
+	private Optional<List<StationEvent>> readStations() {
+		// Read from the primary, as it has every reading a client may have seen
+		Node current = primary;
+
+		// Open a dedicated connection, as the node closes it once every reading is sent
+		Optional<Socket> optionalSocket = SocketUtils.createClientSocket(current.address.getHostString(), current.address.getPort());
+
+		// If the node cannot be reached
+		if (optionalSocket.isEmpty()) {
+			return Optional.empty();
+		}
+
+		// Ask for the stored readings without following new ones
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.GET);
+		request.setPath(HttpRequestUtils.EVENTS_PATH + "?follow=false");
+		request.addHeader(HttpHeaders.HOST, current.getAddress());
+		request.addHeader(HttpHeaders.CONNECTION, "close");
+
+		try (Socket socket = optionalSocket.get()) {
+			socket.setSoTimeout(GlobalConstants.BACKEND_TIMEOUT);
+			socket.getOutputStream()
+				  .write(request.toString()
+								.getBytes(StandardCharsets.UTF_8));
+
+			// The stream has no length, so it is read until the node closes it
+			String response = new String(socket.getInputStream()
+											   .readAllBytes(), StandardCharsets.UTF_8);
+			int bodyIdx = response.indexOf("\r\n\r\n");
+
+			// If the node did not send the stream
+			if (bodyIdx < 0 || !response.startsWith(GlobalConstants.HTTP_VERSION + " " + HttpStatusCode.OK.getStatusCode())) {
+				logger.error("Aggregation node {} did not send its readings", current.getAddress());
+				return Optional.empty();
+			}
+
+			return Optional.of(StationEvent.decodeAll(response.substring(bodyIdx + 4)));
+		} catch (IOException ioe) {
+			logger.error("Unable to read the readings of aggregation node {}: {}", current.getAddress(), ioe.getMessage());
+		}
+
+		return Optional.empty();
+	}
+
+
+	private static HttpRequest createHandOffRequest(StationEvent reading) {
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.PUT);
+		request.setPath("/weather.json");
+		request.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+		request.addHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(reading.getJson()
+																			 .getBytes(StandardCharsets.UTF_8).length));
+		request.addHeader(HttpHeaders.LAMPORT_CLOCK, String.valueOf(reading.getLamportClock()));
+		request.setBody(reading.getJson());
+		return request;
+	}
+
+
+	private static Optional<HttpResponse> send(Node node, HttpRequest request) {
+		return HttpClientConnection.send(node.address.getHostString(), node.address.getPort(), request, GlobalConstants.BACKEND_TIMEOUT);
+	}
+
+
+	/**
+	 * Read how far a replica has caught up from its response, removing the
+	 * header so it is not passed on to the client.
+	 *
+	 * @return a boolean for if the clock was missing or valid
+	 */
+	private static boolean readCaughtUpClock(Node node, HttpResponse response) {
+		String caughtUpClock = response.getHeaderValue(HttpHeaders.APPLIED_CLOCK);
+
+		// If the node is not a replica
+		if (caughtUpClock == null) {
+			return true;
+		}
+
+		response.getHeaders()
+				.remove(HttpHeaders.APPLIED_CLOCK);
+
+		Optional<Long> parsed = parseClock(caughtUpClock);
+		parsed.ifPresent(value -> node.caughtUpClock = value);
+		return parsed.isPresent();
+	}
+
+
+	private static Optional<Long> parseClock(String value) {
+		try {
+			return Optional.of(Long.parseLong(value.trim()));
+		} catch (NumberFormatException nfe) {
+			return Optional.empty();
+		}
+	}
+
+
+	private static HttpRequest copyForNode(HttpRequest request) {
+		// Copy the request, as the front end still reads it to answer the client
+		HttpRequest forwarded = new HttpRequest();
+		forwarded.setMethod(request.getMethod());
+		forwarded.setPath(request.getPath());
+		forwarded.setHeaders(new HttpHeaders(request.getHeaders()));
+		forwarded.setBody(request.getBody());
+
+		// The connection to the node is always kept open for the next request
+		CONNECTION_HEADERS.forEach(forwarded.getHeaders()::remove);
+		return forwarded;
+	}
+
+
+	private static HttpResponse stripConnectionHeaders(HttpResponse response) {
+		// The front end adds its own headers for the client's connection
+		CONNECTION_HEADERS.forEach(response.getHeaders()::remove);
+
+		// The body has already been decompressed when it was read
+		response.getHeaders()
+				.remove(HttpHeaders.CONTENT_ENCODING);
+		return response;
+	}
+
+
+	private void relay(Socket client) {
+		// Open a dedicated connection to the primary, as the client owns it until it closes
+		InetSocketAddress address = primary.address;
+		Optional<Socket> optionalUpstream = SocketUtils.createClientSocket(address.getHostString(), address.getPort());
+
+		// If the node cannot be reached
+		if (optionalUpstream.isEmpty()) {
+			HttpResponseUtils.sendResponse(client, HttpResponseUtils.generateResponse(HttpStatusCode.BAD_GATEWAY, "Aggregation node is unavailable", 0));
+			closeClientConnection(client);
+			return;
+		}
+
+		Socket upstream = optionalUpstream.get();
+
+		try {
+			// Copy the node's responses back to the client on a separate thread
+			Thread responses = new Thread(() -> pipe(upstream, client), "NodeRelay-" + address.getPort());
+			responses.setDaemon(true);
+			responses.start();
+
+			// Copy the client's requests to the node until the client stops sending
+			pipe(client, upstream);
+			responses.join();
+		} catch (InterruptedException ie) {
+			Thread.currentThread()
+				  .interrupt();
+		} finally {
+			closeClientConnection(upstream);
+			closeClientConnection(client);
+		}
+	}
+
+
+	private static void pipe(Socket from, Socket to) {
+		try {
+			from.getInputStream()
+				.transferTo(to.getOutputStream());
+		} catch (IOException ioe) {
+			logger.debug("Relay stopped: {}", ioe.getMessage());
+		} finally {
+			// Pass the end of the stream on, so the other side finishes and closes
+			try {
+				to.shutdownOutput();
+			} catch (IOException ignored) {
+				// The socket is already closed
+			}
+		}
+	}
+
+
+	private boolean awaitHealthy(Node node) {
+		long deadline = System.currentTimeMillis() + GlobalConstants.BACKEND_STARTUP_TIMEOUT;
+
+		// Check the node until it answers, its process exits, or the deadline passes
+		while (System.currentTimeMillis() < deadline) {
+			if (isNodeUp(node)) {
+				node.healthy = true;
+				logger.info("Aggregation node {} is up", node.getAddress());
+				return true;
+			}
+
+			Process running = node.process;
+			if (node.launched && (running == null || !running.isAlive())) {
+				break;
+			}
+
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException ie) {
+				Thread.currentThread()
+					  .interrupt();
+				break;
+			}
+		}
+
+		logger.error("Aggregation node {} did not start", node.getAddress());
+		return false;
+	}
+
+
+	private void checkHealth() {
+		// Check the replicas first, so a failed primary is replaced by a replica that is up
+		for (Node replica : replicas) {
+			if (!checkNode(replica)) {
+				restartIfExited(replica);
+				continue;
+			}
+
+			// Point a replica at the primary once it has started or recovered
+			if (replica.healthy && !replica.following) {
+				follow(replica, primary);
+			}
+		}
+
+		Node current = primary;
+
+		// If the primary is still treated as up
+		if (checkNode(current)) {
+			return;
+		}
+
+		// Promote the replica that has caught up the furthest, so no applied reading is lost
+		if (!isDraining() && promoteReplica(current)) {
+			return;
+		}
+
+		restartIfExited(current);
+	}
+
+
+	/**
+	 * Health check a node.
+	 *
+	 * @return false once the node has failed enough checks in a row to be
+	 * treated as down
+	 */
+	private boolean checkNode(Node node) {
+		// If the node answered, it can take requests again
+		if (isNodeUp(node)) {
+			if (!node.healthy) {
+				logger.info("Aggregation node {} has recovered", node.getAddress());
+			}
+
+			node.failedChecks = 0;
+			node.healthy = true;
+			return true;
+		}
+
+		// Only treat the node as down after several failed checks in a row
+		node.failedChecks += 1;
+		if (node.failedChecks < GlobalConstants.BACKEND_FAILURE_THRESHOLD) {
+			return true;
+		}
+
+		if (node.healthy) {
+			logger.warn("Aggregation node {} is down", node.getAddress());
+		}
+
+		// A node that comes back may have restarted empty, so it must be told to follow again
+		node.healthy = false;
+		node.following = false;
+		return false;
+	}
+
+
+	private void restartIfExited(Node node) {
+		// Start a launched node again if its process has exited
+		Process running = node.process;
+		if (node.launched && !isDraining() && (running == null || !running.isAlive())) {
+			logger.warn("Restarting aggregation node {}", node.getAddress());
+			node.process = launch(node.address.getPort()).orElse(null);
+			node.failedChecks = 0;
+		}
+	}
+
+
+	private boolean promoteReplica(Node failed) {
+		// Choose the replica that has caught up to the latest clock of the primary
+		Node promoted = null;
+		for (Node replica : replicas) {
+			if (replica.healthy && replica.following && (promoted == null || replica.caughtUpClock > promoted.caughtUpClock)) {
+				promoted = replica;
+			}
+		}
+
+		// If no replica can take over
+		if (promoted == null || !sendRole(promoted, null)) {
+			return false;
+		}
+
+		logger.warn("Promoted replica {} to replace primary aggregation node {}", promoted.getAddress(), failed.getAddress());
+
+		// The failed primary rejoins as a replica once it is back
+		replicas.remove(promoted);
+		replicas.add(failed);
+		primary = promoted;
+
+		// Point the other replicas at the new primary
+		for (Node replica : replicas) {
+			replica.following = false;
+			if (replica.healthy) {
+				follow(replica, promoted);
+			}
+		}
+
+		restartIfExited(failed);
+		return true;
+	}
+
+
+	private void follow(Node replica, Node primaryNode) {
+		// Clock values are only comparable within one primary, so the replica catches up again
+		replica.caughtUpClock = 0;
+		replica.following = sendRole(replica, primaryNode.getAddress());
+	}
+
+
+	/**
+	 * Tell a node which primary to follow.
+	 *
+	 * @param primaryAddress the address of the primary, or null to promote the node
+	 * @return a boolean for if the node accepted the change
+	 */
+	private static boolean sendRole(Node node, String primaryAddress) {
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.PUT);
+		request.setPath(HttpRequestUtils.REPLICATION_PATH + (primaryAddress == null ? "" : "?primary=" + primaryAddress));
+		request.addHeader(HttpHeaders.HOST, node.getAddress());
+		request.addHeader(HttpHeaders.CONTENT_LENGTH, "0");
+		request.addHeader(HttpHeaders.REPLICATION_TOKEN, REPLICATION_TOKEN);
+
+		return send(node, request).filter(response -> response.getStatus() == HttpStatusCode.OK)
+								  .isPresent();
+	}
+
+
+	private static boolean isNodeUp(Node node) {
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.GET);
+		request.setPath(HttpRequestUtils.HEALTH_PATH);
+		request.addHeader(HttpHeaders.HOST, node.getAddress());
+
+		// The node is up if it answers the check in time
+		Optional<HttpResponse> response = HttpClientConnection.send(node.address.getHostString(), node.address.getPort(), request, GlobalConstants.BACKEND_HEALTH_INTERVAL)
+															  .filter(answer -> answer.getStatus() == HttpStatusCode.OK);
+
+		// A node that sends a malformed clock is not treated as up
+		return response.isPresent() && readCaughtUpClock(node, response.get());
+	}
+
+
+	private List<Node> getNodes() {
+		List<Node> nodes = new ArrayList<>();
+		nodes.add(primary);
+		nodes.addAll(replicas);
+		return nodes;
+	}
+
+
+	private static Node launchNode() {
+		// Launch a node on a free port
+		int port = findFreePort();
+		return new Node(new InetSocketAddress(GlobalConstants.SERVER_IP, port), true, launch(port).orElse(null));
+	}
+
+
+	private static Optional<Process> launch(int port) {
+		List<String> command = new ArrayList<>();
+
+		// Run the node on the same Java runtime as the load balancer
+		command.add(ProcessHandle.current()
+								 .info()
+								 .command()
+								 .orElse(Path.of(System.getProperty("java.home"), "bin", "java")
+											 .toString()));
+
+		// Pass on the runtime options, such as the heap size, but not debugging agents
+		ManagementFactory.getRuntimeMXBean()
+						 .getInputArguments()
+						 .stream()
+						 .filter(argument -> !argument.startsWith("-D") && !argument.startsWith("-agentlib") && !argument.startsWith("-javaagent"))
+						 .forEach(command::add);
+
+		// Pass on the server options, which may have been set after the runtime started
+		System.getProperties()
+			  .stringPropertyNames()
+			  .stream()
+			  .filter(name -> FORWARDED_PROPERTIES.stream()
+												  .anyMatch(name::startsWith))
+			  .filter(name -> !name.equals("server.replication.token"))
+			  .forEach(name -> command.add("-D" + name + "=" + System.getProperty(name)));
+
+		// Give the node the secret it requires before following or changing its replication
+		command.add("-Dserver.replication.token=" + REPLICATION_TOKEN);
+
+		command.add("-cp");
+		command.add(getClassPath());
+		command.add(AggregationNode.class.getName());
+		command.add(String.valueOf(port));
+		command.add(String.valueOf(ProcessHandle.current()
+												.pid()));
+
+		try {
+			Process process = new ProcessBuilder(command).inheritIO()
+														 .start();
+			logger.info("Launched aggregation node on port {} with process ID {}", port, process.pid());
+			return Optional.of(process);
+		} catch (IOException ioe) {
+			logger.error("Unable to launch aggregation node on port {}: {}", port, ioe.getMessage());
+		}
+
+		return Optional.empty();
+	}
+
+
+	private static String getClassPath() {
+		// When run through Maven, the classes are loaded from URLs rather than the class path
+		if (AggregationNode.class.getClassLoader() instanceof URLClassLoader loader && loader.getURLs().length > 0) {
+			return Arrays.stream(loader.getURLs())
+						 .map(URL::getFile)
+						 .collect(Collectors.joining(File.pathSeparator));
+		}
+
+		return System.getProperty("java.class.path");
+	}
+
+
+	private static int findFreePort() {
+		// Let the operating system choose a port that is free right now
+		try (ServerSocket probe = new ServerSocket(0)) {
+			return probe.getLocalPort();
+		} catch (IOException ioe) {
+			logger.error("Unable to find a free port for an aggregation node: {}", ioe.getMessage());
+			return 0;
+		}
+	}
+
+
+	private static void stopProcess(Process process) {
+		process.destroy();
+
+		try {
+			// Give the node a moment to exit before forcing it
+			if (!process.waitFor(5, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+			}
+		} catch (InterruptedException ie) {
+			process.destroyForcibly();
+			Thread.currentThread()
+				  .interrupt();
+		}
+	}
+
+
+	private static List<InetSocketAddress> parseAddresses(String addresses) {
+		List<InetSocketAddress> parsed = new ArrayList<>();
+
+		// Read each address as a host and port
+		for (String entry : addresses.split(",")) {
+			String trimmed = entry.trim();
+			int colonIdx = trimmed.lastIndexOf(':');
+
+			// Skip empty and invalid entries
+			if (colonIdx <= 0) {
+				if (!trimmed.isEmpty()) {
+					logger.error("Ignoring invalid aggregation node address: {}", trimmed);
+				}
+				continue;
+			}
+
+			try {
+				parsed.add(InetSocketAddress.createUnresolved(trimmed.substring(0, colonIdx), Integer.parseInt(trimmed.substring(colonIdx + 1))));
+			} catch (IllegalArgumentException iae) {
+				logger.error("Ignoring invalid aggregation node address: {}", trimmed);
+			}
+		}
+
+		return parsed;
+	}
+
+
+	/**
+	 * A process of the server, which is either its primary or one of its
+	 * replicas.
+	 */
+	private static final class Node {
+
+		// Address of the node
+		private final InetSocketAddress address;
+
+		// Flag for if the node was launched by this load balancer, rather than attached to, even if its launch failed
+		private final boolean launched;
+
+		// Process of a launched node, or null if it could not be started
+		private volatile Process process;
+
+		// Flag for if the node passed its most recent health checks
+		private volatile boolean healthy = false;
+
+		// Health checks failed in a row, only used by the health checker
+		private int failedChecks = 0;
+
+		// Flag for if a replica is following the current primary
+		private volatile boolean following = false;
+
+		// Clock value of the primary that a replica last reported having caught up to
+		private volatile long caughtUpClock = 0;
+
+
+		private Node(InetSocketAddress address, boolean launched, Process process) {
+			this.address = address;
+			this.launched = launched;
+			this.process = process;
+		}
+
+
+		private String getAddress() {
+			return address.getHostString() + ":" + address.getPort();
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package net.ethandankiw.aggregation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.data.http.JSON;
+import net.ethandankiw.data.store.ContentStore;
+import net.ethandankiw.data.store.StationEvent;
+import net.ethandankiw.utils.JsonUtils;
+import net.ethandankiw.utils.SocketUtils;
+import net.ethandankiw.utils.http.HttpRequestUtils;
+
+/**
+ * Follows the replication log of a primary node, so a replica node holds the
+ * same readings. Each reading is applied with the Lamport clock the primary
+ * applied it with, and the primary periodically sends the value of its clock
+ * once every reading applied before it has been sent. A replica only answers
+ * a read once it has caught up to the clock the client sent, so a client
+ * never reads older data than it has already seen.
+ */
+final class ReplicationFollower {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class);
+
+	// Address of the primary node
+	private final String host;
+	private final int port;
+
+	// Clock of the aggregation server on the replica, kept ahead of the primary's
+	private final LamportClock clock;
+
+	// Highest Lamport clock of a reading applied, which the log resumes after when it is followed again
+	private volatile long appliedClock = 0;
+
+	// Clock value of the primary that every reading applied before has been received for
+	private long caughtUpClock = 0;
+
+	// Connection the log is being read from
+	private volatile Socket connection = null;
+
+	// Flag for if the log is still being followed
+	private volatile boolean following = true;
+
+	private final Thread thread;
+
+
+	ReplicationFollower(String host, int port, LamportClock clock) {
+		this.host = host;
+		this.port = port;
+		this.clock = clock;
+
+		// Follow the log until stopped, reconnecting whenever it is lost
+		thread = new Thread(() -> {
+			while (following) {
+				follow();
+
+				try {
+					Thread.sleep(GlobalConstants.REPLICATION_RETRY_INTERVAL);
+				} catch (InterruptedException ie) {
+					Thread.currentThread()
+						  .interrupt();
+					break;
+				}
+			}
+		}, "ReplicationFollower-" + port);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	String getPrimary() {
+		return host + ":" + port;
+	}
+
+
+	synchronized long getCaughtUpClock() {
+		return caughtUpClock;
+	}
+
+
+	/**
+	 * Wait for the replica to catch up to a clock value of the primary.
+	 *
+	 * @param lamportClock the clock the client sent with its request
+	 * @param timeout how long to wait in milliseconds
+	 * @return a boolean for if the replica has caught up
+	 */
+	synchronized boolean awaitCaughtUp(long lamportClock, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+
+		// Wait for sync events until the deadline passes
+		while (caughtUpClock < lamportClock) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return false;
+			}
+
+			wait(remaining);
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Stop following the log, when the replica is promoted or made to follow
+	 * another primary.
+	 */
+	void stop() {
+		following = false;
+		thread.interrupt();
+
+		// Unblock the read of the log
+		Socket current = connection;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException ignored) {
+				// The connection is already closed
+			}
+		}
+	}
+
+
+	private void follow() {
+		Optional<Socket> optionalSocket = SocketUtils.createClientSocket(host, port);
+
+		// If the primary cannot be reached
+		if (optionalSocket.isEmpty()) {
+			return;
+		}
+
+		// Resume the log after the newest reading already applied
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.GET);
+		request.setPath(HttpRequestUtils.REPLICATION_PATH);
+		request.addHeader(HttpHeaders.HOST, getPrimary());
+		request.addHeader(HttpHeaders.LAST_EVENT_ID, String.valueOf(appliedClock));
+		request.addHeader(HttpHeaders.REPLICATION_TOKEN, GlobalConstants.REPLICATION_TOKEN);
+		request.addHeader(HttpHeaders.CONNECTION, "close");
+
+		try (Socket socket = optionalSocket.get()) {
+			connection = socket;
+
+			// If the replica was stopped while connecting
+			if (!following) {
+				return;
+			}
+
+			socket.getOutputStream()
+				  .write(request.toString()
+								.getBytes(StandardCharsets.UTF_8));
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+			// If the primary did not start the log
+			String statusLine = reader.readLine();
+			if (statusLine == null || !statusLine.startsWith(GlobalConstants.HTTP_VERSION + " " + HttpStatusCode.OK.getStatusCode())) {
+				logger.error("Primary node {} did not send its replication log", getPrimary());
+				return;
+			}
+
+			// Skip the headers
+			String line = reader.readLine();
+			while (line != null && !line.isEmpty()) {
+				line = reader.readLine();
+			}
+
+			logger.info("Following the replication log of primary node {}", getPrimary());
+			readLog(reader);
+		} catch (IOException ioe) {
+			logger.debug("Replication log of primary node {} was lost: {}", getPrimary(), ioe.getMessage());
+		} finally {
+			connection = null;
+		}
+	}
+
+
+	private void readLog(BufferedReader reader) throws IOException {
+		long lamportClock = 0;
+		String event = null;
+		StringBuilder data = null;
+
+		for (String line = reader.readLine(); line != null && following; line = reader.readLine()) {
+			// A blank line dispatches the event read so far
+			if (line.isEmpty()) {
+				if (StationEvent.SYNC.equals(event)) {
+					markCaughtUp(lamportClock);
+				} else if (data != null) {
+					apply(lamportClock, data.toString());
+				}
+
+				event = null;
+				data = null;
+				continue;
+			}
+
+			// Read the event ID, name, and each line of its data, skipping comments
+			if (line.startsWith("id: ")) {
+				lamportClock = Long.parseLong(line.substring(4)
+												  .trim());
+			} else if (line.startsWith("event: ")) {
+				event = line.substring(7)
+							.trim();
+			} else if (line.startsWith("data: ")) {
+				data = data == null ? new StringBuilder() : data.append('\n');
+				data.append(line.substring(6));
+			}
+		}
+	}
+
+
+	private void apply(long lamportClock, String json) {
+		JSON parsed = JsonUtils.parseStringToJSON(json);
+
+		// If the reading has no station
+		if (!parsed.containsKey("id")) {
+			logger.error("Ignoring replicated reading without an ID");
+			return;
+		}
+
+		ContentStore.applyReplicated(parsed.getValue("id"), parsed, lamportClock);
+		appliedClock = Math.max(appliedClock, lamportClock);
+	}
+
+
+	private synchronized void markCaughtUp(long lamportClock) {
+		// Responses from the replica come after the primary's clock
+		clock.receive(lamportClock);
+		caughtUpClock = Math.max(caughtUpClock, lamportClock);
+		notifyAll();
+	}
+}
@@ -1,11 +1,11 @@
 package net.ethandankiw.client;
 
-import java.io.IOException;
-import java.net.Socket;
 import java.net.URI;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -15,15 +15,14 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import net.ethandankiw.GlobalConstants;
 import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
 import net.ethandankiw.data.http.HttpRequest;
 import net.ethandankiw.data.http.HttpRequestMethod;
 import net.ethandankiw.data.http.HttpResponse;
 import net.ethandankiw.data.http.HttpStatusCode;
-import net.ethandankiw.utils.SocketUtils;
 import net.ethandankiw.utils.UrlUtils;
-import net.ethandankiw.utils.http.HttpResponseUtils;
+import net.ethandankiw.utils.http.HttpClientConnection;
 
 public class GetClient {
 
@@ -42,6 +41,9 @@ public class GetClient {
 	// Define the lamport clock
 	private static final LamportClock clock = new LamportClock();
 
+	// Successful responses, keyed by server and path, that are revalidated using their entity tag
+	private static final Map<String, HttpResponse> cachedResponses = new ConcurrentHashMap<>();
+
 
 	// PUBLIC VARIABLES USED IN JUNIT TESTING
 	public static BlockingDeque<HttpResponse> storedResponses;
@@ -94,8 +96,12 @@ public class GetClient {
 		// Tick the lamport clock for sending the request
 		clock.tick();
 
+		// Get the response cached from the last request for the same data
+		String cacheKey = host + ":" + port + path;
+		HttpResponse cached = cachedResponses.get(cacheKey);
+
 		// Create a new HTTP request object to be sent to the aggregation server
-		HttpRequest request = buildGetRequest(path);
+		HttpRequest request = buildGetRequest(path, cached);
 
 		// Loop to retry until a successful response
 		for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
@@ -107,8 +113,8 @@ public class GetClient {
 
 			// If there is a response from the server
 			if (optionalResponse.isPresent()) {
-				// Get the response
-				HttpResponse response = optionalResponse.get();
+				// Get the response, reusing the cached body if it is still current
+				HttpResponse response = updateCache(cacheKey, cached, optionalResponse.get());
 
 				// Store the response
 				storedResponses.add(response);
@@ -164,7 +170,33 @@ public class GetClient {
 	}
 
 
-	private static @NotNull HttpRequest buildGetRequest(String path) {
+	private static @NotNull HttpResponse updateCache(String cacheKey, HttpResponse cached, @NotNull HttpResponse response) {
+		// If the cached body is still current
+		if (response.getStatus() == HttpStatusCode.NOT_MODIFIED && cached != null) {
+			logger.debug("Cached response is still current");
+
+			// Combine the cached body with the latest headers from the server
+			HttpResponse revalidated = new HttpResponse();
+			revalidated.setStatus(cached.getStatus());
+			revalidated.setHeaders(new HttpHeaders(cached.getHeaders()));
+			revalidated.getHeaders()
+					   .setAll(response.getHeaders());
+			revalidated.setBody(cached.getBody());
+			return revalidated;
+		}
+
+		// Cache successful responses that can be revalidated
+		if (response.getStatus() == HttpStatusCode.OK && response.getHeaderValue(HttpHeaders.ETAG) != null) {
+			cachedResponses.put(cacheKey, response);
+		} else {
+			cachedResponses.remove(cacheKey);
+		}
+
+		return response;
+	}
+
+
+	private static @NotNull HttpRequest buildGetRequest(String path, HttpResponse cached) {
 		// Create a new Http Request object
 		HttpRequest request = new HttpRequest();
 
@@ -173,12 +205,20 @@ public class GetClient {
 		request.setPath(path);
 
 		// Populate the headers
-		request.addHeader("User-Agent", "ATOMClient/1/0");
-		request.addHeader("Content-Type", "application/json");
+		request.addHeader(HttpHeaders.USER_AGENT, "ATOMClient/1/0");
+		request.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+
+		// Ask for a compressed body, which is decoded when the response is read
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+		// Only ask for the body if it has changed since it was cached
+		if (cached != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, cached.getHeaderValue(HttpHeaders.ETAG));
+		}
 
 		// Put the lamport clock value in the header
 		long clockValue = clock.getClockValue();
-		request.addHeader(GlobalConstants.LAMPORT_CLOCK_HEADER, String.valueOf(clockValue));
+		request.addHeader(HttpHeaders.LAMPORT_CLOCK, String.valueOf(clockValue));
 
 		// Return the request
 		return request;
@@ -186,48 +226,19 @@ public class GetClient {
 
 
 	private static Optional<HttpResponse> attemptRequest(String host, int port, HttpRequest request, int attempt) {
-		// Open a socket connection to the content server
-		Optional<Socket> optionalServerConnection = SocketUtils.createClientSocket(host, port);
-
-		// If the connection doesn't exist
-		if (optionalServerConnection.isEmpty()) {
-			logger.error("Unable to make a connection to the server");
-			return Optional.empty();
-		}
-
-		try {
-			// Get the client -> server socket connection
-			Socket serverConnection = optionalServerConnection.get();
-
-			// Calculate how long the GET client should wait for the timeout
-			// With exponential backoff
-			int timeout = (int) (STARTING_TIMEOUT * Math.pow(2, attempt - 1d));
-
-			// Define the request timeout on the socket
-			serverConnection.setSoTimeout(timeout * 1000);
-
-			// Make the request by writing to the client -> server socket
-			boolean success = SocketUtils.writeToSocket(serverConnection, request.toString());
-
-			// If the request was not successful
-			if (!success) {
-				logger.error("Request to server {} was unsuccessful", serverConnection.getInetAddress());
-				return Optional.empty();
-			}
-
-			// Parse the server response
-			Optional<HttpResponse> optionalResponse = HttpResponseUtils.parseServerResponse(serverConnection);
+		// Calculate how long the GET client should wait for the timeout
+		// With exponential backoff
+		int timeout = (int) (STARTING_TIMEOUT * Math.pow(2, attempt - 1d));
 
-			// Close the server connection
-			serverConnection.close();
+		// Make the request over a persistent connection to the server
+		Optional<HttpResponse> optionalResponse = HttpClientConnection.send(host, port, request, timeout * 1000);
 
-			// Return the response from the server
-			return optionalResponse;
-		} catch (IOException ioe) {
-			logger.error("Error occurred when closing connection to the server");
+		// If there was no response
+		if (optionalResponse.isEmpty()) {
+			logger.error("Request to server {}:{} was unsuccessful", host, port);
 		}
 
-		// Default to no response if an error occurs
-		return Optional.empty();
+		// Return the response from the server
+		return optionalResponse;
 	}
 }
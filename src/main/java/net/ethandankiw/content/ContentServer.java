@@ -1,7 +1,7 @@
 package net.ethandankiw.content;
 
-import java.net.Socket;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Optional;
@@ -14,17 +14,16 @@ import org.jetbrains.annotations.Blocking;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import net.ethandankiw.GlobalConstants;
 import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
 import net.ethandankiw.data.http.HttpRequest;
 import net.ethandankiw.data.http.HttpRequestMethod;
 import net.ethandankiw.data.http.HttpResponse;
 import net.ethandankiw.data.http.JSON;
 import net.ethandankiw.data.store.FileManager;
 import net.ethandankiw.utils.JsonUtils;
-import net.ethandankiw.utils.SocketUtils;
 import net.ethandankiw.utils.UrlUtils;
-import net.ethandankiw.utils.http.HttpResponseUtils;
+import net.ethandankiw.utils.http.HttpClientConnection;
 
 public class ContentServer {
 
@@ -33,6 +32,9 @@ public class ContentServer {
 	// Define the lamport clock
 	private static final LamportClock clock = new LamportClock();
 
+	// Define how long to wait for the server to respond to a PUT request
+	private static final Integer RESPONSE_TIMEOUT = 30_000; // milliseconds
+
 
 	// PUBLIC VARIABLES USED IN JUNIT TESTING
 	public static BlockingDeque<HttpResponse> storedResponses;
@@ -104,52 +106,31 @@ public class ContentServer {
 		request.setVersion("HTTP/1.1");
 
 		// Populate the headers
-		request.addHeader("User-Agent", "ATOMClient/1/0");
-		request.addHeader("Content-Type", "application/json");
+		request.addHeader(HttpHeaders.USER_AGENT, "ATOMClient/1/0");
+		request.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
 
 		// Put the lamport clock value in the header
 		long clockValue = clock.getClockValue();
-		request.addHeader(GlobalConstants.LAMPORT_CLOCK_HEADER, String.valueOf(clockValue));
+		request.addHeader(HttpHeaders.LAMPORT_CLOCK, String.valueOf(clockValue));
 
 		// Parse the JSON into a string
 		String jsonData = JsonUtils.parseJSONToString(json);
 
-		// Calculate the size of the JSON data for content length
-		Integer size = jsonData.length();
+		// Calculate the size of the JSON data in bytes for content length
+		Integer size = jsonData.getBytes(StandardCharsets.UTF_8).length;
 
 		// Populate the content length header
-		request.addHeader("Content-Length", String.valueOf(size));
+		request.addHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(size));
 
 		// Populate the body of the request with the JSON data
 		request.setBody(jsonData);
 
-		// Open a socket connection to the content server
-		Optional<Socket> optionalServerConnection = SocketUtils.createClientSocket(host, port);
-
-		// If the connection doesn't exist
-		if (optionalServerConnection.isEmpty()) {
-			logger.error("Unable to make a connection to the server");
-			return;
-		}
-
-		// Get the client -> server socket connection
-		Socket serverConnection = optionalServerConnection.get();
-
-		// Make the request by writing to the client -> server socket
-		boolean success = SocketUtils.writeToSocket(serverConnection, request.toString());
-
-		// If the request was not successful
-		if (!success) {
-			logger.error("Request to {} was unsuccessful", serverConnection.getInetAddress());
-			return;
-		}
-
-		// Parse the response from the server
-		Optional<HttpResponse> optionalResponse = HttpResponseUtils.parseServerResponse(serverConnection);
+		// Make the request over a persistent connection to the aggregation server
+		Optional<HttpResponse> optionalResponse = HttpClientConnection.send(host, port, request, RESPONSE_TIMEOUT);
 
 		// If there is no response
 		if (optionalResponse.isEmpty()) {
-			logger.error("Response from {} does not exist", serverConnection.getInetAddress());
+			logger.error("Response from {}:{} does not exist", host, port);
 			return;
 		}
 
@@ -0,0 +1,109 @@
+package net.ethandankiw.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Immutable consistent hash ring that assigns keys to members. Each member
+ * has many points on the ring, so keys are spread evenly, and adding or
+ * removing a member only moves the keys on its part of the ring.
+ * <p>
+ * Two rings built from members with the same names assign every key to the
+ * same member, so the load balancer and the content store agree on which
+ * aggregation server owns each station.
+ *
+ * @param <T> the type of the members
+ */
+public class ConsistentHashRing<T> {
+
+	// Points each member has on the ring
+	private static final int VIRTUAL_NODES = 64;
+
+	private final List<T> members;
+
+	// Points on the ring in ascending order, and the member that owns each
+	private final long[] points;
+	private final Object[] owners;
+
+
+	/**
+	 * Build a ring of members.
+	 *
+	 * @param members the members, which are copied
+	 * @param nameOf gives the name of a member, which decides its place on the ring
+	 */
+	public ConsistentHashRing(Collection<T> members, Function<T, String> nameOf) {
+		this.members = List.copyOf(members);
+
+		// Place each member's virtual nodes, packing the owner's index alongside each point
+		long[][] placed = new long[this.members.size() * VIRTUAL_NODES][];
+		for (int m = 0; m < this.members.size(); m++) {
+			String name = nameOf.apply(this.members.get(m));
+			for (int v = 0; v < VIRTUAL_NODES; v++) {
+				placed[m * VIRTUAL_NODES + v] = new long[]{hash(name + "#" + v), m};
+			}
+		}
+
+		// Sort the points around the ring
+		Arrays.sort(placed, (a, b) -> Long.compare(a[0], b[0]));
+		points = new long[placed.length];
+		owners = new Object[placed.length];
+		for (int i = 0; i < placed.length; i++) {
+			points[i] = placed[i][0];
+			owners[i] = this.members.get((int) placed[i][1]);
+		}
+	}
+
+
+	/**
+	 * Get the member that owns a key.
+	 *
+	 * @return the owner, or {@code null} if the ring has no members
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(String key) {
+		// If there is no member to own the key
+		if (points.length == 0) {
+			return null;
+		}
+
+		// The owner is the first point at or after the hash, wrapping around the ring
+		int index = Arrays.binarySearch(points, hash(key));
+		if (index < 0) {
+			index = -index - 1;
+		}
+
+		return (T) owners[index == points.length ? 0 : index];
+	}
+
+
+	public List<T> getMembers() {
+		return members;
+	}
+
+
+	public boolean isEmpty() {
+		return members.isEmpty();
+	}
+
+
+	/**
+	 * Hash a key to a position on the ring, using 64-bit FNV-1a with a final
+	 * mix so similar keys land far apart.
+	 */
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
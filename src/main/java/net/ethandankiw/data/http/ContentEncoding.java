@@ -0,0 +1,179 @@
+package net.ethandankiw.data.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public enum ContentEncoding {
+	// Body is sent as is
+	IDENTITY("identity"),
+	// Body is compressed with gzip
+	GZIP("gzip"),
+	// Body is compressed with zlib wrapped deflate
+	DEFLATE("deflate");
+
+	private static final Logger logger = LoggerFactory.getLogger(ContentEncoding.class);
+
+	// Preferred encodings when the client accepts several with the same weight
+	private static final ContentEncoding[] PREFERENCE = {GZIP, DEFLATE};
+
+	private final String token;
+
+
+	ContentEncoding(String token) {
+		this.token = token;
+	}
+
+
+	public String getToken() {
+		return token;
+	}
+
+
+	/**
+	 * Choose the encoding for a response from the Accept-Encoding header of
+	 * the request. Encodings with a quality of 0 are never chosen.
+	 *
+	 * @param acceptEncoding the header value, or null if it was not sent
+	 * @return the most preferred encoding accepted by the client
+	 */
+	public static ContentEncoding negotiate(String acceptEncoding) {
+		// If the client did not ask for a compressed body
+		if (acceptEncoding == null || acceptEncoding.isBlank()) {
+			return IDENTITY;
+		}
+
+		ContentEncoding best = IDENTITY;
+		double bestQuality = 0;
+
+		// Pick the compressed encoding with the highest quality
+		for (ContentEncoding encoding : PREFERENCE) {
+			double quality = getQuality(acceptEncoding, encoding.token);
+
+			if (quality > bestQuality) {
+				best = encoding;
+				bestQuality = quality;
+			}
+		}
+
+		return best;
+	}
+
+
+	/**
+	 * Find the encoding for a Content-Encoding header value.
+	 */
+	public static Optional<ContentEncoding> fromToken(String token) {
+		// A missing header means the body is not encoded
+		if (token == null || token.isBlank()) {
+			return Optional.of(IDENTITY);
+		}
+
+		for (ContentEncoding encoding : values()) {
+			if (encoding.token.equalsIgnoreCase(token.trim())) {
+				return Optional.of(encoding);
+			}
+		}
+
+		return Optional.empty();
+	}
+
+
+	/**
+	 * Compress a body using this encoding.
+	 *
+	 * @return the encoded body, or empty if it could not be compressed
+	 */
+	public Optional<byte[]> encode(byte[] body) {
+		// If the body is sent as is
+		if (this == IDENTITY) {
+			return Optional.of(body);
+		}
+
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream(body.length / 2 + 32);
+
+		// Write the body through the compressing stream
+		try (OutputStream stream = this == GZIP ? new GZIPOutputStream(encoded) : new DeflaterOutputStream(encoded)) {
+			stream.write(body);
+		} catch (IOException ioe) {
+			logger.error("Unable to {} encode body: {}", token, ioe.getMessage());
+			return Optional.empty();
+		}
+
+		return Optional.of(encoded.toByteArray());
+	}
+
+
+	/**
+	 * Decompress a body that was encoded using this encoding.
+	 *
+	 * @return the decoded body, or empty if it is not validly encoded
+	 */
+	public Optional<byte[]> decode(byte[] body) {
+		// If the body was sent as is
+		if (this == IDENTITY) {
+			return Optional.of(body);
+		}
+
+		// Read the body through the decompressing stream
+		try (InputStream stream = this == GZIP ? new GZIPInputStream(new ByteArrayInputStream(body))
+				: new InflaterInputStream(new ByteArrayInputStream(body))) {
+			return Optional.of(stream.readAllBytes());
+		} catch (IOException ioe) {
+			logger.error("Unable to {} decode body: {}", token, ioe.getMessage());
+			return Optional.empty();
+		}
+	}
+
+
+	private static double getQuality(String acceptEncoding, String token) {
+		double wildcard = 0;
+
+		// Check each encoding listed by the client (e.g., "gzip;q=0.8, deflate")
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String name = params[0].trim();
+			double quality = parseQuality(params);
+
+			// An exact match takes priority over a wildcard
+			if (name.equalsIgnoreCase(token)) {
+				return quality;
+			}
+
+			if (name.equals("*")) {
+				wildcard = quality;
+			}
+		}
+
+		return wildcard;
+	}
+
+
+	private static double parseQuality(String[] params) {
+		// Look for a "q=" parameter after the encoding name
+		for (int i = 1; i < params.length; i++) {
+			String param = params[i].trim();
+
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2));
+				} catch (NumberFormatException nfe) {
+					return 0;
+				}
+			}
+		}
+
+		// Encodings without a weight default to a quality of 1
+		return 1;
+	}
+}
@@ -0,0 +1,260 @@
+package net.ethandankiw.data.http;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Headers of a request or response, stored in small parallel arrays of names
+ * and values. Names keep the case they were added with, and are compared
+ * without regard to case and without allocating.
+ * <p>
+ * Well-known header names are shared constants, so parsed headers can reuse
+ * them rather than allocating a new name, and lookups using a constant are
+ * usually matched by reference.
+ */
+public class HttpHeaders {
+
+	// Well-known header names
+	public static final String HOST = "host";
+	public static final String ACCEPT = "accept";
+	public static final String USER_AGENT = "user-agent";
+	public static final String CONTENT_TYPE = "content-type";
+	public static final String CONTENT_LENGTH = "content-length";
+	public static final String CONTENT_ENCODING = "content-encoding";
+	public static final String TRANSFER_ENCODING = "transfer-encoding";
+	public static final String CACHE_CONTROL = "cache-control";
+	public static final String CONNECTION = "connection";
+	public static final String KEEP_ALIVE = "keep-alive";
+	public static final String ACCEPT_ENCODING = "accept-encoding";
+	public static final String VARY = "vary";
+	public static final String LAST_EVENT_ID = "last-event-id";
+
+	// Header for lamport clock values
+	public static final String LAMPORT_CLOCK = "lamport-clock";
+
+	// Headers for conditional requests, using Lamport clocks as entity tags
+	public static final String ETAG = "etag";
+	public static final String IF_NONE_MATCH = "if-none-match";
+
+	// Header for the primary clock a replica has caught up to
+	public static final String APPLIED_CLOCK = "applied-clock";
+
+	// Header proving a replication request came from the load balancer running the node
+	public static final String REPLICATION_TOKEN = "replication-token";
+
+	// Header telling a client when to retry a request that was turned away
+	public static final String RETRY_AFTER = "retry-after";
+
+	// Names that are reused when parsing, most frequent first
+	private static final String[] WELL_KNOWN_NAMES = {CONTENT_LENGTH, CONTENT_TYPE, LAMPORT_CLOCK, CONNECTION, HOST, USER_AGENT, ACCEPT, ACCEPT_ENCODING, CONTENT_ENCODING, TRANSFER_ENCODING, KEEP_ALIVE, VARY, ETAG, IF_NONE_MATCH, LAST_EVENT_ID, APPLIED_CLOCK, RETRY_AFTER, CACHE_CONTROL};
+
+	// Most messages have fewer headers than this
+	private static final int DEFAULT_CAPACITY = 8;
+
+	private String[] names;
+	private String[] values;
+	private int size;
+
+
+	public HttpHeaders() {
+		names = new String[DEFAULT_CAPACITY];
+		values = new String[DEFAULT_CAPACITY];
+		size = 0;
+	}
+
+
+	/**
+	 * Create a copy of the headers.
+	 */
+	public HttpHeaders(HttpHeaders headers) {
+		names = Arrays.copyOf(headers.names, Math.max(headers.size, DEFAULT_CAPACITY));
+		values = Arrays.copyOf(headers.values, names.length);
+		size = headers.size;
+	}
+
+
+	/**
+	 * Get the number of well-known header names, which are shared by every
+	 * parsed message.
+	 */
+	public static int wellKnownNameCount() {
+		return WELL_KNOWN_NAMES.length;
+	}
+
+
+	/**
+	 * Get a well-known header name by its index, most frequent first.
+	 */
+	public static String wellKnownName(int index) {
+		return WELL_KNOWN_NAMES[index];
+	}
+
+
+	/**
+	 * Find the shared constant for a header name, without allocating.
+	 *
+	 * @param line the text containing the name
+	 * @param from the index of the first character of the name
+	 * @param to the index after the last character of the name
+	 * @return the constant, or null if the name is not well-known
+	 */
+	public static String findWellKnownName(String line, int from, int to) {
+		int length = to - from;
+
+		for (int i = 0; i < WELL_KNOWN_NAMES.length; i++) {
+			String known = WELL_KNOWN_NAMES[i];
+			if (known.length() == length && line.regionMatches(true, from, known, 0, length)) {
+				return known;
+			}
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Get the value of a header.
+	 *
+	 * @param name the header name, in any case
+	 * @return the value, or null if the header is not present
+	 */
+	public String get(String name) {
+		int index = indexOf(name);
+		return index < 0 ? null : values[index];
+	}
+
+
+	public boolean contains(String name) {
+		return indexOf(name) >= 0;
+	}
+
+
+	/**
+	 * Set the value of a header, replacing any existing value.
+	 */
+	public void set(String name, String value) {
+		// Replace the value if the header is already present
+		int index = indexOf(name);
+		if (index >= 0) {
+			values[index] = value;
+			return;
+		}
+
+		// Grow the arrays when they are full
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+
+		// Append the header
+		names[size] = name;
+		values[size] = value;
+		size += 1;
+	}
+
+
+	/**
+	 * Set every header from another set of headers, replacing existing values.
+	 */
+	public void setAll(HttpHeaders headers) {
+		for (int i = 0; i < headers.size; i++) {
+			set(headers.names[i], headers.values[i]);
+		}
+	}
+
+
+	/**
+	 * Remove a header.
+	 *
+	 * @return true if the header was present
+	 */
+	public boolean remove(String name) {
+		// If the header is not present
+		int index = indexOf(name);
+		if (index < 0) {
+			return false;
+		}
+
+		// Shift the later headers down to keep their order
+		int moved = size - index - 1;
+		System.arraycopy(names, index + 1, names, index, moved);
+		System.arraycopy(values, index + 1, values, index, moved);
+
+		// Clear the last slot so its strings can be collected
+		size -= 1;
+		names[size] = null;
+		values[size] = null;
+		return true;
+	}
+
+
+	public int size() {
+		return size;
+	}
+
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+
+	/**
+	 * Get the name of the header at an index, in the case it was added with.
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+
+
+	public String getValue(int index) {
+		return values[index];
+	}
+
+
+	/**
+	 * Perform an action for each header, in the order they were added.
+	 */
+	public void forEach(BiConsumer<String, String> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(names[i], values[i]);
+		}
+	}
+
+
+	private int indexOf(String name) {
+		// Constants are usually matched by reference
+		for (int i = 0; i < size; i++) {
+			if (names[i] == name) {
+				return i;
+			}
+		}
+
+		// Otherwise, compare the names without regard to case
+		for (int i = 0; i < size; i++) {
+			if (names[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+
+	@Override
+	public String toString() {
+		// Header lines: e.g., "Content-Type: application/json"
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			// Separate each header line
+			if (i > 0) {
+				builder.append("\r\n");
+			}
+
+			builder.append(names[i])
+				   .append(": ")
+				   .append(values[i]);
+		}
+
+		return builder.toString();
+	}
+}
@@ -1,9 +1,5 @@
 package net.ethandankiw.data.http;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
-
 import net.ethandankiw.GlobalConstants;
 
 public class HttpRequest {
@@ -12,7 +8,7 @@ public class HttpRequest {
 	private String path;
 	private String version;
 
-	private Map<String, String> headers;
+	private HttpHeaders headers;
 	private String body;
 
 
@@ -20,7 +16,7 @@ public class HttpRequest {
 		method = HttpRequestMethod.NONE;
 		path = "/";
 		version = GlobalConstants.HTTP_VERSION;
-		headers = new HashMap<>();
+		headers = new HttpHeaders();
 		body = "";
 	}
 
@@ -64,23 +60,24 @@ public class HttpRequest {
 	}
 
 
-	public Map<String, String> getHeaders() {
+	public HttpHeaders getHeaders() {
 		return headers;
 	}
 
 
-	public void setHeaders(Map<String, String> headers) {
+	public void setHeaders(HttpHeaders headers) {
 		this.headers = headers;
 	}
 
 
 	public String getHeaderValue(String key) {
+		// Header names are case-insensitive
 		return headers.get(key);
 	}
 
 
 	public void addHeader(String key, String value) {
-		this.headers.put(key, value);
+		this.headers.set(key, value);
 	}
 
 
@@ -101,17 +98,15 @@ public class HttpRequest {
 		requestBuilder.append(String.format("%s %s %s\r", getMethod().toString(), getPath(), getVersion()));
 		requestBuilder.append("\n");
 
-		// Add headers from the map
-		String headerStr = getHeaders().entrySet()
-									   .stream()
-									   .map(set -> String.format("%s: %s", set.getKey(), set.getValue()))
-									   .collect(Collectors.joining("\r\n"));
-		requestBuilder.append(headerStr);
-		requestBuilder.append("\r\n"); // Blank line to separate headers from body
+		// Add the header lines
+		requestBuilder.append(getHeaders());
+		requestBuilder.append("\r\n");
+
+		// Blank line to separate headers from body, sent even when there is no body
+		requestBuilder.append("\r\n");
 
 		// Add the message body
 		if (getBody() != null && !getBody().isEmpty()) {
-			requestBuilder.append("\r\n"); // Blank line to separate headers from body
 			requestBuilder.append(getBody());
 		}
 
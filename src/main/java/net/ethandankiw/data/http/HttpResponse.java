@@ -1,23 +1,24 @@
 package net.ethandankiw.data.http;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
 
 import net.ethandankiw.GlobalConstants;
 
 public class HttpResponse {
 
 	private final String version;
-	private Map<String, String> headers;
+	private HttpHeaders headers;
 	private HttpStatusCode status;
 	private String body;
 
+	// Body encoded as UTF-8, created on first use
+	private byte[] bodyBytes;
+
 
 	public HttpResponse() {
 		status = HttpStatusCode.NONE;
 		version = GlobalConstants.HTTP_VERSION;
-		headers = new HashMap<>();
+		headers = new HttpHeaders();
 		body = "";
 	}
 
@@ -42,28 +43,76 @@ public class HttpResponse {
 	}
 
 
-	public Map<String, String> getHeaders() {
+	public HttpHeaders getHeaders() {
 		return headers;
 	}
 
 
-	public void setHeaders(Map<String, String> headers) {
+	public void setHeaders(HttpHeaders headers) {
 		this.headers = headers;
 	}
 
 
+	public String getHeaderValue(String key) {
+		// Header names are case-insensitive
+		return headers.get(key);
+	}
+
+
 	public void addHeader(String key, String value) {
-		this.headers.put(key, value);
+		this.headers.set(key, value);
 	}
 
 
+	/**
+	 * Get the body as text. A body that was only set as bytes is decompressed
+	 * using the Content-Encoding header first, so a compressed body reads the
+	 * same as the text it was made from.
+	 *
+	 * @return the text of the body, or an empty string if a compressed body
+	 * cannot be decoded
+	 */
 	public String getBody() {
-		return body;
+		// If the body was set as text
+		if (body != null || bodyBytes == null) {
+			return body;
+		}
+
+		// Undo the encoding of the bytes, which are kept as sent
+		return ContentEncoding.fromToken(getHeaderValue(HttpHeaders.CONTENT_ENCODING))
+							  .flatMap(encoding -> encoding.decode(bodyBytes))
+							  .map(decoded -> new String(decoded, StandardCharsets.UTF_8))
+							  .orElse("");
 	}
 
 
 	public void setBody(String body) {
 		this.body = body;
+		this.bodyBytes = null;
+	}
+
+
+	/**
+	 * Set a body that has already been encoded, such as a compressed body.
+	 */
+	public void setBodyBytes(byte[] bodyBytes) {
+		this.body = null;
+		this.bodyBytes = bodyBytes;
+	}
+
+
+	/**
+	 * Get the body as it is sent, which is the text encoded as UTF-8, or the
+	 * bytes set by {@link #setBodyBytes(byte[])}. The bytes are encoded once
+	 * and shared by every caller, so they must not be modified.
+	 */
+	public byte[] getBodyBytes() {
+		// Encode the body the first time it is needed
+		if (bodyBytes == null) {
+			bodyBytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+		}
+
+		return bodyBytes;
 	}
 
 
@@ -75,17 +124,18 @@ public class HttpResponse {
 		responseBuilder.append("\n");
 
 		// Header lines: e.g., "Content-Type: application/json"
-		String headerStr = getHeaders().entrySet()
-									   .stream()
-									   .map(set -> String.format("%s: %s", set.getKey(), set.getValue()))
-									   .collect(Collectors.joining("\r\n")); // Use \r\n for line endings
-		responseBuilder.append(headerStr);
-		responseBuilder.append("\r\n"); // Blank line to separate headers from body
-
-		// Add the message body
-		if (getBody() != null && !getBody().isEmpty()) {
-			responseBuilder.append("\r\n"); // Blank line to separate headers from body
-			responseBuilder.append(getBody());
+		if (!getHeaders().isEmpty()) {
+			responseBuilder.append(getHeaders());
+			responseBuilder.append("\r\n");
+		}
+
+		// Blank line to separate headers from body, sent even when there is no body
+		responseBuilder.append("\r\n");
+
+		// Add the message body, decompressed so it can be read
+		String text = getBody();
+		if (text != null && !text.isEmpty()) {
+			responseBuilder.append(text);
 		}
 
 		return responseBuilder.toString();
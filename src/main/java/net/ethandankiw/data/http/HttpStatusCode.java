@@ -9,17 +9,26 @@ public enum HttpStatusCode {
 	CREATED(201, "CREATED"),
 	NO_CONTENT(204, "NO CONTENT"),
 
+	// Redirection Responses
+	NOT_MODIFIED(304, "NOT MODIFIED"),
+
 	// Client Error Responses
 	BAD_REQUEST(400, "BAD REQUEST"),
 	UNAUTHORIZED(401, "UNAUTHORIZED"),
+	FORBIDDEN(403, "FORBIDDEN"),
 	NOT_FOUND(404, "NOT FOUND"),
 	METHOD_NOT_ALLOWED(405, "METHOD NOT ALLOWED"),
 	REQUEST_TIMEOUT(408, "REQUEST TIMEOUT"),
 	GONE(410, "GONE"),
+	PAYLOAD_TOO_LARGE(413, "PAYLOAD TOO LARGE"),
 	TOO_MANY_REQUESTS(429, "TOO MANY REQUESTS"),
+	REQUEST_HEADER_FIELDS_TOO_LARGE(431, "REQUEST HEADER FIELDS TOO LARGE"),
 
 	// Server Error Responses
 	INTERNAL_SERVER_ERROR(500, "INTERNAL SERVER ERROR"),
+	NOT_IMPLEMENTED(501, "NOT IMPLEMENTED"),
+	BAD_GATEWAY(502, "BAD GATEWAY"),
+	SERVICE_UNAVAILABLE(503, "SERVICE UNAVAILABLE"),
 	HTTP_VERSION_NOT_SUPPORTED(505, "HTTP VERSION NOT SUPPORTED"),
 	INSUFFICIENT_STORAGE(507, "INSUFFICIENT STORAGE");
 
@@ -55,8 +64,8 @@ public enum HttpStatusCode {
 
 	public static boolean isRetryable(Integer statusCode) {
 		// If the status code is an invalid server-side error
-		// 505 == Invalid HTTP version
-		if (statusCode == 505) {
+		// 501 == Unsupported by the server, 505 == Invalid HTTP version
+		if (statusCode == 501 || statusCode == 505) {
 			return false;
 		}
 
@@ -0,0 +1,47 @@
+package net.ethandankiw.data.server;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+/**
+ * Chooses a server at random, weighted by how soon it is expected to
+ * answer. A server's expected wait is its average request latency for each
+ * request in flight, plus the new one, so fast and idle servers receive more
+ * requests without all of them going to a single server.
+ */
+public class LatencyWeightedStrategy implements SelectionStrategy {
+
+	// Latency assumed for a server that has not answered a request yet
+	private static final double MIN_LATENCY = 100_000; // nanoseconds
+
+
+	@Override
+	public AggregationServer select(@NotNull AggregationServer[] servers, @Nullable String stationId) {
+		// Weight each server by the inverse of its expected wait
+		double[] weights = new double[servers.length];
+		double total = 0;
+		for (int i = 0; i < servers.length; i++) {
+			AggregationServer server = servers[i];
+			double latency = Math.max(server.getAverageLatency(), MIN_LATENCY);
+			weights[i] = 1 / (latency * (server.getActiveRequestsCount() + 1));
+			total += weights[i];
+		}
+
+		// Pick a point along the combined weights and find the server it lands on
+		double point = ThreadLocalRandom.current()
+										.nextDouble(total);
+		for (int i = 0; i < servers.length; i++) {
+			point -= weights[i];
+			if (point < 0) {
+				return servers[i];
+			}
+		}
+
+		// Rounding may leave the point past the last weight
+		return servers[servers.length - 1];
+	}
+}
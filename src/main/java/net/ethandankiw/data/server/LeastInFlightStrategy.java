@@ -0,0 +1,30 @@
+package net.ethandankiw.data.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+/**
+ * Chooses the server with the fewest requests in flight, reading every
+ * server's live count. Ties go to the first server in the pool.
+ */
+public class LeastInFlightStrategy implements SelectionStrategy {
+
+	@Override
+	public AggregationServer select(@NotNull AggregationServer[] servers, @Nullable String stationId) {
+		AggregationServer chosen = servers[0];
+		int fewest = chosen.getActiveRequestsCount();
+
+		// Compare the in-flight requests of every other server
+		for (int i = 1; i < servers.length; i++) {
+			int inFlight = servers[i].getActiveRequestsCount();
+			if (inFlight < fewest) {
+				chosen = servers[i];
+				fewest = inFlight;
+			}
+		}
+
+		return chosen;
+	}
+}
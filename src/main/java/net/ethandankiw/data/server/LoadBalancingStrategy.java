@@ -0,0 +1,28 @@
+package net.ethandankiw.data.server;
+
+public enum LoadBalancingStrategy {
+	// Servers take turns, regardless of their load
+	ROUND_ROBIN,
+	// The server with the fewest requests in flight
+	LEAST_IN_FLIGHT,
+	// The less loaded of two servers picked at random
+	P2C,
+	// A random server, favouring those expected to answer soonest
+	LATENCY_WEIGHTED,
+	// The same server for every request about a station
+	STATION_HASH;
+
+
+	/**
+	 * Creates a new instance of the strategy, which holds its own state.
+	 */
+	public SelectionStrategy create() {
+		return switch (this) {
+			case ROUND_ROBIN -> new RoundRobinStrategy();
+			case LEAST_IN_FLIGHT -> new LeastInFlightStrategy();
+			case P2C -> new PowerOfTwoChoicesStrategy();
+			case LATENCY_WEIGHTED -> new LatencyWeightedStrategy();
+			case STATION_HASH -> new StationHashStrategy();
+		};
+	}
+}
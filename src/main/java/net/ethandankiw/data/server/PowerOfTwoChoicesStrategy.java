@@ -0,0 +1,41 @@
+package net.ethandankiw.data.server;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+/**
+ * Picks two different servers at random and chooses the one with the lower
+ * live load. This spreads load almost as evenly as always choosing the
+ * least loaded server, without every dispatch reading the whole pool or
+ * every dispatcher herding onto the same server.
+ */
+public class PowerOfTwoChoicesStrategy implements SelectionStrategy {
+
+	private static final ServerLoadComparator LOAD_ORDER = new ServerLoadComparator();
+
+
+	@Override
+	public AggregationServer select(@NotNull AggregationServer[] servers, @Nullable String stationId) {
+		// If there is no choice to make
+		if (servers.length == 1) {
+			return servers[0];
+		}
+
+		// Pick two different servers
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(servers.length);
+		int second = random.nextInt(servers.length - 1);
+		if (second >= first) {
+			second += 1;
+		}
+
+		// Return the server with less load
+		AggregationServer a = servers[first];
+		AggregationServer b = servers[second];
+		return LOAD_ORDER.compare(a, b) <= 0 ? a : b;
+	}
+}
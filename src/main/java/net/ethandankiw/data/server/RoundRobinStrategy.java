@@ -0,0 +1,26 @@
+package net.ethandankiw.data.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+/**
+ * Gives each server a turn in order. This is the cheapest strategy, but it
+ * ignores load, so a server that is slow to answer keeps receiving work.
+ */
+public class RoundRobinStrategy implements SelectionStrategy {
+
+	// Number of servers chosen so far
+	private final AtomicInteger next = new AtomicInteger(0);
+
+
+	@Override
+	public AggregationServer select(@NotNull AggregationServer[] servers, @Nullable String stationId) {
+		// Keep the index positive once the counter wraps around
+		int index = (next.getAndIncrement() & Integer.MAX_VALUE) % servers.length;
+		return servers[index];
+	}
+}
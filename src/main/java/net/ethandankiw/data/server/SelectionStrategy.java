@@ -0,0 +1,25 @@
+package net.ethandankiw.data.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+/**
+ * Chooses the aggregation server that handles a client connection or
+ * request. Strategies are called concurrently by every dispatching thread,
+ * so they must be thread-safe and should not block.
+ */
+public interface SelectionStrategy {
+
+	/**
+	 * Chooses one of the registered servers.
+	 *
+	 * @param servers the registered servers, which is never empty and must
+	 * not be modified
+	 * @param stationId the station the request is for, or {@code null} if it
+	 * is not known
+	 * @return the chosen server
+	 */
+	AggregationServer select(@NotNull AggregationServer[] servers, @Nullable String stationId);
+}
@@ -0,0 +1,84 @@
+package net.ethandankiw.data.server;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.server.ExecutionMode;
+
+/**
+ * A snapshot of the work held by an aggregation server. Requests running on
+ * a thread are kept apart from tasks still queued for one, and requests
+ * blocked on the content store are kept apart from those doing work, so a
+ * server waiting on its store does not look the same as a busy one.
+ *
+ * @param executionMode the threads the server runs requests on
+ * @param running the requests being handled on a thread, including those
+ * blocked on the content store
+ * @param queued the tasks submitted to the server's pool that have not
+ * started running yet
+ * @param waitingOnStore the running requests blocked on the content store
+ * @param inFlight the requests read but not yet answered
+ * @param openConnections the client connections held by the server
+ * @param serviceTime the moving average of the time taken to handle a
+ * request in nanoseconds, or 0 before any request
+ * @param storeWaitTime the moving average of the time a request waited on
+ * the content store in nanoseconds, or 0 before any wait
+ */
+public record ServerLoad(ExecutionMode executionMode, int running, int queued, int waitingOnStore, int inFlight,
+						 int openConnections, long serviceTime, long storeWaitTime) {
+
+	// Service time assumed for a server that has not handled a request yet
+	private static final double MIN_SERVICE_TIME = 100_000; // nanoseconds
+
+
+	// Get the running requests that are not blocked on the content store
+	public int working() {
+		return Math.max(running - waitingOnStore, 0);
+	}
+
+
+	/**
+	 * Get the share of the server's capacity in use, where 1 is full.
+	 */
+	public double getUtilization() {
+		// Calculate the request load as a percentage out of 100
+		double requestLoad = (double) inFlight / (double) GlobalConstants.MAX_IN_FLIGHT_REQUESTS;
+
+		// Virtual threads are not a limited resource, so only requests count
+		if (executionMode == ExecutionMode.VIRTUAL) {
+			return requestLoad;
+		}
+
+		// Each open connection or started task holds a platform thread, and a queued task is waiting for one
+		double threadLoad = (double) Math.max(openConnections, running + queued)
+				/ (double) GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS;
+
+		// The server is limited by whichever runs out first
+		return Math.max(requestLoad, threadLoad);
+	}
+
+
+	/**
+	 * Get the time a new request is expected to take on the server in
+	 * nanoseconds. Each queued or working request ahead of it needs a full
+	 * service time, while a request blocked on the store is on average
+	 * halfway through its wait. That work is shared between the server's
+	 * threads, and the new request then needs its own service time.
+	 */
+	public double getExpectedLatency() {
+		double service = Math.max(serviceTime, MIN_SERVICE_TIME);
+
+		// The work already held by the server
+		double ahead = (queued + working()) * service + waitingOnStore * storeWaitTime / 2.0;
+
+		return ahead / getParallelism() + service;
+	}
+
+
+	private int getParallelism() {
+		// Virtual threads are only limited by the requests allowed in flight
+		if (executionMode == ExecutionMode.VIRTUAL) {
+			return GlobalConstants.MAX_IN_FLIGHT_REQUESTS;
+		}
+
+		return GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS;
+	}
+}
@@ -4,10 +4,20 @@ import java.util.Comparator;
 
 import net.ethandankiw.aggregation.AggregationServer;
 
+/**
+ * Orders servers by how soon they are expected to answer a new request,
+ * which counts queued tasks, working requests and requests blocked on the
+ * content store separately. Servers expected to answer as soon as each
+ * other are ordered by their requests in flight.
+ */
 public class ServerLoadComparator implements Comparator<AggregationServer> {
 
 	@Override
 	public int compare(AggregationServer server1, AggregationServer server2) {
-		return Double.compare(server1.getLoad(), server2.getLoad());
+		ServerLoad load1 = server1.getServerLoad();
+		ServerLoad load2 = server2.getServerLoad();
+
+		int byLatency = Double.compare(load1.getExpectedLatency(), load2.getExpectedLatency());
+		return byLatency != 0 ? byLatency : Integer.compare(load1.inFlight(), load2.inFlight());
 	}
 }
@@ -22,24 +22,41 @@ public interface ServerPool {
 
 	/**
 	 * Creates a new aggregation server, registers it in the pool, and returns
-	 * the newly created instance.
+	 * the newly created instance. No server is created once the pool holds
+	 * the maximum number of servers.
 	 *
-	 * @return the newly created and registered server
+	 * @return the newly created and registered server, or the least loaded
+	 * server if the pool is full
 	 */
 	AggregationServer createAndRegister();
 
 	/**
 	 * Returns a server that is available to handle new requests.
 	 * <p>
-	 * By default, this is the server with the lowest current request load. If
-	 * all existing servers are at capacity, a new server will be created and
-	 * returned.
+	 * The server is chosen by the pool's selection strategy. If the pick is
+	 * at capacity, the least loaded server is used instead, and if all
+	 * existing servers are at capacity, a standby server is added to the pool
+	 * and returned. A server is only created when the pool is empty.
 	 *
-	 * @return the least-loaded available server, or a newly created server if
-	 * none are available
+	 * @return an available server, or the least loaded server if none are
+	 * available and no standby server is left
 	 */
 	AggregationServer getAvailableServer();
 
+	/**
+	 * Returns a server that is available to handle a request about a
+	 * station.
+	 * <p>
+	 * Strategies that route by station send every request about the same
+	 * station to the same server, while it has capacity.
+	 *
+	 * @param stationId the station the request is for, or {@code null} if it
+	 * is not known
+	 * @return an available server, or the least loaded server if none are
+	 * available and no standby server is left
+	 */
+	AggregationServer getAvailableServer(String stationId);
+
 	/**
 	 * Returns the server with the lowest current request load.
 	 * <p>
@@ -83,4 +100,9 @@ public interface ServerPool {
 	 * Prints the server load stats for each server.
 	 */
 	void printStats();
+
+	/**
+	 * Shuts down the started servers waiting to be added to the pool.
+	 */
+	void shutdownStandbyServers();
 }
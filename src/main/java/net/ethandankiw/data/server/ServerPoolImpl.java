@@ -1,32 +1,97 @@
 package net.ethandankiw.data.server;
 
-import java.util.concurrent.PriorityBlockingQueue;
-
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.ethandankiw.GlobalConstants;
 import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.aggregation.RemoteAggregationServer;
+import net.ethandankiw.data.store.ContentStore;
+import net.ethandankiw.server.BackendMode;
+import net.ethandankiw.server.ExecutionMode;
 
 public class ServerPoolImpl implements ServerPool {
 
 	// Get the logger for this class
 	private static final Logger logger = LoggerFactory.getLogger(ServerPoolImpl.class);
 
-	// Create a priority queue where the lowest server load is first
-	private final PriorityBlockingQueue<AggregationServer> servers;
+	// Orders servers by their current load when the whole pool is scanned
+	private static final ServerLoadComparator LOAD_ORDER = new ServerLoadComparator();
+
+	// Registered servers, replaced with a new copy on every change so selection never takes a lock
+	private volatile AggregationServer[] servers = new AggregationServer[0];
+
+	// Threads used by new servers to run client requests
+	private final ExecutionMode executionMode;
+
+	// Chooses the server for each client connection or request
+	private final SelectionStrategy strategy;
+
+	// Where new servers run
+	private final BackendMode backendMode;
+
+	// Held while servers are added or removed, which may copy stations between nodes over the network
+	// Requests never wait for it, and it is never held while a server is being started
+	private final ReentrantLock resizing = new ReentrantLock();
+
+	// Servers being created or promoted that are not registered yet, so the pool never grows past the maximum
+	private int reserved = 0;
+
+	// Started servers waiting to be added to the pool
+	private final Queue<AggregationServer> standbyServers = new ConcurrentLinkedQueue<>();
+
+	// Starts standby servers in the background, so requests never wait for a server to be created
+	private final ExecutorService standbyStarter = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "StandbyServerStarter");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 
 	// Public constructor
 	public ServerPoolImpl(int initialCapacity) {
-		// Create a priority queue of servers
-		servers = new PriorityBlockingQueue<>(initialCapacity, new ServerLoadComparator());
+		this(initialCapacity, GlobalConstants.EXECUTION_MODE);
+	}
+
+
+	public ServerPoolImpl(int initialCapacity, ExecutionMode executionMode) {
+		this(initialCapacity, executionMode, GlobalConstants.LOAD_BALANCING_STRATEGY.create());
+	}
+
+
+	public ServerPoolImpl(int initialCapacity, ExecutionMode executionMode, SelectionStrategy strategy) {
+		this(initialCapacity, executionMode, strategy, GlobalConstants.BACKEND_MODE);
+	}
+
+
+	public ServerPoolImpl(int initialCapacity, ExecutionMode executionMode, SelectionStrategy strategy, BackendMode backendMode) {
+		this.executionMode = executionMode;
+		this.backendMode = backendMode;
+
+		// Each aggregation node only holds the stations routed to it, so a station must always reach the same node
+		this.strategy = backendMode == BackendMode.PROCESS ? new StationHashStrategy() : strategy;
 
 		// Create the default amount of aggregation servers
 		for (int i = 0; i < GlobalConstants.DEFAULT_BALANCED_SERVERS; i++) {
 			// Add a new server to the queue
 			createAndRegister();
 		}
+
+		// Start the standby servers
+		refillStandbyServers();
 	}
 
 
@@ -39,7 +104,7 @@ public class ServerPoolImpl implements ServerPool {
 	 */
 	@Override
 	public Iterable<AggregationServer> getAllServers() {
-		return servers;
+		return Collections.unmodifiableList(Arrays.asList(servers));
 	}
 
 
@@ -52,54 +117,122 @@ public class ServerPoolImpl implements ServerPool {
 	public void register(AggregationServer server) {
 		// If the server does not exist
 		if (server == null) {
-			logger.info("Cannot add server to priority queue as the server is null");
+			logger.info("Cannot add server to the pool as the server is null");
 			return;
 		}
 
-		// Put the server back in the list of servers
-		boolean success = servers.offer(server);
+		resizing.lock();
+
+		try {
+			// Give the server its partition of the content store before it is routed to
+			ContentStore.addPartition(server.getUUID());
+
+			// Publish a copy of the servers that includes the new server
+			AggregationServer[] updated = Arrays.copyOf(servers, servers.length + 1);
+			updated[servers.length] = server;
+
+			// Copy the stations a new node will own to it before it is routed to
+			if (backendMode == BackendMode.PROCESS) {
+				RemoteAggregationServer.handOffStations(Arrays.asList(servers), stationId -> strategy.select(updated, stationId));
+			}
 
-		// If the server was not put in the list
-		if (!success) {
-			logger.error("Failed to re-add server to the priority queue: {}", server);
+			servers = updated;
+		} finally {
+			resizing.unlock();
 		}
 	}
 
 
 	/**
 	 * Creates a new aggregation server, registers it in the pool, and returns
-	 * the newly created instance.
+	 * the newly created instance. No server is created once the pool holds
+	 * the maximum number of servers. The server is started without holding
+	 * any lock, as a node may take seconds to launch.
 	 *
-	 * @return the newly created and registered server
+	 * @return the newly created and registered server, or the least loaded
+	 * server if the pool is full
 	 */
 	@Override
 	public AggregationServer createAndRegister() {
-		// Create a new server
-		AggregationServer server = new AggregationServer();
+		// If the pool is already at its maximum size
+		if (!reserve()) {
+			logger.warn("Not creating a server, already at the maximum of {} servers", GlobalConstants.MAX_SERVERS);
+			return getLeastLoadedServer();
+		}
 
-		// Add the server to the queue
-		register(server);
-		logger.info("Added new server {}, current active count = {}", server.getUUID(), servers.size());
+		try {
+			// Use a standby server if one has been started, otherwise create one, which may run in its own process
+			AggregationServer standby = standbyServers.poll();
+			AggregationServer server = standby != null ? standby : backendMode.create(executionMode);
 
-		// Return the newly created server
-		return server;
+			// Add the server to the queue
+			register(server);
+			logger.info("Added new server {}, current active count = {}", server.getUUID(), servers.length);
+
+			// Replace the standby server that was used
+			if (standby != null) {
+				refillStandbyServers();
+			}
+
+			// Return the newly created server
+			return server;
+		} finally {
+			unreserve();
+		}
+	}
+
+
+	private synchronized boolean reserve() {
+		// Count the servers still being added, as they are not registered yet
+		if (servers.length + reserved >= GlobalConstants.MAX_SERVERS) {
+			return false;
+		}
+
+		reserved += 1;
+		return true;
+	}
+
+
+	private synchronized void unreserve() {
+		reserved -= 1;
 	}
 
 
 	/**
 	 * Returns a server that is available to handle new requests.
 	 * <p>
-	 * By default, this is the server with the lowest current request load. If
-	 * all existing servers are at capacity, a new server will be created and
-	 * returned.
+	 * The server is chosen by the pool's selection strategy. If the pick is
+	 * at capacity, the least loaded server is used instead, and if all
+	 * existing servers are at capacity, a standby server is added to the pool
+	 * and returned.
 	 *
-	 * @return the least-loaded available server, or a newly created server if
-	 * none are available
+	 * @return an available server, or the least loaded server if none are
+	 * available and no standby server is left
 	 */
 	@Override
 	public AggregationServer getAvailableServer() {
-		// Get the least loaded server
-		AggregationServer server = getLeastLoadedServer();
+		return getAvailableServer(null);
+	}
+
+
+	/**
+	 * Returns a server that is available to handle a request about a
+	 * station, which strategies may use to keep a station on one server.
+	 *
+	 * @param stationId the station the request is for, or {@code null} if it
+	 * is not known
+	 * @return an available server, or the least loaded server if none are
+	 * available and no standby server is left
+	 */
+	@Override
+	public AggregationServer getAvailableServer(@Nullable String stationId) {
+		// Let the strategy choose a server
+		AggregationServer server = selectServer(stationId);
+
+		// If the pick is full, fall back to the least loaded server
+		if (server != null && server.atCapacity()) {
+			server = getLeastLoadedServer();
+		}
 
 		// If the server does not exist
 		if (server == null) {
@@ -112,10 +245,10 @@ public class ServerPoolImpl implements ServerPool {
 		// If the server does exist
 		// Check if the server is at capacity
 		if (server.atCapacity()) {
-			logger.debug("Creating new server as least loaded server is at capacity");
+			logger.debug("Promoting a standby server as least loaded server is at capacity");
 
-			// Create and add a new server to the list
-			return createAndRegister();
+			// Add a started server straight away, rather than waiting for the balancer
+			return promoteStandbyServer().orElse(server);
 		}
 
 		// Return the least loaded server that is not at capacity
@@ -123,6 +256,124 @@ public class ServerPoolImpl implements ServerPool {
 	}
 
 
+	/**
+	 * Add a standby server to the pool when every server is saturated. Only
+	 * one server is promoted at a time, and none once the pool is full.
+	 *
+	 * @return the promoted server, a server that gained capacity while
+	 * waiting, or empty if no server can be added
+	 */
+	private Optional<AggregationServer> promoteStandbyServer() {
+		// If another request is already changing the pool, use the existing servers rather than wait
+		if (!resizing.tryLock()) {
+			return Optional.empty();
+		}
+
+		try {
+			// If another request has already added a server with room
+			AggregationServer leastLoaded = getLeastLoadedServer();
+			if (leastLoaded != null && !leastLoaded.atCapacity()) {
+				return Optional.of(leastLoaded);
+			}
+
+			// If the pool is already at its maximum size
+			if (!reserve()) {
+				return Optional.empty();
+			}
+
+			try {
+				// If every standby server is in use, or still starting
+				AggregationServer standby = standbyServers.poll();
+				if (standby == null) {
+					logger.warn("Every server is at capacity and no standby server is ready");
+					return Optional.empty();
+				}
+
+				register(standby);
+				logger.info("Promoted standby server {}, current active count = {}", standby.getUUID(), servers.length);
+
+				// Replace the standby server that was used
+				refillStandbyServers();
+				return Optional.of(standby);
+			} finally {
+				unreserve();
+			}
+		} finally {
+			resizing.unlock();
+		}
+	}
+
+
+	private void refillStandbyServers() {
+		// If no standby servers are wanted
+		if (GlobalConstants.STANDBY_SERVERS <= 0) {
+			return;
+		}
+
+		try {
+			standbyStarter.submit(() -> {
+				// Start servers until there are enough standing by
+				while (standbyServers.size() < GlobalConstants.STANDBY_SERVERS) {
+					AggregationServer server = backendMode.create(executionMode);
+					server.prestartThreads();
+					standbyServers.add(server);
+					logger.info("Standby server {} started", server.getUUID());
+				}
+			});
+		} catch (RejectedExecutionException ree) {
+			logger.debug("Not starting standby servers as the pool has shut down");
+		}
+	}
+
+
+	/**
+	 * Shut down every standby server, which were never added to the pool.
+	 */
+	@Override
+	public void shutdownStandbyServers() {
+		standbyStarter.shutdownNow();
+
+		try {
+			// Let a server that was being started finish, so it is stopped below
+			if (!standbyStarter.awaitTermination(GlobalConstants.BACKEND_STARTUP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				logger.warn("Timeout elapsed while waiting for a standby server to start");
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread()
+				  .interrupt();
+		}
+
+		// Stop the servers that were waiting
+		AggregationServer standby = standbyServers.poll();
+		while (standby != null) {
+			standby.shutdown();
+			standby = standbyServers.poll();
+		}
+	}
+
+
+	/**
+	 * Chooses a server using the pool's selection strategy, without checking
+	 * if it has capacity. Loads are read when the choice is made, so the pick
+	 * is never based on a stale ordering.
+	 *
+	 * @param stationId the station the request is for, or {@code null} if it
+	 * is not known
+	 * @return the chosen server, or {@code null} if none are available
+	 */
+	public AggregationServer selectServer(@Nullable String stationId) {
+		// Read the current servers once, as they may be replaced at any time
+		AggregationServer[] snapshot = servers;
+
+		// If there are no servers to choose from
+		if (snapshot.length == 0) {
+			return null;
+		}
+
+		return strategy.select(snapshot, stationId);
+	}
+
+
 	/**
 	 * Returns the server with the lowest current request load.
 	 * <p>
@@ -132,14 +383,7 @@ public class ServerPoolImpl implements ServerPool {
 	 */
 	@Override
 	public AggregationServer getLeastLoadedServer() {
-		// Get the server with the least load
-		AggregationServer server = popLeastLoadedServer();
-
-		// Put the server back into the list of servers
-		register(server);
-
-		// Return the least loaded server
-		return server;
+		return findLeastLoaded(servers);
 	}
 
 
@@ -151,7 +395,7 @@ public class ServerPoolImpl implements ServerPool {
 	 */
 	@Override
 	public AggregationServer peekLeastLoadedServer() {
-		return servers.peek();
+		return getLeastLoadedServer();
 	}
 
 
@@ -163,7 +407,46 @@ public class ServerPoolImpl implements ServerPool {
 	 */
 	@Override
 	public AggregationServer popLeastLoadedServer() {
-		return servers.poll();
+		resizing.lock();
+
+		try {
+			AggregationServer server = findLeastLoaded(servers);
+
+			// If there are no servers to remove
+			if (server == null) {
+				return null;
+			}
+
+			// Publish a copy of the servers without the removed server
+			servers = Arrays.stream(servers)
+							.filter(registered -> registered != server)
+							.toArray(AggregationServer[]::new);
+
+			// Move the server's stations to the partitions of the remaining servers
+			ContentStore.removePartition(server.getUUID());
+
+			// Move a node's stations to the nodes that now own them, while it is still running
+			if (backendMode == BackendMode.PROCESS) {
+				RemoteAggregationServer.handOffStations(List.of(server), this::selectServer);
+			}
+			return server;
+		} finally {
+			resizing.unlock();
+		}
+	}
+
+
+	private static AggregationServer findLeastLoaded(AggregationServer[] snapshot) {
+		AggregationServer leastLoaded = null;
+
+		// Compare the live load of every server
+		for (AggregationServer server : snapshot) {
+			if (leastLoaded == null || LOAD_ORDER.compare(server, leastLoaded) < 0) {
+				leastLoaded = server;
+			}
+		}
+
+		return leastLoaded;
 	}
 
 
@@ -175,10 +458,10 @@ public class ServerPoolImpl implements ServerPool {
 	@Override
 	public Double calculateAverageServerLoad() {
 		// Calculate the average
-		return servers.stream()
-					  .mapToDouble(AggregationServer::getLoad)
-					  .average()
-					  .orElse(0.0);
+		return Arrays.stream(servers)
+					 .mapToDouble(AggregationServer::getLoad)
+					 .average()
+					 .orElse(0.0);
 	}
 
 
@@ -189,7 +472,7 @@ public class ServerPoolImpl implements ServerPool {
 	 */
 	@Override
 	public Integer getServerCount() {
-		return servers.size();
+		return servers.length;
 	}
 
 
@@ -202,7 +485,9 @@ public class ServerPoolImpl implements ServerPool {
 
 		// Log the breakdown of server load for each server
 		for (AggregationServer server : servers) {
-			logger.info("Server {} has {} active requests out of {}", server.getUUID(), server.getActiveRequestsCount(), GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS);
+			ServerLoad load = server.getServerLoad();
+			logger.info("Server {} has {} in-flight requests out of {} and {} open connections", server.getUUID(), load.inFlight(), GlobalConstants.MAX_IN_FLIGHT_REQUESTS, load.openConnections());
+			logger.info("Server {} has {} running requests, {} blocked on the store, and {} queued tasks, averaging {}ms per request and {}ms waiting on the store", server.getUUID(), load.running(), load.waitingOnStore(), load.queued(), load.serviceTime() / 1_000_000, load.storeWaitTime() / 1_000_000);
 		}
 	}
 }
@@ -0,0 +1,52 @@
+package net.ethandankiw.data.server;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.data.ConsistentHashRing;
+
+/**
+ * Sends every request about a station to the server that owns the station's
+ * partition of the content store, using the same consistent hash ring of
+ * server IDs as the store. When a server is added or removed, only the
+ * stations on its part of the ring move. Requests without a known station
+ * are spread using two random choices instead.
+ */
+public class StationHashStrategy implements SelectionStrategy {
+
+	// Used for requests that are not about a single station
+	private final PowerOfTwoChoicesStrategy fallback = new PowerOfTwoChoicesStrategy();
+
+	// Ring built for the most recent set of servers
+	private volatile Snapshot snapshot = new Snapshot(new AggregationServer[0], new ConsistentHashRing<>(List.of(), AggregationServer::getUUID));
+
+
+	@Override
+	public AggregationServer select(@NotNull AggregationServer[] servers, @Nullable String stationId) {
+		// If the request is not about a single station
+		if (stationId == null || stationId.isBlank()) {
+			return fallback.select(servers, stationId);
+		}
+
+		// Rebuild the ring once the servers have changed
+		Snapshot current = snapshot;
+		if (current.servers != servers) {
+			current = new Snapshot(servers, new ConsistentHashRing<>(Arrays.asList(servers), AggregationServer::getUUID));
+			snapshot = current;
+		}
+
+		return current.ring.get(stationId);
+	}
+
+
+	/**
+	 * Ring built for a set of servers, kept together so the ring is only
+	 * rebuilt when the servers change.
+	 */
+	private record Snapshot(AggregationServer[] servers, ConsistentHashRing<AggregationServer> ring) {
+	}
+}
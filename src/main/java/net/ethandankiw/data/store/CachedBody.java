@@ -0,0 +1,60 @@
+package net.ethandankiw.data.store;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.http.ContentEncoding;
+
+/**
+ * A serialized response body along with its compressed variants. Each variant
+ * is only compressed the first time it is requested, and is then shared by
+ * every response until the underlying data changes.
+ */
+public class CachedBody {
+
+	// Lamport clock of the data the body was serialized from
+	private final long lamportClock;
+
+	// Body encoded as UTF-8 without compression
+	private final byte[] identity;
+
+	// Compressed variants that have been created so far
+	private final Map<ContentEncoding, byte[]> variants = new EnumMap<>(ContentEncoding.class);
+
+
+	public CachedBody(long lamportClock, byte[] identity) {
+		this.lamportClock = lamportClock;
+		this.identity = identity;
+	}
+
+
+	public long getLamportClock() {
+		return lamportClock;
+	}
+
+
+	/**
+	 * Get the body using the requested encoding. Small bodies, or bodies that
+	 * cannot be compressed, fall back to the identity encoding.
+	 *
+	 * @return the encoding that was used and the encoded bytes
+	 */
+	public synchronized Map.Entry<ContentEncoding, byte[]> get(ContentEncoding encoding) {
+		// Compression is not worth it for small bodies
+		if (encoding == ContentEncoding.IDENTITY || identity.length < GlobalConstants.MIN_COMPRESSION_SIZE) {
+			return Map.entry(ContentEncoding.IDENTITY, identity);
+		}
+
+		// Compress the body the first time the variant is requested
+		byte[] variant = variants.computeIfAbsent(encoding, e -> e.encode(identity)
+																  .orElse(null));
+
+		// If the body could not be compressed
+		if (variant == null) {
+			return Map.entry(ContentEncoding.IDENTITY, identity);
+		}
+
+		return Map.entry(encoding, variant);
+	}
+}
@@ -0,0 +1,288 @@
+package net.ethandankiw.data.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.data.WeatherData;
+import net.ethandankiw.data.http.HttpRequestMethod;
+
+/**
+ * The stations of the content store owned by a single aggregation server.
+ * Each partition queues and applies its own requests on its own processor
+ * thread, so writes to stations in different partitions never wait for each
+ * other.
+ */
+final class ContentPartition {
+
+	private static final Logger logger = LoggerFactory.getLogger(ContentPartition.class);
+
+	// ID of the aggregation server that owns the partition
+	private final String ownerId;
+
+	// Queue for incoming requests, sorted by Lamport clock
+	private final PriorityBlockingQueue<ContentRequest> requestQueue = new PriorityBlockingQueue<>();
+
+	// Using a ConcurrentHashMap for thread-safe access
+	private final ConcurrentHashMap<String, WeatherData> data = new ConcurrentHashMap<>();
+
+	// A semaphore to control the rate of processing requests
+	private final Semaphore processPermit = new Semaphore(1);
+
+	// Request taken from the queue that has not been applied yet
+	private ContentRequest inProgress = null;
+
+	// A thread to process requests to the partition
+	private Thread processorThread = null;
+
+	// Flag for if the partition no longer owns any stations, so its processor stops once idle
+	private boolean retired = false;
+
+
+	ContentPartition(String ownerId) {
+		this.ownerId = ownerId;
+	}
+
+
+	String getOwnerId() {
+		return ownerId;
+	}
+
+
+	/**
+	 * Gets the stored data of the partition, which is read directly for
+	 * requests that span every station.
+	 */
+	Map<String, WeatherData> getData() {
+		return data;
+	}
+
+
+	/**
+	 * Adds a request to the processing queue.
+	 *
+	 * @return a boolean for if data for the station already existed, or was
+	 * already going to be stored
+	 */
+	synchronized boolean enqueue(ContentRequest request) {
+		boolean exists = exists(request.getId());
+		requestQueue.add(request);
+		notifyAll();
+		return exists;
+	}
+
+
+	/**
+	 * Check if data for a station is stored, being applied, or queued.
+	 */
+	synchronized boolean exists(String id) {
+		// If the request is stored, or is being applied
+		if (data.containsKey(id) || (inProgress != null && Objects.equals(inProgress.getId(), id))) {
+			return true;
+		}
+
+		// If the request is in the queue
+		for (ContentRequest request : requestQueue) {
+			if (Objects.equals(request.getId(), id)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Gets the Lamport clock of the data stored for a station, if no PUT for
+	 * the station is waiting to be applied.
+	 */
+	synchronized Optional<Long> getVersion(String id) {
+		// Get the data currently stored for the station
+		WeatherData weatherData = data.get(id);
+
+		// If there is no data, or it may be replaced before a queued GET reads it
+		if (weatherData == null || isPutPending(id)) {
+			return Optional.empty();
+		}
+
+		return Optional.of(weatherData.getLamportClock());
+	}
+
+
+	/**
+	 * Check if any PUT is being applied or is in the queue.
+	 */
+	synchronized boolean hasPendingPut() {
+		// If a PUT is being applied
+		if (inProgress != null && inProgress.getMethod() == HttpRequestMethod.PUT) {
+			return true;
+		}
+
+		// If a PUT is in the queue
+		return requestQueue.stream()
+						   .anyMatch(request -> request.getMethod() == HttpRequestMethod.PUT);
+	}
+
+
+	private boolean isPutPending(String id) {
+		// If a PUT for the station is being applied
+		if (inProgress != null && inProgress.getMethod() == HttpRequestMethod.PUT && Objects.equals(inProgress.getId(), id)) {
+			return true;
+		}
+
+		// If a PUT for the station is in the queue
+		for (ContentRequest request : requestQueue) {
+			if (request.getMethod() == HttpRequestMethod.PUT && Objects.equals(request.getId(), id)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Take over the data of a station from another partition, unless this
+	 * partition already has newer data for it.
+	 */
+	void adopt(String id, WeatherData weatherData) {
+		data.merge(id, weatherData, (existing, adopted) -> existing.getLamportClock() >= adopted.getLamportClock() ? existing : adopted);
+	}
+
+
+	/**
+	 * Stop owning any stations. Requests still queued are returned so they
+	 * can be queued on the partitions that now own their stations, and the
+	 * processor stops once it has finished the request it is applying.
+	 */
+	synchronized List<ContentRequest> retire() {
+		retired = true;
+		List<ContentRequest> queued = new ArrayList<>();
+		requestQueue.drainTo(queued);
+		notifyAll();
+		return queued;
+	}
+
+
+	/**
+	 * Remove the queued requests for stations the partition no longer owns,
+	 * so they can be queued on the partitions that now own them ahead of any
+	 * later request for the same station.
+	 *
+	 * @param moved checks if a station has moved to another partition
+	 * @return the removed requests
+	 */
+	synchronized List<ContentRequest> removeMoved(Predicate<String> moved) {
+		List<ContentRequest> removed = new ArrayList<>();
+		requestQueue.removeIf(request -> {
+			if (!moved.test(request.getId())) {
+				return false;
+			}
+
+			removed.add(request);
+			return true;
+		});
+		return removed;
+	}
+
+
+	/**
+	 * Starts a background thread to process requests from the queue.
+	 */
+	synchronized void startProcessor() {
+		// If the thread is already running
+		if (processorThread != null) {
+			logger.error("Unable to start processor thread for partition {} as it's already running", ownerId);
+			return;
+		}
+
+		processorThread = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(1000);
+					ContentRequest request = takeRequest();
+
+					// If the partition has been retired and has no more requests
+					if (request == null) {
+						break;
+					}
+
+					// Acquire a permit to simulate a delay between processing requests
+					processPermit.acquire();
+					logger.debug("Processing Request");
+					ContentStore.apply(this, request);
+					finishRequest();
+					processPermit.release();
+				} catch (InterruptedException e) {
+					Thread.currentThread()
+						  .interrupt();
+					break;
+				}
+			}
+		}, "ContentStoreProcessor-" + ownerId);
+		processorThread.setDaemon(true);
+		processorThread.start();
+	}
+
+
+	void stopProcessor() {
+		Thread thread;
+		synchronized (this) {
+			thread = processorThread;
+			processorThread = null;
+		}
+
+		// If the thread is not running
+		if (thread == null) {
+			return;
+		}
+
+		// Interrupt the processor thread
+		thread.interrupt();
+
+		try {
+			// Wait for the thread to die gracefully
+			thread.join(2000);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				  .interrupt();
+			logger.warn("Interrupted while waiting for processor thread to stop.", e);
+		}
+	}
+
+
+	/**
+	 * Takes the next request from the queue, waiting until one is available.
+	 * The request stays visible to {@link #exists(String)} until it has been
+	 * applied, so concurrent PUTs are not both reported as created.
+	 *
+	 * @return the request, or null once the partition is retired and idle
+	 */
+	private synchronized ContentRequest takeRequest() throws InterruptedException {
+		// Wait for a request to be queued
+		while (requestQueue.isEmpty()) {
+			if (retired) {
+				return null;
+			}
+
+			wait();
+		}
+
+		inProgress = requestQueue.poll();
+		return inProgress;
+	}
+
+
+	private synchronized void finishRequest() {
+		inProgress = null;
+	}
+}
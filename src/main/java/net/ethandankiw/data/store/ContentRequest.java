@@ -3,6 +3,7 @@ package net.ethandankiw.data.store;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
+import net.ethandankiw.data.WeatherData;
 import net.ethandankiw.data.http.HttpRequestMethod;
 import net.ethandankiw.data.http.JSON;
 
@@ -14,7 +15,7 @@ public class ContentRequest implements Comparable<ContentRequest> {
 	private final long lamportClock;
 
 	// For GET requests, a CompletableFuture is needed to return a value
-	private final CompletableFuture<JSON> future;
+	private final CompletableFuture<WeatherData> future;
 
 
 	public ContentRequest(String id, JSON json, long lamportClock) {
@@ -26,7 +27,7 @@ public class ContentRequest implements Comparable<ContentRequest> {
 	}
 
 
-	public ContentRequest(String id, CompletableFuture<JSON> future, long lamportClock) {
+	public ContentRequest(String id, CompletableFuture<WeatherData> future, long lamportClock) {
 		this.id = id;
 		this.method = HttpRequestMethod.GET;
 		this.json = null;
@@ -55,7 +56,7 @@ public class ContentRequest implements Comparable<ContentRequest> {
 	}
 
 
-	public CompletableFuture<JSON> getFuture() { return future; }
+	public CompletableFuture<WeatherData> getFuture() { return future; }
 
 
 	@Override
@@ -1,67 +1,150 @@
 package net.ethandankiw.data.store;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.ethandankiw.data.ConsistentHashRing;
 import net.ethandankiw.data.LamportClock;
 import net.ethandankiw.data.WeatherData;
 import net.ethandankiw.data.http.HttpRequestMethod;
 import net.ethandankiw.data.http.JSON;
-
+import net.ethandankiw.utils.JsonUtils;
+
+/**
+ * Stores the latest weather data for each station. The stations are split
+ * into partitions, one for each aggregation server, using a consistent hash
+ * ring of the server IDs. Each partition applies its own requests, so write
+ * throughput grows with the number of servers, and when a server is added or
+ * removed only the stations on its part of the ring change partition.
+ */
 public class ContentStore {
 
 	private static final Logger logger = LoggerFactory.getLogger(ContentStore.class);
 	private static final int EXPIRY_SECONDS = 30;
-	// Queue for incoming put requests, sorted by Lamport clock
-	private static PriorityBlockingQueue<ContentRequest> requestQueue;
-	// Using a ConcurrentHashMap for thread-safe access
-	private static ConcurrentHashMap<String, WeatherData> data;
-	// A semaphore to control the rate of processing requests
-	private static Semaphore processPermit;
+
+	// Owner of the partition used while no aggregation server owns any stations
+	private static final String UNOWNED = "unowned";
+
+	// Held to read the partitions, or exclusively to move stations between them
+	private static final ReentrantReadWriteLock ownership = new ReentrantReadWriteLock();
+
+	// Partitions that own stations, keyed by the ID of their aggregation server
+	private static Map<String, ContentPartition> partitions;
+
+	// Ring that decides which partition owns each station
+	private static ConsistentHashRing<ContentPartition> ring;
+
+	// Flag for if partition processor threads are running
+	private static boolean processing = false;
+
 	// Use a scheduled executor service for the expiration task
 	private static ScheduledExecutorService scheduler;
 
-	// A thread to process requests to the content store
-	private static Thread processorThread = null;
-
 	// Define the lamport clock
 	private static final LamportClock clock = new LamportClock();
 
+	// Lamport clock of the last change to the stored data
+	private static volatile long lastModified = 0;
+
+	static {
+		reset();
+	}
+
 
 	private ContentStore() {
 	}
 
 
 	/**
-	 * Adds a new request to the processing queue.
+	 * Adds a new request to the processing queue of the partition that owns
+	 * the station.
 	 *
 	 * @param id The station ID.
 	 * @param json The JSON data to store.
 	 * @param lamportClock The Lamport clock timestamp of the event.
 	 * @return boolean for if a new value is created
 	 */
-	public static synchronized boolean put(String id, JSON json, long lamportClock) {
+	public static boolean put(String id, JSON json, long lamportClock) {
 		// Receive a lamport clock value
+		long clockValue = receiveClock(lamportClock);
+
+		ownership.readLock()
+				 .lock();
+
+		try {
+			// Queue the request, checking if the station exists at the same time
+			boolean exists = ownerOf(id).enqueue(new ContentRequest(id, json, clockValue));
+			logger.info("PUT request queued for ID: {}, clock {}", id, clockValue);
+			return !exists;
+		} finally {
+			ownership.readLock()
+					 .unlock();
+		}
+	}
+
+
+	/**
+	 * Stores a reading replicated from a primary node, keeping the Lamport
+	 * clock the primary applied it with. The reading is stored directly
+	 * rather than queued, as the primary has already ordered it, and is not
+	 * persisted, as the primary already has.
+	 *
+	 * @param id The station ID.
+	 * @param json The JSON data to store.
+	 * @param lamportClock The Lamport clock the primary applied the reading with.
+	 */
+	public static void applyReplicated(String id, JSON json, long lamportClock) {
+		// Keep the store clock ahead of every replicated reading
 		receiveClock(lamportClock);
 
-		// If the request already exists
-		boolean exists = exists(id);
-		requestQueue.add(new ContentRequest(id, json, clock.getClockValue()));
-		logger.info("PUT request queued for ID: {}, queue length {}, clock "
-				+ "{}", id, data.size(), clock.getClockValue());
-		return !exists;
+		ownership.readLock()
+				 .lock();
+
+		try {
+			// Keep any newer reading the station already has
+			ownerOf(id).adopt(id, new WeatherData(json, lamportClock));
+		} finally {
+			ownership.readLock()
+					 .unlock();
+		}
+
+		markModified(lamportClock);
+
+		// Push the reading to subscribers of the replica
+		StationEventBroker.publish(id, lamportClock, () -> JsonUtils.parseJSONToString(json));
+		logger.info("Replicated content for ID {}. Lamport Clock: {}", id, lamportClock);
+	}
+
+
+	/**
+	 * Check if any PUT is waiting to be applied, in any partition.
+	 */
+	public static boolean hasPendingWrites() {
+		ownership.readLock()
+				 .lock();
+
+		try {
+			return partitions.values()
+							 .stream()
+							 .anyMatch(ContentPartition::hasPendingPut);
+		} finally {
+			ownership.readLock()
+					 .unlock();
+		}
 	}
 
 
@@ -69,25 +152,39 @@ public class ContentStore {
 	 * Gets the JSON data for a specific station ID.
 	 *
 	 * @param id The station ID.
-	 * @return An Optional containing the JSON data, or an empty Optional if not
-	 * found.
+	 * @return A future containing the weather data, or null if not found.
 	 */
-	public static synchronized CompletableFuture<JSON> get(String id, long lamportClock) {
+	public static CompletableFuture<WeatherData> get(String id, long lamportClock) {
 		// Receive a lamport clock value
-		receiveClock(lamportClock);
+		long clockValue = receiveClock(lamportClock);
 
 		// Create a future to hold the result
-		CompletableFuture<JSON> future = new CompletableFuture<>();
-		// Create a GET request object and add it to the queue
-		requestQueue.add(new ContentRequest(id, future, clock.getClockValue()));
-		logger.info("GET request queued for ID: {}, queue length {}, clock "
-				+ "{}", id, data.size(), clock.getClockValue());
+		CompletableFuture<WeatherData> future = new CompletableFuture<>();
+
+		ownership.readLock()
+				 .lock();
+
+		try {
+			// Create a GET request object and add it to the queue
+			ownerOf(id).enqueue(new ContentRequest(id, future, clockValue));
+			logger.info("GET request queued for ID: {}, clock {}", id, clockValue);
+		} finally {
+			ownership.readLock()
+					 .unlock();
+		}
+
 		return future;
 	}
 
 
-	public static synchronized void receiveClock(long clockValue) {
+	/**
+	 * Receive a Lamport clock value.
+	 *
+	 * @return the value of the store clock after receiving it
+	 */
+	public static synchronized long receiveClock(long clockValue) {
 		clock.receive(clockValue);
+		return clock.getClockValue();
 	}
 
 
@@ -97,22 +194,63 @@ public class ContentStore {
 	 * @param id The station ID.
 	 * @return a boolean for if the data exists
 	 */
-	public static synchronized boolean exists(String id) {
-		// If the request is stored
-		if (data.containsKey(id)) {
-			return true;
+	public static boolean exists(String id) {
+		ownership.readLock()
+				 .lock();
+
+		try {
+			return ownerOf(id).exists(id);
+		} finally {
+			ownership.readLock()
+					 .unlock();
+		}
+	}
+
+
+	/**
+	 * Gets the Lamport clock of the data stored for a station without waiting
+	 * in the request queue. This is only possible when no PUT for the station
+	 * is waiting to be applied, as a queued GET would otherwise read newer data.
+	 *
+	 * @param id The station ID.
+	 * @return the Lamport clock of the stored data, or empty if the request
+	 * must be queued
+	 */
+	public static Optional<Long> getVersion(String id) {
+		ownership.readLock()
+				 .lock();
+
+		try {
+			return ownerOf(id).getVersion(id);
+		} finally {
+			ownership.readLock()
+					 .unlock();
 		}
+	}
 
-		// If the request is in the queue
-		AtomicBoolean found = new AtomicBoolean(false);
-		requestQueue.forEach(req -> {
-			if (Objects.equals(req.getId(), id)) {
-				found.set(true);
+
+	/**
+	 * Gets the stored readings that are newer than an event a subscriber has
+	 * already received, in the order they were applied. Only the latest
+	 * reading of each station is stored, so older readings are never replayed.
+	 *
+	 * @param id The station ID, or null for every station.
+	 * @param lamportClock The Lamport clock of the last event received.
+	 * @return the newer readings, oldest first
+	 */
+	public static List<StationEvent> getEventsSince(String id, long lamportClock) {
+		List<StationEvent> events = new ArrayList<>();
+		forEachStation((stationId, weatherData) -> {
+			// If the reading is for another station, or was already received
+			if ((id != null && !id.equals(stationId)) || weatherData.getLamportClock() <= lamportClock) {
+				return;
 			}
+
+			events.add(new StationEvent(stationId, weatherData.getLamportClock(), JsonUtils.parseJSONToString(weatherData.getJson())));
 		});
 
-		// Return if the request was found in the queue
-		return found.get();
+		events.sort(Comparator.comparingLong(StationEvent::getLamportClock));
+		return events;
 	}
 
 
@@ -121,13 +259,189 @@ public class ContentStore {
 	 *
 	 * @return A new Map containing all valid weather data.
 	 */
-	public static synchronized Map<String, JSON> getAll() {
+	public static Map<String, JSON> getAll() {
 		Map<String, JSON> allData = new HashMap<>();
-		data.forEach((id, weatherData) -> allData.put(id, weatherData.getJson()));
+		forEachStation((id, weatherData) -> allData.put(id, weatherData.getJson()));
 		return allData;
 	}
 
 
+	private static void forEachStation(BiConsumer<String, WeatherData> action) {
+		ownership.readLock()
+				 .lock();
+
+		try {
+			// Read every partition, which is not blocked by their processors
+			partitions.values()
+					  .forEach(partition -> partition.getData()
+													 .forEach(action));
+		} finally {
+			ownership.readLock()
+					 .unlock();
+		}
+	}
+
+
+	/**
+	 * Gets the Lamport clock of the last change to the stored data, which
+	 * changes whenever the result of {@link #getAll()} may have changed.
+	 */
+	public static long getLastModified() {
+		return lastModified;
+	}
+
+
+	/**
+	 * Create a partition owned by an aggregation server, and move the stations
+	 * on its part of the ring into it.
+	 *
+	 * @param ownerId the ID of the aggregation server
+	 */
+	public static void addPartition(String ownerId) {
+		ownership.writeLock()
+				 .lock();
+
+		try {
+			// If the server already owns a partition
+			if (partitions.containsKey(ownerId)) {
+				return;
+			}
+
+			// Retire the partition used before any server owned stations
+			List<ContentPartition> retired = new ArrayList<>();
+			if (partitions.containsKey(UNOWNED)) {
+				retired.add(partitions.remove(UNOWNED));
+			}
+
+			// Add the partition, processing its requests if the store is running
+			ContentPartition partition = new ContentPartition(ownerId);
+			partitions.put(ownerId, partition);
+			if (processing) {
+				partition.startProcessor();
+			}
+
+			rebalance(retired);
+			logger.info("Added content store partition for {}, {} partitions", ownerId, partitions.size());
+		} finally {
+			ownership.writeLock()
+					 .unlock();
+		}
+	}
+
+
+	/**
+	 * Remove the partition owned by an aggregation server, moving its stations
+	 * and queued requests to the partitions that now own them.
+	 *
+	 * @param ownerId the ID of the aggregation server
+	 */
+	public static void removePartition(String ownerId) {
+		ownership.writeLock()
+				 .lock();
+
+		try {
+			ContentPartition partition = partitions.remove(ownerId);
+
+			// If the server does not own a partition
+			if (partition == null) {
+				return;
+			}
+
+			// Keep a partition for the stations if no server is left to own them
+			if (partitions.isEmpty()) {
+				ContentPartition unowned = new ContentPartition(UNOWNED);
+				partitions.put(UNOWNED, unowned);
+				if (processing) {
+					unowned.startProcessor();
+				}
+			}
+
+			rebalance(List.of(partition));
+			logger.info("Removed content store partition for {}, {} partitions", ownerId, partitions.size());
+		} finally {
+			ownership.writeLock()
+					 .unlock();
+		}
+	}
+
+
+	/**
+	 * Rebuild the ring from the current partitions, and move every station
+	 * and queued request to the partition that now owns it. Must be called
+	 * while holding the write lock.
+	 *
+	 * @param retired partitions that no longer own any stations
+	 */
+	private static void rebalance(List<ContentPartition> retired) {
+		ring = new ConsistentHashRing<>(partitions.values(), ContentPartition::getOwnerId);
+
+		// Queue the requests of retired partitions on the new owners
+		for (ContentPartition partition : retired) {
+			partition.retire()
+					 .forEach(request -> ownerOf(request.getId()).enqueue(request));
+		}
+
+		// Move queued requests whose station changed owner, so a later request queued on the new owner cannot overtake them
+		for (ContentPartition partition : partitions.values()) {
+			partition.removeMoved(id -> ownerOf(id) != partition)
+					 .forEach(request -> ownerOf(request.getId()).enqueue(request));
+		}
+
+		// Move stored stations to the partitions that now own them
+		List<ContentPartition> sources = new ArrayList<>(partitions.values());
+		sources.addAll(retired);
+		for (ContentPartition partition : sources) {
+			partition.getData()
+					 .forEach((id, weatherData) -> {
+						 ContentPartition owner = ownerOf(id);
+						 if (owner != partition) {
+							 owner.adopt(id, weatherData);
+							 partition.getData()
+									  .remove(id, weatherData);
+						 }
+					 });
+		}
+	}
+
+
+	private static ContentPartition ownerOf(String id) {
+		return ring.get(id);
+	}
+
+
+	/**
+	 * Apply a request taken from a partition's queue. If the station has
+	 * moved to another partition since the request was queued, the request
+	 * is queued there instead. A stored reading is persisted and published
+	 * after the ownership lock is released, while the request still counts
+	 * as being applied by its partition.
+	 */
+	static void apply(ContentPartition partition, ContentRequest request) {
+		ownership.readLock()
+				 .lock();
+
+		try {
+			// If the partition no longer owns the station
+			ContentPartition owner = ownerOf(request.getId());
+			if (owner != partition) {
+				logger.debug("Forwarding request for ID {} to partition {}", request.getId(), owner.getOwnerId());
+				owner.enqueue(request);
+				return;
+			}
+
+			processRequest(partition, request);
+		} finally {
+			ownership.readLock()
+					 .unlock();
+		}
+
+		// Persist and publish outside the lock, so a rebalance does not wait on the disk or subscribers
+		if (request.getMethod() == HttpRequestMethod.PUT) {
+			persistPutRequest(request);
+		}
+	}
+
+
 	/**
 	 * Starts a background task to remove expired content.
 	 */
@@ -152,16 +466,26 @@ public class ContentStore {
 	 */
 	private static void removeExpired() {
 		long now = System.currentTimeMillis();
-		data.forEach((id, weatherData) -> {
+		forEachStation((id, weatherData) -> {
 			if (now - weatherData.getLastUpdated() > EXPIRY_SECONDS * 1000) {
 				FileManager.deleteContentFile(id);
-				data.remove(id);
+				removeStation(id, weatherData);
+				ResponseBodyCache.remove(id);
+				markModified(0);
 				logger.info("Removed expired data for station ID: {}", id);
 			}
 		});
 	}
 
 
+	private static void removeStation(String id, WeatherData weatherData) {
+		// Only remove the data if it has not been replaced since it expired
+		partitions.values()
+				  .forEach(partition -> partition.getData()
+												 .remove(id, weatherData));
+	}
+
+
 	/**
 	 * Shuts down the expiry task scheduler.
 	 */
@@ -172,80 +496,76 @@ public class ContentStore {
 
 
 	/**
-	 * Starts a background thread to process requests from the queue.
+	 * Starts a background thread for each partition to process requests from
+	 * its queue. Partitions added later start their own thread.
 	 */
 	public static void startProcessorThread() {
-		// If the thread is already running
-		if (processorThread != null) {
-			logger.error("Unable to start processor thread as it's already running");
-			return;
-		}
+		ownership.writeLock()
+				 .lock();
 
-		processorThread = new Thread(() -> {
-			while (true) {
-				try {
-					Thread.sleep(1000);
-					ContentRequest request = requestQueue.take();
-					// Acquire a permit to simulate a delay between processing requests
-					processPermit.acquire();
-					logger.debug("Processing Request");
-					processRequest(request);
-					processPermit.release();
-				} catch (InterruptedException e) {
-					Thread.currentThread()
-						  .interrupt();
-					break;
-				}
+		try {
+			// If the threads are already running
+			if (processing) {
+				logger.error("Unable to start processor thread as it's already running");
+				return;
 			}
-		}, "ContentStoreProcessor");
-		processorThread.setDaemon(true);
-		processorThread.start();
-		logger.info("Content store processor thread started.");
+
+			processing = true;
+			partitions.values()
+					  .forEach(ContentPartition::startProcessor);
+			logger.info("Content store processor threads started for {} partitions.", partitions.size());
+		} finally {
+			ownership.writeLock()
+					 .unlock();
+		}
 	}
 
 
 	public static void stopProcessorThread() {
-		// If the thread is not running
-		if (processorThread == null) {
-			logger.error("Unable to stop processor thread as it's not running");
-			return;
-		}
+		List<ContentPartition> running;
 
-		// Interrupt the processor thread
-		processorThread.interrupt();
+		ownership.writeLock()
+				 .lock();
 
 		try {
-			// Wait for the thread to die gracefully
-			processorThread.join(2000);
-		} catch (InterruptedException e) {
-			logger.warn("Interrupted while waiting for processor thread to stop.", e);
-			return;
-		}
+			// If the threads are not running
+			if (!processing) {
+				logger.error("Unable to stop processor thread as it's not running");
+				return;
+			}
 
-		// Update the processor thread to not exist
-		processorThread = null;
+			processing = false;
+			running = new ArrayList<>(partitions.values());
+		} finally {
+			ownership.writeLock()
+					 .unlock();
+		}
 
-		logger.info("Content store processor thread stopped.");
+		// Wait for each thread outside the lock, as they may be applying a request
+		running.forEach(ContentPartition::stopProcessor);
+		logger.info("Content store processor threads stopped.");
 	}
 
 
-	private static void processRequest(ContentRequest request) {
+	private static void processRequest(ContentPartition partition, ContentRequest request) {
 		switch (request.getMethod()) {
 			case HttpRequestMethod.PUT:
 				logger.debug("Processing PUT Request");
-				processPutRequest(request);
+				processPutRequest(partition, request);
 				break;
 			case HttpRequestMethod.GET:
 				logger.debug("Processing GET Request");
-				processGetRequest(request);
+				processGetRequest(partition, request);
 				break;
 		}
 	}
 
 
-	private static void processPutRequest(ContentRequest request) {
-		WeatherData oldData = data.put(request.getId(), new WeatherData(request.getJson(), request.getLamportClock()));
-		FileManager.saveContentStore();
+	private static void processPutRequest(ContentPartition partition, ContentRequest request) {
+		WeatherData oldData = partition.getData()
+									   .put(request.getId(), new WeatherData(request.getJson(), request.getLamportClock()));
+		markModified(request.getLamportClock());
+
 		if (oldData != null) {
 			logger.info("Content for ID {} updated. Lamport Clock: {}", request.getId(), request.getLamportClock());
 		} else {
@@ -254,10 +574,18 @@ public class ContentStore {
 	}
 
 
-	private static void processGetRequest(ContentRequest request) {
-		JSON result =
-				data.get(request.getId()) != null ? data.get(request.getId())
-														.getJson() : null;
+	private static void persistPutRequest(ContentRequest request) {
+		// Persist only the station that changed
+		FileManager.saveContent(request.getId(), request.getJson());
+
+		// Push the new reading to subscribers of the station
+		StationEventBroker.publish(request.getId(), request.getLamportClock(), () -> JsonUtils.parseJSONToString(request.getJson()));
+	}
+
+
+	private static void processGetRequest(ContentPartition partition, ContentRequest request) {
+		WeatherData result = partition.getData()
+									  .get(request.getId());
 		// Complete the future, giving the result back to the caller
 		request.getFuture()
 			   .complete(result);
@@ -265,15 +593,35 @@ public class ContentStore {
 	}
 
 
+	private static synchronized void markModified(long lamportClock) {
+		// Removals have no request clock, so tick the store clock past every write
+		clock.tick();
+		lastModified = Math.max(clock.getClockValue(), lamportClock);
+	}
+
+
 	public static void init() {
 		reset();
 	}
 
 
 	public static void reset() {
-		processPermit = new Semaphore(1);
-		requestQueue = new PriorityBlockingQueue<>();
-		data = new ConcurrentHashMap<>();
+		ownership.writeLock()
+				 .lock();
+
+		try {
+			// Start with a single partition until aggregation servers claim stations
+			partitions = new LinkedHashMap<>();
+			partitions.put(UNOWNED, new ContentPartition(UNOWNED));
+			ring = new ConsistentHashRing<>(partitions.values(), ContentPartition::getOwnerId);
+			processing = false;
+		} finally {
+			ownership.writeLock()
+					 .unlock();
+		}
+
+		lastModified = 0;
+		ResponseBodyCache.clear();
 		scheduler = Executors.newSingleThreadScheduledExecutor();
 	}
 }
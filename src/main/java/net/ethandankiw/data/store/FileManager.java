@@ -5,7 +5,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -34,22 +33,32 @@ public class FileManager {
 	 * the JSON data.
 	 */
 	public static void saveContentStore() {
+		ContentStore.getAll()
+					.forEach(FileManager::saveContent);
+	}
+
+
+	/**
+	 * Saves the data of a single weather station to its file in the storage
+	 * directory, so a write only persists the station that changed.
+	 *
+	 * @param id The ID of the weather station.
+	 * @param json The JSON data of the station.
+	 */
+	public static void saveContent(String id, JSON json) {
 		File dir = new File(CONTENT_STORE_DIR);
 		if (!dir.exists() && !dir.mkdirs()) {
 			logger.error("Failed to create storage directory: {}", CONTENT_STORE_DIR);
 			return;
 		}
 
-		Map<String, JSON> allData = ContentStore.getAll();
-		allData.forEach((id, json) -> {
-			File file = new File(dir, id + CONTENT_STORE_DATA_EXTENSION);
-			try (FileWriter writer = new FileWriter(file)) {
-				writer.write(JsonUtils.parseJSONToString(json));
-				logger.info("Saved weather data for ID {} to file.", id);
-			} catch (IOException e) {
-				logger.error("Failed to save data for ID {}: {}", id, e.getMessage());
-			}
-		});
+		File file = new File(dir, id + CONTENT_STORE_DATA_EXTENSION);
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write(JsonUtils.parseJSONToString(json));
+			logger.info("Saved weather data for ID {} to file.", id);
+		} catch (IOException e) {
+			logger.error("Failed to save data for ID {}: {}", id, e.getMessage());
+		}
 	}
 
 
@@ -0,0 +1,62 @@
+package net.ethandankiw.data.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of serialized response bodies shared by every aggregation server.
+ * Entries are keyed by what was read, and are only rebuilt once the Lamport
+ * clock of the underlying data changes, so repeated reads of unchanged data
+ * skip both serialization and compression.
+ */
+public class ResponseBodyCache {
+
+	// Key used for the body containing every station
+	public static final String AGGREGATE_KEY = "*";
+
+	private static final ConcurrentHashMap<String, CachedBody> bodies = new ConcurrentHashMap<>();
+
+
+	private ResponseBodyCache() {
+	}
+
+
+	/**
+	 * Get the cached body for the key, serializing it again if the data has
+	 * changed since it was cached.
+	 *
+	 * @param key the station ID, or {@link #AGGREGATE_KEY} for every station
+	 * @param lamportClock the Lamport clock of the data being read
+	 * @param serializer creates the body from the data being read
+	 * @return the cached body for the data
+	 */
+	public static CachedBody get(String key, long lamportClock, Supplier<String> serializer) {
+		// Reuse the cached body if the data has not changed
+		CachedBody cached = bodies.get(key);
+		if (cached != null && cached.getLamportClock() == lamportClock) {
+			return cached;
+		}
+
+		// Otherwise, serialize the body and replace the stale entry
+		CachedBody body = new CachedBody(lamportClock, serializer.get()
+																  .getBytes(StandardCharsets.UTF_8));
+
+		// Never replace a body with one serialized from older data
+		bodies.merge(key, body, (existing, created) -> existing.getLamportClock() > created.getLamportClock() ? existing : created);
+		return body;
+	}
+
+
+	/**
+	 * Remove the cached body for a station that no longer exists.
+	 */
+	public static void remove(String key) {
+		bodies.remove(key);
+	}
+
+
+	public static void clear() {
+		bodies.clear();
+	}
+}
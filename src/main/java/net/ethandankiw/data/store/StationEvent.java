@@ -0,0 +1,129 @@
+package net.ethandankiw.data.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ethandankiw.data.http.JSON;
+import net.ethandankiw.utils.JsonUtils;
+
+/**
+ * A reading applied to the content store, pushed to event stream
+ * subscribers. The Lamport clock of the reading is used as the event ID, so
+ * a client that reconnects can resume from the last event it received.
+ */
+public class StationEvent {
+
+	// Name of the event sent for every applied reading
+	public static final String UPDATE = "update";
+
+	// Name of the event a primary node sends its replicas once they have every applied reading
+	public static final String SYNC = "sync";
+
+	private final String stationId;
+	private final long lamportClock;
+	private final String json;
+
+
+	public StationEvent(String stationId, long lamportClock, String json) {
+		this.stationId = stationId;
+		this.lamportClock = lamportClock;
+		this.json = json;
+	}
+
+
+	public String getStationId() {
+		return stationId;
+	}
+
+
+	public long getLamportClock() {
+		return lamportClock;
+	}
+
+
+	public String getJson() {
+		return json;
+	}
+
+
+	/**
+	 * Encode the event in the text/event-stream format.
+	 */
+	public byte[] encode() {
+		StringBuilder event = new StringBuilder();
+		event.append("id: ")
+			 .append(lamportClock)
+			 .append('\n');
+		event.append("event: ")
+			 .append(UPDATE)
+			 .append('\n');
+
+		// A line break would end the data field, so each line is sent as its own field
+		for (String line : json.split("\r\n|\r|\n", -1)) {
+			event.append("data: ")
+				 .append(line)
+				 .append('\n');
+		}
+
+		// A blank line dispatches the event
+		event.append('\n');
+		return event.toString()
+					.getBytes(StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Encode a sync event, which tells a replica node that it has been sent
+	 * every reading the primary applied before its clock reached a value.
+	 */
+	public static byte[] encodeSync(long lamportClock) {
+		return ("id: " + lamportClock + "\nevent: " + SYNC + "\n\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Decode every complete event in a text/event-stream body, skipping
+	 * comments. The station of each event is read from the ID in its JSON,
+	 * as the aggregation server does when the reading is stored.
+	 *
+	 * @param stream the body of an event stream
+	 * @return the events, in the order they were sent
+	 */
+	public static List<StationEvent> decodeAll(String stream) {
+		List<StationEvent> events = new ArrayList<>();
+		long lamportClock = 0;
+		StringBuilder data = null;
+
+		// The text after the last line break is an unfinished line, so it is never read
+		String[] lines = stream.split("\r\n|\r|\n", -1);
+		for (int i = 0; i < lines.length - 1; i++) {
+			String line = lines[i];
+
+			// A blank line dispatches the event read so far
+			if (line.isEmpty()) {
+				if (data != null) {
+					String json = data.toString();
+					JSON parsed = JsonUtils.parseStringToJSON(json);
+					if (parsed.containsKey("id")) {
+						events.add(new StationEvent(parsed.getValue("id"), lamportClock, json));
+					}
+				}
+
+				data = null;
+				continue;
+			}
+
+			// Read the event ID, and each line of its data
+			if (line.startsWith("id: ")) {
+				lamportClock = Long.parseLong(line.substring(4)
+												  .trim());
+			} else if (line.startsWith("data: ")) {
+				data = data == null ? new StringBuilder() : data.append('\n');
+				data.append(line.substring(6));
+			}
+		}
+
+		return events;
+	}
+}
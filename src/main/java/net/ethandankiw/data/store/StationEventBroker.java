@@ -0,0 +1,80 @@
+package net.ethandankiw.data.store;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+
+/**
+ * Pushes readings applied to the content store to every subscriber of the
+ * station, or of all stations. Publishing never blocks, so a slow subscriber
+ * cannot hold up the content store processor.
+ */
+public class StationEventBroker {
+
+	private static final Logger logger = LoggerFactory.getLogger(StationEventBroker.class);
+
+	private static final Set<StationSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+
+	private StationEventBroker() {
+	}
+
+
+	/**
+	 * Subscribe to the readings of a station.
+	 *
+	 * @param stationId the station ID, or null for every station
+	 */
+	public static StationSubscription subscribe(@Nullable String stationId) {
+		StationSubscription subscription = new StationSubscription(stationId, GlobalConstants.SSE_BUFFER_SIZE);
+		subscriptions.add(subscription);
+		logger.debug("Subscribed to station {}, {} subscribers", stationId == null ? "*" : stationId, subscriptions.size());
+		return subscription;
+	}
+
+
+	public static void unsubscribe(StationSubscription subscription) {
+		subscriptions.remove(subscription);
+	}
+
+
+	/**
+	 * Publish a reading that has been applied to the content store.
+	 *
+	 * @param stationId the station ID
+	 * @param lamportClock the Lamport clock of the reading
+	 * @param serializer creates the JSON for the reading, only if it is subscribed to
+	 */
+	public static void publish(String stationId, long lamportClock, Supplier<String> serializer) {
+		StationEvent event = null;
+
+		for (StationSubscription subscription : subscriptions) {
+			// If the subscriber is not interested in the station
+			if (!subscription.matches(stationId)) {
+				continue;
+			}
+
+			// Serialize the reading once, for the first interested subscriber
+			if (event == null) {
+				event = new StationEvent(stationId, lamportClock, serializer.get());
+			}
+
+			// Drop subscribers that have fallen too far behind, so they reconnect and resume
+			if (!subscription.offer(event)) {
+				logger.warn("Dropping event stream subscriber that fell more than {} events behind", GlobalConstants.SSE_BUFFER_SIZE);
+				subscriptions.remove(subscription);
+			}
+		}
+	}
+
+
+	public static int getSubscriberCount() {
+		return subscriptions.size();
+	}
+}
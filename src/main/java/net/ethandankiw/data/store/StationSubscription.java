@@ -0,0 +1,117 @@
+package net.ethandankiw.data.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A client subscribed to the readings of one station, or of every station.
+ * Events are buffered until the client's connection can take them, and a
+ * subscriber that falls further behind than its buffer is dropped rather
+ * than slowing down the content store.
+ */
+public class StationSubscription {
+
+	// Station the subscriber is interested in, or null for every station
+	private final String stationId;
+
+	// Events published but not yet sent to the subscriber
+	private final BlockingQueue<StationEvent> buffer;
+
+	// Lamport clock of the last event sent for each station, only used by the sending thread
+	private final Map<String, Long> sent = new HashMap<>();
+
+	// Flag for if an event was dropped because the buffer was full
+	private volatile boolean overflowed = false;
+
+
+	StationSubscription(@Nullable String stationId, int bufferSize) {
+		this.stationId = stationId;
+		this.buffer = new ArrayBlockingQueue<>(bufferSize);
+	}
+
+
+	public @Nullable String getStationId() {
+		return stationId;
+	}
+
+
+	boolean matches(String id) {
+		return stationId == null || Objects.equals(stationId, id);
+	}
+
+
+	/**
+	 * Buffer an event for the subscriber without blocking the publisher.
+	 *
+	 * @return false if the buffer is full and the subscriber has fallen behind
+	 */
+	boolean offer(StationEvent event) {
+		// If the subscriber has already fallen behind, later events are useless to it
+		if (overflowed) {
+			return false;
+		}
+
+		// If the buffer is full, the subscriber must resynchronise by reconnecting
+		if (!buffer.offer(event)) {
+			overflowed = true;
+			return false;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Check if events were dropped, in which case the subscriber must
+	 * reconnect and resume from the last event it received.
+	 */
+	public boolean isOverflowed() {
+		return overflowed;
+	}
+
+
+	/**
+	 * Wait for the next buffered event.
+	 *
+	 * @param timeout how long to wait, in milliseconds
+	 * @return the next event, or empty if none was published in time
+	 */
+	public Optional<StationEvent> poll(long timeout) throws InterruptedException {
+		return Optional.ofNullable(buffer.poll(timeout, TimeUnit.MILLISECONDS));
+	}
+
+
+	/**
+	 * Check if any published event has not been taken from the buffer yet.
+	 */
+	public boolean hasPending() {
+		return !buffer.isEmpty();
+	}
+
+
+	/**
+	 * Record that an event is being sent to the subscriber. An event is only
+	 * sent once, and never after a newer reading for the same station, as
+	 * replayed readings and published readings may overlap.
+	 *
+	 * @return false if the subscriber already has this reading or a newer one
+	 */
+	public boolean markSent(StationEvent event) {
+		Long last = sent.get(event.getStationId());
+
+		// If the subscriber already has this reading, or a newer one
+		if (last != null && last >= event.getLamportClock()) {
+			return false;
+		}
+
+		sent.put(event.getStationId(), event.getLamportClock());
+		return true;
+	}
+}
@@ -0,0 +1,201 @@
+package net.ethandankiw.server;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the work the load balancer takes on at once. Work is run straight
+ * away while fewer than the limit are admitted, and otherwise waits in a
+ * bounded queue for admitted work to be released. Once the queue is full,
+ * work is shed so the caller can turn it away quickly, instead of every
+ * server being buried under a burst.
+ * <p>
+ * Queued work is started on an executor once admitted, rather than on the
+ * thread that released its slot, and is turned away if it waits longer than
+ * the queue timeout.
+ */
+public class AdmissionController {
+
+	private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+	// Most work admitted at once, and most work waiting to be admitted
+	private final int limit;
+	private final int queueLimit;
+
+	// Longest work waits to be admitted before it is turned away
+	private final long queueTimeout; // milliseconds
+
+	// Runs queued work once it is admitted, and turns away work that waited too long
+	private final Executor executor;
+
+	// Work waiting for admitted work to be released, oldest first
+	private final Deque<Pending> pending = new ArrayDeque<>();
+
+	// Turns away queued work once its deadline passes
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "AdmissionTimeout");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Current amount of admitted work that has not been released
+	private int admitted = 0;
+
+	// Number of times work was shed since the controller was created
+	private final AtomicLong shed = new AtomicLong(0);
+
+
+	public AdmissionController(int limit, int queueLimit, long queueTimeout, Executor executor) {
+		this.limit = Math.max(limit, 1);
+		this.queueLimit = Math.max(queueLimit, 0);
+		this.queueTimeout = Math.max(queueTimeout, 1);
+		this.executor = executor;
+	}
+
+
+	/**
+	 * Admit work, running it straight away if under the limit, or once
+	 * earlier work is released if the queue has room. Admitted work must call
+	 * {@link #release()} once it has finished.
+	 *
+	 * @param work the work to run once admitted
+	 * @param onTimeout turns the work away if it is still queued once the
+	 * queue timeout passes
+	 * @return a boolean for if the work was admitted or queued, rather than
+	 * shed
+	 */
+	public boolean admit(Runnable work, Runnable onTimeout) {
+		synchronized (this) {
+			// If the limit has been reached, wait in the queue if it has room
+			if (admitted >= limit) {
+				if (pending.size() >= queueLimit) {
+					shed.incrementAndGet();
+					return false;
+				}
+
+				Pending entry = new Pending(work, onTimeout);
+				pending.add(entry);
+				entry.timeout = timer.schedule(() -> expire(entry), queueTimeout, TimeUnit.MILLISECONDS);
+				return true;
+			}
+
+			admitted += 1;
+		}
+
+		run(work);
+		return true;
+	}
+
+
+	/**
+	 * Release admitted work that has finished, admitting the oldest queued
+	 * work in its place on the executor.
+	 */
+	public void release() {
+		Pending next;
+		synchronized (this) {
+			next = pending.poll();
+
+			// The released slot passes straight to the queued work, if any
+			if (next == null) {
+				admitted = Math.max(admitted - 1, 0);
+				return;
+			}
+		}
+
+		next.timeout.cancel(false);
+
+		// Start the queued work on the executor, so the releasing thread is not held up by it
+		try {
+			executor.execute(() -> run(next.work));
+		} catch (RejectedExecutionException ree) {
+			// The work will never run, so turn it away and pass the slot on
+			next.onTimeout.run();
+			release();
+		}
+	}
+
+
+	/**
+	 * Stop turning away queued work, when the load balancer shuts down.
+	 */
+	public void shutdown() {
+		timer.shutdownNow();
+	}
+
+
+	private void expire(Pending entry) {
+		synchronized (this) {
+			// If the work was admitted before its deadline
+			if (!pending.remove(entry)) {
+				return;
+			}
+		}
+
+		shed.incrementAndGet();
+		logger.debug("Turning away work that waited {}ms to be admitted", queueTimeout);
+
+		// Turn the work away on the executor, as answering may block on a slow client
+		try {
+			executor.execute(entry.onTimeout);
+		} catch (RejectedExecutionException ree) {
+			entry.onTimeout.run();
+		}
+	}
+
+
+	private void run(Runnable work) {
+		try {
+			work.run();
+		} catch (RuntimeException e) {
+			// Work that failed to start will never release its slot itself
+			logger.error("Admitted work failed to start: {}", e.getMessage());
+			release();
+		}
+	}
+
+
+	public synchronized int getAdmittedCount() {
+		return admitted;
+	}
+
+
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+
+	// Get the number of times work was shed, either because the queue was full or it waited too long
+	public long getShedCount() {
+		return shed.get();
+	}
+
+
+	/**
+	 * Work waiting in the queue, with what to do if it is never admitted.
+	 */
+	private static final class Pending {
+
+		private final Runnable work;
+		private final Runnable onTimeout;
+
+		// Deadline for the work to be admitted, cancelled once it is
+		private ScheduledFuture<?> timeout;
+
+
+		private Pending(Runnable work, Runnable onTimeout) {
+			this.work = work;
+			this.onTimeout = onTimeout;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package net.ethandankiw.server;
+
+import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.aggregation.RemoteAggregationServer;
+
+public enum BackendMode {
+	// Aggregation servers are thread pools inside the load balancer
+	IN_PROCESS,
+	// Each aggregation server is a separate local process the load balancer forwards to
+	PROCESS;
+
+
+	/**
+	 * Creates an aggregation server in this mode.
+	 *
+	 * @param executionMode the threads used to run client requests
+	 * @return a server in this process, or a proxy to an aggregation node
+	 */
+	public AggregationServer create(ExecutionMode executionMode) {
+		// If the server runs in its own process
+		if (this == PROCESS) {
+			return RemoteAggregationServer.create(executionMode);
+		}
+
+		// By default, run the server inside the load balancer
+		return new AggregationServer(executionMode);
+	}
+}
@@ -0,0 +1,60 @@
+package net.ethandankiw.server;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts client connections that were closed because a deadline elapsed,
+ * across every front end and aggregation server.
+ */
+public class ConnectionMetrics {
+
+	public enum Timeout {
+		// The request line and headers did not arrive in time
+		HEADER_READ,
+		// The request body did not arrive in time
+		BODY_READ,
+		// The client did not accept the response in time
+		WRITE
+	}
+
+	private static final Map<Timeout, AtomicLong> timeouts = new EnumMap<>(Timeout.class);
+
+	static {
+		// Create a counter for every kind of timeout
+		for (Timeout timeout : Timeout.values()) {
+			timeouts.put(timeout, new AtomicLong(0));
+		}
+	}
+
+
+	private ConnectionMetrics() {
+	}
+
+
+	public static void recordTimeout(Timeout timeout) {
+		timeouts.get(timeout)
+				.incrementAndGet();
+	}
+
+
+	public static long getTimeoutCount(Timeout timeout) {
+		return timeouts.get(timeout)
+					   .get();
+	}
+
+
+	public static long getTotalTimeoutCount() {
+		return timeouts.values()
+					   .stream()
+					   .mapToLong(AtomicLong::get)
+					   .sum();
+	}
+
+
+	public static void reset() {
+		timeouts.values()
+				.forEach(count -> count.set(0));
+	}
+}
@@ -0,0 +1,8 @@
+package net.ethandankiw.server;
+
+public enum DispatchMode {
+	// The acceptor hands each connection to a front pool, which chooses a server and hands it on again
+	POOLED,
+	// The acceptor chooses a server and hands each connection straight to the server's executor
+	DIRECT
+}
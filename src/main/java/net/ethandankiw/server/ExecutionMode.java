@@ -0,0 +1,92 @@
+package net.ethandankiw.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.ethandankiw.GlobalConstants;
+
+public enum ExecutionMode {
+	// Requests run on a fixed pool of platform threads
+	PLATFORM,
+	// Every request runs on its own virtual thread
+	VIRTUAL,
+	// Requests run on one pool of platform threads shared by every server, each limited to its own share
+	SHARED;
+
+	// How long a shared thread is kept once it has nothing to run
+	private static final long SHARED_KEEP_ALIVE = 60; // seconds
+
+
+	/**
+	 * Creates an executor for running client requests in this mode.
+	 *
+	 * @param platformThreads the number of threads used in platform mode, or
+	 * the most tasks run at once on the shared pool in shared mode
+	 * @return a fixed thread pool, a virtual thread per task executor, or a
+	 * share of the shared pool
+	 */
+	public ExecutorService createExecutor(int platformThreads) {
+		// If blocking requests should not hold a platform thread
+		if (this == VIRTUAL) {
+			return Executors.newVirtualThreadPerTaskExecutor();
+		}
+
+		// If every server should take its threads from the same pool, up to its quota
+		if (this == SHARED) {
+			return new QuotaExecutor(SharedPool.INSTANCE, platformThreads);
+		}
+
+		// By default, bound the requests to a fixed number of threads
+		return Executors.newFixedThreadPool(platformThreads);
+	}
+
+
+	/**
+	 * Creates an executor for work that other tasks of the server block on,
+	 * such as pipelined requests. In shared mode these get their own threads,
+	 * as the tasks waiting on them may hold every thread of the server's
+	 * share of the pool. Those threads are stopped once idle, so an idle
+	 * server holds none.
+	 *
+	 * @param platformThreads the number of threads used in platform and
+	 * shared mode
+	 * @return a fixed thread pool, or a virtual thread per task executor
+	 */
+	public ExecutorService createDependentExecutor(int platformThreads) {
+		// If the work can run on the server's share of the pool without its callers starving it
+		if (this != SHARED) {
+			return createExecutor(platformThreads);
+		}
+
+		return createIdleTimeoutPool(platformThreads);
+	}
+
+
+	// Create a pool of platform threads that are started as needed and stopped once idle
+	private static ThreadPoolExecutor createIdleTimeoutPool(int threads) {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, SHARED_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+
+	/**
+	 * Holds the pool shared by every server, which is only started once a
+	 * server runs in shared mode. Requests block on sockets and the content
+	 * store, so the pool uses plain platform threads rather than work
+	 * stealing. Threads are started as servers need them and stopped once
+	 * idle, so an idle server holds none.
+	 */
+	private static final class SharedPool {
+
+		private static final ExecutorService INSTANCE = createSharedPool();
+
+
+		private static ExecutorService createSharedPool() {
+			return createIdleTimeoutPool(GlobalConstants.SHARED_POOL_THREADS);
+		}
+	}
+}
@@ -0,0 +1,999 @@
+package net.ethandankiw.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.utils.SocketUtils;
+import net.ethandankiw.utils.http.HttpResponseUtils;
+import net.ethandankiw.utils.http2.HpackDecoder;
+import net.ethandankiw.utils.http2.HpackEncoder;
+import net.ethandankiw.utils.http2.HpackTable;
+import net.ethandankiw.utils.http2.Http2ErrorCode;
+import net.ethandankiw.utils.http2.Http2Exception;
+import net.ethandankiw.utils.http2.Http2Frame;
+
+/**
+ * A single cleartext HTTP/2 connection, started with prior knowledge. Many
+ * requests are multiplexed over the connection as independent streams.
+ * <p>
+ * One thread reads frames and dispatches each complete request, and another
+ * writes responses in turn as the flow control windows of the client allow.
+ * Both threads share the connection lock, which guards every stream.
+ */
+final class Http2Connection {
+
+	private static final Logger logger = LoggerFactory.getLogger(Http2Connection.class);
+
+	// Version set on requests received over HTTP/2
+	private static final String HTTP_2_VERSION = "HTTP/2.0";
+
+	// Headers that only apply to HTTP/1.1 connections and are never sent over HTTP/2
+	private static final Set<String> CONNECTION_HEADERS = Set.of(HttpHeaders.CONNECTION, HttpHeaders.KEEP_ALIVE, HttpHeaders.TRANSFER_ENCODING, "upgrade", "proxy-connection");
+
+	// Most bytes written to the socket at once by the writer
+	private static final int MAX_WRITE_BATCH = 64 * 1024; // bytes
+
+	private final Socket socket;
+	private final InputStream in;
+	private final RequestDispatcher dispatcher;
+	private final LamportClock clock;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// Signalled when a response is ready or a flow control window opens
+	private final Condition writable = lock.newCondition();
+
+	// Streams that are open, and those with a response waiting to be written
+	private final Map<Integer, Http2Stream> streams = new HashMap<>();
+	private final Deque<Http2Stream> ready = new ArrayDeque<>();
+
+	private final HpackDecoder decoder = new HpackDecoder(HpackTable.DEFAULT_MAX_SIZE);
+	private final HpackEncoder encoder = new HpackEncoder();
+
+	// Highest stream ID opened by the client
+	private int lastStreamId = 0;
+
+	// Header block being received over several frames, and the stream it belongs to
+	private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream();
+	private int headerStreamId = 0;
+	private boolean headerEndStream = false;
+	private boolean continuing = false;
+
+	// Bytes the client may still send on the connection, and bytes that may still be sent to it
+	private int receiveWindow = Http2Frame.DEFAULT_WINDOW_SIZE;
+	private long sendWindow = Http2Frame.DEFAULT_WINDOW_SIZE;
+
+	// Settings sent by the client
+	private int peerInitialWindowSize = Http2Frame.DEFAULT_WINDOW_SIZE;
+	private int peerMaxFrameSize = Http2Frame.DEFAULT_MAX_FRAME_SIZE;
+
+	// Flag for if the client has sent GOAWAY, so no more streams will be opened
+	private boolean peerGoingAway = false;
+
+	// Flag for if the connection is still usable
+	private volatile boolean open = true;
+
+
+	Http2Connection(Socket socket, RequestDispatcher dispatcher, LamportClock clock) throws IOException {
+		this.socket = socket;
+		this.in = new BufferedInputStream(socket.getInputStream());
+		this.dispatcher = dispatcher;
+		this.clock = clock;
+	}
+
+
+	/**
+	 * Read frames until the connection ends. Responses are written by the
+	 * writer, which must be running on another thread.
+	 */
+	void readFrames() {
+		try {
+			// The client must open with the connection preface
+			socket.setSoTimeout(GlobalConstants.HEADER_READ_TIMEOUT);
+			byte[] preface = in.readNBytes(Http2Frame.CONNECTION_PREFACE.length);
+			if (!Arrays.equals(preface, Http2Frame.CONNECTION_PREFACE)) {
+				throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "Invalid connection preface");
+			}
+
+			// Advertise the server settings, and open the connection window to match them
+			sendSettings();
+
+			while (open && awaitFrame()) {
+				// The rest of the frame must arrive promptly once it has started
+				socket.setSoTimeout(GlobalConstants.HEADER_READ_TIMEOUT);
+				Http2Frame frame = Http2Frame.read(in, Http2Frame.DEFAULT_MAX_FRAME_SIZE);
+
+				try {
+					handleFrame(frame);
+				} catch (Http2Exception h2e) {
+					// A connection error ends the connection
+					if (h2e.isConnectionError()) {
+						throw h2e;
+					}
+
+					// A stream error only resets its stream
+					logger.warn("Resetting stream {}: {}", h2e.getStreamId(), h2e.getMessage());
+					resetStream(h2e.getStreamId(), h2e.getErrorCode());
+				}
+			}
+
+			// Tell the client no more streams will be processed
+			goAway(Http2ErrorCode.NO_ERROR);
+		} catch (Http2Exception h2e) {
+			logger.error("Closing h2c connection after protocol error: {}", h2e.getMessage());
+			goAway(h2e.getErrorCode());
+		} catch (SocketTimeoutException ste) {
+			logger.warn("Client did not send the frame in time");
+			ConnectionMetrics.recordTimeout(ConnectionMetrics.Timeout.HEADER_READ);
+		} catch (EOFException eofe) {
+			logger.debug("Client closed the h2c connection");
+		} catch (IOException ioe) {
+			logger.debug("Unable to read from h2c connection: {}", ioe.getMessage());
+		} finally {
+			close();
+		}
+	}
+
+
+	/**
+	 * Write responses until the connection is closed. Streams with data to
+	 * send take turns, one frame each, so a large response does not hold up
+	 * the others.
+	 */
+	void writeResponses() {
+		lock.lock();
+		try {
+			while (open) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+				// Encode frames from every stream that can send, up to the batch size
+				Http2Stream stream;
+				while (out.size() < MAX_WRITE_BATCH && (stream = nextWritableStream()) != null) {
+					writeNextFrame(stream, out);
+				}
+
+				// If there is nothing to send, wait for a response or a window update
+				if (out.size() == 0) {
+					writable.await();
+					continue;
+				}
+
+				send(out);
+
+				// Close once a client that sent GOAWAY has every response
+				if (peerGoingAway && streams.isEmpty()) {
+					close();
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread()
+				  .interrupt();
+		} finally {
+			lock.unlock();
+			close();
+		}
+	}
+
+
+	void close() {
+		// If the connection has already been closed
+		if (!open) {
+			return;
+		}
+
+		open = false;
+
+		// Close the socket first, so a blocked write releases the lock
+		try {
+			socket.close();
+		} catch (IOException ioe) {
+			logger.error("Unable to close h2c connection: {}", ioe.getMessage());
+		}
+
+		// Wake the writer so it can stop
+		lock.lock();
+		try {
+			writable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private boolean awaitFrame() throws IOException {
+		// Wait for the next frame without a deadline while requests are outstanding
+		socket.setSoTimeout(GlobalConstants.KEEP_ALIVE_TIMEOUT);
+
+		while (open) {
+			try {
+				// Peek at the first byte of the next frame
+				in.mark(1);
+				if (in.read() == -1) {
+					return false;
+				}
+				in.reset();
+				return true;
+			} catch (SocketTimeoutException ste) {
+				lock.lock();
+				try {
+					// Close connections that have had no streams within the keep-alive timeout
+					if (streams.isEmpty() && !continuing) {
+						logger.debug("Closing idle h2c connection");
+						return false;
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		return false;
+	}
+
+
+	private void handleFrame(Http2Frame frame) throws Http2Exception {
+		// A header block must be completed before any other frame is sent
+		if (continuing && (frame.getType() != Http2Frame.CONTINUATION || frame.getStreamId() != headerStreamId)) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "Expected a CONTINUATION frame");
+		}
+
+		switch (frame.getType()) {
+			case Http2Frame.DATA -> handleData(frame);
+			case Http2Frame.HEADERS -> handleHeaders(frame);
+			case Http2Frame.PRIORITY -> handlePriority(frame);
+			case Http2Frame.RST_STREAM -> handleResetStream(frame);
+			case Http2Frame.SETTINGS -> handleSettings(frame);
+			case Http2Frame.PUSH_PROMISE -> throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "Clients cannot push streams");
+			case Http2Frame.PING -> handlePing(frame);
+			case Http2Frame.GOAWAY -> handleGoAway(frame);
+			case Http2Frame.WINDOW_UPDATE -> handleWindowUpdate(frame);
+			case Http2Frame.CONTINUATION -> handleContinuation(frame);
+			// Frames of unknown types are ignored
+			default -> logger.debug("Ignoring frame of unknown type {}", frame.getType());
+		}
+	}
+
+
+	private void handleHeaders(Http2Frame frame) throws Http2Exception {
+		int streamId = frame.getStreamId();
+
+		// Clients only open odd numbered streams
+		if (streamId == 0 || streamId % 2 == 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "Invalid stream ID " + streamId + " for HEADERS");
+		}
+
+		// Skip the padding length and priority fields in front of the header block
+		int offset = 0;
+		int padding = 0;
+		if (frame.hasFlag(Http2Frame.FLAG_PADDED)) {
+			padding = frame.getLength() > 0 ? frame.getPayload()[0] & 0xff : 0;
+			offset += 1;
+		}
+		if (frame.hasFlag(Http2Frame.FLAG_PRIORITY)) {
+			offset += 5;
+		}
+
+		// If the padding and priority are longer than the frame
+		int length = frame.getLength() - offset - padding;
+		if (length < 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "HEADERS padding is longer than the frame");
+		}
+
+		// Start a new header block
+		headerBlock.reset();
+		headerBlock.write(frame.getPayload(), offset, length);
+		headerStreamId = streamId;
+		headerEndStream = frame.hasFlag(Http2Frame.FLAG_END_STREAM);
+
+		// If the header block continues in CONTINUATION frames
+		if (!frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+			continuing = true;
+			return;
+		}
+
+		handleHeaderBlock();
+	}
+
+
+	private void handleContinuation(Http2Frame frame) throws Http2Exception {
+		// If no header block is being received
+		if (!continuing) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+		}
+
+		// Limit the header block, as it must be held in full before it is decoded
+		if (headerBlock.size() + frame.getLength() > GlobalConstants.MAX_REQUEST_SIZE) {
+			throw new Http2Exception(Http2ErrorCode.ENHANCE_YOUR_CALM, "Header block is too large");
+		}
+
+		headerBlock.write(frame.getPayload(), 0, frame.getLength());
+
+		// If the header block is complete
+		if (frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+			continuing = false;
+			handleHeaderBlock();
+		}
+	}
+
+
+	private void handleHeaderBlock() throws Http2Exception {
+		// Every block is decoded, even for refused streams, to keep the dynamic table in step
+		List<String[]> fields = decoder.decode(headerBlock.toByteArray(), headerBlock.size());
+		int streamId = headerStreamId;
+
+		lock.lock();
+		try {
+			Http2Stream existing = streams.get(streamId);
+
+			// If a header block ends a request body, it holds trailers
+			if (existing != null) {
+				if (!headerEndStream || existing.isEndStreamReceived()) {
+					throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Unexpected HEADERS on an open stream");
+				}
+
+				endRequest(existing);
+				return;
+			}
+
+			// New streams must use increasing IDs
+			if (streamId <= lastStreamId) {
+				throw new Http2Exception(Http2ErrorCode.STREAM_CLOSED, "HEADERS received on closed stream " + streamId);
+			}
+
+			lastStreamId = streamId;
+
+			// Refuse streams above the advertised limit, the client may retry them
+			if (streams.size() >= GlobalConstants.H2C_MAX_CONCURRENT_STREAMS) {
+				throw new Http2Exception(Http2ErrorCode.REFUSED_STREAM, streamId, "Too many concurrent streams");
+			}
+
+			// Build the request from the header fields
+			HttpRequest request = createRequest(streamId, fields);
+			Http2Stream stream = new Http2Stream(streamId, request, GlobalConstants.H2C_WINDOW_SIZE, peerInitialWindowSize);
+			streams.put(streamId, stream);
+
+			// Limit the headers, as each one is stored on the request
+			if (request.getHeaders()
+					   .size() > GlobalConstants.MAX_HEADER_COUNT) {
+				reject(stream, HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request has too many headers");
+			}
+
+			// Reject bodies above the limit before they are sent
+			String contentLength = request.getHeaderValue(HttpHeaders.CONTENT_LENGTH);
+			if (contentLength != null && parseLength(streamId, contentLength) > GlobalConstants.MAX_BODY_SIZE) {
+				reject(stream, HttpStatusCode.PAYLOAD_TOO_LARGE, "Request body is too large");
+			}
+
+			// If the request has no body
+			if (headerEndStream) {
+				endRequest(stream);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private HttpRequest createRequest(int streamId, List<String[]> fields) throws Http2Exception {
+		HttpRequest request = new HttpRequest();
+		request.setVersion(HTTP_2_VERSION);
+
+		String method = null;
+		String path = null;
+		boolean regularSeen = false;
+
+		for (String[] field : fields) {
+			String name = field[0];
+			String value = field[1];
+
+			// Header names must be sent in lower case
+			if (!name.equals(name.toLowerCase(Locale.ROOT))) {
+				throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Header name " + name + " is not lower case");
+			}
+
+			// Pseudo-headers describe the request line and come before every other header
+			if (name.startsWith(":")) {
+				if (regularSeen) {
+					throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Pseudo-header " + name + " after regular headers");
+				}
+
+				switch (name) {
+					case ":method" -> method = value;
+					case ":path" -> path = value;
+					case ":authority" -> request.addHeader(HttpHeaders.HOST, value);
+					case ":scheme" -> {
+						// The scheme is always http for h2c
+					}
+					default -> throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Unknown pseudo-header " + name);
+				}
+				continue;
+			}
+
+			regularSeen = true;
+
+			// Headers for HTTP/1.1 connections make the request malformed
+			if (CONNECTION_HEADERS.contains(name) || (name.equals("te") && !value.equals("trailers"))) {
+				throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Connection-specific header " + name);
+			}
+
+			request.addHeader(name, value);
+		}
+
+		// The method and path are required
+		if (method == null || path == null || path.isEmpty()) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Request is missing :method or :path");
+		}
+
+		request.parseAndSetMethod(method);
+		request.setPath(path);
+		return request;
+	}
+
+
+	private void handleData(Http2Frame frame) throws Http2Exception {
+		int streamId = frame.getStreamId();
+		int length = frame.getLength();
+
+		// DATA always belongs to a stream
+		if (streamId == 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "DATA received on stream 0");
+		}
+
+		lock.lock();
+		try {
+			// The whole frame, including padding, counts against the connection window
+			if (length > receiveWindow) {
+				throw new Http2Exception(Http2ErrorCode.FLOW_CONTROL_ERROR, "DATA exceeds the connection window");
+			}
+			receiveWindow -= length;
+
+			// Open the window again once half of it has been used
+			if (receiveWindow < GlobalConstants.H2C_WINDOW_SIZE / 2) {
+				sendWindowUpdate(0, GlobalConstants.H2C_WINDOW_SIZE - receiveWindow);
+				receiveWindow = GlobalConstants.H2C_WINDOW_SIZE;
+			}
+
+			Http2Stream stream = streams.get(streamId);
+
+			// If the stream was never opened
+			if (stream == null && streamId > lastStreamId) {
+				throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "DATA received on idle stream " + streamId);
+			}
+
+			// If the stream has already been closed by the client
+			if (stream == null || stream.isEndStreamReceived()) {
+				throw new Http2Exception(Http2ErrorCode.STREAM_CLOSED, streamId, "DATA received on closed stream " + streamId);
+			}
+
+			// The stream window is never opened again, as it is larger than the biggest accepted body
+			if (length > stream.getReceiveWindow()) {
+				throw new Http2Exception(Http2ErrorCode.FLOW_CONTROL_ERROR, streamId, "DATA exceeds the stream window");
+			}
+			stream.consumeReceiveWindow(length);
+
+			// Skip the padding around the data
+			int offset = 0;
+			int padding = 0;
+			if (frame.hasFlag(Http2Frame.FLAG_PADDED) && length > 0) {
+				padding = frame.getPayload()[0] & 0xff;
+				offset = 1;
+			}
+			if (offset + padding > length) {
+				throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "DATA padding is longer than the frame");
+			}
+
+			// Keep the body unless the request has already been answered
+			if (!stream.isRejected()) {
+				stream.getBody()
+					  .write(frame.getPayload(), offset, length - offset - padding);
+
+				// If the body is larger than the limit
+				if (stream.getBody()
+						  .size() > GlobalConstants.MAX_BODY_SIZE) {
+					reject(stream, HttpStatusCode.PAYLOAD_TOO_LARGE, "Request body is too large");
+				}
+			}
+
+			// If this is the last frame of the request
+			if (frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+				endRequest(stream);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void handlePriority(Http2Frame frame) throws Http2Exception {
+		// Priorities are ignored, as every stream takes turns
+		if (frame.getStreamId() == 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "PRIORITY received on stream 0");
+		}
+		if (frame.getLength() != 5) {
+			throw new Http2Exception(Http2ErrorCode.FRAME_SIZE_ERROR, frame.getStreamId(), "Invalid PRIORITY length");
+		}
+	}
+
+
+	private void handleResetStream(Http2Frame frame) throws Http2Exception {
+		int streamId = frame.getStreamId();
+
+		if (streamId == 0 || streamId > lastStreamId) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "RST_STREAM received on stream " + streamId);
+		}
+		if (frame.getLength() != 4) {
+			throw new Http2Exception(Http2ErrorCode.FRAME_SIZE_ERROR, "Invalid RST_STREAM length");
+		}
+
+		// Forget the stream, so its response is discarded if it completes later
+		lock.lock();
+		try {
+			Http2Stream stream = streams.remove(streamId);
+			if (stream != null) {
+				ready.remove(stream);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void handleSettings(Http2Frame frame) throws Http2Exception {
+		if (frame.getStreamId() != 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "SETTINGS received on stream " + frame.getStreamId());
+		}
+
+		// An acknowledgement of the server settings carries nothing
+		if (frame.hasFlag(Http2Frame.FLAG_ACK)) {
+			if (frame.getLength() != 0) {
+				throw new Http2Exception(Http2ErrorCode.FRAME_SIZE_ERROR, "SETTINGS acknowledgement has a payload");
+			}
+			return;
+		}
+
+		if (frame.getLength() % 6 != 0) {
+			throw new Http2Exception(Http2ErrorCode.FRAME_SIZE_ERROR, "Invalid SETTINGS length");
+		}
+
+		lock.lock();
+		try {
+			byte[] payload = frame.getPayload();
+
+			// Apply each setting in the order it was sent
+			for (int i = 0; i < payload.length; i += 6) {
+				int id = ((payload[i] & 0xff) << 8) | (payload[i + 1] & 0xff);
+				int value = Http2Frame.readInt(payload, i + 2);
+				applySetting(id, value);
+			}
+
+			// Acknowledge the settings once they have been applied
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			Http2Frame.write(out, Http2Frame.SETTINGS, Http2Frame.FLAG_ACK, 0, new byte[0]);
+			send(out);
+
+			// A larger initial window may let blocked streams continue
+			writable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void applySetting(int id, int value) throws Http2Exception {
+		switch (id) {
+			case Http2Frame.SETTINGS_HEADER_TABLE_SIZE -> encoder.setMaxTableSize(value);
+			case Http2Frame.SETTINGS_ENABLE_PUSH -> {
+				// The server never pushes, but the value must still be valid
+				if (value != 0 && value != 1) {
+					throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH value");
+				}
+			}
+			case Http2Frame.SETTINGS_INITIAL_WINDOW_SIZE -> {
+				if (value < 0) {
+					throw new Http2Exception(Http2ErrorCode.FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE value");
+				}
+
+				// Every open stream window changes by the difference
+				int delta = value - peerInitialWindowSize;
+				peerInitialWindowSize = value;
+				for (Http2Stream stream : streams.values()) {
+					stream.updateSendWindow(delta);
+					if (stream.getSendWindow() > Http2Frame.MAX_WINDOW_SIZE) {
+						throw new Http2Exception(Http2ErrorCode.FLOW_CONTROL_ERROR, "Stream window is too large");
+					}
+				}
+			}
+			case Http2Frame.SETTINGS_MAX_FRAME_SIZE -> {
+				if (value < Http2Frame.DEFAULT_MAX_FRAME_SIZE || value > Http2Frame.MAX_ALLOWED_FRAME_SIZE) {
+					throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE value");
+				}
+				peerMaxFrameSize = value;
+			}
+			// Other settings do not affect the server
+			default -> logger.debug("Ignoring setting {} = {}", id, value);
+		}
+	}
+
+
+	private void handlePing(Http2Frame frame) throws Http2Exception {
+		if (frame.getStreamId() != 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "PING received on stream " + frame.getStreamId());
+		}
+		if (frame.getLength() != 8) {
+			throw new Http2Exception(Http2ErrorCode.FRAME_SIZE_ERROR, "Invalid PING length");
+		}
+
+		// If this is a reply to a ping, there is nothing to do
+		if (frame.hasFlag(Http2Frame.FLAG_ACK)) {
+			return;
+		}
+
+		// Reply with the same payload
+		lock.lock();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			Http2Frame.write(out, Http2Frame.PING, Http2Frame.FLAG_ACK, 0, frame.getPayload());
+			send(out);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void handleGoAway(Http2Frame frame) throws Http2Exception {
+		if (frame.getStreamId() != 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, "GOAWAY received on stream " + frame.getStreamId());
+		}
+
+		lock.lock();
+		try {
+			// Finish the open streams, then close the connection
+			peerGoingAway = true;
+			if (streams.isEmpty()) {
+				close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void handleWindowUpdate(Http2Frame frame) throws Http2Exception {
+		int streamId = frame.getStreamId();
+
+		if (frame.getLength() != 4) {
+			throw new Http2Exception(Http2ErrorCode.FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE length");
+		}
+
+		int increment = Http2Frame.readInt(frame.getPayload(), 0) & 0x7fffffff;
+
+		// An update must open the window
+		if (increment == 0) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "WINDOW_UPDATE with no increment");
+		}
+
+		lock.lock();
+		try {
+			// If the update is for the whole connection
+			if (streamId == 0) {
+				sendWindow += increment;
+				if (sendWindow > Http2Frame.MAX_WINDOW_SIZE) {
+					throw new Http2Exception(Http2ErrorCode.FLOW_CONTROL_ERROR, "Connection window is too large");
+				}
+			} else {
+				Http2Stream stream = streams.get(streamId);
+
+				// Updates may arrive for streams that have just been closed
+				if (stream != null) {
+					stream.updateSendWindow(increment);
+					if (stream.getSendWindow() > Http2Frame.MAX_WINDOW_SIZE) {
+						throw new Http2Exception(Http2ErrorCode.FLOW_CONTROL_ERROR, streamId, "Stream window is too large");
+					}
+				}
+			}
+
+			// Let the writer continue any blocked response
+			writable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void endRequest(Http2Stream stream) throws Http2Exception {
+		stream.setEndStreamReceived();
+
+		// If the request was already answered
+		if (stream.isRejected()) {
+			return;
+		}
+
+		HttpRequest request = stream.getRequest();
+		byte[] body = stream.getBody()
+							.toByteArray();
+
+		// The declared length must match the body that was sent
+		String contentLength = request.getHeaderValue(HttpHeaders.CONTENT_LENGTH);
+		if (contentLength != null && parseLength(stream.getId(), contentLength) != body.length) {
+			streams.remove(stream.getId());
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, stream.getId(), "Content-Length does not match the body");
+		}
+
+		request.setBody(new String(body, StandardCharsets.UTF_8));
+
+		// Process the request on a worker, and queue its response when it completes
+		dispatcher.dispatch(request)
+				  .exceptionally(e -> {
+					  logger.error("Error handling client request: {}", e.getMessage());
+					  return respond(HttpStatusCode.INTERNAL_SERVER_ERROR, "Error handling client request");
+				  })
+				  .thenAccept(response -> queueResponse(stream, response));
+	}
+
+
+	private void reject(Http2Stream stream, HttpStatusCode status, String message) {
+		logger.error(message);
+
+		// Discard the rest of the request, and answer it straight away
+		stream.setRejected();
+		queueResponse(stream, respond(status, message));
+	}
+
+
+	private void queueResponse(Http2Stream stream, HttpResponse response) {
+		lock.lock();
+		try {
+			// If the stream was reset, or the connection closed, while the request was processed
+			if (!open || streams.get(stream.getId()) != stream || stream.hasResponse()) {
+				return;
+			}
+
+			stream.setResponse(response);
+			ready.add(stream);
+			writable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private Http2Stream nextWritableStream() {
+		for (Http2Stream stream : ready) {
+			// Headers are not flow controlled
+			if (!stream.isHeadersSent()) {
+				return stream;
+			}
+
+			// Data can only be sent while both windows are open
+			if (sendWindow > 0 && stream.getSendWindow() > 0) {
+				return stream;
+			}
+		}
+
+		return null;
+	}
+
+
+	private void writeNextFrame(Http2Stream stream, ByteArrayOutputStream out) {
+		int streamId = stream.getId();
+
+		// Send the status and headers first
+		if (!stream.isHeadersSent()) {
+			byte[] block = encoder.encode(createHeaderFields(stream));
+			boolean endStream = stream.getRemainingBody() == 0;
+			writeHeaderBlock(out, streamId, block, endStream);
+			stream.setHeadersSent();
+		} else {
+			// Send as much of the body as the windows and the frame size allow
+			int length = (int) Math.min(Math.min(stream.getRemainingBody(), peerMaxFrameSize), Math.min(sendWindow, stream.getSendWindow()));
+			boolean endStream = length == stream.getRemainingBody();
+			Http2Frame.write(out, Http2Frame.DATA, endStream ? Http2Frame.FLAG_END_STREAM : 0, streamId, stream.getResponseBody(), stream.getResponseOffset(), length);
+
+			stream.advanceResponse(length);
+			stream.updateSendWindow(-length);
+			sendWindow -= length;
+		}
+
+		// Let the other streams take a turn
+		ready.remove(stream);
+
+		// If the response has not been sent in full
+		if (!stream.isResponseComplete()) {
+			ready.add(stream);
+			return;
+		}
+
+		streams.remove(streamId);
+
+		// Stop a client that is still sending a request that was answered early
+		if (!stream.isEndStreamReceived()) {
+			writeResetStream(out, streamId, Http2ErrorCode.NO_ERROR);
+		}
+	}
+
+
+	private List<String[]> createHeaderFields(Http2Stream stream) {
+		HttpResponse response = stream.getResponse();
+		List<String[]> fields = new ArrayList<>();
+
+		// The status line becomes a pseudo-header
+		fields.add(new String[]{":status", String.valueOf(response.getStatusCode())});
+
+		// Header names are sent in lower case, without headers for HTTP/1.1 connections
+		response.getHeaders()
+				.forEach((name, value) -> {
+					String lowerName = name.toLowerCase(Locale.ROOT);
+					if (!CONNECTION_HEADERS.contains(lowerName)) {
+						fields.add(new String[]{lowerName, value});
+					}
+				});
+
+		return fields;
+	}
+
+
+	private void writeHeaderBlock(ByteArrayOutputStream out, int streamId, byte[] block, boolean endStream) {
+		// Split the block into a HEADERS frame followed by CONTINUATION frames
+		int offset = 0;
+		int type = Http2Frame.HEADERS;
+
+		do {
+			int length = Math.min(block.length - offset, peerMaxFrameSize);
+			boolean last = offset + length == block.length;
+
+			int flags = last ? Http2Frame.FLAG_END_HEADERS : 0;
+			if (type == Http2Frame.HEADERS && endStream) {
+				flags |= Http2Frame.FLAG_END_STREAM;
+			}
+
+			Http2Frame.write(out, type, flags, streamId, block, offset, length);
+			offset += length;
+			type = Http2Frame.CONTINUATION;
+		} while (offset < block.length);
+	}
+
+
+	private void sendSettings() throws IOException {
+		lock.lock();
+		try {
+			ByteArrayOutputStream settings = new ByteArrayOutputStream();
+			writeSetting(settings, Http2Frame.SETTINGS_MAX_CONCURRENT_STREAMS, GlobalConstants.H2C_MAX_CONCURRENT_STREAMS);
+			writeSetting(settings, Http2Frame.SETTINGS_INITIAL_WINDOW_SIZE, GlobalConstants.H2C_WINDOW_SIZE);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			Http2Frame.write(out, Http2Frame.SETTINGS, 0, 0, settings.toByteArray());
+			send(out);
+
+			// The connection window can only be opened with an update
+			sendWindowUpdate(0, GlobalConstants.H2C_WINDOW_SIZE - Http2Frame.DEFAULT_WINDOW_SIZE);
+			receiveWindow = GlobalConstants.H2C_WINDOW_SIZE;
+		} finally {
+			lock.unlock();
+		}
+
+		// If the settings could not be written
+		if (!open) {
+			throw new EOFException("Connection closed before the settings were sent");
+		}
+	}
+
+
+	private static void writeSetting(ByteArrayOutputStream out, int id, int value) {
+		out.write(id >>> 8);
+		out.write(id);
+		Http2Frame.writeInt(out, value);
+	}
+
+
+	private void sendWindowUpdate(int streamId, int increment) {
+		// If the window does not need to change
+		if (increment <= 0) {
+			return;
+		}
+
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		Http2Frame.writeInt(payload, increment);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Http2Frame.write(out, Http2Frame.WINDOW_UPDATE, 0, streamId, payload.toByteArray());
+		send(out);
+	}
+
+
+	private void resetStream(int streamId, Http2ErrorCode errorCode) {
+		lock.lock();
+		try {
+			// Forget the stream, so its response is discarded if it completes later
+			Http2Stream stream = streams.remove(streamId);
+			if (stream != null) {
+				ready.remove(stream);
+			}
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writeResetStream(out, streamId, errorCode);
+			send(out);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private static void writeResetStream(ByteArrayOutputStream out, int streamId, Http2ErrorCode errorCode) {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		Http2Frame.writeInt(payload, errorCode.getCode());
+		Http2Frame.write(out, Http2Frame.RST_STREAM, 0, streamId, payload.toByteArray());
+	}
+
+
+	private void goAway(Http2ErrorCode errorCode) {
+		// If the connection is already closed, there is no one to tell
+		if (!open) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			// Tell the client the last stream that was processed, and why the connection is ending
+			ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			Http2Frame.writeInt(payload, lastStreamId);
+			Http2Frame.writeInt(payload, errorCode.getCode());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			Http2Frame.write(out, Http2Frame.GOAWAY, 0, 0, payload.toByteArray());
+			send(out);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void send(ByteArrayOutputStream out) {
+		// Close the connection if the client does not accept the frames in time
+		if (open && !SocketUtils.writeToSocket(socket, out.toByteArray(), GlobalConstants.WRITE_TIMEOUT)) {
+			logger.error("Unable to write to h2c connection");
+			close();
+		}
+	}
+
+
+	private long parseLength(int streamId, String contentLength) throws Http2Exception {
+		try {
+			return Long.parseLong(contentLength.trim());
+		} catch (NumberFormatException nfe) {
+			throw new Http2Exception(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Invalid Content-Length " + contentLength);
+		}
+	}
+
+
+	private HttpResponse respond(HttpStatusCode status, String body) {
+		// Increment clock value as response counts as causal event
+		clock.tick();
+		return HttpResponseUtils.generateResponse(status, body, clock.getClockValue());
+	}
+}
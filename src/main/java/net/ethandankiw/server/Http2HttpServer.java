@@ -0,0 +1,149 @@
+package net.ethandankiw.server;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.utils.SocketUtils;
+
+/**
+ * HTTP server that accepts cleartext HTTP/2 (h2c) connections with prior
+ * knowledge. Each connection multiplexes many concurrent requests as
+ * streams, and every complete request is handed to the request dispatcher.
+ * <p>
+ * Each connection is read and written on two threads of the execution mode,
+ * and connections beyond the limit are closed as they arrive, so a burst of
+ * connections cannot start an unbounded number of threads.
+ */
+public class Http2HttpServer extends HttpServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(Http2HttpServer.class);
+
+	private final RequestDispatcher dispatcher;
+	private final LamportClock clock;
+
+	// Threads that read and write the open connections, two for each connection
+	private final ExecutorService connectionPool;
+
+	// Places for open connections, one taken by each until it is closed
+	private final Semaphore connectionSlots = new Semaphore(GlobalConstants.H2C_MAX_CONNECTIONS);
+
+	// Flag for if new connections should be accepted
+	private volatile boolean running = false;
+
+
+	public Http2HttpServer(@NotNull String name, @NotNull Integer port, @NotNull ExecutionMode executionMode, @NotNull LamportClock clock, @NotNull RequestDispatcher dispatcher) {
+		super(name, port);
+		this.clock = clock;
+		this.dispatcher = dispatcher;
+
+		// Each connection holds two threads for as long as it is open
+		this.connectionPool = executionMode.createExecutor(GlobalConstants.H2C_MAX_CONNECTIONS * 2);
+	}
+
+
+	/**
+	 * Starts accepting connections on a separate thread.
+	 */
+	public void startAccepting() {
+		ServerSocket serverSocket = getSocket();
+
+		// If the server socket does not exist
+		if (serverSocket == null) {
+			logger.error("[{}] Unable to accept h2c connections as the server socket doesn't exist", getName());
+			return;
+		}
+
+		running = true;
+		new Thread(() -> acceptConnections(serverSocket), getName() + "-H2C-Acceptor").start();
+	}
+
+
+	@Override
+	public void shutdown() throws IOException {
+		// Stop accepting connections and close the server socket
+		running = false;
+		super.shutdown();
+
+		// Stop the threads serving open connections
+		connectionPool.shutdownNow();
+	}
+
+
+	private void acceptConnections(ServerSocket serverSocket) {
+		while (running) {
+			Optional<Socket> optionalConnection;
+
+			try {
+				// Accept a connection from a client
+				optionalConnection = SocketUtils.acceptClientConnection(serverSocket);
+			} catch (RuntimeException re) {
+				// Accepting fails once the server socket is closed on shutdown
+				continue;
+			}
+
+			// If the connection was unable to be established
+			if (optionalConnection.isEmpty()) {
+				continue;
+			}
+
+			openConnection(optionalConnection.get());
+		}
+	}
+
+
+	private void openConnection(Socket client) {
+		// If the connection limit has been reached, turn the connection away
+		if (!connectionSlots.tryAcquire()) {
+			logger.warn("[{}] Closing h2c connection as {} connections are already open", getName(), GlobalConstants.H2C_MAX_CONNECTIONS);
+			close(client);
+			return;
+		}
+
+		try {
+			// Flush small frames straight away
+			client.setTcpNoDelay(true);
+
+			// Read and write the connection on their own threads, freeing its place once both have finished
+			Http2Connection connection = new Http2Connection(client, dispatcher, clock);
+			AtomicInteger remaining = new AtomicInteger(2);
+			connectionPool.execute(() -> runUntilClosed(connection::writeResponses, remaining));
+			connectionPool.execute(() -> runUntilClosed(connection::readFrames, remaining));
+		} catch (IOException | RuntimeException e) {
+			logger.error("Unable to open h2c connection: {}", e.getMessage());
+			connectionSlots.release();
+			close(client);
+		}
+	}
+
+
+	private void runUntilClosed(Runnable task, AtomicInteger remaining) {
+		try {
+			task.run();
+		} finally {
+			// The last of the connection's threads to finish frees its place
+			if (remaining.decrementAndGet() == 0) {
+				connectionSlots.release();
+			}
+		}
+	}
+
+
+	private static void close(Socket client) {
+		try {
+			client.close();
+		} catch (IOException closeException) {
+			logger.error("Unable to close client connection: {}", closeException.getMessage());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package net.ethandankiw.server;
+
+import java.io.ByteArrayOutputStream;
+
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpResponse;
+
+/**
+ * State of a single request and response exchanged over an h2c connection.
+ * Every field is guarded by the lock of the connection that owns the stream.
+ */
+final class Http2Stream {
+
+	private final int id;
+
+	// Request received on the stream, and the body received so far
+	private final HttpRequest request;
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+	// Flag for if the client has finished sending the request
+	private boolean endStreamReceived = false;
+
+	// Flag for if the request was answered without being dispatched, so later data is discarded
+	private boolean rejected = false;
+
+	// Bytes the client may still send on the stream, and bytes that may still be sent to it
+	private int receiveWindow;
+	private long sendWindow;
+
+	// Response to send, once it is ready
+	private HttpResponse response;
+	private byte[] responseBody;
+	private int responseOffset = 0;
+	private boolean headersSent = false;
+
+
+	Http2Stream(int id, HttpRequest request, int receiveWindow, int sendWindow) {
+		this.id = id;
+		this.request = request;
+		this.receiveWindow = receiveWindow;
+		this.sendWindow = sendWindow;
+	}
+
+
+	int getId() {
+		return id;
+	}
+
+
+	HttpRequest getRequest() {
+		return request;
+	}
+
+
+	ByteArrayOutputStream getBody() {
+		return body;
+	}
+
+
+	boolean isEndStreamReceived() {
+		return endStreamReceived;
+	}
+
+
+	void setEndStreamReceived() {
+		endStreamReceived = true;
+	}
+
+
+	boolean isRejected() {
+		return rejected;
+	}
+
+
+	void setRejected() {
+		rejected = true;
+	}
+
+
+	int getReceiveWindow() {
+		return receiveWindow;
+	}
+
+
+	void consumeReceiveWindow(int length) {
+		receiveWindow -= length;
+	}
+
+
+	long getSendWindow() {
+		return sendWindow;
+	}
+
+
+	void updateSendWindow(long delta) {
+		sendWindow += delta;
+	}
+
+
+	boolean hasResponse() {
+		return response != null;
+	}
+
+
+	HttpResponse getResponse() {
+		return response;
+	}
+
+
+	void setResponse(HttpResponse response) {
+		// A rejected request may already have been answered
+		if (this.response != null) {
+			return;
+		}
+
+		this.response = response;
+		this.responseBody = response.getBodyBytes();
+	}
+
+
+	boolean isHeadersSent() {
+		return headersSent;
+	}
+
+
+	void setHeadersSent() {
+		headersSent = true;
+	}
+
+
+	byte[] getResponseBody() {
+		return responseBody;
+	}
+
+
+	int getRemainingBody() {
+		return responseBody.length - responseOffset;
+	}
+
+
+	int getResponseOffset() {
+		return responseOffset;
+	}
+
+
+	void advanceResponse(int length) {
+		responseOffset += length;
+	}
+
+
+	boolean isResponseComplete() {
+		return headersSent && getRemainingBody() == 0;
+	}
+}
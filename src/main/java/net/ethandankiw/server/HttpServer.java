@@ -2,6 +2,8 @@ package net.ethandankiw.server;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import org.jetbrains.annotations.NotNull;
@@ -18,32 +20,57 @@ public class HttpServer {
 	private final String name;
 	private final Integer port;
 
+	// Number of threads accepting connections
+	private final int acceptors;
+
 	private ServerSocket socket;
 
+	// Every socket listening on the port, one for each acceptor when they can share the port
+	private List<ServerSocket> sockets = List.of();
+
 
 	public HttpServer(@NotNull String name, @NotNull Integer port) {
+		this(name, port, 1);
+	}
+
+
+	public HttpServer(@NotNull String name, @NotNull Integer port, int acceptors) {
 		this.name = name;
 		this.port = port;
+		this.acceptors = Math.max(acceptors, 1);
 	}
 
 
 	public void start() {
 		logger.info("[{}] Server starting...", getName());
 
-		// Attempt to create a server socket on the provided port
-		Optional<ServerSocket> serverSocket = SocketUtils.createServerSocket(getPort());
+		// Give each acceptor its own socket if the kernel can spread connections between them
+		boolean reusePort = acceptors > 1 && SocketUtils.supportsReusePort();
+		if (acceptors > 1 && !reusePort) {
+			logger.info("[{}] SO_REUSEPORT is not supported, so {} acceptors share one socket", getName(), acceptors);
+		}
+
+		List<ServerSocket> opened = new ArrayList<>();
+		for (int i = 0; i < (reusePort ? acceptors : 1); i++) {
+			// Attempt to create a server socket on the provided port
+			Optional<ServerSocket> serverSocket = SocketUtils.createServerSocket(getPort(), reusePort);
+
+			// If the attempt was unsuccessful
+			if (serverSocket.isEmpty()) {
+				logger.error("[{}] Unable to start server on port {}", getName(), getPort());
+				opened.forEach(HttpServer::close);
+				return;
+			}
 
-		// If the attempt was unsuccessful
-		if (serverSocket.isEmpty()) {
-			logger.error("[{}] Unable to start server on port {}", getName(), getPort());
-			return;
+			opened.add(serverSocket.get());
 		}
 
 		// If the attempt was successful, log the success
-		logger.info("[{}] Accepting requests on port {}", getName(), getPort());
+		logger.info("[{}] Accepting requests on port {} with {} sockets", getName(), getPort(), opened.size());
 
-		// Store the socket on the http server
-		this.socket = serverSocket.get();
+		// Store the sockets on the http server
+		this.sockets = List.copyOf(opened);
+		this.socket = opened.getFirst();
 	}
 
 
@@ -59,13 +86,43 @@ public class HttpServer {
 	}
 
 
+	public int getAcceptorCount() {
+		return acceptors;
+	}
+
+
 	@Nullable
 	public ServerSocket getSocket() {
 		return socket;
 	}
 
 
+	// Get every socket listening on the port, which is empty before the server starts
+	@NotNull
+	public List<ServerSocket> getSockets() {
+		return sockets;
+	}
+
+
+	protected void setSocket(@NotNull ServerSocket socket) {
+		this.socket = socket;
+		this.sockets = List.of(socket);
+	}
+
+
 	public void shutdown() throws IOException {
 		this.socket.close();
+
+		// Close the sockets of the other acceptors
+		sockets.forEach(HttpServer::close);
+	}
+
+
+	private static void close(ServerSocket serverSocket) {
+		try {
+			serverSocket.close();
+		} catch (IOException ioe) {
+			logger.error("Unable to close server socket: {}", ioe.getMessage());
+		}
 	}
 }
@@ -0,0 +1,10 @@
+package net.ethandankiw.server;
+
+public enum HttpServerMode {
+	// One thread accepts connections and each connection holds a worker thread
+	BLOCKING,
+	// Reactor threads multiplex connections and only dispatch parsed requests
+	NIO,
+	// Each cleartext HTTP/2 connection multiplexes many requests as streams
+	H2C
+}
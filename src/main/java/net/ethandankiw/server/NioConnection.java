@@ -0,0 +1,377 @@
+package net.ethandankiw.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.utils.http.HttpRequestParser;
+import net.ethandankiw.utils.http.HttpResponseEncoder;
+import net.ethandankiw.utils.http.HttpRequestUtils;
+import net.ethandankiw.utils.http.HttpResponseUtils;
+
+/**
+ * State of a single non-blocking client connection. Every method is called
+ * from the reactor thread that owns the connection, so no locking is needed.
+ */
+final class NioConnection {
+
+	private static final Logger logger = LoggerFactory.getLogger(NioConnection.class);
+
+	// Initial size of the buffer that requests are read into
+	private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+	private final SocketChannel channel;
+	private final SelectionKey key;
+	private final RequestDispatcher dispatcher;
+	private final LamportClock clock;
+
+	// Runs tasks on the reactor thread that owns this connection
+	private final Executor reactor;
+
+	// Responses for requests that have been read, in the order they were received
+	private final Deque<CompletableFuture<HttpResponse>> pending = new ArrayDeque<>();
+
+	// Encoded responses waiting to be written to the client
+	private final Deque<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+	// Parses requests directly from the bytes in the read buffer
+	private final HttpRequestParser parser = new HttpRequestParser(GlobalConstants.MAX_REQUEST_SIZE);
+
+	// Bytes received from the client that have not been parsed yet
+	private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+	// Completes once the most recent PUT request has been processed
+	private CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null);
+
+	// Number of requests read over this connection
+	private int served = 0;
+
+	// Flag for if further requests are read from the client
+	private boolean reading = true;
+
+	// Time of the last read or write on the connection
+	private long lastActivity = System.currentTimeMillis();
+
+	// Times the current request started arriving and its body started arriving, or 0 if not yet
+	private long requestStart = 0;
+	private long bodyStart = 0;
+
+	// Time the oldest unwritten response was queued, or 0 if nothing is queued
+	private long writeStart = 0;
+
+
+	NioConnection(SocketChannel channel, SelectionKey key, RequestDispatcher dispatcher, LamportClock clock, Executor reactor) {
+		this.channel = channel;
+		this.key = key;
+		this.dispatcher = dispatcher;
+		this.clock = clock;
+		this.reactor = reactor;
+	}
+
+
+	void onReadable() throws IOException {
+		// Grow the buffer if a large request has filled it
+		if (!readBuffer.hasRemaining()) {
+			growReadBuffer();
+		}
+
+		// Read whatever the client has sent so far
+		int read = channel.read(readBuffer);
+		lastActivity = System.currentTimeMillis();
+
+		// Dispatch every complete request in the buffer
+		parseRequests();
+		trackRequestProgress(lastActivity);
+
+		// If the client has closed its side of the connection
+		if (read == -1) {
+			reading = false;
+			closeIfFinished();
+		}
+
+		updateInterest();
+	}
+
+
+	void onWritable() throws IOException {
+		// Continue writing the queued responses
+		writeResponses();
+		updateInterest();
+	}
+
+
+	void onResponseReady() {
+		// If the connection was closed while the request was processed
+		if (!channel.isOpen()) {
+			return;
+		}
+
+		try {
+			// Encode every response at the head of the queue that has completed
+			while (!pending.isEmpty() && pending.peek()
+												.isDone()) {
+				HttpResponse response = pending.poll()
+											   .join();
+				Collections.addAll(writeQueue, HttpResponseEncoder.encode(response));
+
+				// The write deadline starts when the first unwritten response is queued
+				if (writeStart == 0) {
+					writeStart = System.currentTimeMillis();
+				}
+			}
+
+			// Continue reading if the pipeline had been full
+			parseRequests();
+
+			// Write the responses in request order
+			writeResponses();
+			updateInterest();
+		} catch (IOException ioe) {
+			logger.debug("Unable to write response to client: {}", ioe.getMessage());
+			close();
+		}
+	}
+
+
+	boolean isIdle(long now) {
+		// A connection is idle when nothing is outstanding and no data has arrived
+		return pending.isEmpty() && writeQueue.isEmpty()
+				&& now - lastActivity > GlobalConstants.KEEP_ALIVE_TIMEOUT;
+	}
+
+
+	/**
+	 * Respond with a timeout to requests that have not arrived before their
+	 * deadline, and close the connection if a response has not been written
+	 * before its deadline.
+	 */
+	void expireDeadlines(long now) {
+		// If the client has not accepted the queued responses in time
+		if (writeStart != 0 && now - writeStart > GlobalConstants.WRITE_TIMEOUT) {
+			logger.warn("Closing client connection as the write did not finish in time");
+			ConnectionMetrics.recordTimeout(ConnectionMetrics.Timeout.WRITE);
+			close();
+			return;
+		}
+
+		// If no request is partly received
+		if (!reading || requestStart == 0) {
+			return;
+		}
+
+		// The head and the body each have their own deadline
+		boolean readingBody = bodyStart != 0;
+		long deadline = readingBody ? bodyStart + GlobalConstants.BODY_READ_TIMEOUT
+				: requestStart + GlobalConstants.HEADER_READ_TIMEOUT;
+
+		// If the request has not arrived in time
+		if (now > deadline) {
+			ConnectionMetrics.recordTimeout(readingBody ? ConnectionMetrics.Timeout.BODY_READ : ConnectionMetrics.Timeout.HEADER_READ);
+			reject(HttpStatusCode.REQUEST_TIMEOUT, "Client did not send the request " + (readingBody ? "body" : "head") + " in time");
+		}
+	}
+
+
+	void close() {
+		// Stop selecting on the connection
+		key.cancel();
+
+		try {
+			channel.close();
+		} catch (IOException ioe) {
+			logger.error("Unable to close client connection: {}", ioe.getMessage());
+		}
+	}
+
+
+	private void parseRequests() {
+		// Switch the buffer to reading the bytes that have been received
+		readBuffer.flip();
+
+		try {
+			// Parse requests until the buffer is drained or the pipeline is full
+			while (reading && pending.size() < GlobalConstants.MAX_PIPELINED_REQUESTS) {
+				HttpRequestParser.Status status = parser.parse(readBuffer);
+
+				// If the full request has not arrived yet
+				if (status == HttpRequestParser.Status.INCOMPLETE) {
+					return;
+				}
+
+				// If the request is malformed
+				if (status == HttpRequestParser.Status.INVALID) {
+					reject(parser.getErrorStatus(), parser.getError());
+					return;
+				}
+
+				// Hand the parsed request to a worker
+				dispatch(parser.getRequest());
+			}
+		} finally {
+			// Keep the unparsed bytes for the next read
+			readBuffer.compact();
+		}
+	}
+
+
+	private void dispatch(HttpRequest request) {
+		served += 1;
+
+		// Determine if the connection can be reused after this request
+		boolean keepAlive = HttpRequestUtils.isKeepAliveRequested(request)
+				&& served < GlobalConstants.MAX_REQUESTS_PER_CONNECTION;
+		reading = keepAlive;
+		int count = served;
+
+		// Pipelined GET requests are processed concurrently after the last PUT
+		CompletableFuture<?> dependency = lastWrite;
+
+		// A PUT request waits for every earlier request on this connection
+		if (request.getMethod() != HttpRequestMethod.GET) {
+			dependency = CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new));
+		}
+
+		// Process the request on a worker thread
+		CompletableFuture<HttpResponse> future = dependency.thenCompose(ignored -> dispatcher.dispatch(request))
+														   .exceptionally(e -> {
+															   logger.error("Error handling client request: {}", e.getMessage());
+															   return respond(HttpStatusCode.INTERNAL_SERVER_ERROR, "Error handling client request");
+														   })
+														   .thenApply(response -> HttpResponseUtils.addConnectionHeaders(response, keepAlive, count));
+
+		// Later requests must observe the result of this PUT
+		if (request.getMethod() != HttpRequestMethod.GET) {
+			lastWrite = future;
+		}
+
+		pending.add(future);
+
+		// Write the response from the reactor thread once it is ready
+		future.whenComplete((response, e) -> reactor.execute(this::onResponseReady));
+	}
+
+
+	private void reject(HttpStatusCode status, String message) {
+		logger.error(message);
+
+		// Stop reading as the position of the next request is unknown
+		reading = false;
+		HttpResponse response = respond(status, message);
+		pending.add(CompletableFuture.completedFuture(HttpResponseUtils.addConnectionHeaders(response, false, served)));
+		reactor.execute(this::onResponseReady);
+	}
+
+
+	private HttpResponse respond(HttpStatusCode status, String body) {
+		// Increment clock value as response counts as causal event
+		clock.tick();
+		return HttpResponseUtils.generateResponse(status, body, clock.getClockValue());
+	}
+
+
+	private void writeResponses() throws IOException {
+		// If there is nothing to write
+		if (writeQueue.isEmpty()) {
+			closeIfFinished();
+			return;
+		}
+
+		// Write every queued response in a single gathering write
+		channel.write(writeQueue.toArray(ByteBuffer[]::new));
+		lastActivity = System.currentTimeMillis();
+
+		// Remove the responses that were written completely
+		while (!writeQueue.isEmpty() && !writeQueue.peek()
+												   .hasRemaining()) {
+			writeQueue.poll();
+		}
+
+		// Restart the write deadline once the queue has drained
+		if (writeQueue.isEmpty()) {
+			writeStart = 0;
+		}
+
+		closeIfFinished();
+	}
+
+
+	private void trackRequestProgress(long now) {
+		// If no part of the next request has been received
+		if (readBuffer.position() == 0) {
+			requestStart = 0;
+			bodyStart = 0;
+			return;
+		}
+
+		// Start the head deadline when the first byte of a request arrives
+		if (requestStart == 0) {
+			requestStart = now;
+		}
+
+		// Start the body deadline once the head has been parsed
+		if (bodyStart == 0 && parser.isReadingBody()) {
+			bodyStart = now;
+		}
+	}
+
+
+	private void closeIfFinished() {
+		// Close once no more requests are read and every response is written
+		if (!reading && pending.isEmpty() && writeQueue.isEmpty()) {
+			close();
+		}
+	}
+
+
+	private void updateInterest() {
+		// If the connection has already been closed
+		if (!key.isValid()) {
+			return;
+		}
+
+		int ops = 0;
+
+		// Read while more requests are accepted and the pipeline has room
+		if (reading && pending.size() < GlobalConstants.MAX_PIPELINED_REQUESTS) {
+			ops |= SelectionKey.OP_READ;
+		}
+
+		// Wait for the socket to drain if a response was only partly written
+		if (!writeQueue.isEmpty()) {
+			ops |= SelectionKey.OP_WRITE;
+		}
+
+		key.interestOps(ops);
+	}
+
+
+	private void growReadBuffer() {
+		// Double the buffer, the parser rejects requests above the maximum size
+		int capacity = Math.min(readBuffer.capacity() * 2, GlobalConstants.MAX_REQUEST_SIZE + 1);
+
+		// If the buffer cannot grow any further, leave it to the parser to reject
+		if (capacity == readBuffer.capacity()) {
+			return;
+		}
+
+		ByteBuffer grown = ByteBuffer.allocate(capacity);
+		readBuffer.flip();
+		grown.put(readBuffer);
+		readBuffer = grown;
+	}
+}
@@ -0,0 +1,151 @@
+package net.ethandankiw.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs tasks on an executor shared with other servers, while letting no
+ * more than a quota of this executor's tasks run at once. Tasks beyond the
+ * quota wait in this executor's own queue, so a busy server cannot take
+ * every shared thread, and an idle server holds none.
+ * <p>
+ * Shutting down only stops this executor's tasks, and leaves the shared
+ * executor running for the other servers.
+ */
+public class QuotaExecutor extends AbstractExecutorService {
+
+	// Executor the tasks run on, shared with other servers
+	private final Executor shared;
+
+	// Most tasks handed to the shared executor at once
+	private final int quota;
+
+	// Tasks waiting for a task handed to the shared executor to finish
+	private final Deque<Runnable> waiting = new ArrayDeque<>();
+
+	// Current number of tasks handed to the shared executor
+	private int running = 0;
+
+	// Flag for if new tasks are rejected
+	private boolean shutdown = false;
+
+
+	public QuotaExecutor(Executor shared, int quota) {
+		this.shared = shared;
+		this.quota = Math.max(quota, 1);
+	}
+
+
+	@Override
+	public void execute(@NotNull Runnable task) {
+		synchronized (this) {
+			// If the executor is no longer taking tasks
+			if (shutdown) {
+				throw new RejectedExecutionException("Executor has been shut down");
+			}
+
+			// If the quota is used up, wait for a running task to finish
+			if (running >= quota) {
+				waiting.add(task);
+				return;
+			}
+
+			running += 1;
+		}
+
+		handOff(task);
+	}
+
+
+	private void handOff(Runnable task) {
+		try {
+			shared.execute(() -> {
+				try {
+					task.run();
+				} finally {
+					finished();
+				}
+			});
+		} catch (RejectedExecutionException ree) {
+			// The task will never run, so free its place in the quota
+			finished();
+			throw ree;
+		}
+	}
+
+
+	private void finished() {
+		Runnable next;
+		synchronized (this) {
+			next = waiting.poll();
+
+			// The finished task's place passes straight to the oldest waiting task
+			if (next == null) {
+				running -= 1;
+				notifyAll();
+			}
+		}
+
+		if (next != null) {
+			handOff(next);
+		}
+	}
+
+
+	@Override
+	public synchronized void shutdown() {
+		shutdown = true;
+		notifyAll();
+	}
+
+
+	@NotNull
+	@Override
+	public synchronized List<Runnable> shutdownNow() {
+		shutdown = true;
+
+		// Return the tasks that never started, which the shared executor cannot interrupt
+		List<Runnable> unstarted = new ArrayList<>(waiting);
+		waiting.clear();
+		notifyAll();
+		return unstarted;
+	}
+
+
+	@Override
+	public synchronized boolean isShutdown() {
+		return shutdown;
+	}
+
+
+	@Override
+	public synchronized boolean isTerminated() {
+		return shutdown && running == 0 && waiting.isEmpty();
+	}
+
+
+	@Override
+	public synchronized boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		// Wait for every task to finish until the deadline passes
+		while (!isTerminated()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,21 @@
+package net.ethandankiw.server;
+
+import java.util.concurrent.CompletableFuture;
+
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpResponse;
+
+@FunctionalInterface
+public interface RequestDispatcher {
+
+	/**
+	 * Hands a fully parsed client request to a worker for processing.
+	 * <p>
+	 * Implementations must not block the calling thread, as it is shared by
+	 * many open connections.
+	 *
+	 * @param request the parsed client request
+	 * @return a future that completes with the response to send to the client
+	 */
+	CompletableFuture<HttpResponse> dispatch(HttpRequest request);
+}
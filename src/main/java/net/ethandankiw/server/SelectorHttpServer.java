@@ -0,0 +1,286 @@
+package net.ethandankiw.server;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.utils.SocketUtils;
+
+/**
+ * HTTP server that multiplexes client connections over a small number of
+ * reactor threads. Reading and writing is non-blocking, and only fully parsed
+ * requests are handed to the request dispatcher.
+ */
+public class SelectorHttpServer extends HttpServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(SelectorHttpServer.class);
+
+	// How often each reactor checks for idle connections
+	private static final long IDLE_CHECK_INTERVAL = 1000; // milliseconds
+
+	private final RequestDispatcher dispatcher;
+	private final LamportClock clock;
+	private final Integer reactorCount;
+
+	// Reactor threads that own the client connections
+	private final List<Reactor> reactors = new ArrayList<>();
+
+	// Index of the reactor that is given the next accepted connection
+	private final AtomicInteger nextReactor = new AtomicInteger(0);
+
+	private ServerSocketChannel channel;
+
+	// Flag for if the reactors should keep running
+	private volatile boolean running = false;
+
+
+	public SelectorHttpServer(@NotNull String name, @NotNull Integer port, @NotNull Integer reactorCount, @NotNull LamportClock clock, @NotNull RequestDispatcher dispatcher) {
+		super(name, port);
+		this.reactorCount = Math.max(1, reactorCount);
+		this.clock = clock;
+		this.dispatcher = dispatcher;
+	}
+
+
+	@Override
+	public void start() {
+		logger.info("[{}] Server starting...", getName());
+
+		// Attempt to create a non-blocking server socket channel on the provided port
+		Optional<ServerSocketChannel> serverChannel = SocketUtils.createServerSocketChannel(getPort());
+
+		// If the attempt was unsuccessful
+		if (serverChannel.isEmpty()) {
+			logger.error("[{}] Unable to start server on port {}", getName(), getPort());
+			return;
+		}
+
+		// If the attempt was successful, log the success
+		logger.info("[{}] Accepting requests on port {} with {} reactor threads", getName(), getPort(), reactorCount);
+
+		// Store the channel and its socket on the http server
+		this.channel = serverChannel.get();
+		setSocket(channel.socket());
+	}
+
+
+	/**
+	 * Starts the reactor threads. The first reactor also accepts new
+	 * connections and spreads them across every reactor.
+	 */
+	public void startReactors() {
+		// If the server channel does not exist
+		if (channel == null) {
+			logger.error("[{}] Unable to start reactors as the server channel doesn't exist", getName());
+			return;
+		}
+
+		running = true;
+
+		try {
+			// Create a selector for each reactor thread
+			for (int i = 0; i < reactorCount; i++) {
+				reactors.add(new Reactor(Selector.open()));
+			}
+
+			// Accept connections on the first reactor
+			channel.register(reactors.getFirst().selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException ioe) {
+			logger.error("[{}] Unable to open reactor selectors: {}", getName(), ioe.getMessage());
+			return;
+		}
+
+		// Start every reactor on its own thread
+		for (int i = 0; i < reactors.size(); i++) {
+			new Thread(reactors.get(i), getName() + "-Reactor-" + i).start();
+		}
+	}
+
+
+	@Override
+	public void shutdown() throws IOException {
+		// Stop the reactor loops
+		running = false;
+		reactors.forEach(reactor -> reactor.selector.wakeup());
+
+		// Close the server socket
+		super.shutdown();
+	}
+
+
+	private void accept() {
+		try {
+			// Accept every pending connection
+			SocketChannel client;
+			while ((client = channel.accept()) != null) {
+				logger.info("Client connected: {}", client.getRemoteAddress());
+
+				// Configure the connection for non-blocking use
+				client.configureBlocking(false);
+				client.setOption(StandardSocketOptions.TCP_NODELAY, GlobalConstants.TCP_NO_DELAY);
+				if (GlobalConstants.SOCKET_SEND_BUFFER > 0) {
+					client.setOption(StandardSocketOptions.SO_SNDBUF, GlobalConstants.SOCKET_SEND_BUFFER);
+				}
+
+				// Hand the connection to the next reactor
+				int index = Math.floorMod(nextReactor.getAndIncrement(), reactors.size());
+				reactors.get(index)
+						.register(client);
+			}
+		} catch (IOException ioe) {
+			logger.warn("Unable to accept client connection: {}", ioe.getMessage());
+		}
+	}
+
+
+	private final class Reactor implements Runnable, Executor {
+
+		private final Selector selector;
+
+		// Tasks submitted by other threads to run on this reactor
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+
+		private Reactor(Selector selector) {
+			this.selector = selector;
+		}
+
+
+		@Override
+		public void execute(@NotNull Runnable task) {
+			// Queue the task and wake the reactor to run it
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+
+		private void register(SocketChannel client) {
+			execute(() -> {
+				try {
+					// Start reading requests from the new connection
+					SelectionKey key = client.register(selector, SelectionKey.OP_READ);
+					key.attach(new NioConnection(client, key, dispatcher, clock, this));
+				} catch (IOException ioe) {
+					logger.error("Unable to register client connection: {}", ioe.getMessage());
+				}
+			});
+		}
+
+
+		@Override
+		public void run() {
+			long lastIdleCheck = System.currentTimeMillis();
+
+			while (running) {
+				try {
+					// Wait for connections to become ready
+					selector.select(IDLE_CHECK_INTERVAL);
+
+					// Run the tasks submitted by worker threads
+					Runnable task;
+					while ((task = tasks.poll()) != null) {
+						task.run();
+					}
+
+					// Handle every connection that is ready
+					Iterator<SelectionKey> keys = selector.selectedKeys()
+														  .iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						handleKey(key);
+					}
+
+					// Close connections that have been idle or slow for too long
+					long now = System.currentTimeMillis();
+					if (now - lastIdleCheck >= IDLE_CHECK_INTERVAL) {
+						lastIdleCheck = now;
+						closeIdleConnections(now);
+					}
+				} catch (IOException ioe) {
+					logger.error("Error occurred in reactor loop: {}", ioe.getMessage());
+				}
+			}
+
+			// Close every connection owned by this reactor
+			selector.keys()
+					.forEach(key -> {
+						if (key.attachment() instanceof NioConnection connection) {
+							connection.close();
+						}
+					});
+
+			try {
+				selector.close();
+			} catch (IOException ioe) {
+				logger.error("Unable to close reactor selector: {}", ioe.getMessage());
+			}
+		}
+
+
+		private void handleKey(SelectionKey key) {
+			// If the key was cancelled by an earlier event
+			if (!key.isValid()) {
+				return;
+			}
+
+			// If a new client is connecting
+			if (key.isAcceptable()) {
+				accept();
+				return;
+			}
+
+			NioConnection connection = (NioConnection) key.attachment();
+
+			try {
+				// Write before reading so responses drain before new requests arrive
+				if (key.isWritable()) {
+					connection.onWritable();
+				}
+
+				if (key.isValid() && key.isReadable()) {
+					connection.onReadable();
+				}
+			} catch (IOException ioe) {
+				logger.debug("Closing client connection after I/O error: {}", ioe.getMessage());
+				connection.close();
+			}
+		}
+
+
+		private void closeIdleConnections(long now) {
+			for (SelectionKey key : selector.keys()) {
+				// If the key does not belong to a client connection
+				if (!(key.attachment() instanceof NioConnection connection)) {
+					continue;
+				}
+
+				// Time out requests and responses that are taking too long
+				connection.expireDeadlines(now);
+
+				// If the connection has had no requests within the keep-alive timeout
+				if (key.isValid() && connection.isIdle(now)) {
+					logger.debug("Closing idle client connection");
+					connection.close();
+				}
+			}
+		}
+	}
+}
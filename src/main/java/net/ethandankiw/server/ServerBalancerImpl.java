@@ -1,5 +1,7 @@
 package net.ethandankiw.server;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 import org.slf4j.Logger;
@@ -7,122 +9,183 @@ import org.slf4j.LoggerFactory;
 
 import net.ethandankiw.GlobalConstants;
 import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.data.server.ServerLoad;
 import net.ethandankiw.data.server.ServerPool;
 
+/**
+ * Scales the server pool to the load it is predicted to have. Each sample
+ * combines the load of every server with the request rate and service time,
+ * as by Little's law the requests being served are the rate multiplied by
+ * the service time, plus the tasks still queued for a thread. Each signal is
+ * smoothed by a fast and a slow moving average, so servers are added as soon
+ * as the fast average rises, but only removed once both averages have
+ * fallen.
+ * <p>
+ * When the predicted load leaves the band between the removal and creation
+ * thresholds, the pool is sized for the target load in a single step, and
+ * then left alone for a cooldown so the new servers can take their share.
+ */
 public class ServerBalancerImpl implements ServerBalancer {
 
 	// Get the logger for this class
 	private static final Logger logger = LoggerFactory.getLogger(ServerBalancerImpl.class);
-	// Count the number of time the balancer has detected high server load
-	private static final Integer HIGH_LOAD_COUNT_THRESHOLD = 5;
-	// Count the number of time the balancer has detected low server load
-	private static final Integer LOW_LOAD_COUNT_THRESHOLD = 3;
+	// Weight of each new sample in the fast and slow moving averages
+	private static final double FAST_WEIGHT = 0.5;
+	private static final double SLOW_WEIGHT = 0.1;
 	// Store the server pool
 	private final ServerPool serverPool;
-	private Integer highLoadCount = 0;
-	private Integer lowLoadCount = 0;
+	// Moving averages of the summed server load, the request rate per second, the service time in seconds, and the queued tasks
+	private final Average load = new Average();
+	private final Average requestRate = new Average();
+	private final Average latency = new Average();
+	private final Average queued = new Average();
+	// Requests each server had handled at the last sample, to measure the request rate
+	private final Map<String, Long> handledRequests = new HashMap<>();
+	// Time of the last sample, and of the last change to the number of servers
+	private long lastSample;
+	private long lastScaled;
+	// Number of servers after the last change
+	private int lastServerCount;
 
 
 	public ServerBalancerImpl(ServerPool serverPool) {
 		this.serverPool = serverPool;
+		this.lastSample = System.nanoTime();
+		this.lastScaled = lastSample;
+		this.lastServerCount = serverPool.getServerCount();
 	}
 
 
 	public void balanceServers() {
 		try {
-			// Print the stats for each server
-			serverPool.printStats();
+			// Sample the servers and update the moving averages
+			sample();
 
-			// Compute the average server load for every active server
-			double averageLoad = serverPool.calculateAverageServerLoad();
+			// Predict the load, reacting quickly to a rise but slowly to a fall
+			double risingDemand = getDemand(true);
+			double fallingDemand = Math.max(risingDemand, getDemand(false));
 
-			// Log the average load for all servers
-			String loadPercentage = String.format("%.2f", averageLoad * 100);
-			logger.info("Average server load across {} servers: {}%", serverPool.getServerCount(), loadPercentage);
+			int serverCount = serverPool.getServerCount();
+
+			// A change made elsewhere, such as a standby server promoted for a burst, also starts the cooldown
+			if (serverCount != lastServerCount) {
+				lastScaled = System.nanoTime();
+				lastServerCount = serverCount;
+			}
+
+			logger.debug("Predicted demand of {} servers across {} servers", String.format("%.2f", risingDemand), serverCount);
 
 			// Handle the server balancing
-			handleServerBalance(averageLoad);
+			handleServerBalance(serverCount, risingDemand, fallingDemand);
 		} catch (Exception e) {
 			logger.error("Error while balancing server count", e);
 		}
 	}
 
 
-	private void handleServerBalance(Double serverLoad) {
-		// Define strings for the thresholds
-		String creationThreshold = String.format("%.2f",
-				GlobalConstants.SERVER_CREATION_THRESHOLD * 100);
-		String removalThreshold = String.format("%.2f",
-				GlobalConstants.SERVER_REMOVAL_THRESHOLD * 100);
-
-		// If the server load is getting high
-		if (serverLoad > GlobalConstants.SERVER_CREATION_THRESHOLD) {
-			logger.info("Attempting to create a new server as load is above threshold: {}%", creationThreshold);
-			handleHighLoad();
-
-			// Count the high load detected
-			highLoadCount += 1;
-			lowLoadCount = 0;
+	private void sample() {
+		long now = System.nanoTime();
+		double elapsed = (now - lastSample) / 1_000_000_000.0;
+		lastSample = now;
 
-			// Check if the high count has reached its threshold
-			if (highLoadCount >= HIGH_LOAD_COUNT_THRESHOLD) {
-				// Calculate the load factor
-				int loadFactor = highLoadCount - HIGH_LOAD_COUNT_THRESHOLD + 1;
+		double loadSum = 0;
+		long handled = 0;
+		double latencySum = 0;
+		int latencyCount = 0;
+		int queuedSum = 0;
+		Map<String, Long> seen = new HashMap<>();
 
-				// Calculate the new scheduling delay
-				int period = BalancingScheduler.getDelayPeriod();
-				int updatedPeriod = period * (int) Math.pow(loadFactor, 0.9);
+		for (AggregationServer server : serverPool.getAllServers()) {
+			ServerLoad serverLoad = server.getServerLoad();
 
-				// Ensure the new delay does not fall below a threshold
-				updatedPeriod = Math.clamp(updatedPeriod, 5, 180);
+			// Each server's load is the share of its capacity in use
+			loadSum += serverLoad.getUtilization();
+			queuedSum += serverLoad.queued();
 
-				// If the updated period is the same as the old one
-				logger.debug("{} high loads were detected in a row", highLoadCount);
-				if (period != updatedPeriod) {
-					logger.debug("Attempting to change scheduling period from {}s to {}s", period, updatedPeriod);
-				}
+			// Count the requests handled since the last sample, including by servers added since
+			long count = server.getHandledRequestsCount();
+			handled += count - handledRequests.getOrDefault(server.getUUID(), 0L);
+			seen.put(server.getUUID(), count);
 
-				// Update the delay and restart the scheduler
-				BalancingScheduler.setDelayPeriod(updatedPeriod);
+			// Only servers that have handled a request have a service time
+			if (serverLoad.serviceTime() > 0) {
+				latencySum += serverLoad.serviceTime() / 1_000_000_000.0;
+				latencyCount += 1;
 			}
 		}
 
-		// If the server load is dropping too low
-		else if (serverLoad < GlobalConstants.SERVER_REMOVAL_THRESHOLD) {
-			logger.info("Attempting to remove a server as load is below threshold: {}%", removalThreshold);
-			handleLowLoad();
+		// Forget servers that have been removed
+		handledRequests.clear();
+		handledRequests.putAll(seen);
 
-			// Count the low load detected
-			lowLoadCount += 1;
-			highLoadCount = 0;
+		load.update(loadSum);
+		requestRate.update(elapsed > 0 ? handled / elapsed : 0);
+		latency.update(latencyCount > 0 ? latencySum / latencyCount : 0);
+		queued.update(queuedSum);
+	}
 
-			// Check if the low count has reached its threshold
-			if (lowLoadCount >= LOW_LOAD_COUNT_THRESHOLD) {
-				// Calculate the load factor
-				int loadFactor = lowLoadCount - LOW_LOAD_COUNT_THRESHOLD + 1;
 
-				// Calculate the new scheduling delay
-				int period = BalancingScheduler.getDelayPeriod();
-				int updatedPeriod = period * (int) Math.pow(loadFactor, 1.1);
+	/**
+	 * Get the predicted demand in servers, which is the larger of the summed
+	 * server load and the servers needed for the requests being served and
+	 * queued.
+	 *
+	 * @param fast whether to use the fast moving averages
+	 */
+	private double getDemand(boolean fast) {
+		double inFlight = requestRate.get(fast) * latency.get(fast) + queued.get(fast);
+		return Math.max(load.get(fast), inFlight / GlobalConstants.MAX_IN_FLIGHT_REQUESTS);
+	}
 
-				// Ensure the new delay does not fall below a threshold
-				updatedPeriod = Math.clamp(updatedPeriod, 5, 180);
 
-				// If the updated period is the same as the old one
-				logger.debug("{} low loads were detected in a row", lowLoadCount);
-				if (period != updatedPeriod) {
-					logger.debug("Attempting to change scheduling period from {}s to {}s", period, updatedPeriod);
-				}
+	private void handleServerBalance(int serverCount, double risingDemand, double fallingDemand) {
+		long sinceScaled = (System.nanoTime() - lastScaled) / 1_000_000;
+		double demand;
 
-				// Update the delay and restart the scheduler
-				BalancingScheduler.setDelayPeriod(updatedPeriod);
-			}
+		// If the servers are predicted to be overloaded, once the last change has taken effect
+		if (risingDemand / serverCount > GlobalConstants.SERVER_CREATION_THRESHOLD && sinceScaled >= GlobalConstants.SCALE_OUT_COOLDOWN) {
+			demand = risingDemand;
 		}
 
-		// If the server load is within the defined range
+		// If the servers are predicted to be underused, waiting longer so a brief lull does not undo a scale out
+		else if (fallingDemand / serverCount < GlobalConstants.SERVER_REMOVAL_THRESHOLD && sinceScaled >= GlobalConstants.SCALE_IN_COOLDOWN) {
+			demand = fallingDemand;
+		}
+
+		// If the predicted load is within the defined range, or the servers have only just changed
 		else {
-			logger.info("Server load is within thresholds ({} - {}), no action taken", removalThreshold, creationThreshold);
+			return;
+		}
+
+		int target = getTargetServerCount(demand);
+
+		// If the number of servers is already at its limit
+		if (target == serverCount) {
+			return;
+		}
+
+		logger.info("Scaling from {} to {} servers for a predicted demand of {} servers", serverCount, target, String.format("%.2f", demand));
+
+		// Move to the target in a single step
+		for (int i = serverCount; i < target; i++) {
+			handleHighLoad();
+		}
+
+		for (int i = serverCount; i > target; i--) {
+			handleLowLoad();
 		}
+
+		// Start the cooldown, and log the servers after the change
+		lastScaled = System.nanoTime();
+		lastServerCount = serverPool.getServerCount();
+		serverPool.printStats();
+	}
+
+
+	private static int getTargetServerCount(double demand) {
+		// Size the pool so each server runs at the target load
+		int target = (int) Math.ceil(demand / GlobalConstants.TARGET_SERVER_LOAD);
+		return Math.max(GlobalConstants.MIN_SERVERS, Math.min(target, GlobalConstants.MAX_SERVERS));
 	}
 
 
@@ -190,4 +253,25 @@ public class ServerBalancerImpl implements ServerBalancer {
 			}
 		}, "GracefulServerShutdownThread").start();
 	}
+
+
+	/**
+	 * A fast and a slow exponentially weighted moving average of a signal.
+	 */
+	private static final class Average {
+
+		private double fast = 0;
+		private double slow = 0;
+
+
+		private void update(double sample) {
+			fast += (sample - fast) * FAST_WEIGHT;
+			slow += (sample - slow) * SLOW_WEIGHT;
+		}
+
+
+		private double get(boolean useFast) {
+			return useFast ? fast : slow;
+		}
+	}
 }
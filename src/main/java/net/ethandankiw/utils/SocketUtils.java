@@ -1,21 +1,37 @@
 package net.ethandankiw.utils;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.server.ConnectionMetrics;
+
 public class SocketUtils {
 
 	public static final Logger logger = LoggerFactory.getLogger(SocketUtils.class);
 
+	// Closes sockets whose writes have not finished before their deadline
+	private static final ScheduledExecutorService writeDeadlines = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "WriteDeadlines");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 
 	private SocketUtils() {
 	}
@@ -23,15 +39,77 @@ public class SocketUtils {
 
 	// Create a Server Socket on a port
 	public static Optional<ServerSocket> createServerSocket(Integer port) {
+		return createServerSocket(port, false);
+	}
+
+
+	/**
+	 * Create a Server Socket on a port, with the configured backlog and
+	 * receive buffer.
+	 *
+	 * @param port the port to listen on
+	 * @param reusePort whether other sockets may bind the same port, so the
+	 * kernel spreads new connections between them
+	 * @return the bound socket, or empty if it could not be bound
+	 */
+	public static Optional<ServerSocket> createServerSocket(Integer port, boolean reusePort) {
+		ServerSocket server = null;
+
 		try {
 			// Attempt to create a server socket
-			ServerSocket server = new ServerSocket(port);
+			server = new ServerSocket();
+
+			// Share the port with the sockets of the other acceptors
+			if (reusePort) {
+				server.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+			}
+
+			// Accepted connections inherit the receive buffer, which must be set before binding
+			if (GlobalConstants.SOCKET_RECEIVE_BUFFER > 0) {
+				server.setReceiveBufferSize(GlobalConstants.SOCKET_RECEIVE_BUFFER);
+			}
+
+			server.bind(new InetSocketAddress(port), GlobalConstants.ACCEPT_BACKLOG);
 
 			// Return the socket
 			return Optional.of(server);
 		} catch (IOException ioe) {
 			// Log a severe error since the server cannot be created
 			logger.error("Unable to create server socket: {}", ioe.getMessage());
+
+			// Release the socket if it was created but could not be bound
+			closeQuietly(server);
+		}
+
+		// Default to no server
+		return Optional.empty();
+	}
+
+
+	// Create a non-blocking Server Socket Channel on a port
+	public static Optional<ServerSocketChannel> createServerSocketChannel(Integer port) {
+		ServerSocketChannel server = null;
+
+		try {
+			// Attempt to open and bind a server socket channel
+			server = ServerSocketChannel.open();
+
+			// Accepted connections inherit the receive buffer, which must be set before binding
+			if (GlobalConstants.SOCKET_RECEIVE_BUFFER > 0) {
+				server.setOption(StandardSocketOptions.SO_RCVBUF, GlobalConstants.SOCKET_RECEIVE_BUFFER);
+			}
+
+			server.bind(new InetSocketAddress(port), GlobalConstants.ACCEPT_BACKLOG);
+			server.configureBlocking(false);
+
+			// Return the channel
+			return Optional.of(server);
+		} catch (IOException ioe) {
+			// Log a severe error since the server cannot be created
+			logger.error("Unable to create server socket channel: {}", ioe.getMessage());
+
+			// Release the channel if it was opened but could not be bound
+			closeQuietly(server);
 		}
 
 		// Default to no server
@@ -41,20 +119,70 @@ public class SocketUtils {
 
 	// Accept a client connection to a server
 	public static Optional<Socket> acceptClientConnection(ServerSocket server) {
+		Socket client;
+
 		// Accept a connection from the server
 		try {
-			Socket client = server.accept();
+			client = server.accept();
 			logger.info("Client connected: {}", client.getInetAddress());
-
-			return Optional.of(client);
 		} catch (IOException ioe) {
 			// Log a warning since the client connection isn't as important
 			logger.warn("Unable to make a connection to the client: {}", ioe.getMessage());
 			throw new RuntimeException(ioe);
 		}
 
-		// Default to no client connection
-//		return Optional.empty();
+		// Apply the configured options to the connection
+		try {
+			client.setTcpNoDelay(GlobalConstants.TCP_NO_DELAY);
+			if (GlobalConstants.SOCKET_SEND_BUFFER > 0) {
+				client.setSendBufferSize(GlobalConstants.SOCKET_SEND_BUFFER);
+			}
+		} catch (IOException ioe) {
+			// The client reset the connection straight away, so only this connection is lost
+			logger.warn("Unable to configure the client connection: {}", ioe.getMessage());
+			closeSocket(client);
+			return Optional.empty();
+		}
+
+		return Optional.of(client);
+	}
+
+
+	/**
+	 * Wait before accepting again after accepting failed, so a failure that
+	 * lasts, such as running out of file descriptors, does not turn the
+	 * acceptor into a busy loop. The wait doubles with each failure in a row.
+	 *
+	 * @param failures the number of accepts in a row that have failed
+	 * @return a boolean for if the wait finished, rather than being
+	 * interrupted
+	 */
+	public static boolean backOffAccept(int failures) {
+		long delay = Math.min((long) GlobalConstants.ACCEPT_RETRY_DELAY << Math.min(Math.max(failures - 1, 0), 16),
+				GlobalConstants.ACCEPT_RETRY_MAX_DELAY);
+
+		try {
+			Thread.sleep(delay);
+			return true;
+		} catch (InterruptedException ie) {
+			Thread.currentThread()
+				  .interrupt();
+			return false;
+		}
+	}
+
+
+	/**
+	 * Check if server sockets can share a port with SO_REUSEPORT on this
+	 * platform.
+	 */
+	public static boolean supportsReusePort() {
+		try (ServerSocket probe = new ServerSocket()) {
+			return probe.supportedOptions()
+						.contains(StandardSocketOptions.SO_REUSEPORT);
+		} catch (IOException ioe) {
+			return false;
+		}
 	}
 
 
@@ -86,12 +214,24 @@ public class SocketUtils {
 	 * @return true if write was successful, false otherwise.
 	 */
 	public static boolean writeToSocket(Socket socket, String message) {
+		// Send the message exactly as given, without a trailing line break
+		return writeToSocket(socket, message.getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Writes an encoded message to a socket in a single write.
+	 *
+	 * @param socket The socket to write to.
+	 * @param message The bytes to send.
+	 * @return true if write was successful, false otherwise.
+	 */
+	public static boolean writeToSocket(Socket socket, byte[] message) {
 		try {
-			PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
+			OutputStream stream = socket.getOutputStream();
 
-			writer.println(message);
-			writer.flush();
-//			logger.info("Message sent to {}:\n\n{}", socket.getInetAddress(), message);
+			stream.write(message);
+			stream.flush();
 			return true;
 		} catch (IOException e) {
 			logger.error("Failed to write to socket {}. Error: {}", socket.getInetAddress(), e.getMessage());
@@ -101,34 +241,53 @@ public class SocketUtils {
 
 
 	/**
-	 * Reads all available text from a socket until the end of the stream is
-	 * reached.
+	 * Writes an encoded message to a socket, closing the socket if the peer
+	 * has not accepted all of it before the deadline. Blocking writes ignore
+	 * the socket read timeout, so closing the socket is the only way to stop
+	 * a client that never reads from holding the writing thread.
 	 *
-	 * @param socket The socket to read from.
-	 * @return An Optional containing the entire read string if successful,
-	 * otherwise an empty Optional.
+	 * @param socket The socket to write to.
+	 * @param message The bytes to send.
+	 * @param timeout How long the write may take, in milliseconds.
+	 * @return true if write was successful, false otherwise.
 	 */
-	public static Optional<String> readFromSocket(Socket socket) {
-		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+	public static boolean writeToSocket(Socket socket, byte[] message, int timeout) {
+		// Close the socket if the write is still blocked at the deadline
+		ScheduledFuture<?> deadline = writeDeadlines.schedule(() -> {
+			logger.warn("Closing socket {} as the write did not finish in time", socket.getInetAddress());
+			ConnectionMetrics.recordTimeout(ConnectionMetrics.Timeout.WRITE);
+			closeSocket(socket);
+		}, timeout, TimeUnit.MILLISECONDS);
 
-			StringBuilder fullMessage = new StringBuilder();
-			String line;
+		try {
+			return writeToSocket(socket, message);
+		} finally {
+			// The write has finished, so the socket no longer needs to be closed
+			deadline.cancel(false);
+		}
+	}
 
-			while ((line = reader.readLine()) != null) {
-				fullMessage.append(line)
-						   .append("\n");
-			}
 
-			if (!fullMessage.isEmpty()) {
-//				logger.info("Message received from {}:\n\n{}", socket.getInetAddress(), fullMessage);
-				return Optional.of(fullMessage.toString());
-			}
+	// Close a listening socket or channel that may not have been created, logging rather than throwing if it fails
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable == null) {
+			return;
+		}
 
-		} catch (IOException e) {
-			logger.error("Failed to read from socket {}. Error: {}", socket.getInetAddress(), e.getMessage());
+		try {
+			closeable.close();
+		} catch (IOException ioe) {
+			logger.error("Unable to close server socket: {}", ioe.getMessage());
 		}
+	}
 
-		return Optional.empty();
+
+	// Close a socket, logging rather than throwing if it fails
+	public static void closeSocket(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ioe) {
+			logger.error("Unable to close socket: {}", ioe.getMessage());
+		}
 	}
 }
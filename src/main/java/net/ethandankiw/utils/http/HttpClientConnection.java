@@ -0,0 +1,202 @@
+package net.ethandankiw.utils.http;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.utils.SocketUtils;
+
+/**
+ * A persistent client connection to a server. Connections are kept in a pool
+ * for each host and port once a response has been read in full, so later
+ * requests skip the TCP handshake.
+ */
+public class HttpClientConnection {
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpClientConnection.class);
+
+	// How long to wait when checking if an idle connection was closed by the server
+	private static final int STALE_CHECK_TIMEOUT = 1; // milliseconds
+
+	// Idle connections for each server, keyed by host and port
+	private static final Map<String, Deque<HttpClientConnection>> idleConnections = new ConcurrentHashMap<>();
+
+	private final Socket socket;
+	private final HttpResponseReader reader;
+
+
+	private HttpClientConnection(Socket socket, HttpResponseReader reader) {
+		this.socket = socket;
+		this.reader = reader;
+	}
+
+
+	/**
+	 * Send a request to a server and read its response, reusing an idle
+	 * connection to the server if one is available.
+	 *
+	 * @param timeout how long to wait for the response, in milliseconds
+	 * @return the response, or empty if the server could not be reached or
+	 * did not respond in time
+	 */
+	public static Optional<HttpResponse> send(@NotNull String host, int port, @NotNull HttpRequest request, int timeout) {
+		String key = host + ":" + port;
+
+		// Reuse an idle connection, or open a new one
+		Optional<HttpClientConnection> optionalConnection = acquire(key).or(() -> open(host, port));
+
+		// If the server cannot be reached
+		if (optionalConnection.isEmpty()) {
+			return Optional.empty();
+		}
+
+		HttpClientConnection connection = optionalConnection.get();
+
+		// Make the request over the connection
+		Optional<HttpResponse> response = connection.exchange(request, timeout);
+
+		// Keep the connection for the next request if the server left it open
+		if (response.isPresent() && connection.reader.isReusable()) {
+			release(key, connection);
+		} else {
+			connection.close();
+		}
+
+		return response;
+	}
+
+
+	/**
+	 * Close every idle connection.
+	 */
+	public static void closeAll() {
+		idleConnections.values()
+					   .forEach(connections -> {
+						   HttpClientConnection connection;
+						   while ((connection = connections.poll()) != null) {
+							   connection.close();
+						   }
+					   });
+	}
+
+
+	private static Optional<HttpClientConnection> acquire(String key) {
+		Deque<HttpClientConnection> connections = idleConnections.get(key);
+
+		// If no connections have been kept for the server
+		if (connections == null) {
+			return Optional.empty();
+		}
+
+		// Take the most recently used connection that is still open
+		HttpClientConnection connection;
+		while ((connection = connections.pollFirst()) != null) {
+			if (!connection.isStale()) {
+				logger.debug("Reusing connection to {}", key);
+				return Optional.of(connection);
+			}
+
+			connection.close();
+		}
+
+		return Optional.empty();
+	}
+
+
+	private static Optional<HttpClientConnection> open(String host, int port) {
+		// Open a socket connection to the server
+		Optional<Socket> optionalSocket = SocketUtils.createClientSocket(host, port);
+
+		// If the connection doesn't exist
+		if (optionalSocket.isEmpty()) {
+			return Optional.empty();
+		}
+
+		Socket socket = optionalSocket.get();
+
+		try {
+			// Keep a single reader so buffered bytes are not lost between responses
+			return Optional.of(new HttpClientConnection(socket, new HttpResponseReader(socket.getInputStream())));
+		} catch (IOException ioe) {
+			logger.error("Unable to get input stream for server: {}", ioe.getMessage());
+			closeSocket(socket);
+		}
+
+		return Optional.empty();
+	}
+
+
+	private static void release(String key, HttpClientConnection connection) {
+		Deque<HttpClientConnection> connections = idleConnections.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+
+		// Only keep a few idle connections for each server
+		if (connections.size() >= GlobalConstants.MAX_IDLE_CONNECTIONS) {
+			connection.close();
+			return;
+		}
+
+		connections.offerFirst(connection);
+	}
+
+
+	private Optional<HttpResponse> exchange(HttpRequest request, int timeout) {
+		try {
+			// Define the response timeout on the socket
+			socket.setSoTimeout(timeout);
+		} catch (SocketException se) {
+			logger.error("Unable to set timeout on connection: {}", se.getMessage());
+			return Optional.empty();
+		}
+
+		// Make the request by writing to the client -> server socket
+		boolean success = SocketUtils.writeToSocket(socket, request.toString()
+																 .getBytes(StandardCharsets.UTF_8));
+
+		// If the request was not successful
+		if (!success) {
+			logger.error("Request to server {} was unsuccessful", socket.getInetAddress());
+			return Optional.empty();
+		}
+
+		// Read exactly one response from the server
+		return reader.readResponse();
+	}
+
+
+	private boolean isStale() {
+		try {
+			// Only wait briefly, as an open connection has nothing to read
+			socket.setSoTimeout(STALE_CHECK_TIMEOUT);
+			return socket.isClosed() || reader.isClosedByServer();
+		} catch (SocketException se) {
+			return true;
+		}
+	}
+
+
+	private void close() {
+		closeSocket(socket);
+	}
+
+
+	private static void closeSocket(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ioe) {
+			logger.error("Unable to close connection to the server: {}", ioe.getMessage());
+		}
+	}
+}
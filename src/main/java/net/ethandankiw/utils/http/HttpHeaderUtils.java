@@ -1,40 +1,37 @@
 package net.ethandankiw.utils.http;
 
-import java.util.AbstractMap;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 
+import net.ethandankiw.data.http.HttpHeaders;
+
 public class HttpHeaderUtils {
 
 	private HttpHeaderUtils() {
 	}
 
 
-	public static Optional<Map<String, String>> parseHeaders(String allHeaders) {
+	public static Optional<HttpHeaders> parseHeaders(String allHeaders) {
 		// If there are no headers to parse
 		if (allHeaders.isBlank()) {
 			return Optional.empty();
 		}
 
-		// Define the map of header key values paris
-		Map<String, String> headers = new HashMap<>();
-
-		// Split the headers
-		String[] splitHeaders = allHeaders.split("\r\n");
+		// Define the headers being parsed
+		HttpHeaders headers = new HttpHeaders();
 
-		// Parse all the headers
-		for (String header : splitHeaders) {
-			// If the header line is empty
-			if (header.isBlank()) {
-				continue;
+		// Parse each line, allowing for lines that end without a carriage return
+		int lineStart = 0;
+		while (lineStart < allHeaders.length()) {
+			// Find the end of the line
+			int lineEnd = allHeaders.indexOf('\n', lineStart);
+			if (lineEnd < 0) {
+				lineEnd = allHeaders.length();
 			}
 
-			// Parse the header line
-			Map.Entry<String, String> keyValue = parseSingleHeader(header);
+			// Parse the header line, skipping empty lines
+			parseSingleHeader(allHeaders, lineStart, lineEnd, headers);
 
-			// Add the header key and value to the map
-			headers.put(keyValue.getKey(), keyValue.getValue());
+			lineStart = lineEnd + 1;
 		}
 
 		// Return the parsed headers
@@ -42,17 +39,46 @@ public class HttpHeaderUtils {
 	}
 
 
-	// https://www.baeldung.com/java-pairs
-	private static AbstractMap.SimpleEntry<String, String> parseSingleHeader(String headerLine) {
+	private static void parseSingleHeader(String headers, int from, int to, HttpHeaders parsed) {
 		// Split on first colon
-		String[] headerKeyValue = headerLine.split(":", 2);
+		int colon = headers.indexOf(':', from);
+
+		// If the line is empty, or is not a header
+		if (colon < 0 || colon >= to) {
+			return;
+		}
+
+		// Remove whitespace around the name and value
+		int nameStart = skipWhitespace(headers, from, colon);
+		int nameEnd = trimWhitespace(headers, nameStart, colon);
+		int valueStart = skipWhitespace(headers, colon + 1, to);
+		int valueEnd = trimWhitespace(headers, valueStart, to);
+
+		// Reuse the constant for well-known names, otherwise keep the name as sent
+		String name = HttpHeaders.findWellKnownName(headers, nameStart, nameEnd);
+		if (name == null) {
+			name = headers.substring(nameStart, nameEnd);
+		}
+
+		// Add the header to the parsed headers
+		parsed.set(name, headers.substring(valueStart, valueEnd));
+	}
+
+
+	private static int skipWhitespace(String value, int from, int to) {
+		while (from < to && Character.isWhitespace(value.charAt(from))) {
+			from++;
+		}
 
-		// Remove whitespace for each value
-		String key = headerKeyValue[0].trim()
-									  .toLowerCase();
-		String value = headerKeyValue[1].trim();
+		return from;
+	}
+
+
+	private static int trimWhitespace(String value, int from, int to) {
+		while (to > from && Character.isWhitespace(value.charAt(to - 1))) {
+			to--;
+		}
 
-		// Return a key value pair for the header
-		return new AbstractMap.SimpleEntry<>(key, value);
+		return to;
 	}
 }
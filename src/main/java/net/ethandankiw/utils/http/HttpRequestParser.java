@@ -0,0 +1,516 @@
+package net.ethandankiw.utils.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.jetbrains.annotations.NotNull;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpStatusCode;
+
+/**
+ * Incremental HTTP request parser that works directly on the bytes in a
+ * {@link ByteBuffer}. The buffer is left in read mode and can be parsed again
+ * as more data arrives, so a request split across several reads is never
+ * rescanned from the start.
+ * <p>
+ * Lines are located by offset, and only the path, header values and body are
+ * decoded into strings. Well-known header names are matched case-insensitively
+ * against shared constants, so they are not allocated per request. Bytes are
+ * only consumed from the buffer once a complete request has been parsed.
+ */
+public final class HttpRequestParser {
+
+	// Request methods that can be matched without decoding the request line
+	private static final HttpRequestMethod[] METHODS = HttpRequestMethod.values();
+
+	public enum Status {
+		// More bytes are needed before the request is complete
+		INCOMPLETE,
+		// A request has been parsed and consumed from the buffer
+		COMPLETE,
+		// The request is malformed, see getError() for the reason
+		INVALID
+	}
+
+	private enum State {
+		REQUEST_LINE,
+		HEADERS,
+		BODY
+	}
+
+	// Largest request head and body that will be accepted
+	private final int maxRequestSize;
+
+	// Most headers, and the largest body, that a single request may have
+	private final int maxHeaderCount;
+	private final int maxBodySize;
+
+	// Progress through the current request
+	private State state = State.REQUEST_LINE;
+
+	// Offsets relative to the start of the current request in the buffer
+	private int scanned = 0;
+	private int lineStart = 0;
+	private int headEnd = 0;
+
+	// Length of the body declared by the request, or -1 if not declared
+	private int contentLength = -1;
+
+	// Number of headers parsed for the current request
+	private int headerCount = 0;
+
+	// Request being built, and the last request that was completed
+	private HttpRequest request;
+	private HttpRequest completed;
+
+	// Reason the last request was rejected, and the status to respond with
+	private String error;
+	private HttpStatusCode errorStatus = HttpStatusCode.BAD_REQUEST;
+
+
+	public HttpRequestParser(int maxRequestSize) {
+		this(maxRequestSize, GlobalConstants.MAX_HEADER_COUNT, GlobalConstants.MAX_BODY_SIZE);
+	}
+
+
+	public HttpRequestParser(int maxRequestSize, int maxHeaderCount, int maxBodySize) {
+		this.maxRequestSize = maxRequestSize;
+		this.maxHeaderCount = maxHeaderCount;
+		this.maxBodySize = maxBodySize;
+	}
+
+
+	/**
+	 * Parse the next request from the unread bytes of the buffer.
+	 *
+	 * @param buffer a buffer in read mode, starting at the current request
+	 * @return COMPLETE once a request has been parsed and consumed, INCOMPLETE
+	 * if more bytes are needed, or INVALID if the request is malformed
+	 */
+	public Status parse(@NotNull ByteBuffer buffer) {
+		// Requests are rejected as malformed unless a limit was exceeded
+		errorStatus = HttpStatusCode.BAD_REQUEST;
+
+		// The current request always starts at the buffer position
+		int start = buffer.position();
+		int available = buffer.remaining();
+
+		// Process each complete line of the head that has not been scanned yet
+		while (state != State.BODY && scanned < available) {
+			// Find the end of the next line
+			int newline = indexOf(buffer, start + scanned, start + available, (byte) '\n');
+
+			// If the line has not fully arrived
+			if (newline < 0) {
+				scanned = available;
+				break;
+			}
+
+			scanned = newline - start + 1;
+
+			// Ignore the carriage return before the line feed
+			int lineEnd = newline - start;
+			if (lineEnd > lineStart && buffer.get(start + lineEnd - 1) == '\r') {
+				lineEnd -= 1;
+			}
+
+			// Handle the line, stopping if it is invalid
+			if (!parseLine(buffer, start, lineStart, lineEnd)) {
+				return invalid();
+			}
+
+			lineStart = scanned;
+		}
+
+		// If the head is still incomplete
+		if (state != State.BODY) {
+			// Reject heads that can never fit within the request limit
+			if (scanned >= maxRequestSize) {
+				errorStatus = HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE;
+				return invalid("Request headers are too large");
+			}
+			return Status.INCOMPLETE;
+		}
+
+		// If the full body has not arrived yet
+		if (available < headEnd + contentLength) {
+			return Status.INCOMPLETE;
+		}
+
+		// Decode the body from its bytes, so multibyte characters are counted correctly
+		request.setBody(decode(buffer, start + headEnd, start + headEnd + contentLength, StandardCharsets.UTF_8));
+
+		// Consume the request from the buffer
+		buffer.position(start + headEnd + contentLength);
+		completed = request;
+		clear();
+
+		return Status.COMPLETE;
+	}
+
+
+	/**
+	 * Get the request parsed by the last call that returned COMPLETE.
+	 */
+	public HttpRequest getRequest() {
+		return completed;
+	}
+
+
+	/**
+	 * Get the reason the last call returned INVALID.
+	 */
+	public String getError() {
+		return error;
+	}
+
+
+	/**
+	 * Get the status to respond with after the last call returned INVALID.
+	 */
+	public HttpStatusCode getErrorStatus() {
+		return errorStatus;
+	}
+
+
+	/**
+	 * Check if the head of the current request has been parsed, and only its
+	 * body is still to arrive.
+	 */
+	public boolean isReadingBody() {
+		return state == State.BODY;
+	}
+
+
+	/**
+	 * Check if part of a request has already been parsed.
+	 */
+	public boolean isParsing() {
+		return scanned > 0;
+	}
+
+
+	/**
+	 * Skip line breaks left between requests on a persistent connection. Has
+	 * no effect once part of the next request has been parsed.
+	 *
+	 * @return true if the buffer has unread bytes left after skipping
+	 */
+	public boolean skipLineBreaks(@NotNull ByteBuffer buffer) {
+		// Do not skip bytes that belong to the request being parsed
+		if (isParsing()) {
+			return true;
+		}
+
+		// Advance past every line break at the start of the buffer
+		while (buffer.hasRemaining()) {
+			byte next = buffer.get(buffer.position());
+
+			if (next != '\r' && next != '\n') {
+				return true;
+			}
+
+			buffer.position(buffer.position() + 1);
+		}
+
+		return false;
+	}
+
+
+	private boolean parseLine(ByteBuffer buffer, int start, int from, int to) {
+		switch (state) {
+			case REQUEST_LINE -> {
+				// Skip empty lines sent before the request line
+				if (from == to) {
+					return true;
+				}
+
+				return parseRequestLine(buffer, start + from, start + to);
+			}
+			case HEADERS -> {
+				// If this is not the blank line that ends the head
+				if (from != to) {
+					return parseHeader(buffer, start + from, start + to);
+				}
+
+				return finishHead();
+			}
+			default -> {
+				return false;
+			}
+		}
+	}
+
+
+	private boolean parseRequestLine(ByteBuffer buffer, int from, int to) {
+		// Split the request line on spaces (e.g., "GET /path HTTP/1.1")
+		int methodEnd = indexOf(buffer, from, to, (byte) ' ');
+		int pathEnd = methodEnd < 0 ? -1 : indexOf(buffer, methodEnd + 1, to, (byte) ' ');
+
+		// Ensure there are exactly three parameters
+		if (pathEnd < 0 || methodEnd == from || pathEnd == methodEnd + 1
+				|| indexOf(buffer, pathEnd + 1, to, (byte) ' ') >= 0 || pathEnd + 1 == to) {
+			error = "Request line has an invalid number of parameters";
+			return false;
+		}
+
+		// Store the request line on a new request
+		request = new HttpRequest();
+		request.setMethod(matchMethod(buffer, from, methodEnd));
+		request.setPath(decode(buffer, methodEnd + 1, pathEnd, StandardCharsets.ISO_8859_1));
+		request.setVersion(matchVersion(buffer, pathEnd + 1, to));
+
+		state = State.HEADERS;
+		return true;
+	}
+
+
+	private boolean parseHeader(ByteBuffer buffer, int from, int to) {
+		// Split on the first colon
+		int colon = indexOf(buffer, from, to, (byte) ':');
+
+		// If the header has no name
+		if (colon <= from) {
+			error = "Request header is malformed";
+			return false;
+		}
+
+		// Limit the headers, as each one is stored on the request
+		headerCount += 1;
+		if (headerCount > maxHeaderCount) {
+			error = "Request has too many headers";
+			errorStatus = HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE;
+			return false;
+		}
+
+		// Trim whitespace around the name and value
+		int nameEnd = trimEnd(buffer, from, colon);
+		int valueStart = trimStart(buffer, colon + 1, to);
+		int valueEnd = trimEnd(buffer, valueStart, to);
+
+		// Header names are case-insensitive, so well-known names share a constant
+		String name = matchHeaderName(buffer, from, nameEnd);
+
+		// The content length is read from the bytes directly
+		if (HttpHeaders.CONTENT_LENGTH.equals(name)) {
+			int length = parseLength(buffer, valueStart, valueEnd);
+
+			// If the length is not a number, or disagrees with an earlier length
+			if (length < 0 || (contentLength >= 0 && contentLength != length)) {
+				error = "Content Length header is invalid";
+				return false;
+			}
+
+			contentLength = length;
+		}
+
+		// Bodies are only framed by their content length
+		if (HttpHeaders.TRANSFER_ENCODING.equals(name)) {
+			error = "Transfer encoded request bodies are not supported";
+			return false;
+		}
+
+		request.addHeader(name, decode(buffer, valueStart, valueEnd, StandardCharsets.ISO_8859_1));
+		return true;
+	}
+
+
+	private boolean finishHead() {
+		// If there are no headers
+		if (request.getHeaders()
+				   .isEmpty()) {
+			error = "Invalid request as there are no headers";
+			return false;
+		}
+
+		// A GET request has no body unless one is declared
+		if (contentLength < 0 && request.getMethod() == HttpRequestMethod.GET) {
+			contentLength = 0;
+		}
+
+		// Any other request must declare the length of its body
+		if (contentLength < 0) {
+			error = "Content Length header is missing";
+			return false;
+		}
+
+		headEnd = scanned;
+
+		// Reject bodies above the body limit, or that can never fit within the request limit
+		if (contentLength > maxBodySize || (long) headEnd + contentLength > maxRequestSize) {
+			error = "Request body is too large";
+			errorStatus = HttpStatusCode.PAYLOAD_TOO_LARGE;
+			return false;
+		}
+
+		state = State.BODY;
+		return true;
+	}
+
+
+	private Status invalid(String message) {
+		error = message;
+		return invalid();
+	}
+
+
+	private Status invalid() {
+		// The position of the next request is unknown, so nothing is consumed
+		clear();
+		return Status.INVALID;
+	}
+
+
+	private void clear() {
+		state = State.REQUEST_LINE;
+		scanned = 0;
+		lineStart = 0;
+		headEnd = 0;
+		contentLength = -1;
+		headerCount = 0;
+		request = null;
+	}
+
+
+	private static HttpRequestMethod matchMethod(ByteBuffer buffer, int from, int to) {
+		// Compare the method against each known method name
+		for (HttpRequestMethod method : METHODS) {
+			if (equalsIgnoreCase(buffer, from, to, method.name())) {
+				return method;
+			}
+		}
+
+		return HttpRequestMethod.NONE;
+	}
+
+
+	private static String matchVersion(ByteBuffer buffer, int from, int to) {
+		// Avoid decoding the common versions
+		if (equalsIgnoreCase(buffer, from, to, GlobalConstants.HTTP_VERSION)) {
+			return GlobalConstants.HTTP_VERSION;
+		}
+
+		if (equalsIgnoreCase(buffer, from, to, "HTTP/1.0")) {
+			return "HTTP/1.0";
+		}
+
+		return decode(buffer, from, to, StandardCharsets.ISO_8859_1);
+	}
+
+
+	private static String matchHeaderName(ByteBuffer buffer, int from, int to) {
+		// Use the shared constant for well-known header names
+		for (int i = 0; i < HttpHeaders.wellKnownNameCount(); i++) {
+			String known = HttpHeaders.wellKnownName(i);
+			if (equalsIgnoreCase(buffer, from, to, known)) {
+				return known;
+			}
+		}
+
+		// Otherwise, keep the name as sent, as headers are looked up without regard to case
+		return decode(buffer, from, to, StandardCharsets.ISO_8859_1);
+	}
+
+
+	private static int parseLength(ByteBuffer buffer, int from, int to) {
+		// If there are no digits
+		if (from == to) {
+			return -1;
+		}
+
+		long length = 0;
+
+		// Accumulate the digits, rejecting anything else
+		for (int i = from; i < to; i++) {
+			byte digit = buffer.get(i);
+
+			if (digit < '0' || digit > '9') {
+				return -1;
+			}
+
+			length = length * 10 + (digit - '0');
+
+			// If the length can never be buffered
+			if (length > Integer.MAX_VALUE) {
+				return -1;
+			}
+		}
+
+		return (int) length;
+	}
+
+
+	private static boolean equalsIgnoreCase(ByteBuffer buffer, int from, int to, String value) {
+		// If the lengths differ
+		if (to - from != value.length()) {
+			return false;
+		}
+
+		// Compare each byte against the lowercase form of the value
+		for (int i = from; i < to; i++) {
+			if (toLowerCase(buffer.get(i)) != Character.toLowerCase(value.charAt(i - from))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	private static int toLowerCase(byte b) {
+		// Only ASCII letters are folded, as header names are ASCII tokens
+		return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b & 0xFF;
+	}
+
+
+	private static int indexOf(ByteBuffer buffer, int from, int to, byte target) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == target) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+
+	private static int trimStart(ByteBuffer buffer, int from, int to) {
+		while (from < to && isWhitespace(buffer.get(from))) {
+			from += 1;
+		}
+
+		return from;
+	}
+
+
+	private static int trimEnd(ByteBuffer buffer, int from, int to) {
+		while (to > from && isWhitespace(buffer.get(to - 1))) {
+			to -= 1;
+		}
+
+		return to;
+	}
+
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t';
+	}
+
+
+	private static String decode(ByteBuffer buffer, int from, int to, Charset charset) {
+		// Decode straight from the backing array when there is one
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + from, to - from, charset);
+		}
+
+		// Otherwise, copy the bytes out of the buffer first
+		byte[] bytes = new byte[to - from];
+		buffer.get(from, bytes);
+		return new String(bytes, charset);
+	}
+}
@@ -0,0 +1,224 @@
+package net.ethandankiw.utils.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.server.ConnectionMetrics;
+
+/**
+ * Reads requests from a blocking socket that stays open for the lifetime of a
+ * connection. A single buffer is reused for every request, so bytes belonging
+ * to pipelined requests are kept between calls.
+ * <p>
+ * The head and the body of each request must arrive within their own
+ * deadlines, so a client that trickles a request cannot hold the reading
+ * thread indefinitely.
+ */
+public class HttpRequestReader {
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpRequestReader.class);
+
+	// Initial size of the buffer that requests are read into
+	private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+	private final Socket socket;
+	private final InputStream stream;
+	private final HttpRequestParser parser = new HttpRequestParser(GlobalConstants.MAX_REQUEST_SIZE);
+
+	// Bytes received from the client that have not been parsed yet, in read mode
+	private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE)
+										  .flip();
+
+
+	// Status to respond with when the last request could not be read
+	private HttpStatusCode failure = null;
+
+
+	public HttpRequestReader(@NotNull Socket socket) throws IOException {
+		this.socket = socket;
+		this.stream = socket.getInputStream();
+	}
+
+
+	/**
+	 * Get the status to respond with after {@link #readRequest()} returned
+	 * empty.
+	 *
+	 * @return the status, or empty if the client closed the connection and
+	 * no response should be sent
+	 */
+	public Optional<HttpStatusCode> getFailureStatus() {
+		return Optional.ofNullable(failure);
+	}
+
+
+	/**
+	 * Read the next request, blocking until all of it has arrived or its
+	 * deadline elapses. The head deadline starts when this is called.
+	 *
+	 * @return the request, or empty if it is malformed, too slow to arrive, or
+	 * the connection ended before it was complete
+	 */
+	public Optional<HttpRequest> readRequest() {
+		failure = null;
+
+		// The head must arrive before its deadline
+		long deadline = System.currentTimeMillis() + GlobalConstants.HEADER_READ_TIMEOUT;
+		boolean readingBody = false;
+
+		try {
+			while (true) {
+				// Parse whatever has been received so far
+				HttpRequestParser.Status status = parser.parse(buffer);
+
+				// If a full request was parsed
+				if (status == HttpRequestParser.Status.COMPLETE) {
+					return Optional.of(parser.getRequest());
+				}
+
+				// If the request is malformed, or exceeds a limit
+				if (status == HttpRequestParser.Status.INVALID) {
+					logger.error("Unable to parse client request: {}", parser.getError());
+					failure = parser.getErrorStatus();
+					return Optional.empty();
+				}
+
+				// Once the head has been parsed, the body has its own deadline
+				if (!readingBody && parser.isReadingBody()) {
+					readingBody = true;
+					deadline = System.currentTimeMillis() + GlobalConstants.BODY_READ_TIMEOUT;
+				}
+
+				// Otherwise, wait for more of the request to arrive
+				if (!fill(deadline)) {
+					logger.error("Connection closed before the request was complete");
+					return Optional.empty();
+				}
+			}
+		} catch (SocketTimeoutException ste) {
+			logger.warn("Client did not send the request {} in time", readingBody ? "body" : "head");
+			ConnectionMetrics.recordTimeout(readingBody ? ConnectionMetrics.Timeout.BODY_READ : ConnectionMetrics.Timeout.HEADER_READ);
+			failure = HttpStatusCode.REQUEST_TIMEOUT;
+		} catch (IOException ioe) {
+			logger.error("Unable to read client request: {}", ioe.getMessage());
+		}
+
+		// Default to no parsed request
+		return Optional.empty();
+	}
+
+
+	/**
+	 * Block until the start of the next request is available. Stray line
+	 * breaks between requests are skipped.
+	 *
+	 * @param timeout how long the connection may stay idle, in milliseconds
+	 * @return false if the client closed the connection or the timeout
+	 * elapsed before another request arrived
+	 */
+	public boolean awaitNextRequest(int timeout) {
+		try {
+			// Close connections that stay idle between requests
+			socket.setSoTimeout(timeout);
+
+			// Read until a byte that is not a line break arrives
+			while (!parser.skipLineBreaks(buffer)) {
+				// If the client has closed the connection
+				if (!fill()) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (SocketTimeoutException ste) {
+			logger.debug("Connection was idle for too long: {}", ste.getMessage());
+		} catch (IOException ioe) {
+			logger.debug("Unable to wait for next request: {}", ioe.getMessage());
+		}
+
+		// Default to no further requests
+		return false;
+	}
+
+
+	/**
+	 * Check without blocking if the start of another request has already been
+	 * received. Stray line breaks between requests are skipped.
+	 *
+	 * @return true if a pipelined request can be parsed without waiting
+	 */
+	public boolean isNextRequestBuffered() {
+		try {
+			// Check the buffered bytes, then anything the socket has received
+			while (!parser.skipLineBreaks(buffer)) {
+				// If nothing more can be read without blocking
+				if (stream.available() <= 0 || !fill()) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (IOException ioe) {
+			logger.debug("Unable to check for pipelined request: {}", ioe.getMessage());
+		}
+
+		// Default to no buffered request
+		return false;
+	}
+
+
+	private boolean fill(long deadline) throws IOException {
+		// If the deadline has already passed
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0) {
+			throw new SocketTimeoutException("Request deadline elapsed");
+		}
+
+		// Only wait for the time left before the deadline
+		socket.setSoTimeout((int) remaining);
+		return fill();
+	}
+
+
+	private boolean fill() throws IOException {
+		// Move the unread bytes to the start of the buffer
+		buffer.compact();
+
+		// Grow the buffer if a large request has filled it
+		if (!buffer.hasRemaining()) {
+			grow();
+		}
+
+		// Read directly into the free space of the buffer
+		int read = stream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+
+		// Record the bytes that were read
+		if (read > 0) {
+			buffer.position(buffer.position() + read);
+		}
+
+		// Switch back to reading from the buffer
+		buffer.flip();
+		return read != -1;
+	}
+
+
+	private void grow() {
+		// Double the buffer, the parser rejects requests above the maximum size
+		ByteBuffer grown = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, GlobalConstants.MAX_REQUEST_SIZE + 1));
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+}
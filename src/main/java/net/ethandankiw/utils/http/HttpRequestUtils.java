@@ -1,19 +1,15 @@
 package net.ethandankiw.utils.http;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.Socket;
-import java.util.AbstractMap;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.ethandankiw.data.http.HttpHeaders;
 import net.ethandankiw.data.http.HttpRequest;
 import net.ethandankiw.data.http.HttpRequestMethod;
 
@@ -21,187 +17,284 @@ public class HttpRequestUtils {
 
 	private static final Logger logger = LoggerFactory.getLogger(HttpRequestUtils.class);
 
+	// Path that clients subscribe to for a stream of station readings
+	public static final String EVENTS_PATH = "/events";
+
+	// Path the load balancer checks to see if an aggregation node is up
+	public static final String HEALTH_PATH = "/health";
+
+	// Path a replica node follows the writes of its primary on, and is promoted or pointed at a new primary on
+	public static final String REPLICATION_PATH = "/replication";
+
 
 	private HttpRequestUtils() {
 	}
 
 
 	/**
-	 * Parse a client request
+	 * Open a reader over the client socket that can be reused for every request
+	 * sent over the same connection
 	 */
-	public static Optional<HttpRequest> parseClientRequest(Socket client) {
-		// Print the lines from the request then close the client socket
+	public static Optional<HttpRequestReader> openRequestReader(Socket client) {
 		try {
-			InputStream stream = client.getInputStream();
-			// Get the communication stream being sent from the client
-			BufferedReader fromClient = new BufferedReader(new InputStreamReader(stream));
-
-			// Parse the request from the client
-			return parseRequest(fromClient);
+			// Read from the communication stream being sent from the client
+			return Optional.of(new HttpRequestReader(client));
 		} catch (IOException ioe) {
 			logger.warn("Unable to get input stream for client: {}", ioe.getMessage());
 		}
 
-		// Default to no parsed HTTP request
+		// Default to no reader
 		return Optional.empty();
 	}
 
 
-	private static Optional<HttpRequest> parseRequest(BufferedReader fromClient) {
-		// Create the data structure for a http request
-		HttpRequest request = new HttpRequest();
+	/**
+	 * Check if the representation the client already has is current, using
+	 * the If-None-Match header. Entity tags are compared weakly, as the same
+	 * data may be sent with different content encodings.
+	 *
+	 * @param etag the entity tag of the current representation
+	 * @return true if the client can reuse its cached representation
+	 */
+	public static boolean isNotModified(HttpRequest request, String etag) {
+		// Get the entity tags the client has cached
+		String ifNoneMatch = request.getHeaderValue(HttpHeaders.IF_NONE_MATCH);
 
-		// Get the request from the client
-		List<String> requestLine = HttpRequestUtils.parseRequestLine(fromClient);
+		// If the client has nothing cached
+		if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+			return false;
+		}
 
-		// If there is a valid request line
-		if (requestLine.isEmpty()) {
-			logger.error("Invalid request as there is no request line");
-			return Optional.empty();
+		// A wildcard matches any current representation
+		if (ifNoneMatch.trim()
+					   .equals("*")) {
+			return true;
+		}
+
+		// Check each entity tag listed by the client
+		String opaqueTag = stripWeakPrefix(etag);
+		for (String tag : ifNoneMatch.split(",")) {
+			if (stripWeakPrefix(tag.trim()).equals(opaqueTag)) {
+				return true;
+			}
 		}
 
-		// Store the request line on the request object
-		request.parseAndSetMethod(requestLine.getFirst());
-		request.setPath(requestLine.get(1));
-		request.setVersion(requestLine.get(2));
+		return false;
+	}
 
-		// Get the header lines from the client
-		Map<String, String> headers = HttpRequestUtils.parseHeaders(fromClient);
 
-		// If there are no headers
-		if (headers.isEmpty()) {
-			logger.error("Invalid request as there are no headers");
-			return Optional.empty();
+	private static String stripWeakPrefix(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+
+	/**
+	 * Check if the client wants the connection to stay open after the response
+	 * to this request. HTTP/1.1 connections persist unless closed explicitly,
+	 * HTTP/1.0 connections only persist when keep-alive is requested.
+	 */
+	public static boolean isKeepAliveRequested(HttpRequest request) {
+		// Get the connection preference from the client
+		String connection = request.getHeaderValue(HttpHeaders.CONNECTION);
+
+		// If the client asked for the connection to be closed
+		if ("close".equalsIgnoreCase(connection)) {
+			return false;
 		}
 
-		// Store the headers on the request object
-		request.setHeaders(headers);
+		// HTTP/1.0 connections are only persistent when explicitly requested
+		return !"HTTP/1.0".equalsIgnoreCase(request.getVersion())
+				|| "keep-alive".equalsIgnoreCase(connection);
+	}
 
-		// If the request is a GET request, there is no request body
-		if (request.getMethod() == HttpRequestMethod.GET) {
-			return Optional.of(request);
+
+	/**
+	 * Check if the client is subscribing to an event stream, either at the
+	 * events path or by only accepting server-sent events.
+	 */
+	public static boolean isEventStreamRequest(HttpRequest request) {
+		// Only GET requests can subscribe
+		if (request.getMethod() != HttpRequestMethod.GET) {
+			return false;
 		}
 
-		try {
-			// Get the content length of the body
-			String contentLengthStr = headers.get("content-length");
+		// If the client asked for the events path
+		String path = request.getPath();
+		if (path != null && (path.equals(EVENTS_PATH) || path.startsWith(EVENTS_PATH + "?"))) {
+			return true;
+		}
 
-			// If there is no content length header
-			if (contentLengthStr == null) {
-				logger.error("Content Length header is missing");
-				return Optional.empty();
-			}
+		// If the client asked for the weather data as an event stream
+		String accept = request.getHeaderValue(HttpHeaders.ACCEPT);
+		return accept != null && acceptsMediaType(accept, HttpResponseUtils.EVENT_STREAM_TYPE);
+	}
 
-			// Parse the content length string into a value
-			int contentLength = Integer.parseInt(contentLengthStr);
 
-			// Parse the body from the client using the content length
-			String body = HttpRequestUtils.parseBody(fromClient, contentLength);
+	private static boolean acceptsMediaType(String accept, String mediaType) {
+		// Check each media range listed by the client (e.g., "text/event-stream;q=0.9, application/json")
+		for (String part : accept.split(",")) {
+			String[] params = part.split(";");
 
-			// Store the body on the request
-			request.setBody(body);
-		} catch (NumberFormatException nfe) {
-			logger.error("Unable to parse body as content length is invalid: {}", nfe.getMessage());
-			return Optional.empty();
+			// Only an exact match counts, as a wildcard does not ask for a stream
+			if (params[0].trim()
+						 .equalsIgnoreCase(mediaType)) {
+				return parseQuality(params) > 0;
+			}
 		}
 
-		return Optional.of(request);
+		return false;
 	}
 
 
-	private static List<String> parseRequestLine(BufferedReader fromClient) {
-		try {
-			// Read the request line (e.g., "GET /path HTTP/1.1")
-			String request = fromClient.readLine();
+	private static double parseQuality(String[] params) {
+		// Look for a "q=" parameter after the media range
+		for (int i = 1; i < params.length; i++) {
+			String param = params[i].trim();
 
-			// Check if the request line is invalid
-			if (request == null || request.isBlank()) {
-				return List.of();
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2));
+				} catch (NumberFormatException nfe) {
+					return 0;
+				}
 			}
+		}
+
+		// Media ranges without a weight default to a quality of 1
+		return 1;
+	}
 
-			// Split the request line by whitespace (e.g., ["GET", "/path", "HTTP/1.1"])
-			String[] splitRequest = request.split(" ");
 
-			// Ensure that the length is valid
-			if (splitRequest.length != 3) {
-				logger.error("Request line has an invalid number of parameters: {}", request);
-				return List.of();
-			}
+	/**
+	 * Check if an event stream should stay open for new readings, rather than
+	 * closing once the stored readings have been replayed. Clients turn this
+	 * off with {@code ?follow=false} to read a snapshot of the store.
+	 */
+	public static boolean isFollowRequested(HttpRequest request) {
+		return getQueryParameter(request.getPath(), "follow").map(follow -> !follow.equalsIgnoreCase("false"))
+															 .orElse(true);
+	}
 
-			// If valid, return the request line
-			return List.of(splitRequest[0], splitRequest[1], splitRequest[2]);
-		} catch (IOException ioe) {
-			logger.error("Unable to parse request line: {}", ioe.getMessage());
-		}
 
-		// If invalid request, return empty string
-		return List.of();
+	/**
+	 * Check if the request is a health check of the server.
+	 */
+	public static boolean isHealthCheckRequest(HttpRequest request) {
+		return request.getMethod() == HttpRequestMethod.GET && HEALTH_PATH.equals(request.getPath());
 	}
 
 
-	private static Map<String, String> parseHeaders(BufferedReader fromClient) {
-		// Define the map of header key values paris
-		Map<String, String> headers = new HashMap<>();
+	/**
+	 * Check if a replica node is following the replication log of this node.
+	 */
+	public static boolean isReplicationStreamRequest(HttpRequest request) {
+		return request.getMethod() == HttpRequestMethod.GET && isReplicationPath(request.getPath());
+	}
 
-		try {
-			// Define a variable for storing the header line
-			String headerLine;
-
-			// Loop over the header fields until an empty line or EOF is reached
-			while ((headerLine = fromClient.readLine()) != null
-					&& !headerLine.isBlank()) {
-				// Otherwise parse header fields
-				AbstractMap.SimpleEntry<String, String> header = parseSingleHeader(headerLine);
-				headers.put(header.getKey()
-								  .toLowerCase(), header.getValue());
-			}
-		} catch (Exception e) {
-			logger.error("Error reading headers: {}", e.getMessage());
-		}
 
-		// Return the parsed headers
-		return headers;
+	/**
+	 * Check if the load balancer is changing the role of this node, which is
+	 * promoted with {@code PUT /replication}, or made to follow another
+	 * primary with {@code PUT /replication?primary=<HOST:PORT>}.
+	 */
+	public static boolean isReplicationControlRequest(HttpRequest request) {
+		return request.getMethod() == HttpRequestMethod.PUT && isReplicationPath(request.getPath());
 	}
 
 
-	private static String parseBody(BufferedReader fromClient, Integer contentLength) {
-		// If no content length is provided
-		if (contentLength <= 0) {
-			return "";
-		}
+	/**
+	 * Check if a request is for the replication log or role of a node, which
+	 * is only available to the load balancer.
+	 */
+	public static boolean isReplicationRequest(HttpRequest request) {
+		return isReplicationPath(request.getPath());
+	}
+
 
-		// Define the character buffer to read the body to
-		char[] buffer = new char[contentLength];
+	private static boolean isReplicationPath(String path) {
+		return path != null && (path.equals(REPLICATION_PATH) || path.startsWith(REPLICATION_PATH + "?"));
+	}
+
+
+	/**
+	 * Get the Lamport clock the client sent with a request.
+	 *
+	 * @return the Lamport clock, or 0 if the client did not send one
+	 */
+	public static long getLamportClock(HttpRequest request) {
+		String lamportClock = request.getHeaderValue(HttpHeaders.LAMPORT_CLOCK);
+
+		// If the client did not send its clock
+		if (lamportClock == null || lamportClock.isBlank()) {
+			return 0;
+		}
 
 		try {
-			// Attempt to read the body to the character buffer
-			int charsRead = fromClient.read(buffer, 0, contentLength);
+			return Long.parseLong(lamportClock.trim());
+		} catch (NumberFormatException nfe) {
+			logger.warn("Ignoring invalid Lamport clock: {}", lamportClock);
+			return 0;
+		}
+	}
 
-			// If the number of chars read is valid
-			if (charsRead > 0) {
-				// Parse the buffer to a string
-				return new String(buffer, 0, charsRead);
-			}
-		} catch (IOException ioe) {
-			logger.warn("Unable to read body to buffer: {}", ioe.getMessage());
-			return "";
+
+	/**
+	 * Get the Lamport clock of the last event a reconnecting subscriber
+	 * received, from the Last-Event-ID header.
+	 *
+	 * @return the Lamport clock, or 0 if the client has received no events
+	 */
+	public static long getLastEventId(HttpRequest request) {
+		String lastEventId = request.getHeaderValue(HttpHeaders.LAST_EVENT_ID);
+
+		// If the client has not received an event yet
+		if (lastEventId == null || lastEventId.isBlank()) {
+			return 0;
 		}
 
-		// By default, return an empty string
-		return "";
+		try {
+			return Long.parseLong(lastEventId.trim());
+		} catch (NumberFormatException nfe) {
+			logger.warn("Ignoring invalid Last-Event-ID: {}", lastEventId);
+			return 0;
+		}
 	}
 
 
-	// https://www.baeldung.com/java-pairs
-	private static AbstractMap.SimpleEntry<String, String> parseSingleHeader(String headerLine) {
-		// Split on first colon
-		String[] headerKeyValue = headerLine.split(":", 2);
+	/**
+	 * Get the station a request is for from the station query parameter,
+	 * without reading the request body.
+	 *
+	 * @return the station ID, or empty if the request does not name one
+	 */
+	public static Optional<String> getStationId(HttpRequest request) {
+		return getQueryParameter(request.getPath(), "station").filter(id -> !id.isBlank());
+	}
 
-		// Remove whitespace for each value
-		String key = headerKeyValue[0].trim();
-		String value = headerKeyValue[1].trim();
 
-		// Return a key value pair for the header
-		return new AbstractMap.SimpleEntry<>(key, value);
+	/**
+	 * Get the value of a query parameter from a request path.
+	 *
+	 * @return the decoded value, or empty if the parameter is not present
+	 */
+	public static Optional<String> getQueryParameter(String path, String name) {
+		int queryIdx = path == null ? -1 : path.indexOf('?');
+
+		// If the path has no query
+		if (queryIdx < 0) {
+			return Optional.empty();
+		}
+
+		// Find the parameter among the name and value pairs
+		for (String pair : path.substring(queryIdx + 1)
+							   .split("&")) {
+			int eqIdx = pair.indexOf('=');
+			if (eqIdx > 0 && pair.substring(0, eqIdx)
+								 .equals(name)) {
+				return Optional.of(URLDecoder.decode(pair.substring(eqIdx + 1), StandardCharsets.UTF_8));
+			}
+		}
+
+		return Optional.empty();
 	}
 }
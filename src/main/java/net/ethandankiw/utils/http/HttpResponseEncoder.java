@@ -0,0 +1,249 @@
+package net.ethandankiw.utils.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.jetbrains.annotations.NotNull;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+
+/**
+ * Encodes responses straight to bytes. Status lines and common header lines
+ * are encoded once and copied into each response head, and the body is sent
+ * as its own buffer so it is never copied into the head.
+ * <p>
+ * The Content-Length header is always derived from the encoded body, so it
+ * counts bytes rather than characters.
+ */
+public class HttpResponseEncoder {
+
+	private static final byte[] CRLF = {'\r', '\n'};
+	private static final byte[] HEADER_SEPARATOR = {':', ' '};
+	private static final byte[] CONTENT_LENGTH = bytes("Content-Length: ");
+
+	// Body length of a response that is streamed until the connection closes
+	private static final int UNKNOWN_LENGTH = -1;
+
+	// Status line for each status code, indexed by ordinal
+	private static final byte[][] STATUS_LINES = new byte[HttpStatusCode.values().length][];
+
+	// Complete header lines that are sent with most responses
+	private static final CommonHeader[] COMMON_HEADERS = {
+			new CommonHeader(HttpHeaders.CONTENT_TYPE, "application/json"),
+			new CommonHeader(HttpHeaders.CONTENT_TYPE, "text/plain"),
+			new CommonHeader(HttpHeaders.CONNECTION, "keep-alive"),
+			new CommonHeader(HttpHeaders.CONNECTION, "close"),
+			new CommonHeader(HttpHeaders.CONTENT_ENCODING, "gzip"),
+			new CommonHeader(HttpHeaders.CONTENT_ENCODING, "deflate"),
+			new CommonHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+	};
+
+	static {
+		// Encode the status line for every status code up front
+		for (HttpStatusCode status : HttpStatusCode.values()) {
+			STATUS_LINES[status.ordinal()] = bytes(GlobalConstants.HTTP_VERSION + " " + status.getStatusCode() + " " + status.getReasonPhrase() + "\r\n");
+		}
+	}
+
+
+	private HttpResponseEncoder() {
+	}
+
+
+	/**
+	 * Encode a response into a head buffer followed by a body buffer, ready
+	 * to be sent with a single gathering write.
+	 */
+	public static ByteBuffer[] encode(@NotNull HttpResponse response) {
+		// Get the body, which is only encoded once per response
+		byte[] body = response.getBodyBytes();
+
+		// Encode the status line and headers into an exactly sized array
+		byte[] head = new byte[headLength(response, body.length)];
+		writeHead(response, body.length, head);
+
+		// If there is no body, only the head is sent
+		if (body.length == 0) {
+			return new ByteBuffer[]{ByteBuffer.wrap(head)};
+		}
+
+		return new ByteBuffer[]{ByteBuffer.wrap(head), ByteBuffer.wrap(body)};
+	}
+
+
+	/**
+	 * Encode a response into a single array, for streams that cannot perform
+	 * a gathering write.
+	 */
+	public static byte[] encodeToArray(@NotNull HttpResponse response) {
+		byte[] body = response.getBodyBytes();
+
+		// Size the array for the head and the body together
+		int headLength = headLength(response, body.length);
+		byte[] encoded = new byte[headLength + body.length];
+
+		// Write the head, then the body after it
+		writeHead(response, body.length, encoded);
+		System.arraycopy(body, 0, encoded, headLength, body.length);
+
+		return encoded;
+	}
+
+
+	/**
+	 * Encode only the head of a response whose body is streamed until the
+	 * connection closes, so no content length is sent.
+	 */
+	public static byte[] encodeStreamHead(@NotNull HttpResponse response) {
+		byte[] head = new byte[headLength(response, UNKNOWN_LENGTH)];
+		writeHead(response, UNKNOWN_LENGTH, head);
+		return head;
+	}
+
+
+	private static int headLength(HttpResponse response, int bodyLength) {
+		// Start with the status line and the blank line that ends the head
+		int length = STATUS_LINES[response.getStatus()
+										  .ordinal()].length + CRLF.length;
+
+		// Add the length of each header line
+		HttpHeaders headers = response.getHeaders();
+		for (int i = 0; i < headers.size(); i++) {
+			String name = headers.getName(i);
+			String value = headers.getValue(i);
+
+			// The content length is always calculated from the body
+			if (isContentLength(name)) {
+				continue;
+			}
+
+			CommonHeader common = findCommonHeader(name, value);
+			length += common != null ? common.line.length : name.length() + HEADER_SEPARATOR.length + value.length() + CRLF.length;
+		}
+
+		// Add the content length line if the response can have a body of known length
+		if (hasBody(response.getStatus()) && bodyLength != UNKNOWN_LENGTH) {
+			length += CONTENT_LENGTH.length + digits(bodyLength) + CRLF.length;
+		}
+
+		return length;
+	}
+
+
+	private static void writeHead(HttpResponse response, int bodyLength, byte[] out) {
+		// Copy the pre-encoded status line
+		int position = put(STATUS_LINES[response.getStatus()
+												.ordinal()], out, 0);
+
+		// Write each header line
+		HttpHeaders headers = response.getHeaders();
+		for (int i = 0; i < headers.size(); i++) {
+			String name = headers.getName(i);
+			String value = headers.getValue(i);
+
+			// The content length is always calculated from the body
+			if (isContentLength(name)) {
+				continue;
+			}
+
+			// Copy common header lines, otherwise encode the name and value
+			CommonHeader common = findCommonHeader(name, value);
+			if (common != null) {
+				position = put(common.line, out, position);
+			} else {
+				position = put(name, out, position);
+				position = put(HEADER_SEPARATOR, out, position);
+				position = put(value, out, position);
+				position = put(CRLF, out, position);
+			}
+		}
+
+		// Write the length of the body in bytes, unless it is streamed
+		if (hasBody(response.getStatus()) && bodyLength != UNKNOWN_LENGTH) {
+			position = put(CONTENT_LENGTH, out, position);
+			position = putNumber(bodyLength, out, position);
+			position = put(CRLF, out, position);
+		}
+
+		// End the head with a blank line
+		put(CRLF, out, position);
+	}
+
+
+	private static boolean hasBody(HttpStatusCode status) {
+		// 204 No Content and 304 Not Modified responses never have a body
+		int code = status.getStatusCode();
+		return code != 204 && code != 304;
+	}
+
+
+	private static boolean isContentLength(String name) {
+		return HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+	}
+
+
+	private static CommonHeader findCommonHeader(String name, String value) {
+		for (CommonHeader common : COMMON_HEADERS) {
+			if (common.name.equalsIgnoreCase(name) && common.value.equals(value)) {
+				return common;
+			}
+		}
+
+		return null;
+	}
+
+
+	private static int put(byte[] bytes, byte[] out, int position) {
+		System.arraycopy(bytes, 0, out, position, bytes.length);
+		return position + bytes.length;
+	}
+
+
+	private static int put(String value, byte[] out, int position) {
+		// Header names and values are ISO-8859-1, so each char is one byte
+		for (int i = 0; i < value.length(); i++) {
+			out[position + i] = (byte) value.charAt(i);
+		}
+
+		return position + value.length();
+	}
+
+
+	private static int putNumber(int value, byte[] out, int position) {
+		// Write the digits from last to first
+		int end = position + digits(value);
+		for (int i = end - 1; i >= position; i--) {
+			out[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+
+		return end;
+	}
+
+
+	private static int digits(int value) {
+		int count = 1;
+		while (value >= 10) {
+			value /= 10;
+			count += 1;
+		}
+
+		return count;
+	}
+
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+
+	private record CommonHeader(String name, String value, byte[] line) {
+
+		private CommonHeader(String name, String value) {
+			this(name, value, bytes(name + ": " + value + "\r\n"));
+		}
+	}
+}
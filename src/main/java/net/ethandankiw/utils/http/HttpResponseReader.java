@@ -0,0 +1,265 @@
+package net.ethandankiw.utils.http;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ethandankiw.data.http.ContentEncoding;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpResponse;
+
+/**
+ * Reads framed responses from a server connection. The body is read using
+ * its Content-Length or chunked transfer encoding, so the connection can be
+ * reused for the next request as soon as the body has arrived. Bodies without
+ * either are read until the server closes the connection.
+ */
+public class HttpResponseReader {
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpResponseReader.class);
+
+	private final InputStream stream;
+
+	// Flag for if the connection can carry another request after this response
+	private boolean reusable = true;
+
+
+	public HttpResponseReader(@NotNull InputStream stream) {
+		// Buffer the stream so bytes after the response are kept for the next one
+		this.stream = new BufferedInputStream(stream);
+	}
+
+
+	/**
+	 * Read the next response, blocking until its full body has arrived.
+	 *
+	 * @return the response, or empty if it is malformed or the connection
+	 * closed before it was complete
+	 */
+	public Optional<HttpResponse> readResponse() {
+		try {
+			// Read the status line, skipping stray line breaks before it
+			String statusLine = readLine();
+			while (statusLine != null && statusLine.isEmpty()) {
+				statusLine = readLine();
+			}
+
+			// If the server closed the connection without responding
+			if (statusLine == null) {
+				logger.error("Connection closed before a response was received");
+				reusable = false;
+				return Optional.empty();
+			}
+
+			// Read the header lines up to the blank line that ends the head
+			StringBuilder headerLines = new StringBuilder();
+			String line;
+			while ((line = readLine()) != null && !line.isEmpty()) {
+				headerLines.append(line)
+						   .append("\r\n");
+			}
+
+			// Parse the status line and headers
+			HttpResponse response = new HttpResponse();
+			if (!HttpResponseUtils.populateResponseStatus(statusLine, response)
+					|| !HttpResponseUtils.populateHeaders(headerLines.toString(), response)) {
+				reusable = false;
+				return Optional.empty();
+			}
+
+			// Read the body using the framing declared by the server
+			Optional<byte[]> body = readBody(response);
+
+			// If the body could not be read in full
+			if (body.isEmpty()) {
+				reusable = false;
+				return Optional.empty();
+			}
+
+			// Decompress the body if the server encoded it
+			Optional<byte[]> decoded = decodeBody(response, body.get());
+
+			// If the body cannot be decoded
+			if (decoded.isEmpty()) {
+				return Optional.empty();
+			}
+
+			response.setBody(new String(decoded.get(), StandardCharsets.UTF_8));
+
+			// The server may ask for the connection to be closed
+			if ("close".equalsIgnoreCase(response.getHeaderValue(HttpHeaders.CONNECTION))) {
+				reusable = false;
+			}
+
+			return Optional.of(response);
+		} catch (IOException ioe) {
+			logger.error("Unable to read response from server: {}", ioe.getMessage());
+		}
+
+		// The position of the next response is unknown after an error
+		reusable = false;
+		return Optional.empty();
+	}
+
+
+	/**
+	 * Check if the server has closed the connection while it was idle. The
+	 * socket read timeout should be short while this is called, as it blocks
+	 * until a byte arrives or the timeout elapses.
+	 */
+	public boolean isClosedByServer() {
+		try {
+			// Peek at the next byte without consuming it
+			stream.mark(1);
+			int next = stream.read();
+			stream.reset();
+
+			// The server only sends data in response to a request
+			return next == -1;
+		} catch (SocketTimeoutException ste) {
+			// Nothing arrived, so the connection is still open
+			return false;
+		} catch (IOException ioe) {
+			return true;
+		}
+	}
+
+
+	/**
+	 * Check if another request can be sent over the connection.
+	 */
+	public boolean isReusable() {
+		return reusable;
+	}
+
+
+	private Optional<byte[]> readBody(HttpResponse response) throws IOException {
+		// 204 No Content and 304 Not Modified responses never have a body
+		int code = response.getStatusCode();
+		if (code == 204 || code == 304) {
+			return Optional.of(new byte[0]);
+		}
+
+		// If the body is sent as a series of chunks
+		String transferEncoding = response.getHeaderValue(HttpHeaders.TRANSFER_ENCODING);
+		if (transferEncoding != null && transferEncoding.toLowerCase()
+														.contains("chunked")) {
+			return readChunkedBody();
+		}
+
+		// If the length of the body is known
+		String contentLength = response.getHeaderValue(HttpHeaders.CONTENT_LENGTH);
+		if (contentLength != null) {
+			return readFixedBody(contentLength);
+		}
+
+		// Otherwise, the body ends when the server closes the connection
+		reusable = false;
+		return Optional.of(stream.readAllBytes());
+	}
+
+
+	private Optional<byte[]> decodeBody(HttpResponse response, byte[] body) {
+		// Find the encoding the server used for the body
+		String token = response.getHeaderValue(HttpHeaders.CONTENT_ENCODING);
+		Optional<ContentEncoding> encoding = ContentEncoding.fromToken(token);
+
+		// If the encoding is not supported
+		if (encoding.isEmpty()) {
+			logger.error("Unsupported content encoding: {}", token);
+			return Optional.empty();
+		}
+
+		return encoding.get()
+					   .decode(body);
+	}
+
+
+	private Optional<byte[]> readFixedBody(String contentLength) throws IOException {
+		try {
+			// Read exactly the number of bytes declared by the server
+			int length = Integer.parseInt(contentLength.trim());
+			byte[] body = stream.readNBytes(length);
+
+			// If the connection closed part way through the body
+			if (body.length != length) {
+				logger.error("Connection closed after {} of {} body bytes", body.length, length);
+				return Optional.empty();
+			}
+
+			return Optional.of(body);
+		} catch (NumberFormatException nfe) {
+			logger.error("Content Length header is invalid: {}", contentLength);
+			return Optional.empty();
+		}
+	}
+
+
+	private Optional<byte[]> readChunkedBody() throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		while (true) {
+			// Read the size of the next chunk, ignoring any extensions
+			String sizeLine = readLine();
+			if (sizeLine == null) {
+				return Optional.empty();
+			}
+
+			int extension = sizeLine.indexOf(';');
+			String sizeStr = (extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim();
+
+			int size;
+			try {
+				size = Integer.parseInt(sizeStr, 16);
+			} catch (NumberFormatException nfe) {
+				logger.error("Chunk size is invalid: {}", sizeLine);
+				return Optional.empty();
+			}
+
+			// The last chunk is followed by optional trailers and a blank line
+			if (size == 0) {
+				String trailer;
+				while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+					logger.debug("Ignoring trailer: {}", trailer);
+				}
+				return Optional.of(body.toByteArray());
+			}
+
+			// Read the chunk data, followed by its line break
+			byte[] chunk = stream.readNBytes(size);
+			if (chunk.length != size) {
+				return Optional.empty();
+			}
+			body.write(chunk);
+			readLine();
+		}
+	}
+
+
+	private String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		int next;
+		while ((next = stream.read()) != '\n') {
+			// If the stream ended part way through the line
+			if (next == -1) {
+				return line.size() == 0 ? null : line.toString(StandardCharsets.ISO_8859_1);
+			}
+
+			// Drop the carriage return before the line feed
+			if (next != '\r') {
+				line.write(next);
+			}
+		}
+
+		return line.toString(StandardCharsets.ISO_8859_1);
+	}
+}
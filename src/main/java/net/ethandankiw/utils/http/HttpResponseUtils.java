@@ -1,9 +1,7 @@
 package net.ethandankiw.utils.http;
 
+import java.io.IOException;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import org.jetbrains.annotations.NotNull;
@@ -12,6 +10,8 @@ import org.slf4j.LoggerFactory;
 
 import net.ethandankiw.GlobalConstants;
 import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.ContentEncoding;
+import net.ethandankiw.data.http.HttpHeaders;
 import net.ethandankiw.data.http.HttpResponse;
 import net.ethandankiw.data.http.HttpStatusCode;
 import net.ethandankiw.utils.SocketUtils;
@@ -20,6 +20,9 @@ public class HttpResponseUtils {
 
 	private static final Logger logger = LoggerFactory.getLogger(HttpResponseUtils.class);
 
+	// Media type of a stream of server-sent events
+	public static final String EVENT_STREAM_TYPE = "text/event-stream";
+
 
 	private HttpResponseUtils() {
 	}
@@ -32,12 +35,20 @@ public class HttpResponseUtils {
 		HttpResponse response = HttpResponseUtils.generateResponse(status, body, clock.getClockValue());
 
 		// Send the complete response to the client
-		boolean success = SocketUtils.writeToSocket(client, response.toString());
+		sendResponse(client, response);
+	}
+
+
+	public static boolean sendResponse(Socket client, HttpResponse response) {
+		// Encode the head and body together so the response is sent in a single write
+		boolean success = SocketUtils.writeToSocket(client, HttpResponseEncoder.encodeToArray(response), GlobalConstants.WRITE_TIMEOUT);
 
 		// If the response cannot be written to the client
 		if (!success) {
 			logger.error("Unable to send response to client");
 		}
+
+		return success;
 	}
 
 
@@ -57,7 +68,7 @@ public class HttpResponseUtils {
 		Integer code = status.getStatusCode();
 
 		// Add the lamport clock to the response
-		response.addHeader(GlobalConstants.LAMPORT_CLOCK_HEADER, String.valueOf(clockValue));
+		response.addHeader(HttpHeaders.LAMPORT_CLOCK, String.valueOf(clockValue));
 
 		// If the response is successful
 		if (code >= 200 && code < 300) {
@@ -67,16 +78,16 @@ public class HttpResponseUtils {
 				response.setBody("");
 			} else {
 				response.setBody(body);
-				response.addHeader("Content-Type", "application/json");
-				response.addHeader("Content-Length", String.valueOf(body.length()));
+				response.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+				response.addHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(response.getBodyBytes().length));
 			}
 		}
 		// If the response is a client or server error
 		else if (code >= 400 && code < 600) {
 			logger.debug("Unsuccessful Response Detected: {} {}", code, status.getReasonPhrase());
 			response.setBody(body);
-			response.addHeader("Content-Type", "text/plain");
-			response.addHeader("Content-Length", String.valueOf(body.length()));
+			response.addHeader(HttpHeaders.CONTENT_TYPE, "text/plain");
+			response.addHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(response.getBodyBytes().length));
 		}
 
 		// Return the response object
@@ -85,138 +96,122 @@ public class HttpResponseUtils {
 
 
 	/**
-	 * Parse a client request
+	 * Generate a response with a body that has already been encoded.
+	 *
+	 * @param body the body bytes, compressed using the encoding
+	 * @param encoding the content encoding of the body
 	 */
-	public static Optional<HttpResponse> parseServerResponse(Socket server) {
-		// If the server socket does not exist
-		if (server == null) {
-			logger.error("Server socket does not exist");
-			return Optional.empty();
-		}
-
-		// Read the response from the server
-		Optional<String> optionalResponse = SocketUtils.readFromSocket(server);
+	public static HttpResponse generateResponse(HttpStatusCode status, byte[] body, ContentEncoding encoding, long clockValue) {
+		// Generate the status line and headers
+		HttpResponse response = generateResponse(status, "", clockValue);
 
-		// If there was no response
-		if (optionalResponse.isEmpty()) {
-			logger.error("Response from server does not exist");
-			return Optional.empty();
+		// If the response cannot have a body
+		if (response.getStatusCode() == 204) {
+			return response;
 		}
 
-		// Get the response as a string
-		String responseStr = optionalResponse.get();
+		// Set the encoded body and its length in bytes
+		response.setBodyBytes(body);
+		response.addHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(body.length));
 
-		// If the response has no content
-		if (responseStr.isEmpty()) {
-			logger.error("Response from server was empty");
-			return Optional.empty();
+		// Tell the client how to decode the body
+		if (encoding != ContentEncoding.IDENTITY) {
+			response.addHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
 		}
 
-		// Parse the response from the server
-		return parseResponse(responseStr);
-	}
-
-
-	private static Optional<HttpResponse> parseResponse(String responseStr) {
-		// Create a new HTTP Response object
-		HttpResponse response = new HttpResponse();
-
-		// Partition the response
-		Optional<List<String>> optionalPartition = partitionResponse(responseStr);
-
-		// If the partition was not successful
-		if (optionalPartition.isEmpty()) {
-			logger.error("Unable to partition response string");
-			return Optional.empty();
-		}
+		// Caches must store a variant for each encoding
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
 
-		// Get the partitions
-		List<String> partitions = optionalPartition.get();
+		return response;
+	}
 
-		// Extract the partitions
-		String statusLine = partitions.get(0);
-		String headersLine = partitions.get(1);
-		String body = partitions.get(2);
 
-		// Parse the response status line and populate the response object
-		boolean statusSuccess = populateResponseStatus(statusLine, response);
+	/**
+	 * Generate a bodiless response telling the client its cached
+	 * representation is still current.
+	 *
+	 * @param etag the entity tag of the current representation
+	 */
+	public static HttpResponse generateNotModifiedResponse(String etag, long clockValue) {
+		// Generate the status line and headers without a body
+		HttpResponse response = generateResponse(HttpStatusCode.NOT_MODIFIED, "", clockValue);
 
-		// If the population was not successful
-		if (!statusSuccess) {
-			logger.error("Unable to parse response status from server");
-			return Optional.empty();
-		}
+		// Identify the representation the client should reuse
+		response.addHeader(HttpHeaders.ETAG, etag);
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
 
-		// Parse the response headers and populate the response object
-		boolean headerSuccess = populateHeaders(headersLine, response);
+		return response;
+	}
 
-		// If the population was not successful
-		if (!headerSuccess) {
-			logger.error("Unable to parse response headers from server");
-			return Optional.empty();
-		}
 
-		// If the response has no response body
-		// Status Code 204 == No Content
-		if (response.getStatusCode() == 204) {
-			return Optional.of(response);
-		}
+	/**
+	 * Generate the head of an event stream. Events are written after it
+	 * until the connection closes, so the response has no content length.
+	 */
+	public static HttpResponse generateEventStreamResponse(long clockValue) {
+		HttpResponse response = new HttpResponse();
+		response.setStatus(HttpStatusCode.OK);
 
-		// Verify that the response body exists
-		if (body == null || body.isBlank()) {
-			logger.error("Unable to parse response body from server");
-			return Optional.empty();
-		}
+		// Add the lamport clock to the response
+		response.addHeader(HttpHeaders.LAMPORT_CLOCK, String.valueOf(clockValue));
 
-		// Populate the body onto the response object
-		response.setBody(body.trim());
+		// Events must reach the client as they are sent, so the stream is never cached
+		response.addHeader(HttpHeaders.CONTENT_TYPE, EVENT_STREAM_TYPE);
+		response.addHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+		response.addHeader(HttpHeaders.CONNECTION, "close");
 
-		// Return the parsed response
-		return Optional.of(response);
+		return response;
 	}
 
 
-	private static Optional<List<String>> partitionResponse(String responseStr) {
-		// Define the partition in the response [statusLine, headers, body]
-		List<String> partitions = new ArrayList<>();
+	/**
+	 * Create a weak entity tag from the Lamport clock of the data in a
+	 * response, which changes whenever the data changes.
+	 */
+	public static String createETag(long lamportClock) {
+		return "W/\"" + lamportClock + "\"";
+	}
 
-		// Split the response string into response status line + rest of response
-		String[] splitResponse = responseStr.split("\n", 2);
 
-		// If split response is not partitioned correctly
-		if (splitResponse.length != 2) {
-			logger.error("Unable to extract status line from response string");
-			return Optional.empty();
+	public static HttpResponse addConnectionHeaders(HttpResponse response, boolean keepAlive, int served) {
+		// Tell the client if the connection will stay open after this response
+		if (keepAlive) {
+			int timeout = GlobalConstants.KEEP_ALIVE_TIMEOUT / 1000;
+			int remaining = GlobalConstants.MAX_REQUESTS_PER_CONNECTION - served;
+			response.addHeader(HttpHeaders.CONNECTION, "keep-alive");
+			response.addHeader(HttpHeaders.KEEP_ALIVE, "timeout=" + timeout + ", max=" + remaining);
+		} else {
+			response.addHeader(HttpHeaders.CONNECTION, "close");
 		}
 
-		// Get the status line string
-		String statusLine = splitResponse[0];
-		String headerBody = splitResponse[1];
-
-		// Put the status line on the partition
-		partitions.add(statusLine);
+		return response;
+	}
 
-		// Split the remaining header + body
-		String[] splitHeaderBody = headerBody.split("\n\n", 2);
 
-		// If split header + body is not partitioned correctly
-		if (splitHeaderBody.length != 2) {
-			logger.error("Unable to extract headers from response string");
+	/**
+	 * Parse a single framed response from the server. The connection is left
+	 * open, positioned after the response body.
+	 */
+	public static Optional<HttpResponse> parseServerResponse(Socket server) {
+		// If the server socket does not exist
+		if (server == null) {
+			logger.error("Server socket does not exist");
 			return Optional.empty();
 		}
 
-		// Add the headers to the partition
-		partitions.add(splitHeaderBody[0]);
-
-		// Add the body to the partition
-		partitions.add(splitHeaderBody[1]);
+		try {
+			// Read the response using its declared framing
+			return new HttpResponseReader(server.getInputStream()).readResponse();
+		} catch (IOException ioe) {
+			logger.error("Unable to get input stream for server: {}", ioe.getMessage());
+		}
 
-		// Return all the response partitions
-		return Optional.of(partitions);
+		// Default to no response
+		return Optional.empty();
 	}
 
 
-	private static boolean populateResponseStatus(String statusLine, HttpResponse response) {
+	static boolean populateResponseStatus(String statusLine, HttpResponse response) {
 		// If there is no status line to parse
 		if (statusLine == null || statusLine.isBlank()) {
 			logger.error("Status line does not exist");
@@ -250,7 +245,7 @@ public class HttpResponseUtils {
 	}
 
 
-	private static boolean populateHeaders(String headersLine, HttpResponse response) {
+	static boolean populateHeaders(String headersLine, HttpResponse response) {
 		// If there is no status line to parse
 		if (headersLine == null || headersLine.isBlank()) {
 			logger.error("Header line does not exist");
@@ -258,7 +253,7 @@ public class HttpResponseUtils {
 		}
 
 		// Use header utils to parse headers
-		Optional<Map<String, String>> optionalHeaders = HttpHeaderUtils.parseHeaders(headersLine);
+		Optional<HttpHeaders> optionalHeaders = HttpHeaderUtils.parseHeaders(headersLine);
 
 		// If the headers cannot be parsed
 		if (optionalHeaders.isEmpty()) {
@@ -267,7 +262,7 @@ public class HttpResponseUtils {
 		}
 
 		// Get the headers
-		Map<String, String> headers = optionalHeaders.get();
+		HttpHeaders headers = optionalHeaders.get();
 
 		// If there are no headers
 		if (headers.isEmpty()) {
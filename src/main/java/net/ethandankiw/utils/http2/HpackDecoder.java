@@ -0,0 +1,150 @@
+package net.ethandankiw.utils.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes HPACK header blocks sent by one peer. Every block on a connection
+ * must be decoded in the order it was received, as each one can change the
+ * dynamic table used by the next.
+ */
+public final class HpackDecoder {
+
+	private final HpackTable table;
+
+	// Largest dynamic table the peer is allowed to ask for
+	private final int maxTableSize;
+
+	// Position of the next byte to decode in the current block
+	private byte[] block;
+	private int position;
+	private int end;
+
+
+	public HpackDecoder(int maxTableSize) {
+		this.maxTableSize = maxTableSize;
+		this.table = new HpackTable(maxTableSize);
+	}
+
+
+	/**
+	 * Decode a complete header block.
+	 *
+	 * @param block the bytes holding the header block
+	 * @param length the number of bytes in the header block
+	 * @return the name and value of every header, in the order they were sent
+	 * @throws Http2Exception if the block cannot be decoded, which leaves the
+	 * connection unusable
+	 */
+	public List<String[]> decode(byte[] block, int length) throws Http2Exception {
+		this.block = block;
+		this.position = 0;
+		this.end = length;
+
+		List<String[]> fields = new ArrayList<>();
+		boolean fieldSeen = false;
+
+		while (position < end) {
+			int first = block[position] & 0xff;
+
+			// Indexed header field
+			if ((first & 0x80) != 0) {
+				int index = readInteger(7);
+				fields.add(table.get(index));
+				fieldSeen = true;
+				continue;
+			}
+
+			// Literal header field added to the dynamic table
+			if ((first & 0x40) != 0) {
+				String[] field = readLiteral(6);
+				table.add(field[0], field[1]);
+				fields.add(field);
+				fieldSeen = true;
+				continue;
+			}
+
+			// Dynamic table size update, which must come before any header field
+			if ((first & 0x20) != 0) {
+				int size = readInteger(5);
+				if (fieldSeen || size > maxTableSize) {
+					throw new Http2Exception(Http2ErrorCode.COMPRESSION_ERROR, "Invalid dynamic table size update");
+				}
+				table.setMaxSize(size);
+				continue;
+			}
+
+			// Literal header field without indexing, or never indexed
+			fields.add(readLiteral(4));
+			fieldSeen = true;
+		}
+
+		// Release the block, as it belongs to the caller
+		this.block = null;
+		return fields;
+	}
+
+
+	private String[] readLiteral(int prefixBits) throws Http2Exception {
+		int index = readInteger(prefixBits);
+
+		// The name is either indexed or sent as a string
+		String name = index == 0 ? readString() : table.get(index)[0];
+		String value = readString();
+		return new String[]{name, value};
+	}
+
+
+	private String readString() throws Http2Exception {
+		// If the length prefix is missing
+		if (position >= end) {
+			throw new Http2Exception(Http2ErrorCode.COMPRESSION_ERROR, "Truncated header string");
+		}
+
+		boolean huffman = (block[position] & 0x80) != 0;
+		int length = readInteger(7);
+
+		// If the string runs past the end of the block
+		if (length > end - position) {
+			throw new Http2Exception(Http2ErrorCode.COMPRESSION_ERROR, "Truncated header string");
+		}
+
+		int start = position;
+		position += length;
+
+		// If the string was sent as is
+		if (!huffman) {
+			return new String(block, start, length, StandardCharsets.ISO_8859_1);
+		}
+
+		return new String(Huffman.decode(block, start, start + length), StandardCharsets.ISO_8859_1);
+	}
+
+
+	private int readInteger(int prefixBits) throws Http2Exception {
+		int mask = (1 << prefixBits) - 1;
+		int value = block[position++] & mask;
+
+		// If the value fits in the prefix
+		if (value < mask) {
+			return value;
+		}
+
+		// Add seven bits from each continuation byte, least significant first
+		for (int shift = 0; ; shift += 7) {
+			// If the integer is truncated or too large to be a sensible length or index
+			if (position >= end || shift > 21) {
+				throw new Http2Exception(Http2ErrorCode.COMPRESSION_ERROR, "Invalid header integer");
+			}
+
+			int next = block[position++] & 0xff;
+			value += (next & 0x7f) << shift;
+
+			// The last byte has its high bit clear
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+}
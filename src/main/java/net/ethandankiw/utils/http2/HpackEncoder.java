@@ -0,0 +1,125 @@
+package net.ethandankiw.utils.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import net.ethandankiw.data.http.HttpHeaders;
+
+/**
+ * Encodes header blocks sent to one peer. Headers that repeat between
+ * responses are added to the dynamic table so later responses only send
+ * their index, and strings are Huffman encoded when that is shorter.
+ */
+public final class HpackEncoder {
+
+	// Headers whose values change with every response, so indexing them only evicts useful entries
+	private static final Set<String> NOT_INDEXED = Set.of(HttpHeaders.CONTENT_LENGTH, HttpHeaders.ETAG, HttpHeaders.LAMPORT_CLOCK);
+
+	private final HpackTable table = new HpackTable(HpackTable.DEFAULT_MAX_SIZE);
+
+	// Table size the peer allows, which is signalled at the start of the next block when it changes
+	private int pendingMaxSize = -1;
+
+
+	/**
+	 * Use a new dynamic table size limit from the peer's settings. The table
+	 * never grows past the default size, so it stays small for every peer.
+	 */
+	public void setMaxTableSize(int peerMaxSize) {
+		int maxSize = Math.min(peerMaxSize, HpackTable.DEFAULT_MAX_SIZE);
+
+		// If the size is unchanged, there is nothing to signal
+		if (maxSize == table.getMaxSize() && pendingMaxSize < 0) {
+			return;
+		}
+
+		pendingMaxSize = maxSize;
+	}
+
+
+	/**
+	 * Encode a complete header block.
+	 *
+	 * @param fields the name and value of every header, with names in lower case
+	 * @return the encoded header block
+	 */
+	public byte[] encode(List<String[]> fields) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// Tell the peer about a table size change before any header
+		if (pendingMaxSize >= 0) {
+			table.setMaxSize(pendingMaxSize);
+			writeInteger(out, 0x20, 5, pendingMaxSize);
+			pendingMaxSize = -1;
+		}
+
+		for (String[] field : fields) {
+			String name = field[0];
+			String value = field[1];
+
+			// If the whole field is already in the table, only send its index
+			int index = table.indexOf(name, value);
+			if (index > 0) {
+				writeInteger(out, 0x80, 7, index);
+				continue;
+			}
+
+			int nameIndex = table.indexOfName(name);
+
+			// If the value is unlikely to repeat, send it without adding it to the table
+			if (NOT_INDEXED.contains(name)) {
+				writeInteger(out, 0x00, 4, nameIndex);
+			} else {
+				writeInteger(out, 0x40, 6, nameIndex);
+				table.add(name, value);
+			}
+
+			// Send the name as a string if it is not indexed
+			if (nameIndex == 0) {
+				writeString(out, name);
+			}
+
+			writeString(out, value);
+		}
+
+		return out.toByteArray();
+	}
+
+
+	private static void writeString(ByteArrayOutputStream out, String string) {
+		byte[] octets = string.getBytes(StandardCharsets.ISO_8859_1);
+		int huffmanLength = Huffman.encodedLength(octets);
+
+		// If Huffman encoding does not make the string shorter, send it as is
+		if (huffmanLength >= octets.length) {
+			writeInteger(out, 0x00, 7, octets.length);
+			out.writeBytes(octets);
+			return;
+		}
+
+		writeInteger(out, 0x80, 7, huffmanLength);
+		Huffman.encode(octets, out);
+	}
+
+
+	private static void writeInteger(ByteArrayOutputStream out, int pattern, int prefixBits, int value) {
+		int mask = (1 << prefixBits) - 1;
+
+		// If the value fits in the prefix
+		if (value < mask) {
+			out.write(pattern | value);
+			return;
+		}
+
+		// Fill the prefix and send the rest seven bits at a time
+		out.write(pattern | mask);
+		value -= mask;
+		while (value >= 0x80) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+}
@@ -0,0 +1,236 @@
+package net.ethandankiw.utils.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index space shared by the static table and the dynamic table of an HPACK
+ * encoder or decoder, as defined in RFC 7541 Section 2.3. Indexes 1 to 61
+ * refer to the static table and later indexes refer to dynamic entries,
+ * newest first.
+ * <p>
+ * Names and values are stored as ISO-8859-1 strings, so their lengths are
+ * the number of octets they were sent as.
+ */
+public final class HpackTable {
+
+	// Size of the dynamic table before either peer changes it
+	public static final int DEFAULT_MAX_SIZE = 4096; // bytes
+
+	// Overhead counted for every dynamic entry on top of its name and value
+	private static final int ENTRY_OVERHEAD = 32; // bytes
+
+	private static final String[][] STATIC_ENTRIES = {
+			{":authority", ""},
+			{":method", "GET"},
+			{":method", "POST"},
+			{":path", "/"},
+			{":path", "/index.html"},
+			{":scheme", "http"},
+			{":scheme", "https"},
+			{":status", "200"},
+			{":status", "204"},
+			{":status", "206"},
+			{":status", "304"},
+			{":status", "400"},
+			{":status", "404"},
+			{":status", "500"},
+			{"accept-charset", ""},
+			{"accept-encoding", "gzip, deflate"},
+			{"accept-language", ""},
+			{"accept-ranges", ""},
+			{"accept", ""},
+			{"access-control-allow-origin", ""},
+			{"age", ""},
+			{"allow", ""},
+			{"authorization", ""},
+			{"cache-control", ""},
+			{"content-disposition", ""},
+			{"content-encoding", ""},
+			{"content-language", ""},
+			{"content-length", ""},
+			{"content-location", ""},
+			{"content-range", ""},
+			{"content-type", ""},
+			{"cookie", ""},
+			{"date", ""},
+			{"etag", ""},
+			{"expect", ""},
+			{"expires", ""},
+			{"from", ""},
+			{"host", ""},
+			{"if-match", ""},
+			{"if-modified-since", ""},
+			{"if-none-match", ""},
+			{"if-range", ""},
+			{"if-unmodified-since", ""},
+			{"last-modified", ""},
+			{"link", ""},
+			{"location", ""},
+			{"max-forwards", ""},
+			{"proxy-authenticate", ""},
+			{"proxy-authorization", ""},
+			{"range", ""},
+			{"referer", ""},
+			{"refresh", ""},
+			{"retry-after", ""},
+			{"server", ""},
+			{"set-cookie", ""},
+			{"strict-transport-security", ""},
+			{"transfer-encoding", ""},
+			{"user-agent", ""},
+			{"vary", ""},
+			{"via", ""},
+			{"www-authenticate", ""}
+	};
+
+	// Lowest static index for every name, and the static index of every name and value pair
+	private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+	private static final Map<String, Integer> STATIC_FIELDS = new HashMap<>();
+
+	static {
+		for (int i = STATIC_ENTRIES.length - 1; i >= 0; i--) {
+			STATIC_NAMES.put(STATIC_ENTRIES[i][0], i + 1);
+			STATIC_FIELDS.put(STATIC_ENTRIES[i][0] + '\0' + STATIC_ENTRIES[i][1], i + 1);
+		}
+	}
+
+	// Dynamic entries in a ring, with the newest entry just before the head
+	private String[][] entries = new String[16][];
+	private int head = 0;
+	private int count = 0;
+
+	// Bytes used by the dynamic entries, and the most they may use
+	private int size = 0;
+	private int maxSize;
+
+
+	public HpackTable(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+
+	/**
+	 * Get the name and value at an index.
+	 *
+	 * @throws Http2Exception if nothing is stored at the index
+	 */
+	public String[] get(int index) throws Http2Exception {
+		// If the index is in the static table
+		if (index >= 1 && index <= STATIC_ENTRIES.length) {
+			return STATIC_ENTRIES[index - 1];
+		}
+
+		// If the index is past the newest dynamic entry
+		int dynamicIndex = index - STATIC_ENTRIES.length - 1;
+		if (dynamicIndex < 0 || dynamicIndex >= count) {
+			throw new Http2Exception(Http2ErrorCode.COMPRESSION_ERROR, "Invalid header table index " + index);
+		}
+
+		return entries[Math.floorMod(head - 1 - dynamicIndex, entries.length)];
+	}
+
+
+	/**
+	 * Find the index of an entry with the same name and value.
+	 *
+	 * @return the index, or 0 if there is no such entry
+	 */
+	public int indexOf(String name, String value) {
+		// Prefer the static table as it never changes
+		Integer index = STATIC_FIELDS.get(name + '\0' + value);
+		if (index != null) {
+			return index;
+		}
+
+		for (int i = 0; i < count; i++) {
+			String[] entry = entries[Math.floorMod(head - 1 - i, entries.length)];
+			if (entry[0].equals(name) && entry[1].equals(value)) {
+				return STATIC_ENTRIES.length + 1 + i;
+			}
+		}
+
+		return 0;
+	}
+
+
+	/**
+	 * Find the index of an entry with the same name.
+	 *
+	 * @return the index, or 0 if there is no such entry
+	 */
+	public int indexOfName(String name) {
+		// Prefer the static table as it never changes
+		Integer index = STATIC_NAMES.get(name);
+		if (index != null) {
+			return index;
+		}
+
+		for (int i = 0; i < count; i++) {
+			if (entries[Math.floorMod(head - 1 - i, entries.length)][0].equals(name)) {
+				return STATIC_ENTRIES.length + 1 + i;
+			}
+		}
+
+		return 0;
+	}
+
+
+	/**
+	 * Add an entry as the newest dynamic entry, evicting the oldest entries
+	 * until it fits. An entry larger than the whole table empties it.
+	 */
+	public void add(String name, String value) {
+		int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+
+		// Make room for the new entry
+		evict(maxSize - entrySize);
+
+		// If the entry can never fit, the table is left empty
+		if (entrySize > maxSize) {
+			return;
+		}
+
+		// Double the ring if every slot is used
+		if (count == entries.length) {
+			String[][] grown = new String[entries.length * 2][];
+			for (int i = 0; i < count; i++) {
+				grown[i] = entries[Math.floorMod(head - count + i, entries.length)];
+			}
+			entries = grown;
+			head = count;
+		}
+
+		entries[head] = new String[]{name, value};
+		head = (head + 1) % entries.length;
+		count += 1;
+		size += entrySize;
+	}
+
+
+	/**
+	 * Change the most bytes the dynamic entries may use, evicting the oldest
+	 * entries that no longer fit.
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		evict(maxSize);
+	}
+
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+
+	private void evict(int targetSize) {
+		// Remove the oldest entries until the table is small enough
+		while (count > 0 && size > targetSize) {
+			int oldest = Math.floorMod(head - count, entries.length);
+			String[] entry = entries[oldest];
+			entries[oldest] = null;
+			count -= 1;
+			size -= entry[0].length() + entry[1].length() + ENTRY_OVERHEAD;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package net.ethandankiw.utils.http2;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a peer breaks the HTTP/2 protocol. Errors with a stream ID
+ * only reset that stream, while connection errors end the whole connection.
+ */
+public class Http2Exception extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Http2ErrorCode errorCode;
+
+	// Stream the error applies to, or 0 for the whole connection
+	private final int streamId;
+
+
+	public Http2Exception(Http2ErrorCode errorCode, String message) {
+		this(errorCode, 0, message);
+	}
+
+
+	public Http2Exception(Http2ErrorCode errorCode, int streamId, String message) {
+		super(message);
+		this.errorCode = errorCode;
+		this.streamId = streamId;
+	}
+
+
+	public Http2ErrorCode getErrorCode() {
+		return errorCode;
+	}
+
+
+	public int getStreamId() {
+		return streamId;
+	}
+
+
+	public boolean isConnectionError() {
+		return streamId == 0;
+	}
+}
@@ -0,0 +1,173 @@
+package net.ethandankiw.utils.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single HTTP/2 frame, as defined in RFC 9113 Section 4.1, along with the
+ * frame types, flags and settings used by the h2c listener.
+ */
+public final class Http2Frame {
+
+	// Bytes sent by a client before its first frame
+	public static final byte[] CONNECTION_PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	// Size of the header in front of every frame payload
+	public static final int HEADER_LENGTH = 9; // bytes
+
+	// Frame types
+	public static final int DATA = 0x0;
+	public static final int HEADERS = 0x1;
+	public static final int PRIORITY = 0x2;
+	public static final int RST_STREAM = 0x3;
+	public static final int SETTINGS = 0x4;
+	public static final int PUSH_PROMISE = 0x5;
+	public static final int PING = 0x6;
+	public static final int GOAWAY = 0x7;
+	public static final int WINDOW_UPDATE = 0x8;
+	public static final int CONTINUATION = 0x9;
+
+	// Frame flags
+	public static final int FLAG_END_STREAM = 0x1;
+	public static final int FLAG_ACK = 0x1;
+	public static final int FLAG_END_HEADERS = 0x4;
+	public static final int FLAG_PADDED = 0x8;
+	public static final int FLAG_PRIORITY = 0x20;
+
+	// Settings parameters
+	public static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+	public static final int SETTINGS_ENABLE_PUSH = 0x2;
+	public static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+	public static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	public static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+	public static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+	// Limits on frame payloads and flow control windows
+	public static final int DEFAULT_MAX_FRAME_SIZE = 16_384; // bytes
+	public static final int MAX_ALLOWED_FRAME_SIZE = 16_777_215; // bytes
+	public static final int DEFAULT_WINDOW_SIZE = 65_535; // bytes
+	public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE; // bytes
+
+	private final int type;
+	private final int flags;
+	private final int streamId;
+	private final byte[] payload;
+
+
+	private Http2Frame(int type, int flags, int streamId, byte[] payload) {
+		this.type = type;
+		this.flags = flags;
+		this.streamId = streamId;
+		this.payload = payload;
+	}
+
+
+	/**
+	 * Read the next frame, blocking until all of it has arrived.
+	 *
+	 * @param maxFrameSize the largest payload that will be accepted
+	 * @throws EOFException if the connection ends before the frame is complete
+	 * @throws Http2Exception if the payload is larger than the limit
+	 */
+	public static Http2Frame read(InputStream in, int maxFrameSize) throws IOException {
+		byte[] header = in.readNBytes(HEADER_LENGTH);
+
+		// If the connection ended between frames or part way through a header
+		if (header.length < HEADER_LENGTH) {
+			throw new EOFException("Connection closed before the frame header was complete");
+		}
+
+		int length = ((header[0] & 0xff) << 16) | ((header[1] & 0xff) << 8) | (header[2] & 0xff);
+		int type = header[3] & 0xff;
+		int flags = header[4] & 0xff;
+
+		// The reserved bit of the stream ID is ignored
+		int streamId = readInt(header, 5) & 0x7fffffff;
+
+		// Reject payloads larger than was advertised, before reading them
+		if (length > maxFrameSize) {
+			throw new Http2Exception(Http2ErrorCode.FRAME_SIZE_ERROR, "Frame of " + length + " bytes is larger than the limit");
+		}
+
+		byte[] payload = in.readNBytes(length);
+
+		// If the connection ended part way through the payload
+		if (payload.length < length) {
+			throw new EOFException("Connection closed before the frame payload was complete");
+		}
+
+		return new Http2Frame(type, flags, streamId, payload);
+	}
+
+
+	/**
+	 * Append an encoded frame to a buffer of frames waiting to be sent.
+	 */
+	public static void write(ByteArrayOutputStream out, int type, int flags, int streamId, byte[] payload, int offset, int length) {
+		out.write(length >>> 16);
+		out.write(length >>> 8);
+		out.write(length);
+		out.write(type);
+		out.write(flags);
+		writeInt(out, streamId);
+		out.write(payload, offset, length);
+	}
+
+
+	public static void write(ByteArrayOutputStream out, int type, int flags, int streamId, byte[] payload) {
+		write(out, type, flags, streamId, payload, 0, payload.length);
+	}
+
+
+	/**
+	 * Read a big-endian 32-bit integer from a payload.
+	 */
+	public static int readInt(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+				| ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+	}
+
+
+	/**
+	 * Append a big-endian 32-bit integer to a payload.
+	 */
+	public static void writeInt(ByteArrayOutputStream out, int value) {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+
+	public int getType() {
+		return type;
+	}
+
+
+	public int getFlags() {
+		return flags;
+	}
+
+
+	public boolean hasFlag(int flag) {
+		return (flags & flag) != 0;
+	}
+
+
+	public int getStreamId() {
+		return streamId;
+	}
+
+
+	public byte[] getPayload() {
+		return payload;
+	}
+
+
+	public int getLength() {
+		return payload.length;
+	}
+}
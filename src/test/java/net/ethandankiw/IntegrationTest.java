@@ -17,6 +17,7 @@ import net.ethandankiw.client.GetClient;
 import net.ethandankiw.content.ContentServer;
 import net.ethandankiw.data.http.HttpResponse;
 import net.ethandankiw.data.store.FileManager;
+import net.ethandankiw.server.HttpServerMode;
 
 class IntegrationTest {
 
@@ -171,6 +172,57 @@ class IntegrationTest {
 	}
 
 
+	@Test
+	void testPutAndGetRequestNioMode() throws InterruptedException {
+		logger.info("\n\n\n\n\nStarting testPutAndGetRequestNioMode\n\n");
+
+		// Restart the load balancer with the non-blocking front end
+		teardown();
+		LoadBalancer.setServerMode(HttpServerMode.NIO);
+		setup();
+
+		CountDownLatch latch = new CountDownLatch(2);
+
+		// Start the Content Server
+		String[] args = new String[] { url, file };
+		contentServerPool.submit(() -> {
+			try {
+				ContentServer.main(args);
+			} finally {
+				latch.countDown();
+			}
+		});
+
+		// Add slight delay to GET client so that PUT arrives first
+		Thread.sleep(100);
+
+		// Start the GET client to fetch the content
+		getClientPool.submit(() -> {
+			try {
+				GetClient.main(args);
+			} finally {
+				latch.countDown();
+			}
+		});
+
+		// Wait for a reasonable amount of time for both tasks to complete
+		boolean allTasksCompleted = latch.await(10, TimeUnit.SECONDS);
+		Assertions.assertTrue(allTasksCompleted, "Tasks did not complete within the timeout period.");
+
+		// Check that the PUT request created the resource
+		HttpResponse putResponse = ContentServer.storedResponse;
+		Assertions.assertNotNull(putResponse, "Response from PUT client should not be null");
+		Assertions.assertEquals(201, putResponse.getStatusCode(), "Response should indicate that a resource was created");
+
+		// Check that the GET request returned the resource
+		HttpResponse getResponse = GetClient.storedResponse;
+		Assertions.assertNotNull(getResponse, "Response from GET client should not be null");
+		Assertions.assertEquals(200, getResponse.getStatusCode(), "Response should contain the stored weather data");
+
+		logger.info("\n\n\ntestPutAndGetRequestNioMode Done\n\n\n\n\n");
+	}
+
+
 	@Test
 	void testInvalidGet() {
 		logger.info("\n\n\n\n\nStarting testInvalidGet\n\n");
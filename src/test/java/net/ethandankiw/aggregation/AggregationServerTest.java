@@ -0,0 +1,411 @@
+package net.ethandankiw.aggregation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.store.ContentStore;
+import net.ethandankiw.data.store.FileManager;
+import net.ethandankiw.data.store.StationEvent;
+import net.ethandankiw.data.store.StationEventBroker;
+import net.ethandankiw.server.ExecutionMode;
+import net.ethandankiw.utils.http.HttpResponseReader;
+import net.ethandankiw.utils.http.HttpResponseUtils;
+
+class AggregationServerTest {
+
+	private static final String HEALTH_REQUEST = "GET /health HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+	private AggregationServer server;
+
+	// Client side of the connection handed to the server
+	private Socket client;
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		// Start from an empty content store
+		FileManager.deleteAllContentFiles();
+		ContentStore.reset();
+		ContentStore.startProcessorThread();
+
+		server = new AggregationServer();
+
+		// Connect a client and hand the accepted side to the server
+		try (ServerSocket listener = new ServerSocket(0)) {
+			client = new Socket("localhost", listener.getLocalPort());
+			client.setSoTimeout(5000);
+			server.handleClientConnection(listener.accept(), new LamportClock());
+		}
+	}
+
+
+	@AfterEach
+	void teardown() throws IOException {
+		client.close();
+		server.shutdown();
+		ContentStore.stopProcessorThread();
+		FileManager.deleteAllContentFiles();
+	}
+
+
+	@Test
+	void testConnectionKeptOpenBetweenRequests() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+
+		// Send each request only after the previous response, over the same connection
+		for (int i = 0; i < 3; i++) {
+			send(HEALTH_REQUEST);
+			Optional<HttpResponse> response = reader.readResponse();
+
+			Assertions.assertTrue(response.isPresent());
+			Assertions.assertEquals(200, response.get().getStatusCode());
+			Assertions.assertEquals("keep-alive", response.get().getHeaderValue(HttpHeaders.CONNECTION));
+			Assertions.assertTrue(reader.isReusable());
+		}
+
+		Assertions.assertEquals(1, server.getOpenConnectionsCount());
+	}
+
+
+	@Test
+	void testConnectionClosedWhenRequested() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+
+		send("GET /health HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+		Optional<HttpResponse> response = reader.readResponse();
+
+		// The server answers, then closes its side of the connection
+		Assertions.assertTrue(response.isPresent());
+		Assertions.assertEquals("close", response.get().getHeaderValue(HttpHeaders.CONNECTION));
+		Assertions.assertFalse(reader.isReusable());
+		Assertions.assertTrue(reader.isClosedByServer());
+	}
+
+
+	@Test
+	void testHttp10ConnectionClosedByDefault() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+
+		send("GET /health HTTP/1.0\r\n\r\n");
+		Optional<HttpResponse> response = reader.readResponse();
+
+		Assertions.assertTrue(response.isPresent());
+		Assertions.assertEquals("close", response.get().getHeaderValue(HttpHeaders.CONNECTION));
+		Assertions.assertTrue(reader.isClosedByServer());
+	}
+
+
+	@Test
+	void testPipelinedResponsesInRequestOrder() throws IOException {
+		String body = "{\"id\":\"IDS60901\",\"air_temp\":13.3}";
+
+		// Send a write, a read of the written station and a health check without waiting for a response
+		send("PUT /weather.json HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+				+ body.length() + "\r\n\r\n" + body
+				+ "GET /?station=IDS60901.json HTTP/1.1\r\nHost: localhost\r\n\r\n"
+				+ HEALTH_REQUEST);
+
+		List<HttpResponse> responses = readResponses(3);
+
+		// The read is answered after the write it follows, and every response keeps its request's place
+		Assertions.assertEquals(201, responses.get(0).getStatusCode());
+		Assertions.assertEquals(200, responses.get(1).getStatusCode());
+		Assertions.assertTrue(responses.get(1).getBody().contains("IDS60901"));
+		Assertions.assertEquals(200, responses.get(2).getStatusCode());
+		Assertions.assertEquals("OK", responses.get(2).getBody());
+	}
+
+
+	@Test
+	void testPipelinedRequestsAfterCloseIgnored() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+
+		// The second request was sent after the client asked for the connection to be closed
+		send("GET /health HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n" + HEALTH_REQUEST);
+
+		Assertions.assertTrue(reader.readResponse().isPresent());
+		Assertions.assertTrue(reader.isClosedByServer());
+	}
+
+
+	@Test
+	void testRevalidationAnsweredWithNotModified() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+		String body = "{\"id\":\"IDS60901\",\"air_temp\":13.3}";
+		String put = "PUT /weather.json HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+		String get = "GET /?station=IDS60901.json HTTP/1.1\r\nHost: localhost\r\n";
+
+		send(put);
+		Assertions.assertTrue(reader.readResponse().isPresent());
+
+		// The reading is tagged with the Lamport clock it was stored with
+		send(get + "\r\n");
+		HttpResponse first = reader.readResponse().orElseThrow();
+		String etag = first.getHeaderValue(HttpHeaders.ETAG);
+		Assertions.assertEquals(200, first.getStatusCode());
+		Assertions.assertNotNull(etag);
+
+		// A client holding the current reading is answered without a body
+		send(get + "If-None-Match: " + etag + "\r\n\r\n");
+		HttpResponse revalidated = reader.readResponse().orElseThrow();
+		Assertions.assertEquals(304, revalidated.getStatusCode());
+		Assertions.assertEquals(etag, revalidated.getHeaderValue(HttpHeaders.ETAG));
+		Assertions.assertEquals("", revalidated.getBody());
+
+		// Once the station is updated, the old tag no longer matches
+		send(put);
+		Assertions.assertTrue(reader.readResponse().isPresent());
+		send(get + "If-None-Match: " + etag + "\r\n\r\n");
+		HttpResponse updated = reader.readResponse().orElseThrow();
+		Assertions.assertEquals(200, updated.getStatusCode());
+		Assertions.assertNotEquals(etag, updated.getHeaderValue(HttpHeaders.ETAG));
+	}
+
+
+	@Test
+	void testVirtualLoadOnlyCountsRequestsInFlight() {
+		AggregationServer virtual = new AggregationServer(ExecutionMode.VIRTUAL);
+
+		try {
+			// Idle connections hold no platform thread, so they add no load
+			for (int i = 0; i < 50; i++) {
+				virtual.incrementOpenConnections();
+			}
+			Assertions.assertEquals(0.0, virtual.getLoad(), 1e-9);
+
+			for (int i = 0; i < 25; i++) {
+				virtual.incrementInFlightRequests();
+			}
+			Assertions.assertEquals(0.25, virtual.getLoad(), 1e-9);
+		} finally {
+			virtual.shutdown();
+		}
+	}
+
+
+	@Test
+	void testPlatformLoadCountsOpenConnections() {
+		AggregationServer platform = new AggregationServer(ExecutionMode.PLATFORM);
+
+		try {
+			// Each open connection pins a platform thread
+			for (int i = 0; i < 50; i++) {
+				platform.incrementOpenConnections();
+			}
+			Assertions.assertEquals(0.5, platform.getLoad(), 1e-9);
+		} finally {
+			platform.shutdown();
+		}
+	}
+
+
+	@Test
+	void testDrainingWaitsForRequestsAndConnections() throws InterruptedException {
+		AggregationServer draining = new AggregationServer(ExecutionMode.VIRTUAL);
+		draining.incrementOpenConnections();
+		draining.incrementInFlightRequests();
+
+		CountDownLatch drained = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			try {
+				draining.awaitFinishedProcessing();
+				drained.countDown();
+			} catch (InterruptedException ignored) {
+			}
+		});
+		waiter.start();
+
+		// The server is not drained while a connection is still open
+		draining.decrementInFlightRequests();
+		Assertions.assertFalse(drained.await(200, TimeUnit.MILLISECONDS));
+
+		draining.decrementOpenConnections();
+		Assertions.assertTrue(drained.await(2, TimeUnit.SECONDS));
+		draining.shutdown();
+	}
+
+
+	@Test
+	void testEventStreamReplaysStoredReadings() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+		send(createPut("{\"id\":\"IDS60901\",\"air_temp\":13.3}"));
+		send(createPut("{\"id\":\"IDS60902\",\"air_temp\":9.1}"));
+		Assertions.assertTrue(reader.readResponse().isPresent());
+		Assertions.assertTrue(reader.readResponse().isPresent());
+
+		// Writes are applied in the background, so read the station to wait for them
+		send("GET /?station=IDS60902.json HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		Assertions.assertTrue(reader.readResponse().isPresent());
+
+		// Read a snapshot of one station, which ends the stream once it is sent
+		send("GET /events?station=IDS60902&follow=false HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		HttpResponse response = reader.readResponse().orElseThrow();
+
+		Assertions.assertEquals(200, response.getStatusCode());
+		Assertions.assertEquals(HttpResponseUtils.EVENT_STREAM_TYPE, response.getHeaderValue(HttpHeaders.CONTENT_TYPE));
+		List<StationEvent> events = StationEvent.decodeAll(response.getBody());
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("IDS60902", events.get(0).getStationId());
+	}
+
+
+	@Test
+	void testEventStreamResumesAfterLastEvent() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+		send(createPut("{\"id\":\"IDS60901\",\"air_temp\":13.3}"));
+		send("GET /?station=IDS60901.json HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		Assertions.assertTrue(reader.readResponse().isPresent());
+		Assertions.assertTrue(reader.readResponse().isPresent());
+
+		// A client that already has the stored reading is sent nothing
+		long lastEventId = ContentStore.getEventsSince(null, 0)
+									   .get(0)
+									   .getLamportClock();
+		send("GET /events?follow=false HTTP/1.1\r\nHost: localhost\r\nLast-Event-ID: " + lastEventId + "\r\n\r\n");
+		HttpResponse response = reader.readResponse().orElseThrow();
+
+		Assertions.assertTrue(StationEvent.decodeAll(response.getBody()).isEmpty());
+	}
+
+
+	@Test
+	void testEventStreamFollowsNewReadings() throws IOException {
+		// Subscribe on the first connection, and write on a second
+		send("GET /events?station=IDS60901 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		BufferedReader events = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+
+		// The client is subscribed once the head of the response arrives
+		while (!events.readLine().isEmpty()) {
+			Assertions.assertEquals(1, StationEventBroker.getSubscriberCount());
+		}
+
+		try (Socket writer = connect()) {
+			OutputStream out = writer.getOutputStream();
+			out.write(createPut("{\"id\":\"IDS60901\",\"air_temp\":13.3}").getBytes(StandardCharsets.ISO_8859_1));
+			out.flush();
+
+			// The reading is pushed to the subscriber as it is applied
+			StringBuilder event = new StringBuilder();
+			String line;
+			while (!(line = events.readLine()).isEmpty()) {
+				event.append(line).append('\n');
+			}
+
+			List<StationEvent> decoded = StationEvent.decodeAll(event + "\n");
+			Assertions.assertEquals(1, decoded.size());
+			Assertions.assertEquals("IDS60901", decoded.get(0).getStationId());
+		}
+	}
+
+
+	@Test
+	void testReplicationRejectedWithoutToken() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+
+		// A server that is not a node has no replication to follow
+		send("GET /replication HTTP/1.1\r\nHost: localhost\r\nreplication-token: \r\n\r\n");
+		Assertions.assertEquals(403, reader.readResponse().orElseThrow().getStatusCode());
+
+		// A node only accepts the load balancer's secret
+		server.setReplicationToken("secret");
+		send("PUT /replication HTTP/1.1\r\nHost: localhost\r\nreplication-token: guess\r\nContent-Length: 0\r\n\r\n");
+		Assertions.assertEquals(403, reader.readResponse().orElseThrow().getStatusCode());
+	}
+
+
+	@Test
+	void testReplicaOnlyAnswersReadsItHasCaughtUpTo() throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+		server.setReplicationToken("secret");
+
+		// An invalid primary leaves the node as it was
+		send(createReplicationControl("?primary=localhost"));
+		Assertions.assertEquals(400, reader.readResponse().orElseThrow().getStatusCode());
+
+		// Follow a primary that is not running, so the replica never catches up
+		int port;
+		try (ServerSocket unused = new ServerSocket(0)) {
+			port = unused.getLocalPort();
+		}
+		send(createReplicationControl("?primary=localhost:" + port));
+		Assertions.assertEquals(200, reader.readResponse().orElseThrow().getStatusCode());
+
+		// Writes are left to the primary
+		send(createPut("{\"id\":\"IDS60901\"}"));
+		Assertions.assertEquals(503, reader.readResponse().orElseThrow().getStatusCode());
+
+		// A client that has seen a later clock is sent to the primary
+		send("GET /?station=IDS60901.json HTTP/1.1\r\nHost: localhost\r\nlamport-clock: 5\r\n\r\n");
+		HttpResponse behind = reader.readResponse().orElseThrow();
+		Assertions.assertEquals(503, behind.getStatusCode());
+		Assertions.assertEquals("0", behind.getHeaderValue(HttpHeaders.APPLIED_CLOCK));
+
+		// Once promoted, the node accepts writes again
+		send(createReplicationControl(""));
+		Assertions.assertEquals(200, reader.readResponse().orElseThrow().getStatusCode());
+		send(createPut("{\"id\":\"IDS60901\"}"));
+		HttpResponse created = reader.readResponse().orElseThrow();
+		Assertions.assertEquals(201, created.getStatusCode());
+		Assertions.assertNull(created.getHeaderValue(HttpHeaders.APPLIED_CLOCK));
+	}
+
+
+	private List<HttpResponse> readResponses(int count) throws IOException {
+		HttpResponseReader reader = new HttpResponseReader(client.getInputStream());
+		List<HttpResponse> responses = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			Optional<HttpResponse> response = reader.readResponse();
+			Assertions.assertTrue(response.isPresent());
+			responses.add(response.get());
+		}
+
+		return responses;
+	}
+
+
+	private Socket connect() throws IOException {
+		// Hand another connection to the server
+		try (ServerSocket listener = new ServerSocket(0)) {
+			Socket socket = new Socket("localhost", listener.getLocalPort());
+			socket.setSoTimeout(5000);
+			server.handleClientConnection(listener.accept(), new LamportClock());
+			return socket;
+		}
+	}
+
+
+	private static String createReplicationControl(String query) {
+		return "PUT /replication" + query + " HTTP/1.1\r\nHost: localhost\r\nreplication-token: secret\r\nContent-Length: 0\r\n\r\n";
+	}
+
+
+	private static String createPut(String body) {
+		return "PUT /weather.json HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+	}
+
+
+	private void send(String request) throws IOException {
+		OutputStream out = client.getOutputStream();
+		out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+}
@@ -0,0 +1,103 @@
+package net.ethandankiw.aggregation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.store.FileManager;
+import net.ethandankiw.server.DispatchMode;
+
+class LoadBalancerTest {
+
+	private static final String HEALTH_REQUEST = "GET /health HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+	private Thread loadBalancerThread;
+	private int port;
+
+
+	@AfterEach
+	void teardown() throws InterruptedException {
+		LoadBalancer.shutdown();
+		loadBalancerThread.join(2000);
+		LoadBalancer.reset();
+		FileManager.deleteAllContentFiles();
+	}
+
+
+	@Test
+	void testDirectDispatchAnswersRequests() throws IOException, InterruptedException {
+		start(DispatchMode.DIRECT);
+
+		for (int i = 0; i < 5; i++) {
+			Assertions.assertEquals("HTTP/1.1 200 OK", sendHealthCheck());
+		}
+	}
+
+
+	@Test
+	void testDirectDispatchDoesNotHoldAcceptor() throws IOException, InterruptedException {
+		start(DispatchMode.DIRECT);
+
+		// An idle connection is handed to a server, so the acceptor is free for the next one
+		try (Socket idle = new Socket("localhost", port)) {
+			Assertions.assertEquals("HTTP/1.1 200 OK", sendHealthCheck());
+			Assertions.assertFalse(idle.isClosed());
+		}
+	}
+
+
+	@Test
+	void testPooledDispatchAnswersRequests() throws IOException, InterruptedException {
+		start(DispatchMode.POOLED);
+
+		Assertions.assertEquals("HTTP/1.1 200 OK", sendHealthCheck());
+	}
+
+
+	private void start(DispatchMode mode) throws IOException, InterruptedException {
+		FileManager.deleteAllContentFiles();
+		port = findFreePort();
+
+		LoadBalancer.setDispatchMode(mode);
+		loadBalancerThread = new Thread(() -> LoadBalancer.main(new String[]{String.valueOf(port)}));
+		loadBalancerThread.start();
+
+		// Wait until the load balancer is accepting connections
+		long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline) {
+			try (Socket probe = new Socket("localhost", port)) {
+				return;
+			} catch (IOException ioe) {
+				Thread.sleep(50);
+			}
+		}
+
+		Assertions.fail("Load balancer did not start");
+	}
+
+
+	private String sendHealthCheck() throws IOException {
+		try (Socket socket = new Socket("localhost", port)) {
+			socket.setSoTimeout(5000);
+			socket.getOutputStream()
+				  .write(HEALTH_REQUEST.getBytes(StandardCharsets.ISO_8859_1));
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+			return reader.readLine();
+		}
+	}
+
+
+	private static int findFreePort() throws IOException {
+		try (ServerSocket probe = new ServerSocket(0)) {
+			return probe.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package net.ethandankiw.aggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.store.StationEvent;
+import net.ethandankiw.server.ExecutionMode;
+
+class RemoteAggregationServerTest {
+
+	private static final String BODY = "{\"id\":\"IDS60901\",\"air_temp\":13.3}";
+
+	// Nodes launched by the test, stopped once it finishes
+	private final List<RemoteAggregationServer> nodes = new ArrayList<>();
+
+	private final LamportClock clock = new LamportClock();
+
+
+	@AfterEach
+	void teardown() {
+		nodes.forEach(RemoteAggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testRequestsForwardedToNode() throws Exception {
+		RemoteAggregationServer node = launch();
+		Assertions.assertTrue(node.isHealthy());
+		Assertions.assertFalse(node.atCapacity());
+
+		HttpResponse put = submit(node, createPut());
+		Assertions.assertEquals(201, put.getStatusCode());
+
+		// The reading is stored by the node, not by the load balancer
+		HttpResponse get = submit(node, createGet());
+		Assertions.assertEquals(200, get.getStatusCode());
+		Assertions.assertTrue(get.getBody().contains("IDS60901"));
+
+		// The node's connection headers are not passed on, and its clock is received
+		Assertions.assertNull(get.getHeaderValue(HttpHeaders.CONNECTION));
+		Assertions.assertTrue(clock.getClockValue() > 0);
+		Assertions.assertEquals(0, node.getActiveRequestsCount());
+	}
+
+
+	@Test
+	void testStationsReadFromNode() throws Exception {
+		RemoteAggregationServer node = launch();
+		submit(node, createPut());
+		submit(node, createGet());
+
+		List<StationEvent> stations = node.submitReadStations()
+										  .get(30, TimeUnit.SECONDS)
+										  .orElseThrow();
+
+		Assertions.assertEquals(1, stations.size());
+		Assertions.assertEquals("IDS60901", stations.get(0).getStationId());
+	}
+
+
+	@Test
+	void testStationsHandedOffToNewOwner() throws Exception {
+		RemoteAggregationServer source = launch();
+		RemoteAggregationServer target = launch();
+		submit(source, createPut());
+		submit(source, createGet());
+
+		// Every station now belongs to the target node
+		RemoteAggregationServer.handOffStations(List.of(source), stationId -> target);
+
+		HttpResponse get = submit(target, createGet());
+		Assertions.assertEquals(200, get.getStatusCode());
+		Assertions.assertTrue(get.getBody().contains("IDS60901"));
+	}
+
+
+	private RemoteAggregationServer launch() {
+		RemoteAggregationServer node = RemoteAggregationServer.create(ExecutionMode.VIRTUAL);
+		nodes.add(node);
+		return node;
+	}
+
+
+	private HttpResponse submit(RemoteAggregationServer node, HttpRequest request) throws Exception {
+		return node.submitRequest(request, clock)
+				   .get(30, TimeUnit.SECONDS);
+	}
+
+
+	private static HttpRequest createPut() {
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.PUT);
+		request.setPath("/weather.json");
+		request.setVersion("HTTP/1.1");
+		request.addHeader(HttpHeaders.HOST, "localhost");
+		request.addHeader(HttpHeaders.CONNECTION, "close");
+		request.addHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(BODY.length()));
+		request.setBody(BODY);
+		return request;
+	}
+
+
+	private static HttpRequest createGet() {
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.GET);
+		request.setPath("/?station=IDS60901.json");
+		request.setVersion("HTTP/1.1");
+		request.addHeader(HttpHeaders.HOST, "localhost");
+		return request;
+	}
+}
@@ -0,0 +1,114 @@
+package net.ethandankiw.aggregation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.store.ContentStore;
+import net.ethandankiw.data.store.StationEvent;
+
+class ReplicationFollowerTest {
+
+	// Stands in for the primary node, sending its replication log to the follower
+	private ServerSocket primary;
+
+	private ReplicationFollower follower;
+
+	private final LamportClock clock = new LamportClock();
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		ContentStore.reset();
+		primary = new ServerSocket(0);
+		follower = new ReplicationFollower("localhost", primary.getLocalPort(), clock);
+	}
+
+
+	@AfterEach
+	void teardown() throws IOException {
+		follower.stop();
+		primary.close();
+		ContentStore.reset();
+	}
+
+
+	@Test
+	void testReadingsAppliedWithPrimaryClock() throws IOException, InterruptedException {
+		try (Socket log = primary.accept()) {
+			sendHead(log);
+			send(log, new StationEvent("IDS60901", 12, "{\"id\":\"IDS60901\"}").encode());
+
+			// A sync event marks every earlier reading as received
+			Assertions.assertFalse(follower.awaitCaughtUp(1, 100));
+			send(log, StationEvent.encodeSync(20));
+			Assertions.assertTrue(follower.awaitCaughtUp(20, 2000));
+		}
+
+		// The reading keeps the clock the primary applied it with
+		Assertions.assertEquals(Long.valueOf(12), ContentStore.getVersion("IDS60901").orElseThrow());
+		Assertions.assertEquals(20, follower.getCaughtUpClock());
+
+		// The replica's own clock moves past the primary's
+		Assertions.assertTrue(clock.getClockValue() >= 20);
+	}
+
+
+	@Test
+	void testLogResumedAfterLastReading() throws IOException, InterruptedException {
+		try (Socket log = primary.accept()) {
+			readRequest(log);
+			sendHead(log);
+			send(log, new StationEvent("IDS60901", 7, "{\"id\":\"IDS60901\"}").encode());
+			send(log, StationEvent.encodeSync(7));
+			Assertions.assertTrue(follower.awaitCaughtUp(7, 2000));
+		}
+
+		// Once the log is lost, the follower reconnects and asks for the readings after its last
+		try (Socket log = primary.accept()) {
+			String request = readRequest(log);
+			Assertions.assertTrue(request.startsWith("GET /replication "));
+			Assertions.assertTrue(request.toLowerCase().contains("last-event-id: 7"));
+		}
+	}
+
+
+	@Test
+	void testPrimaryGetter() {
+		Assertions.assertEquals("localhost:" + primary.getLocalPort(), follower.getPrimary());
+	}
+
+
+	private static String readRequest(Socket log) throws IOException {
+		// Read the head of the request, up to the blank line
+		StringBuilder request = new StringBuilder();
+		while (!request.toString().endsWith("\r\n\r\n")) {
+			int b = log.getInputStream().read();
+			if (b < 0) {
+				break;
+			}
+			request.append((char) b);
+		}
+		return request.toString();
+	}
+
+
+	private static void sendHead(Socket log) throws IOException {
+		send(log, "HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	private static void send(Socket log, byte[] bytes) throws IOException {
+		OutputStream out = log.getOutputStream();
+		out.write(bytes);
+		out.flush();
+	}
+}
@@ -0,0 +1,138 @@
+package net.ethandankiw.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.ethandankiw.aggregation.LoadBalancer;
+import net.ethandankiw.data.store.FileManager;
+import net.ethandankiw.server.DispatchMode;
+
+/**
+ * Compares the latency of handing accepted connections to a server through
+ * the front pool against handing them straight to the server's executor.
+ * Every request opens a new connection and asks for the health check, which
+ * the server answers without touching the content store, so the latency is
+ * mostly the cost of accepting the connection and handing it off.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass="net.ethandankiw.benchmark.DispatchModeBenchmark"
+ * -Dexec.args="<CLIENTS> <REQUESTS_PER_CLIENT>"}
+ */
+public class DispatchModeBenchmark {
+
+	// First port the load balancer listens on, each mode uses the next one
+	private static final int BASE_PORT = 4640;
+
+	// Requests sent by each client before measuring, so both paths are warm
+	private static final int WARMUP_REQUESTS = 50;
+
+	private static final String REQUEST = "GET /health HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+
+	private DispatchModeBenchmark() {
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		// Only report warnings from the servers while benchmarking
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+
+		// Read the load parameters from the command line
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+		System.out.printf("%d clients, %d requests each, one connection per request%n", clients, requestsPerClient);
+		System.out.printf("%-8s %10s %10s %10s %10s %10s %10s%n", "mode", "requests", "failed", "req/s", "p50 us", "p99 us", "p99.9 us");
+
+		// Run the same load against each dispatch mode
+		for (DispatchMode mode : DispatchMode.values()) {
+			run(mode, BASE_PORT + mode.ordinal(), clients, requestsPerClient);
+		}
+
+		System.exit(0);
+	}
+
+
+	private static void run(DispatchMode mode, int port, int clients, int requestsPerClient) throws Exception {
+		// Start a load balancer using the dispatch mode
+		FileManager.deleteAllContentFiles();
+		LoadBalancer.setDispatchMode(mode);
+		Thread loadBalancer = new Thread(() -> LoadBalancer.main(new String[]{String.valueOf(port)}));
+		loadBalancer.start();
+		Thread.sleep(1000);
+
+		// Warm up both paths without recording the latencies
+		runClients(port, clients, WARMUP_REQUESTS, Collections.synchronizedList(new ArrayList<>()), new AtomicInteger(0));
+
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger failed = new AtomicInteger(0);
+		long start = System.nanoTime();
+
+		runClients(port, clients, requestsPerClient, latencies, failed);
+
+		long elapsed = System.nanoTime() - start;
+
+		// Report the results for the mode
+		List<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+		double throughput = sorted.size() / (elapsed / 1e9);
+		System.out.printf("%-8s %10d %10d %10.1f %10.1f %10.1f %10.1f%n", mode, sorted.size(), failed.get(), throughput,
+				ExecutionModeBenchmark.percentile(sorted, 0.50), ExecutionModeBenchmark.percentile(sorted, 0.99),
+				ExecutionModeBenchmark.percentile(sorted, 0.999));
+
+		// Stop the load balancer before the next mode
+		LoadBalancer.shutdown();
+		loadBalancer.join(2000);
+		LoadBalancer.reset();
+		FileManager.deleteAllContentFiles();
+	}
+
+
+	private static void runClients(int port, int clients, int requests, List<Long> latencies, AtomicInteger failed) throws InterruptedException {
+		// Every client sends its requests at once
+		ExecutorService pool = Executors.newFixedThreadPool(clients);
+		for (int i = 0; i < clients; i++) {
+			pool.submit(() -> runClient(port, requests, latencies, failed));
+		}
+		pool.shutdown();
+		while (!pool.isTerminated()) {
+			pool.awaitTermination(1, TimeUnit.SECONDS);
+		}
+	}
+
+
+	private static void runClient(int port, int requests, List<Long> latencies, AtomicInteger failed) {
+		for (int i = 0; i < requests; i++) {
+			long start = System.nanoTime();
+
+			// Open a connection for the request, so each one goes through the dispatch path
+			try (Socket socket = new Socket("localhost", port)) {
+				socket.setSoTimeout(60_000);
+				OutputStream out = socket.getOutputStream();
+				out.write(REQUEST.getBytes(StandardCharsets.ISO_8859_1));
+				out.flush();
+				int status = ExecutionModeBenchmark.readResponse(new BufferedInputStream(socket.getInputStream()));
+
+				// Record the latency in microseconds
+				latencies.add((System.nanoTime() - start) / 1_000);
+
+				if (status != 200) {
+					failed.incrementAndGet();
+				}
+			} catch (IOException e) {
+				failed.incrementAndGet();
+			}
+		}
+	}
+}
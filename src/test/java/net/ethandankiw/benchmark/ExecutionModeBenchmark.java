@@ -0,0 +1,203 @@
+package net.ethandankiw.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.ethandankiw.aggregation.LoadBalancer;
+import net.ethandankiw.data.store.FileManager;
+import net.ethandankiw.server.ExecutionMode;
+
+/**
+ * Compares the platform and virtual thread execution modes under a load where
+ * every request blocks. Each client trickles its request head over a slow
+ * link and idles between requests, so the server thread handling the
+ * connection spends most of its time blocked on the socket.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass="net.ethandankiw.benchmark.ExecutionModeBenchmark"
+ * -Dexec.args="<CONNECTIONS> <REQUESTS_PER_CONNECTION> <DELAY_MS>"}
+ */
+public class ExecutionModeBenchmark {
+
+	// First port the load balancer listens on, each mode uses the next one
+	private static final int BASE_PORT = 4600;
+
+	// Station that is stored before the benchmark so GET requests return data
+	private static final String STATION_BODY = "{\"id\":\"BENCH01\",\"name\":\"Benchmark\",\"air_temp\":13.3}";
+
+
+	private ExecutionModeBenchmark() {
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		// Only report warnings from the servers while benchmarking
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+
+		// Read the load parameters from the command line
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int requestsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int delay = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+		System.out.printf("%d connections, %d requests each, %d ms blocking per request%n", connections, requestsPerConnection, delay);
+		System.out.printf("%-10s %10s %10s %10s %10s %8s %14s%n", "mode", "requests", "failed", "req/s", "p50 ms", "p99 ms", "peak threads");
+
+		// Run the same load against each execution mode
+		for (ExecutionMode mode : ExecutionMode.values()) {
+			run(mode, BASE_PORT + mode.ordinal(), connections, requestsPerConnection, delay);
+		}
+
+		System.exit(0);
+	}
+
+
+	private static void run(ExecutionMode mode, int port, int connections, int requestsPerConnection, int delay) throws Exception {
+		// Start a load balancer using the execution mode
+		FileManager.deleteAllContentFiles();
+		LoadBalancer.setExecutionMode(mode);
+		Thread loadBalancer = new Thread(() -> LoadBalancer.main(new String[]{String.valueOf(port)}));
+		loadBalancer.start();
+		Thread.sleep(1000);
+
+		// Store a station and wait for the content store to apply it
+		sendRequest(port, "PUT /weather.json HTTP/1.1\r\nContent-Type: application/json\r\nContent-Length: "
+				+ STATION_BODY.length() + "\r\nConnection: close\r\n\r\n" + STATION_BODY);
+		Thread.sleep(2000);
+
+		// Measure the threads started by the servers while under load
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int baselineThreads = threads.getThreadCount();
+		threads.resetPeakThreadCount();
+
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger failed = new AtomicInteger(0);
+		long start = System.nanoTime();
+
+		// Clients run on virtual threads so the client side is never the bottleneck
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < connections; i++) {
+				clients.submit(() -> runClient(port, requestsPerConnection, delay, latencies, failed));
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		int peakThreads = threads.getPeakThreadCount() - baselineThreads;
+
+		// Report the results for the mode
+		List<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+		double throughput = sorted.size() / (elapsed / 1e9);
+		System.out.printf("%-10s %10d %10d %10.1f %10.1f %8.1f %14d%n", mode, sorted.size(), failed.get(), throughput,
+				percentile(sorted, 0.50), percentile(sorted, 0.99), peakThreads);
+
+		// Stop the load balancer before the next mode
+		LoadBalancer.shutdown();
+		loadBalancer.join(2000);
+		LoadBalancer.reset();
+		FileManager.deleteAllContentFiles();
+	}
+
+
+	private static void runClient(int port, int requests, int delay, List<Long> latencies, AtomicInteger failed) {
+		try (Socket socket = new Socket("localhost", port)) {
+			socket.setSoTimeout(60_000);
+			OutputStream out = socket.getOutputStream();
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+
+			for (int i = 0; i < requests; i++) {
+				long start = System.nanoTime();
+
+				// Send the request line, then block before sending the rest of the head
+				out.write("GET /weather.json HTTP/1.1\r\n".getBytes(StandardCharsets.ISO_8859_1));
+				out.flush();
+				Thread.sleep(delay);
+				out.write("Host: localhost\r\nAccept: application/json\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+				out.flush();
+
+				// Wait for the full response
+				int status = readResponse(in);
+				latencies.add((System.nanoTime() - start) / 1_000_000);
+
+				if (status != 200) {
+					failed.incrementAndGet();
+				}
+
+				// Idle on the open connection before the next request
+				Thread.sleep(delay);
+			}
+		} catch (IOException | InterruptedException e) {
+			failed.incrementAndGet();
+		}
+	}
+
+
+	static void sendRequest(int port, String request) throws IOException {
+		try (Socket socket = new Socket("localhost", port)) {
+			socket.getOutputStream()
+				  .write(request.getBytes(StandardCharsets.UTF_8));
+			readResponse(new BufferedInputStream(socket.getInputStream()));
+		}
+	}
+
+
+	static int readResponse(InputStream in) throws IOException {
+		// Skip line breaks left over from the previous response
+		String statusLine = readLine(in);
+		while (statusLine.isEmpty()) {
+			statusLine = readLine(in);
+		}
+
+		// Read the headers to find the length of the body
+		int contentLength = 0;
+		String header;
+		while (!(header = readLine(in)).isEmpty()) {
+			if (header.toLowerCase()
+					  .startsWith("content-length:")) {
+				contentLength = Integer.parseInt(header.substring(15)
+													   .trim());
+			}
+		}
+
+		// Discard the body
+		in.readNBytes(contentLength);
+		return Integer.parseInt(statusLine.split(" ")[1]);
+	}
+
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b == -1) {
+				throw new IOException("Connection closed by server");
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		return line.toString(StandardCharsets.ISO_8859_1);
+	}
+
+
+	static double percentile(List<Long> sorted, double percentile) {
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+		return sorted.get(Math.max(0, index));
+	}
+}
@@ -0,0 +1,168 @@
+package net.ethandankiw.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.ethandankiw.aggregation.LoadBalancer;
+import net.ethandankiw.data.server.LoadBalancingStrategy;
+import net.ethandankiw.data.store.FileManager;
+import net.ethandankiw.server.HttpServerMode;
+
+/**
+ * Replays the same mixed workload of GET and PUT requests against each
+ * load-balancing strategy. The NIO front end is used so every request is
+ * dispatched on its own, with the station it is for, rather than each
+ * connection being pinned to one server.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass="net.ethandankiw.benchmark.SelectionStrategyBenchmark"
+ * -Dexec.args="<CONNECTIONS> <REQUESTS_PER_CONNECTION> <PUT_PERCENT>"}
+ */
+public class SelectionStrategyBenchmark {
+
+	// First port the load balancer listens on, each strategy uses the next one
+	private static final int BASE_PORT = 4620;
+
+	// Number of stations the workload reads and writes
+	private static final int STATIONS = 32;
+
+	// Seed for the workload, so every strategy replays the same requests
+	private static final long SEED = 2025;
+
+
+	private SelectionStrategyBenchmark() {
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		// Only report warnings from the servers while benchmarking
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+
+		// Read the load parameters from the command line
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int requestsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int putPercent = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+		// Generate the workload once
+		List<List<String>> workload = generateWorkload(connections, requestsPerConnection, putPercent);
+
+		System.out.printf("%d connections, %d requests each, %d%% PUT across %d stations%n", connections, requestsPerConnection, putPercent, STATIONS);
+		System.out.printf("%-18s %10s %10s %10s %10s %10s%n", "strategy", "requests", "failed", "req/s", "p50 ms", "p99 ms");
+
+		// Replay the workload against each strategy
+		for (LoadBalancingStrategy strategy : LoadBalancingStrategy.values()) {
+			run(strategy, BASE_PORT + strategy.ordinal(), workload);
+		}
+
+		System.exit(0);
+	}
+
+
+	private static List<List<String>> generateWorkload(int connections, int requestsPerConnection, int putPercent) {
+		Random random = new Random(SEED);
+		List<List<String>> workload = new ArrayList<>();
+
+		for (int c = 0; c < connections; c++) {
+			List<String> requests = new ArrayList<>();
+
+			for (int r = 0; r < requestsPerConnection; r++) {
+				String station = "BENCH" + random.nextInt(STATIONS);
+
+				// If the request is a PUT of a new reading for the station
+				if (random.nextInt(100) < putPercent) {
+					String body = "{\"id\":\"" + station + "\",\"air_temp\":" + random.nextInt(40) + "}";
+					requests.add("PUT /weather.json?station=" + station + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+							+ body.length() + "\r\n\r\n" + body);
+					continue;
+				}
+
+				// Otherwise, read the station's data
+				requests.add("GET /weather?station=" + station + " HTTP/1.1\r\nHost: localhost\r\nAccept: application/json\r\n\r\n");
+			}
+
+			workload.add(requests);
+		}
+
+		return workload;
+	}
+
+
+	private static void run(LoadBalancingStrategy strategy, int port, List<List<String>> workload) throws Exception {
+		// Start a load balancer using the strategy
+		FileManager.deleteAllContentFiles();
+		LoadBalancer.setServerMode(HttpServerMode.NIO);
+		LoadBalancer.setLoadBalancingStrategy(strategy);
+		Thread loadBalancer = new Thread(() -> LoadBalancer.main(new String[]{String.valueOf(port)}));
+		loadBalancer.start();
+		Thread.sleep(1000);
+
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger failed = new AtomicInteger(0);
+		long start = System.nanoTime();
+
+		// Every connection replays its requests at once
+		ExecutorService clients = Executors.newFixedThreadPool(workload.size());
+		for (List<String> requests : workload) {
+			clients.submit(() -> runClient(port, requests, latencies, failed));
+		}
+		clients.shutdown();
+		while (!clients.isTerminated()) {
+			clients.awaitTermination(1, TimeUnit.SECONDS);
+		}
+
+		long elapsed = System.nanoTime() - start;
+
+		// Report the results for the strategy
+		List<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+		double throughput = sorted.size() / (elapsed / 1e9);
+		System.out.printf("%-18s %10d %10d %10.1f %10.2f %10.2f%n", strategy, sorted.size(), failed.get(), throughput,
+				ExecutionModeBenchmark.percentile(sorted, 0.50) / 1000, ExecutionModeBenchmark.percentile(sorted, 0.99) / 1000);
+
+		// Stop the load balancer before the next strategy
+		LoadBalancer.shutdown();
+		loadBalancer.join(2000);
+		LoadBalancer.reset();
+		FileManager.deleteAllContentFiles();
+	}
+
+
+	private static void runClient(int port, List<String> requests, List<Long> latencies, AtomicInteger failed) {
+		try (Socket socket = new Socket("localhost", port)) {
+			socket.setSoTimeout(60_000);
+			OutputStream out = socket.getOutputStream();
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+
+			for (String request : requests) {
+				long start = System.nanoTime();
+
+				// Send the request and wait for the full response
+				out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+				out.flush();
+				int status = ExecutionModeBenchmark.readResponse(in);
+
+				// Record the latency in microseconds
+				latencies.add((System.nanoTime() - start) / 1_000);
+
+				if (status >= 400) {
+					failed.incrementAndGet();
+				}
+			}
+		} catch (IOException e) {
+			failed.incrementAndGet();
+		}
+	}
+}
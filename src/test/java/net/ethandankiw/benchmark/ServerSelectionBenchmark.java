@@ -0,0 +1,163 @@
+package net.ethandankiw.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.data.server.LoadBalancingStrategy;
+import net.ethandankiw.data.server.SelectionStrategy;
+import net.ethandankiw.data.server.ServerLoadComparator;
+import net.ethandankiw.data.server.ServerPoolImpl;
+
+/**
+ * Compares ways of choosing the aggregation server for each dispatch. Many
+ * threads dispatch at once, each keeping a window of requests in flight that
+ * complete in random order, while a sampler measures how evenly the in-flight
+ * requests are spread across the servers.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass="net.ethandankiw.benchmark.ServerSelectionBenchmark"
+ * -Dexec.args="<SERVERS> <THREADS> <DISPATCHES_PER_THREAD>"}
+ */
+public class ServerSelectionBenchmark {
+
+	// Requests each dispatching thread keeps in flight
+	private static final int WINDOW = 8;
+
+	// Number of stations requests are spread across, for strategies that route by station
+	private static final int STATIONS = 64;
+
+
+	private ServerSelectionBenchmark() {
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		// Only report warnings from the servers while benchmarking
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+
+		// Read the load parameters from the command line
+		int serverCount = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int dispatches = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+		// Create the servers being chosen between
+		ServerPoolImpl pool = new ServerPoolImpl(serverCount);
+		while (pool.getServerCount() < serverCount) {
+			pool.createAndRegister();
+		}
+
+		List<AggregationServer> servers = new ArrayList<>();
+		pool.getAllServers()
+			.forEach(servers::add);
+
+		// The previous selector, which removed and re-added the least loaded server on every dispatch
+		PriorityBlockingQueue<AggregationServer> queue = new PriorityBlockingQueue<>(serverCount, new ServerLoadComparator());
+		queue.addAll(servers);
+		Supplier<AggregationServer> queueSelector = () -> {
+			AggregationServer server = queue.poll();
+			queue.offer(server);
+			return server;
+		};
+
+		System.out.printf("%d servers, %d threads, %d dispatches each, %d in flight per thread%n", servers.size(), threads, dispatches, WINDOW);
+		System.out.printf("%-16s %14s %16s %16s%n", "selector", "ns/dispatch", "mean spread", "mean max/avg");
+
+		run("queue", queueSelector, servers, threads, dispatches);
+		run("scan", pool::getLeastLoadedServer, servers, threads, dispatches);
+		run("random", () -> servers.get(ThreadLocalRandom.current()
+														  .nextInt(servers.size())), servers, threads, dispatches);
+
+		// Run each selection strategy against the same servers, for a random station each dispatch
+		AggregationServer[] snapshot = servers.toArray(new AggregationServer[0]);
+		for (LoadBalancingStrategy strategy : LoadBalancingStrategy.values()) {
+			SelectionStrategy selector = strategy.create();
+			run(strategy.name(), () -> selector.select(snapshot, "STATION" + ThreadLocalRandom.current()
+																							.nextInt(STATIONS)), servers, threads, dispatches);
+		}
+
+		System.exit(0);
+	}
+
+
+	private static void run(String name, Supplier<AggregationServer> selector, List<AggregationServer> servers, int threads, int dispatches) throws InterruptedException {
+		AtomicLong selectNanos = new AtomicLong(0);
+		CountDownLatch done = new CountDownLatch(threads);
+
+		// Dispatch from every thread at once
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				dispatch(selector, dispatches, selectNanos);
+				done.countDown();
+			}, name + "-Dispatcher-" + t).start();
+		}
+
+		// Sample the spread of in-flight requests until every thread finishes
+		long samples = 0;
+		long spreadTotal = 0;
+		double imbalanceTotal = 0;
+		while (done.getCount() > 0) {
+			int min = Integer.MAX_VALUE;
+			int max = 0;
+			long total = 0;
+
+			for (AggregationServer server : servers) {
+				int inFlight = server.getActiveRequestsCount();
+				min = Math.min(min, inFlight);
+				max = Math.max(max, inFlight);
+				total += inFlight;
+			}
+
+			// Only count samples taken while requests were in flight
+			if (total > 0) {
+				samples += 1;
+				spreadTotal += max - min;
+				imbalanceTotal += max / ((double) total / servers.size());
+			}
+
+			Thread.sleep(1);
+		}
+
+		// Report the results for the selector
+		double nanosPerDispatch = (double) selectNanos.get() / ((long) threads * dispatches);
+		System.out.printf("%-16s %14.1f %16.2f %16.2f%n", name, nanosPerDispatch,
+				samples == 0 ? 0 : (double) spreadTotal / samples, samples == 0 ? 0 : imbalanceTotal / samples);
+	}
+
+
+	private static void dispatch(Supplier<AggregationServer> selector, int dispatches, AtomicLong selectNanos) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		List<AggregationServer> inFlight = new ArrayList<>(WINDOW + 1);
+		long nanos = 0;
+
+		for (int i = 0; i < dispatches; i++) {
+			// Time only the choice of server
+			long start = System.nanoTime();
+			AggregationServer server = selector.get();
+			nanos += System.nanoTime() - start;
+
+			server.incrementInFlightRequests();
+			inFlight.add(server);
+
+			// Complete a random request once the window is full
+			if (inFlight.size() > WINDOW) {
+				int last = inFlight.size() - 1;
+				int index = random.nextInt(inFlight.size());
+				AggregationServer completed = inFlight.get(index);
+				inFlight.set(index, inFlight.get(last));
+				inFlight.remove(last);
+				completed.decrementInFlightRequests();
+			}
+		}
+
+		// Complete the requests still in flight
+		inFlight.forEach(AggregationServer::decrementInFlightRequests);
+		selectNanos.addAndGet(nanos);
+	}
+}
@@ -0,0 +1,88 @@
+package net.ethandankiw.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+	private static final int KEYS = 2000;
+
+
+	@Test
+	void testEmptyRing() {
+		ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of(), Function.identity());
+
+		Assertions.assertTrue(ring.isEmpty());
+		Assertions.assertNull(ring.get("IDS60901"));
+	}
+
+
+	@Test
+	void testRingsWithSameNamesAgree() {
+		// The order members are added in does not change the owners
+		ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c"), Function.identity());
+		ConsistentHashRing<String> other = new ConsistentHashRing<>(List.of("c", "a", "b"), Function.identity());
+
+		for (int i = 0; i < KEYS; i++) {
+			Assertions.assertEquals(ring.get("IDS" + i), other.get("IDS" + i));
+		}
+	}
+
+
+	@Test
+	void testKeysSpreadEvenly() {
+		ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c", "d"), Function.identity());
+		Map<String, Integer> owned = new HashMap<>();
+
+		for (int i = 0; i < KEYS; i++) {
+			owned.merge(ring.get("IDS" + i), 1, Integer::sum);
+		}
+
+		// Each member owns a fair share of the keys, within a loose margin
+		Assertions.assertEquals(4, owned.size());
+		for (int count : owned.values()) {
+			Assertions.assertTrue(count > KEYS / 8 && count < KEYS / 2);
+		}
+	}
+
+
+	@Test
+	void testAddedMemberOnlyTakesKeys() {
+		ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c"), Function.identity());
+		List<String> members = new ArrayList<>(ring.getMembers());
+		members.add("d");
+		ConsistentHashRing<String> grown = new ConsistentHashRing<>(members, Function.identity());
+
+		// A key either stays where it was or moves to the new member
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			String before = ring.get("IDS" + i);
+			String after = grown.get("IDS" + i);
+
+			if (!before.equals(after)) {
+				Assertions.assertEquals("d", after);
+				moved += 1;
+			}
+		}
+
+		Assertions.assertTrue(moved > 0 && moved < KEYS / 2);
+	}
+
+
+	@Test
+	void testMembersCopied() {
+		List<String> members = new ArrayList<>(List.of("a"));
+		ConsistentHashRing<String> ring = new ConsistentHashRing<>(members, Function.identity());
+
+		members.add("b");
+
+		Assertions.assertEquals(List.of("a"), ring.getMembers());
+		Assertions.assertEquals("a", ring.get("IDS60901"));
+	}
+}
@@ -0,0 +1,69 @@
+package net.ethandankiw.data.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ContentEncodingTest {
+
+	private static final byte[] BODY = "{\"id\":\"IDS60901\",\"air_temp\":13.3}".repeat(20)
+																		   .getBytes(StandardCharsets.UTF_8);
+
+
+	@Test
+	void testNegotiateWithoutHeader() {
+		Assertions.assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(null));
+		Assertions.assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(" "));
+	}
+
+
+	@Test
+	void testNegotiatePrefersGzip() {
+		Assertions.assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("deflate, gzip"));
+		Assertions.assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+	}
+
+
+	@Test
+	void testNegotiateUsesQuality() {
+		Assertions.assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0.5, deflate"));
+
+		// An encoding with a quality of 0 is never chosen, even through a wildcard
+		Assertions.assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q=0"));
+		Assertions.assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("*;q=0.1, gzip;q=0"));
+		Assertions.assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("br"));
+	}
+
+
+	@Test
+	void testEncodeAndDecode() {
+		for (ContentEncoding encoding : ContentEncoding.values()) {
+			Optional<byte[]> encoded = encoding.encode(BODY);
+			Assertions.assertTrue(encoded.isPresent());
+
+			// Compressed bodies are smaller than the repetitive original
+			if (encoding != ContentEncoding.IDENTITY) {
+				Assertions.assertTrue(encoded.get().length < BODY.length);
+			}
+
+			Assertions.assertArrayEquals(BODY, encoding.decode(encoded.get()).orElseThrow());
+		}
+	}
+
+
+	@Test
+	void testDecodeInvalidBody() {
+		Assertions.assertTrue(ContentEncoding.GZIP.decode(BODY).isEmpty());
+		Assertions.assertTrue(ContentEncoding.DEFLATE.decode(BODY).isEmpty());
+	}
+
+
+	@Test
+	void testFromToken() {
+		Assertions.assertEquals(Optional.of(ContentEncoding.IDENTITY), ContentEncoding.fromToken(null));
+		Assertions.assertEquals(Optional.of(ContentEncoding.GZIP), ContentEncoding.fromToken(" GZIP "));
+		Assertions.assertTrue(ContentEncoding.fromToken("br").isEmpty());
+	}
+}
@@ -0,0 +1,117 @@
+package net.ethandankiw.data.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HttpHeadersTest {
+
+	@Test
+	void testGetIgnoresCase() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Content-Type", "application/json");
+
+		Assertions.assertEquals("application/json", headers.get(HttpHeaders.CONTENT_TYPE));
+		Assertions.assertEquals("application/json", headers.get("CONTENT-TYPE"));
+		Assertions.assertTrue(headers.contains("content-type"));
+		Assertions.assertNull(headers.get(HttpHeaders.HOST));
+
+		// The name keeps the case it was added with
+		Assertions.assertEquals("Content-Type", headers.getName(0));
+	}
+
+
+	@Test
+	void testSetReplacesInPlace() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.HOST, "a");
+		headers.set(HttpHeaders.ACCEPT, "*/*");
+		headers.set("HOST", "b");
+
+		// Replacing a value keeps the header in its original position
+		Assertions.assertEquals(2, headers.size());
+		Assertions.assertEquals(HttpHeaders.HOST, headers.getName(0));
+		Assertions.assertEquals("b", headers.getValue(0));
+	}
+
+
+	@Test
+	void testGrowsPastCapacity() {
+		HttpHeaders headers = new HttpHeaders();
+		for (int i = 0; i < 20; i++) {
+			headers.set("x-header-" + i, String.valueOf(i));
+		}
+
+		Assertions.assertEquals(20, headers.size());
+		Assertions.assertEquals("0", headers.get("X-Header-0"));
+		Assertions.assertEquals("19", headers.get("X-Header-19"));
+	}
+
+
+	@Test
+	void testRemoveKeepsOrder() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("a", "1");
+		headers.set("b", "2");
+		headers.set("c", "3");
+
+		Assertions.assertTrue(headers.remove("B"));
+		Assertions.assertFalse(headers.remove("b"));
+
+		List<String> names = new ArrayList<>();
+		headers.forEach((name, value) -> names.add(name + "=" + value));
+		Assertions.assertEquals(List.of("a=1", "c=3"), names);
+	}
+
+
+	@Test
+	void testCopyIsIndependent() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.HOST, "a");
+
+		HttpHeaders copy = new HttpHeaders(headers);
+		copy.set(HttpHeaders.HOST, "b");
+		copy.set(HttpHeaders.ACCEPT, "*/*");
+
+		Assertions.assertEquals("a", headers.get(HttpHeaders.HOST));
+		Assertions.assertEquals(1, headers.size());
+		Assertions.assertEquals(2, copy.size());
+	}
+
+
+	@Test
+	void testSetAllReplacesExisting() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.HOST, "a");
+
+		HttpHeaders other = new HttpHeaders();
+		other.set("Host", "b");
+		other.set(HttpHeaders.ACCEPT, "*/*");
+		headers.setAll(other);
+
+		Assertions.assertEquals(2, headers.size());
+		Assertions.assertEquals("b", headers.get(HttpHeaders.HOST));
+	}
+
+
+	@Test
+	void testFindWellKnownName() {
+		String line = "X-Content-Length: 5";
+
+		// The shared constant is returned for a name in any case
+		Assertions.assertSame(HttpHeaders.CONTENT_LENGTH, HttpHeaders.findWellKnownName(line, 2, 16));
+		Assertions.assertNull(HttpHeaders.findWellKnownName(line, 0, 16));
+	}
+
+
+	@Test
+	void testToString() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.HOST, "localhost");
+		headers.set("X-Custom", "1");
+
+		Assertions.assertEquals("host: localhost\r\nX-Custom: 1", headers.toString());
+	}
+}
@@ -0,0 +1,43 @@
+package net.ethandankiw.data.http;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HttpResponseTest {
+
+	@Test
+	void testCompressedBodyReadAsText() {
+		byte[] compressed = ContentEncoding.GZIP.encode("compressed body".getBytes(StandardCharsets.UTF_8))
+												.orElseThrow();
+
+		HttpResponse response = new HttpResponse();
+		response.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		response.setBodyBytes(compressed);
+
+		// The bytes are sent as set, while the text is decompressed
+		Assertions.assertSame(compressed, response.getBodyBytes());
+		Assertions.assertEquals("compressed body", response.getBody());
+	}
+
+
+	@Test
+	void testUndecodableBodyReadAsEmpty() {
+		HttpResponse response = new HttpResponse();
+		response.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		response.setBodyBytes("not compressed".getBytes(StandardCharsets.UTF_8));
+
+		Assertions.assertEquals("", response.getBody());
+	}
+
+
+	@Test
+	void testTextBodyEncodedAsUtf8() {
+		HttpResponse response = new HttpResponse();
+		response.setBody("Z\u00fcrich");
+
+		Assertions.assertArrayEquals("Z\u00fcrich".getBytes(StandardCharsets.UTF_8), response.getBodyBytes());
+		Assertions.assertEquals("Z\u00fcrich", response.getBody());
+	}
+}
@@ -0,0 +1,53 @@
+package net.ethandankiw.data.server;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+class LatencyWeightedStrategyTest {
+
+	private final LatencyWeightedStrategy strategy = new LatencyWeightedStrategy();
+
+	private final AggregationServer[] servers = ServerFixtures.createServers(2);
+
+
+	@AfterEach
+	void teardown() {
+		Arrays.stream(servers)
+			  .forEach(AggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testIdleServerFavoured() {
+		// The busy server is expected to take 100 times longer to answer
+		ServerFixtures.addRequests(servers[1], 99);
+
+		int idleChosen = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (strategy.select(servers, null) == servers[0]) {
+				idleChosen += 1;
+			}
+		}
+
+		// About 99% of requests go to the idle server, but not every one
+		Assertions.assertTrue(idleChosen > 950);
+	}
+
+
+	@Test
+	void testEqualServersShareRequests() {
+		int firstChosen = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (strategy.select(servers, null) == servers[0]) {
+				firstChosen += 1;
+			}
+		}
+
+		Assertions.assertTrue(firstChosen > 350 && firstChosen < 650);
+	}
+}
@@ -0,0 +1,41 @@
+package net.ethandankiw.data.server;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+class LeastInFlightStrategyTest {
+
+	private final LeastInFlightStrategy strategy = new LeastInFlightStrategy();
+
+	private final AggregationServer[] servers = ServerFixtures.createServers(3);
+
+
+	@AfterEach
+	void teardown() {
+		Arrays.stream(servers)
+			  .forEach(AggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testFewestInFlightChosen() {
+		ServerFixtures.addRequests(servers[0], 4);
+		ServerFixtures.addRequests(servers[1], 6);
+		ServerFixtures.addRequests(servers[2], 3);
+
+		Assertions.assertSame(servers[2], strategy.select(servers, null));
+	}
+
+
+	@Test
+	void testTieGoesToFirstServer() {
+		ServerFixtures.addRequests(servers[0], 1);
+
+		Assertions.assertSame(servers[1], strategy.select(servers, null));
+	}
+}
@@ -0,0 +1,23 @@
+package net.ethandankiw.data.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LoadBalancingStrategyTest {
+
+	@Test
+	void testCreate() {
+		Assertions.assertInstanceOf(RoundRobinStrategy.class, LoadBalancingStrategy.ROUND_ROBIN.create());
+		Assertions.assertInstanceOf(LeastInFlightStrategy.class, LoadBalancingStrategy.LEAST_IN_FLIGHT.create());
+		Assertions.assertInstanceOf(PowerOfTwoChoicesStrategy.class, LoadBalancingStrategy.P2C.create());
+		Assertions.assertInstanceOf(LatencyWeightedStrategy.class, LoadBalancingStrategy.LATENCY_WEIGHTED.create());
+		Assertions.assertInstanceOf(StationHashStrategy.class, LoadBalancingStrategy.STATION_HASH.create());
+	}
+
+
+	@Test
+	void testEachCreateHasItsOwnState() {
+		// Strategies hold state, such as the next turn, so they are never shared
+		Assertions.assertNotSame(LoadBalancingStrategy.ROUND_ROBIN.create(), LoadBalancingStrategy.ROUND_ROBIN.create());
+	}
+}
@@ -0,0 +1,72 @@
+package net.ethandankiw.data.server;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+class PowerOfTwoChoicesStrategyTest {
+
+	private final PowerOfTwoChoicesStrategy strategy = new PowerOfTwoChoicesStrategy();
+
+	private AggregationServer[] servers = new AggregationServer[0];
+
+
+	@AfterEach
+	void teardown() {
+		Arrays.stream(servers)
+			  .forEach(AggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testSingleServerChosen() {
+		servers = ServerFixtures.createServers(1);
+
+		Assertions.assertSame(servers[0], strategy.select(servers, null));
+	}
+
+
+	@Test
+	void testLessLoadedOfTwoChosen() {
+		servers = ServerFixtures.createServers(2);
+		ServerFixtures.addRequests(servers[0], 5);
+		ServerFixtures.addRequests(servers[1], 2);
+
+		// With two servers both are always compared
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertSame(servers[1], strategy.select(servers, null));
+		}
+	}
+
+
+	@Test
+	void testMostLoadedNeverChosen() {
+		servers = ServerFixtures.createServers(4);
+		ServerFixtures.addRequests(servers[2], 10);
+
+		// The two picks are always different servers, so the busiest one always loses
+		for (int i = 0; i < 1000; i++) {
+			Assertions.assertNotSame(servers[2], strategy.select(servers, null));
+		}
+	}
+
+
+	@Test
+	void testIdleServersAllChosen() {
+		servers = ServerFixtures.createServers(4);
+		int[] chosen = new int[servers.length];
+
+		for (int i = 0; i < 1000; i++) {
+			chosen[Arrays.asList(servers).indexOf(strategy.select(servers, null))] += 1;
+		}
+
+		// Ties are broken by the random pick, so every server receives work
+		for (int count : chosen) {
+			Assertions.assertTrue(count > 0);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package net.ethandankiw.data.server;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+class RoundRobinStrategyTest {
+
+	private final AggregationServer[] servers = ServerFixtures.createServers(3);
+
+
+	@AfterEach
+	void teardown() {
+		Arrays.stream(servers)
+			  .forEach(AggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testServersTakeTurns() {
+		RoundRobinStrategy strategy = new RoundRobinStrategy();
+
+		// Load is ignored, so even a busy server gets its turn
+		ServerFixtures.addRequests(servers[1], 50);
+
+		for (int i = 0; i < 6; i++) {
+			Assertions.assertSame(servers[i % 3], strategy.select(servers, null));
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package net.ethandankiw.data.server;
+
+import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.server.ExecutionMode;
+
+/**
+ * Servers shared by the selection strategy and server pool tests.
+ */
+final class ServerFixtures {
+
+	private ServerFixtures() {
+	}
+
+
+	// Create idle servers on virtual threads, which are loaded only by their requests in flight
+	static AggregationServer[] createServers(int count) {
+		AggregationServer[] created = new AggregationServer[count];
+		for (int i = 0; i < count; i++) {
+			created[i] = new AggregationServer(ExecutionMode.VIRTUAL);
+		}
+		return created;
+	}
+
+
+	// Load a server with requests in flight
+	static void addRequests(AggregationServer server, int count) {
+		for (int i = 0; i < count; i++) {
+			server.incrementInFlightRequests();
+		}
+	}
+}
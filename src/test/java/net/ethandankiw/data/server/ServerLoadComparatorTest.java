@@ -0,0 +1,34 @@
+package net.ethandankiw.data.server;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+class ServerLoadComparatorTest {
+
+	private final AggregationServer[] servers = ServerFixtures.createServers(2);
+
+
+	@AfterEach
+	void teardown() {
+		Arrays.stream(servers).forEach(AggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testEqualLatencyOrderedByInFlight() {
+		ServerLoadComparator comparator = new ServerLoadComparator();
+		ServerFixtures.addRequests(servers[0], 2);
+
+		// Neither server has work queued, so the requests in flight decide
+		Assertions.assertTrue(comparator.compare(servers[0], servers[1]) > 0);
+		Assertions.assertTrue(comparator.compare(servers[1], servers[0]) < 0);
+
+		ServerFixtures.addRequests(servers[1], 2);
+		Assertions.assertEquals(0, comparator.compare(servers[0], servers[1]));
+	}
+}
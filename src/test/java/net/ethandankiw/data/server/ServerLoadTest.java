@@ -0,0 +1,74 @@
+package net.ethandankiw.data.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.server.ExecutionMode;
+
+class ServerLoadTest {
+
+	private static final long SERVICE_TIME = 1_000_000;
+
+
+	@Test
+	void testWorkingExcludesStoreWaits() {
+		ServerLoad load = new ServerLoad(ExecutionMode.PLATFORM, 5, 0, 3, 5, 5, SERVICE_TIME, 0);
+		Assertions.assertEquals(2, load.working());
+
+		// A stale count of waits never makes the work negative
+		load = new ServerLoad(ExecutionMode.PLATFORM, 1, 0, 3, 1, 1, SERVICE_TIME, 0);
+		Assertions.assertEquals(0, load.working());
+	}
+
+
+	@Test
+	void testVirtualUtilizationCountsOnlyRequests() {
+		int half = GlobalConstants.MAX_IN_FLIGHT_REQUESTS / 2;
+		ServerLoad load = new ServerLoad(ExecutionMode.VIRTUAL, 0, 1000, 0, half, 1000, SERVICE_TIME, 0);
+
+		Assertions.assertEquals(0.5, load.getUtilization(), 1e-9);
+	}
+
+
+	@Test
+	void testPlatformUtilizationCountsThreads() {
+		int threads = GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS;
+
+		// Queued tasks are waiting for a thread, so they hold capacity too
+		ServerLoad load = new ServerLoad(ExecutionMode.PLATFORM, threads / 4, threads / 4, 0, 1, 0, SERVICE_TIME, 0);
+		Assertions.assertEquals(0.5, load.getUtilization(), 1e-9);
+
+		// An idle connection holds a thread without a request
+		load = new ServerLoad(ExecutionMode.PLATFORM, 0, 0, 0, 0, threads, SERVICE_TIME, 0);
+		Assertions.assertEquals(1.0, load.getUtilization(), 1e-9);
+	}
+
+
+	@Test
+	void testIdleLatencyIsOneServiceTime() {
+		ServerLoad load = new ServerLoad(ExecutionMode.PLATFORM, 0, 0, 0, 0, 0, SERVICE_TIME, 0);
+		Assertions.assertEquals(SERVICE_TIME, load.getExpectedLatency(), 1e-9);
+
+		// A server that has not handled a request yet is not expected to answer instantly
+		load = new ServerLoad(ExecutionMode.PLATFORM, 0, 0, 0, 0, 0, 0, 0);
+		Assertions.assertTrue(load.getExpectedLatency() > 0);
+	}
+
+
+	@Test
+	void testStoreWaitsCostLessThanWork() {
+		long storeWait = SERVICE_TIME;
+		ServerLoad working = new ServerLoad(ExecutionMode.PLATFORM, 10, 0, 0, 10, 10, SERVICE_TIME, storeWait);
+		ServerLoad waiting = new ServerLoad(ExecutionMode.PLATFORM, 10, 0, 10, 10, 10, SERVICE_TIME, storeWait);
+
+		// A blocked request is on average halfway through its wait
+		double expected = 10 * storeWait / 2.0 / GlobalConstants.MAX_THREADS_FOR_CLIENT_REQUESTS + SERVICE_TIME;
+		Assertions.assertEquals(expected, waiting.getExpectedLatency(), 1e-6);
+
+		// Queued work needs a full service time each
+		ServerLoad queued = new ServerLoad(ExecutionMode.PLATFORM, 0, 10, 0, 10, 10, SERVICE_TIME, storeWait);
+		Assertions.assertEquals(working.getExpectedLatency(), queued.getExpectedLatency(), 1e-6);
+		Assertions.assertTrue(waiting.getExpectedLatency() < working.getExpectedLatency());
+	}
+}
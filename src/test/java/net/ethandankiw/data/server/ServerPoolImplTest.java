@@ -0,0 +1,181 @@
+package net.ethandankiw.data.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.data.store.ContentStore;
+import net.ethandankiw.server.ExecutionMode;
+
+class ServerPoolImplTest {
+
+	private ServerPoolImpl pool;
+
+
+	@BeforeEach
+	void setup() {
+		ContentStore.reset();
+		pool = new ServerPoolImpl(GlobalConstants.DEFAULT_BALANCED_SERVERS, ExecutionMode.VIRTUAL, new PowerOfTwoChoicesStrategy());
+	}
+
+
+	@AfterEach
+	void teardown() {
+		pool.shutdownStandbyServers();
+		pool.getAllServers()
+			.forEach(AggregationServer::shutdown);
+		ContentStore.reset();
+	}
+
+
+	@Test
+	void testDefaultServersCreated() {
+		Assertions.assertEquals(GlobalConstants.DEFAULT_BALANCED_SERVERS, pool.getServerCount());
+	}
+
+
+	@Test
+	void testServersCopiedOnWrite() {
+		Iterable<AggregationServer> before = pool.getAllServers();
+
+		pool.register(new AggregationServer(ExecutionMode.VIRTUAL));
+
+		// A reader keeps the servers it already had, while new readers see the new server
+		Assertions.assertEquals(GlobalConstants.DEFAULT_BALANCED_SERVERS, count(before));
+		Assertions.assertEquals(GlobalConstants.DEFAULT_BALANCED_SERVERS + 1, count(pool.getAllServers()));
+	}
+
+
+	@Test
+	void testLeastLoadedServerFound() {
+		List<AggregationServer> servers = list(pool.getAllServers());
+		ServerFixtures.addRequests(servers.get(0), 3);
+		ServerFixtures.addRequests(servers.get(1), 1);
+		ServerFixtures.addRequests(servers.get(2), 2);
+
+		Assertions.assertSame(servers.get(1), pool.getLeastLoadedServer());
+		Assertions.assertSame(servers.get(1), pool.peekLeastLoadedServer());
+	}
+
+
+	@Test
+	void testPopRemovesLeastLoadedServer() {
+		List<AggregationServer> servers = list(pool.getAllServers());
+		ServerFixtures.addRequests(servers.get(0), 2);
+		ServerFixtures.addRequests(servers.get(2), 2);
+
+		AggregationServer popped = pool.popLeastLoadedServer();
+
+		Assertions.assertSame(servers.get(1), popped);
+		Assertions.assertEquals(GlobalConstants.DEFAULT_BALANCED_SERVERS - 1, pool.getServerCount());
+		Assertions.assertFalse(list(pool.getAllServers()).contains(popped));
+		popped.shutdown();
+	}
+
+
+	@Test
+	void testAvailableServerAvoidsLoadedServer() {
+		List<AggregationServer> servers = list(pool.getAllServers());
+		ServerFixtures.addRequests(servers.get(0), 50);
+
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertNotSame(servers.get(0), pool.getAvailableServer());
+		}
+	}
+
+
+	@Test
+	void testAverageLoad() {
+		List<AggregationServer> servers = list(pool.getAllServers());
+		ServerFixtures.addRequests(servers.get(0), 30);
+
+		// Virtual servers are loaded by their requests in flight, out of the limit
+		Assertions.assertEquals(0.1, pool.calculateAverageServerLoad(), 1e-9);
+	}
+
+
+	@Test
+	void testStandbyPromotedWhenSaturated() throws InterruptedException {
+		List<AggregationServer> servers = list(pool.getAllServers());
+		servers.forEach(server -> ServerFixtures.addRequests(server, GlobalConstants.MAX_IN_FLIGHT_REQUESTS));
+
+		// The standby server is started in the background, so wait until it is ready
+		AggregationServer promoted = awaitPromotion();
+
+		Assertions.assertFalse(servers.contains(promoted));
+		Assertions.assertFalse(promoted.atCapacity());
+		Assertions.assertEquals(GlobalConstants.DEFAULT_BALANCED_SERVERS + 1, pool.getServerCount());
+
+		// The promoted server has room, so the next request does not add another
+		Assertions.assertSame(promoted, pool.getAvailableServer());
+		Assertions.assertEquals(GlobalConstants.DEFAULT_BALANCED_SERVERS + 1, pool.getServerCount());
+	}
+
+
+	@Test
+	void testNoPromotionWhenPoolFull() throws InterruptedException {
+		while (pool.getServerCount() < GlobalConstants.MAX_SERVERS) {
+			pool.register(new AggregationServer(ExecutionMode.VIRTUAL));
+		}
+		pool.getAllServers()
+			.forEach(server -> ServerFixtures.addRequests(server, GlobalConstants.MAX_IN_FLIGHT_REQUESTS));
+
+		// Give the standby server time to start, so only the size of the pool stops it
+		Thread.sleep(500);
+
+		// The least loaded server is used rather than growing the pool
+		AggregationServer server = pool.getAvailableServer();
+		Assertions.assertTrue(list(pool.getAllServers()).contains(server));
+		Assertions.assertEquals(GlobalConstants.MAX_SERVERS, pool.getServerCount());
+	}
+
+
+	@Test
+	void testStandbyReplacedAfterPromotion() throws InterruptedException {
+		// Promote the first standby server, then fill it too
+		List<AggregationServer> servers = list(pool.getAllServers());
+		servers.forEach(server -> ServerFixtures.addRequests(server, GlobalConstants.MAX_IN_FLIGHT_REQUESTS));
+		AggregationServer promoted = awaitPromotion();
+		ServerFixtures.addRequests(promoted, GlobalConstants.MAX_IN_FLIGHT_REQUESTS);
+
+		// The replacement is ready once another promotion succeeds
+		AggregationServer replacement = awaitPromotion();
+
+		Assertions.assertNotSame(promoted, replacement);
+		Assertions.assertEquals(GlobalConstants.DEFAULT_BALANCED_SERVERS + 2, pool.getServerCount());
+	}
+
+
+	private AggregationServer awaitPromotion() throws InterruptedException {
+		int before = pool.getServerCount();
+		long deadline = System.currentTimeMillis() + 5000;
+
+		while (System.currentTimeMillis() < deadline) {
+			AggregationServer server = pool.getAvailableServer();
+			if (pool.getServerCount() > before) {
+				return server;
+			}
+			Thread.sleep(20);
+		}
+
+		return Assertions.fail("No standby server was promoted");
+	}
+
+
+	private static List<AggregationServer> list(Iterable<AggregationServer> servers) {
+		List<AggregationServer> list = new ArrayList<>();
+		servers.forEach(list::add);
+		return list;
+	}
+
+
+	private static int count(Iterable<AggregationServer> servers) {
+		return list(servers).size();
+	}
+}
@@ -0,0 +1,81 @@
+package net.ethandankiw.data.server;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.aggregation.AggregationServer;
+
+class StationHashStrategyTest {
+
+	private final StationHashStrategy strategy = new StationHashStrategy();
+
+	private final AggregationServer[] servers = ServerFixtures.createServers(4);
+
+
+	@AfterEach
+	void teardown() {
+		Arrays.stream(servers)
+			  .forEach(AggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testStationAlwaysOnSameServer() {
+		AggregationServer chosen = strategy.select(servers, "IDS60901");
+
+		// Load does not move a station
+		ServerFixtures.addRequests(chosen, 50);
+
+		for (int i = 0; i < 10; i++) {
+			Assertions.assertSame(chosen, strategy.select(servers, "IDS60901"));
+		}
+	}
+
+
+	@Test
+	void testStationsSpreadAcrossServers() {
+		int[] owned = new int[servers.length];
+		for (int i = 0; i < 400; i++) {
+			owned[Arrays.asList(servers).indexOf(strategy.select(servers, "IDS" + i))] += 1;
+		}
+
+		for (int count : owned) {
+			Assertions.assertTrue(count > 0);
+		}
+	}
+
+
+	@Test
+	void testOnlyRemovedServersStationsMove() {
+		AggregationServer[] remaining = Arrays.copyOf(servers, servers.length - 1);
+		AggregationServer removed = servers[servers.length - 1];
+
+		// The ring is rebuilt once a new array of servers is passed
+		for (int i = 0; i < 400; i++) {
+			String stationId = "IDS" + i;
+			AggregationServer before = strategy.select(servers, stationId);
+			AggregationServer after = strategy.select(remaining, stationId);
+
+			if (before != removed) {
+				Assertions.assertSame(before, after);
+			} else {
+				Assertions.assertNotSame(removed, after);
+			}
+		}
+	}
+
+
+	@Test
+	void testRequestsWithoutStationBalanced() {
+		ServerFixtures.addRequests(servers[0], 10);
+
+		// Requests not about a station use two random choices, so the busiest server never wins
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertNotSame(servers[0], strategy.select(servers, null));
+			Assertions.assertNotSame(servers[0], strategy.select(servers, " "));
+		}
+	}
+}
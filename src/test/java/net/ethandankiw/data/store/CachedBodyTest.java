@@ -0,0 +1,43 @@
+package net.ethandankiw.data.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.http.ContentEncoding;
+
+class CachedBodyTest {
+
+	@Test
+	void testSmallBodyNotCompressed() {
+		byte[] identity = "small".getBytes(StandardCharsets.UTF_8);
+		CachedBody body = new CachedBody(1, identity);
+
+		Map.Entry<ContentEncoding, byte[]> variant = body.get(ContentEncoding.GZIP);
+
+		Assertions.assertEquals(ContentEncoding.IDENTITY, variant.getKey());
+		Assertions.assertSame(identity, variant.getValue());
+	}
+
+
+	@Test
+	void testVariantCompressedOnce() {
+		byte[] identity = "a".repeat(GlobalConstants.MIN_COMPRESSION_SIZE)
+							 .getBytes(StandardCharsets.UTF_8);
+		CachedBody body = new CachedBody(1, identity);
+
+		Map.Entry<ContentEncoding, byte[]> first = body.get(ContentEncoding.GZIP);
+		Map.Entry<ContentEncoding, byte[]> second = body.get(ContentEncoding.GZIP);
+
+		// The compressed variant is shared by every response
+		Assertions.assertEquals(ContentEncoding.GZIP, first.getKey());
+		Assertions.assertSame(first.getValue(), second.getValue());
+		Assertions.assertArrayEquals(identity, ContentEncoding.GZIP.decode(first.getValue()).orElseThrow());
+
+		// Each encoding has its own variant
+		Assertions.assertEquals(ContentEncoding.DEFLATE, body.get(ContentEncoding.DEFLATE).getKey());
+	}
+}
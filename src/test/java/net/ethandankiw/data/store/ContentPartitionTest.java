@@ -0,0 +1,100 @@
+package net.ethandankiw.data.store;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.WeatherData;
+import net.ethandankiw.data.http.JSON;
+import net.ethandankiw.utils.JsonUtils;
+
+class ContentPartitionTest {
+
+	private final ContentPartition partition = new ContentPartition("a");
+
+
+	@Test
+	void testEnqueueReportsExistingStation() {
+		Assertions.assertFalse(partition.enqueue(createPut("IDS60901", 1)));
+
+		// A queued write already counts, so a second write is an update
+		Assertions.assertTrue(partition.enqueue(createPut("IDS60901", 2)));
+		Assertions.assertTrue(partition.exists("IDS60901"));
+		Assertions.assertFalse(partition.exists("IDS60902"));
+	}
+
+
+	@Test
+	void testVersionHiddenWhilePutPending() {
+		partition.adopt("IDS60901", new WeatherData(createJson("IDS60901"), 4));
+		Assertions.assertEquals(Long.valueOf(4), partition.getVersion("IDS60901").orElseThrow());
+
+		// A read now would miss the queued write
+		partition.enqueue(createPut("IDS60901", 5));
+		Assertions.assertTrue(partition.getVersion("IDS60901").isEmpty());
+		Assertions.assertTrue(partition.hasPendingPut());
+
+		// Queued reads do not hide the version
+		ContentPartition other = new ContentPartition("b");
+		other.adopt("IDS60901", new WeatherData(createJson("IDS60901"), 4));
+		other.enqueue(new ContentRequest("IDS60901", new CompletableFuture<>(), 6));
+		Assertions.assertTrue(other.getVersion("IDS60901").isPresent());
+		Assertions.assertFalse(other.hasPendingPut());
+	}
+
+
+	@Test
+	void testAdoptKeepsNewerData() {
+		partition.adopt("IDS60901", new WeatherData(createJson("IDS60901"), 7));
+		partition.adopt("IDS60901", new WeatherData(createJson("IDS60901"), 3));
+
+		Assertions.assertEquals(7, partition.getData().get("IDS60901").getLamportClock());
+
+		partition.adopt("IDS60901", new WeatherData(createJson("IDS60901"), 9));
+		Assertions.assertEquals(9, partition.getData().get("IDS60901").getLamportClock());
+	}
+
+
+	@Test
+	void testRetireReturnsQueuedRequests() {
+		partition.enqueue(createPut("IDS60902", 2));
+		partition.enqueue(createPut("IDS60901", 1));
+
+		List<ContentRequest> queued = partition.retire();
+
+		// The requests are handed back in Lamport clock order, and no longer count as queued
+		Assertions.assertEquals(2, queued.size());
+		Assertions.assertEquals("IDS60901", queued.get(0).getId());
+		Assertions.assertFalse(partition.exists("IDS60901"));
+	}
+
+
+	@Test
+	void testRemoveMovedKeepsOwnedRequests() {
+		partition.enqueue(createPut("IDS60901", 1));
+		partition.enqueue(createPut("IDS60902", 2));
+		partition.enqueue(new ContentRequest("IDS60902", new CompletableFuture<>(), 3));
+
+		List<ContentRequest> moved = partition.removeMoved("IDS60902"::equals);
+
+		// Only the requests for the station that moved are handed back
+		Assertions.assertEquals(2, moved.size());
+		Assertions.assertTrue(moved.stream()
+								   .allMatch(request -> request.getId()
+															   .equals("IDS60902")));
+		Assertions.assertTrue(partition.exists("IDS60901"));
+		Assertions.assertFalse(partition.exists("IDS60902"));
+	}
+
+
+	private static ContentRequest createPut(String id, long lamportClock) {
+		return new ContentRequest(id, createJson(id), lamportClock);
+	}
+
+
+	private static JSON createJson(String id) {
+		return JsonUtils.parseStringToJSON("{\"id\":\"" + id + "\"}");
+	}
+}
@@ -0,0 +1,94 @@
+package net.ethandankiw.data.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.WeatherData;
+import net.ethandankiw.utils.JsonUtils;
+
+class ContentStoreTest {
+
+	@BeforeEach
+	void setup() {
+		FileManager.deleteAllContentFiles();
+		ContentStore.reset();
+	}
+
+
+	@AfterEach
+	void teardown() {
+		ContentStore.stopProcessorThread();
+		ContentStore.reset();
+		FileManager.deleteAllContentFiles();
+	}
+
+
+	@Test
+	void testStationsKeptWhenPartitionsChange() {
+		for (int i = 0; i < 50; i++) {
+			ContentStore.applyReplicated("IDS" + i, JsonUtils.parseStringToJSON("{\"id\":\"IDS" + i + "\"}"), i + 1);
+		}
+
+		// Stations move to the partitions that own them as servers are added
+		ContentStore.addPartition("a");
+		ContentStore.addPartition("b");
+		ContentStore.addPartition("c");
+		Assertions.assertEquals(50, ContentStore.getAll().size());
+		Assertions.assertTrue(ContentStore.exists("IDS7"));
+
+		// And back again as they are removed, even once no server is left
+		ContentStore.removePartition("b");
+		ContentStore.removePartition("a");
+		ContentStore.removePartition("c");
+		Assertions.assertEquals(50, ContentStore.getAll().size());
+		Assertions.assertEquals(Long.valueOf(8), ContentStore.getVersion("IDS7").orElseThrow());
+	}
+
+
+	@Test
+	void testOlderReplicatedReadingIgnored() {
+		ContentStore.applyReplicated("IDS60901", JsonUtils.parseStringToJSON("{\"id\":\"IDS60901\",\"name\":\"new\"}"), 10);
+		ContentStore.applyReplicated("IDS60901", JsonUtils.parseStringToJSON("{\"id\":\"IDS60901\",\"name\":\"old\"}"), 5);
+
+		Assertions.assertEquals(Long.valueOf(10), ContentStore.getVersion("IDS60901").orElseThrow());
+		Assertions.assertEquals("new", ContentStore.getAll().get("IDS60901").getValue("name"));
+	}
+
+
+	@Test
+	void testQueuedWritesFollowTheirStation() throws InterruptedException, ExecutionException, TimeoutException {
+		// Queue writes before any server owns a partition
+		List<String> ids = List.of("IDS60901", "IDS60902", "IDS60903");
+		for (String id : ids) {
+			Assertions.assertTrue(ContentStore.put(id, JsonUtils.parseStringToJSON("{\"id\":\"" + id + "\"}"), 1));
+		}
+
+		// A write that is queued counts as stored, and must be applied before it can be read directly
+		Assertions.assertTrue(ContentStore.exists("IDS60901"));
+		Assertions.assertTrue(ContentStore.getVersion("IDS60901").isEmpty());
+		Assertions.assertTrue(ContentStore.hasPendingWrites());
+
+		// The queued writes move to the new partitions, and are applied there
+		ContentStore.addPartition("a");
+		ContentStore.addPartition("b");
+		ContentStore.startProcessorThread();
+
+		List<CompletableFuture<WeatherData>> reads = new ArrayList<>();
+		for (String id : ids) {
+			reads.add(ContentStore.get(id, 0));
+		}
+		for (CompletableFuture<WeatherData> read : reads) {
+			Assertions.assertNotNull(read.get(10, TimeUnit.SECONDS));
+		}
+		Assertions.assertFalse(ContentStore.hasPendingWrites());
+	}
+}
@@ -0,0 +1,28 @@
+package net.ethandankiw.data.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ResponseBodyCacheTest {
+
+	@AfterEach
+	void teardown() {
+		ResponseBodyCache.clear();
+	}
+
+
+	@Test
+	void testBodyReusedUntilDataChanges() {
+		CachedBody first = ResponseBodyCache.get("IDS60901", 5, () -> "first");
+
+		// The serializer is not called again while the data is unchanged
+		Assertions.assertSame(first, ResponseBodyCache.get("IDS60901", 5, () -> "second"));
+
+		// Newer data replaces the body, and older data never does
+		CachedBody newer = ResponseBodyCache.get("IDS60901", 6, () -> "newer");
+		Assertions.assertNotSame(first, newer);
+		ResponseBodyCache.get("IDS60901", 4, () -> "older");
+		Assertions.assertSame(newer, ResponseBodyCache.get("IDS60901", 6, () -> "unused"));
+	}
+}
@@ -0,0 +1,94 @@
+package net.ethandankiw.data.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+
+class StationEventBrokerTest {
+
+	private final List<StationSubscription> subscriptions = new ArrayList<>();
+
+
+	@AfterEach
+	void teardown() {
+		subscriptions.forEach(StationEventBroker::unsubscribe);
+	}
+
+
+	@Test
+	void testEventsDeliveredToMatchingSubscribers() throws InterruptedException {
+		StationSubscription station = subscribe("IDS60901");
+		StationSubscription other = subscribe("IDS60902");
+		StationSubscription all = subscribe(null);
+
+		StationEventBroker.publish("IDS60901", 4, () -> "{\"id\":\"IDS60901\"}");
+
+		Optional<StationEvent> event = station.poll(100);
+		Assertions.assertTrue(event.isPresent());
+		Assertions.assertEquals(4, event.get().getLamportClock());
+		Assertions.assertTrue(all.poll(100).isPresent());
+		Assertions.assertFalse(other.hasPending());
+	}
+
+
+	@Test
+	void testReadingSerializedOnce() {
+		AtomicInteger serialized = new AtomicInteger();
+		subscribe("IDS60901");
+		subscribe("IDS60901");
+
+		StationEventBroker.publish("IDS60901", 1, () -> {
+			serialized.incrementAndGet();
+			return "{\"id\":\"IDS60901\"}";
+		});
+
+		// Nothing is serialized when no one is subscribed to the station
+		StationEventBroker.publish("IDS60999", 2, () -> {
+			serialized.incrementAndGet();
+			return "{}";
+		});
+
+		Assertions.assertEquals(1, serialized.get());
+	}
+
+
+	@Test
+	void testSlowSubscriberDropped() {
+		StationSubscription subscription = subscribe("IDS60901");
+
+		// Publish one more event than the subscriber can buffer
+		for (int i = 0; i <= GlobalConstants.SSE_BUFFER_SIZE; i++) {
+			StationEventBroker.publish("IDS60901", i + 1, () -> "{}");
+		}
+
+		Assertions.assertTrue(subscription.isOverflowed());
+		Assertions.assertFalse(subscription.offer(new StationEvent("IDS60901", 100, "{}")));
+	}
+
+
+	@Test
+	void testEventMarkedSentOnce() {
+		StationSubscription subscription = subscribe(null);
+
+		// A replayed reading is not sent again when it is also published, nor after a newer one
+		Assertions.assertTrue(subscription.markSent(new StationEvent("IDS60901", 5, "{}")));
+		Assertions.assertFalse(subscription.markSent(new StationEvent("IDS60901", 5, "{}")));
+		Assertions.assertFalse(subscription.markSent(new StationEvent("IDS60901", 4, "{}")));
+		Assertions.assertTrue(subscription.markSent(new StationEvent("IDS60902", 4, "{}")));
+		Assertions.assertTrue(subscription.markSent(new StationEvent("IDS60901", 6, "{}")));
+	}
+
+
+	private StationSubscription subscribe(String stationId) {
+		StationSubscription subscription = StationEventBroker.subscribe(stationId);
+		subscriptions.add(subscription);
+		return subscription;
+	}
+}
@@ -0,0 +1,65 @@
+package net.ethandankiw.data.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StationEventTest {
+
+	@Test
+	void testEncode() {
+		StationEvent event = new StationEvent("IDS60901", 12, "{\"id\":\"IDS60901\"}");
+
+		Assertions.assertEquals("id: 12\nevent: update\ndata: {\"id\":\"IDS60901\"}\n\n",
+				new String(event.encode(), StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	void testEncodeMultipleLines() {
+		StationEvent event = new StationEvent("IDS60901", 3, "{\r\n\"id\":\"IDS60901\"\n}");
+
+		// Each line is sent as its own data field, as a line break would end the field
+		Assertions.assertEquals("id: 3\nevent: update\ndata: {\ndata: \"id\":\"IDS60901\"\ndata: }\n\n",
+				new String(event.encode(), StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	void testEncodeSync() {
+		Assertions.assertEquals("id: 40\nevent: sync\n\n", new String(StationEvent.encodeSync(40), StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	void testDecodeAll() {
+		String stream = new String(new StationEvent("IDS60901", 5, "{\"id\":\"IDS60901\",\"air_temp\":13.3}").encode(), StandardCharsets.UTF_8)
+				+ ": heartbeat\n\n"
+				+ new String(StationEvent.encodeSync(6), StandardCharsets.UTF_8)
+				+ new String(new StationEvent("IDS60902", 7, "{\"id\":\"IDS60902\"}").encode(), StandardCharsets.UTF_8);
+
+		List<StationEvent> events = StationEvent.decodeAll(stream);
+
+		// Comments and events without a reading are skipped
+		Assertions.assertEquals(2, events.size());
+		Assertions.assertEquals("IDS60901", events.get(0).getStationId());
+		Assertions.assertEquals(5, events.get(0).getLamportClock());
+		Assertions.assertEquals("{\"id\":\"IDS60901\",\"air_temp\":13.3}", events.get(0).getJson());
+		Assertions.assertEquals("IDS60902", events.get(1).getStationId());
+		Assertions.assertEquals(7, events.get(1).getLamportClock());
+	}
+
+
+	@Test
+	void testIncompleteEventNotDecoded() {
+		// The last event has not been dispatched by a blank line yet
+		String stream = "id: 1\nevent: update\ndata: {\"id\":\"A\"}\n\nid: 2\nevent: update\ndata: {\"id\":\"B\"}\n";
+
+		List<StationEvent> events = StationEvent.decodeAll(stream);
+
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("A", events.get(0).getStationId());
+	}
+}
@@ -0,0 +1,135 @@
+package net.ethandankiw.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AdmissionControllerTest {
+
+	private static final long QUEUE_TIMEOUT = 10_000;
+
+	private final List<String> events = new ArrayList<>();
+
+	// Queued work runs on the releasing thread, so the order is known
+	private final AdmissionController controller = new AdmissionController(2, 1, QUEUE_TIMEOUT, Runnable::run);
+
+
+	@AfterEach
+	void teardown() {
+		controller.shutdown();
+	}
+
+
+	@Test
+	void testWorkRunUnderLimit() {
+		Assertions.assertTrue(controller.admit(record("a"), record("a timeout")));
+		Assertions.assertTrue(controller.admit(record("b"), record("b timeout")));
+
+		Assertions.assertEquals(List.of("a", "b"), events);
+		Assertions.assertEquals(2, controller.getAdmittedCount());
+		Assertions.assertEquals(0, controller.getPendingCount());
+	}
+
+
+	@Test
+	void testWorkQueuedThenShed() {
+		controller.admit(record("a"), record("a timeout"));
+		controller.admit(record("b"), record("b timeout"));
+
+		// The limit is reached, so the next work waits
+		Assertions.assertTrue(controller.admit(record("c"), record("c timeout")));
+		Assertions.assertEquals(List.of("a", "b"), events);
+		Assertions.assertEquals(1, controller.getPendingCount());
+
+		// The queue is full, so the next work is shed
+		Assertions.assertFalse(controller.admit(record("d"), record("d timeout")));
+		Assertions.assertEquals(1, controller.getShedCount());
+		Assertions.assertEquals(List.of("a", "b"), events);
+	}
+
+
+	@Test
+	void testReleaseAdmitsQueuedWork() {
+		controller.admit(record("a"), record("a timeout"));
+		controller.admit(record("b"), record("b timeout"));
+		controller.admit(record("c"), record("c timeout"));
+
+		// The released slot passes straight to the queued work
+		controller.release();
+		Assertions.assertEquals(List.of("a", "b", "c"), events);
+		Assertions.assertEquals(2, controller.getAdmittedCount());
+		Assertions.assertEquals(0, controller.getPendingCount());
+
+		controller.release();
+		controller.release();
+		Assertions.assertEquals(0, controller.getAdmittedCount());
+
+		// Releasing more than was admitted does not go below zero
+		controller.release();
+		Assertions.assertEquals(0, controller.getAdmittedCount());
+	}
+
+
+	@Test
+	void testQueuedWorkTurnedAwayAfterTimeout() throws InterruptedException {
+		AdmissionController timed = new AdmissionController(1, 1, 50, Runnable::run);
+		CountDownLatch turnedAway = new CountDownLatch(1);
+
+		try {
+			timed.admit(record("a"), record("a timeout"));
+			timed.admit(record("b"), turnedAway::countDown);
+
+			Assertions.assertTrue(turnedAway.await(2, TimeUnit.SECONDS));
+			Assertions.assertEquals(0, timed.getPendingCount());
+			Assertions.assertEquals(1, timed.getShedCount());
+
+			// The expired work is not run once a slot is released
+			timed.release();
+			Assertions.assertEquals(List.of("a"), events);
+			Assertions.assertEquals(0, timed.getAdmittedCount());
+		} finally {
+			timed.shutdown();
+		}
+	}
+
+
+	@Test
+	void testFailedWorkReleasesSlot() {
+		controller.admit(() -> {
+			throw new IllegalStateException("failed");
+		}, record("timeout"));
+
+		Assertions.assertEquals(0, controller.getAdmittedCount());
+	}
+
+
+	@Test
+	void testRejectedWorkTurnedAway() {
+		AdmissionController rejecting = new AdmissionController(1, 1, QUEUE_TIMEOUT, runnable -> {
+			throw new RejectedExecutionException("shut down");
+		});
+
+		try {
+			rejecting.admit(record("a"), record("a timeout"));
+			rejecting.admit(record("b"), record("b timeout"));
+
+			// The queued work can never start, so it is turned away and its slot freed
+			rejecting.release();
+			Assertions.assertEquals(List.of("a", "b timeout"), events);
+			Assertions.assertEquals(0, rejecting.getAdmittedCount());
+		} finally {
+			rejecting.shutdown();
+		}
+	}
+
+
+	private Runnable record(String event) {
+		return () -> events.add(event);
+	}
+}
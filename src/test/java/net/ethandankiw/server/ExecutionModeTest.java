@@ -0,0 +1,82 @@
+package net.ethandankiw.server;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ExecutionModeTest {
+
+	@Test
+	void testVirtualModeRunsOnVirtualThreads() throws ExecutionException, InterruptedException {
+		ExecutorService executor = ExecutionMode.VIRTUAL.createExecutor(1);
+
+		try {
+			Assertions.assertTrue(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+	@Test
+	void testPlatformModeBoundsThreads() throws ExecutionException, InterruptedException {
+		ExecutorService executor = ExecutionMode.PLATFORM.createExecutor(3);
+
+		try {
+			// Requests run on a fixed number of platform threads
+			ThreadPoolExecutor pool = Assertions.assertInstanceOf(ThreadPoolExecutor.class, executor);
+			Assertions.assertEquals(3, pool.getMaximumPoolSize());
+			Assertions.assertFalse(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+	@Test
+	void testSharedModeUsesQuotaOfSharedPool() throws ExecutionException, InterruptedException {
+		ExecutorService executor = ExecutionMode.SHARED.createExecutor(3);
+
+		try {
+			Assertions.assertInstanceOf(QuotaExecutor.class, executor);
+			Assertions.assertFalse(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+		} finally {
+			executor.shutdown();
+		}
+
+		// Shutting down one server's share leaves the pool running for the others
+		ExecutorService other = ExecutionMode.SHARED.createExecutor(3);
+		try {
+			Assertions.assertEquals(1, other.submit(() -> 1).get());
+		} finally {
+			other.shutdown();
+		}
+	}
+
+
+	@Test
+	void testSharedModeDependentWorkHasOwnThreads() {
+		ExecutorService executor = ExecutionMode.SHARED.createDependentExecutor(3);
+
+		try {
+			// Work the server's tasks block on must not wait for the server's own share
+			ThreadPoolExecutor pool = Assertions.assertInstanceOf(ThreadPoolExecutor.class, executor);
+			Assertions.assertEquals(3, pool.getMaximumPoolSize());
+
+			// The threads are stopped once idle, so an idle server holds none
+			Assertions.assertTrue(pool.allowsCoreThreadTimeOut());
+		} finally {
+			executor.shutdown();
+		}
+
+		ExecutorService platform = ExecutionMode.PLATFORM.createDependentExecutor(3);
+		try {
+			Assertions.assertInstanceOf(ThreadPoolExecutor.class, platform);
+		} finally {
+			platform.shutdown();
+		}
+	}
+}
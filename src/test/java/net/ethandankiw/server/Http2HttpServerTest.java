@@ -0,0 +1,195 @@
+package net.ethandankiw.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.utils.http2.HpackDecoder;
+import net.ethandankiw.utils.http2.HpackEncoder;
+import net.ethandankiw.utils.http2.HpackTable;
+import net.ethandankiw.utils.http2.Http2Frame;
+
+class Http2HttpServerTest {
+
+	private Http2HttpServer server;
+
+	// Response for the first stream, completed by the test
+	private final CompletableFuture<HttpResponse> slowResponse = new CompletableFuture<>();
+
+	private Socket client;
+	private final HpackEncoder encoder = new HpackEncoder();
+	private final HpackDecoder decoder = new HpackDecoder(HpackTable.DEFAULT_MAX_SIZE);
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		// Answer /slow only when the test completes it, and echo the path of every other request
+		server = new Http2HttpServer("H2C-Test", 0, ExecutionMode.VIRTUAL, new LamportClock(), this::dispatch);
+		server.start();
+		server.startAccepting();
+
+		client = new Socket("localhost", server.getSocket().getLocalPort());
+		client.setSoTimeout(5000);
+
+		// Open the connection with the preface and empty settings
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(Http2Frame.CONNECTION_PREFACE);
+		Http2Frame.write(out, Http2Frame.SETTINGS, 0, 0, new byte[0]);
+		send(out);
+	}
+
+
+	@AfterEach
+	void teardown() throws IOException {
+		client.close();
+		server.shutdown();
+	}
+
+
+	@Test
+	void testRequestAnswered() throws IOException {
+		sendRequest(1, "/health");
+
+		Map<Integer, Response> responses = readResponses(1);
+
+		Response response = responses.get(1);
+		Assertions.assertEquals("200", response.headers.get(":status"));
+		Assertions.assertEquals("text/plain", response.headers.get("content-type"));
+		Assertions.assertEquals("/health", response.body.toString(StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	void testStreamsAnsweredOutOfOrder() throws IOException {
+		// The first stream waits while the second is answered on the same connection
+		sendRequest(1, "/slow");
+		sendRequest(3, "/fast");
+
+		Map<Integer, Response> responses = readResponses(1);
+		Assertions.assertTrue(responses.containsKey(3));
+		Assertions.assertEquals("/fast", responses.get(3).body.toString(StandardCharsets.UTF_8));
+
+		slowResponse.complete(createResponse("slow"));
+		responses = readResponses(1);
+		Assertions.assertEquals("slow", responses.get(1).body.toString(StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	void testConnectionHeadersRejected() throws IOException {
+		// Headers for HTTP/1.1 connections are not allowed, so the stream is reset
+		sendRequest(1, "/health", new String[]{"connection", "keep-alive"});
+
+		Http2Frame frame = readFrame();
+		Assertions.assertEquals(Http2Frame.RST_STREAM, frame.getType());
+		Assertions.assertEquals(1, frame.getStreamId());
+	}
+
+
+	private CompletableFuture<HttpResponse> dispatch(HttpRequest request) {
+		if (request.getPath()
+				   .equals("/slow")) {
+			return slowResponse;
+		}
+
+		return CompletableFuture.completedFuture(createResponse(request.getPath()));
+	}
+
+
+	private static HttpResponse createResponse(String body) {
+		HttpResponse response = new HttpResponse();
+		response.setStatus(HttpStatusCode.OK);
+		response.addHeader(HttpHeaders.CONTENT_TYPE, "text/plain");
+		response.setBody(body);
+		return response;
+	}
+
+
+	private void sendRequest(int streamId, String path, String[]... extraHeaders) throws IOException {
+		List<String[]> fields = new ArrayList<>(List.of(
+				new String[]{":method", "GET"},
+				new String[]{":scheme", "http"},
+				new String[]{":path", path},
+				new String[]{":authority", "localhost"}));
+		fields.addAll(List.of(extraHeaders));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Http2Frame.write(out, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, streamId, encoder.encode(fields));
+		send(out);
+	}
+
+
+	/**
+	 * Read frames until the given number of streams have ended.
+	 */
+	private Map<Integer, Response> readResponses(int count) throws IOException {
+		Map<Integer, Response> responses = new HashMap<>();
+		int ended = 0;
+
+		while (ended < count) {
+			Http2Frame frame = readFrame();
+			Response response = responses.computeIfAbsent(frame.getStreamId(), id -> new Response());
+
+			if (frame.getType() == Http2Frame.HEADERS) {
+				for (String[] field : decoder.decode(frame.getPayload(), frame.getLength())) {
+					response.headers.put(field[0], field[1]);
+				}
+			} else {
+				response.body.write(frame.getPayload(), 0, frame.getLength());
+			}
+
+			if (frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+				ended += 1;
+			}
+		}
+
+		return responses;
+	}
+
+
+	/**
+	 * Read the next frame for a stream, skipping connection settings and window updates.
+	 */
+	private Http2Frame readFrame() throws IOException {
+		InputStream in = client.getInputStream();
+
+		while (true) {
+			Http2Frame frame = Http2Frame.read(in, Http2Frame.DEFAULT_MAX_FRAME_SIZE);
+			if (frame.getType() != Http2Frame.SETTINGS && frame.getType() != Http2Frame.WINDOW_UPDATE) {
+				return frame;
+			}
+		}
+	}
+
+
+	private void send(ByteArrayOutputStream frames) throws IOException {
+		OutputStream out = client.getOutputStream();
+		frames.writeTo(out);
+		out.flush();
+	}
+
+
+	private static final class Response {
+
+		private final Map<String, String> headers = new HashMap<>();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+	}
+}
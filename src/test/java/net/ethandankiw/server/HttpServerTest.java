@@ -0,0 +1,88 @@
+package net.ethandankiw.server;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.utils.SocketUtils;
+
+class HttpServerTest {
+
+	private HttpServer server;
+
+
+	@AfterEach
+	void teardown() throws IOException {
+		if (server != null && server.getSocket() != null) {
+			server.shutdown();
+		}
+	}
+
+
+	@Test
+	void testSingleAcceptorOpensOneSocket() throws IOException {
+		server = new HttpServer("Test", findFreePort());
+		server.start();
+
+		Assertions.assertNotNull(server.getSocket());
+		Assertions.assertEquals(List.of(server.getSocket()), server.getSockets());
+	}
+
+
+	@Test
+	void testAcceptorsShareThePort() throws IOException {
+		int port = findFreePort();
+		server = new HttpServer("Test", port, 3);
+		server.start();
+
+		// Each acceptor gets its own socket where the kernel can spread connections, or they share one
+		List<ServerSocket> sockets = server.getSockets();
+		Assertions.assertEquals(SocketUtils.supportsReusePort() ? 3 : 1, sockets.size());
+		Assertions.assertEquals(3, server.getAcceptorCount());
+		sockets.forEach(socket -> Assertions.assertEquals(port, socket.getLocalPort()));
+
+		// A connection to the port is accepted by one of the sockets
+		try (Socket client = new Socket("localhost", port)) {
+			Assertions.assertTrue(client.isConnected());
+		}
+	}
+
+
+	@Test
+	void testShutdownClosesEverySocket() throws IOException {
+		server = new HttpServer("Test", findFreePort(), 2);
+		server.start();
+		List<ServerSocket> sockets = server.getSockets();
+
+		server.shutdown();
+		server = null;
+
+		sockets.forEach(socket -> Assertions.assertTrue(socket.isClosed()));
+	}
+
+
+	@Test
+	void testTakenPortNotStarted() throws IOException {
+		try (ServerSocket taken = new ServerSocket(0)) {
+			server = new HttpServer("Test", taken.getLocalPort(), 2);
+			server.start();
+
+			// The server is not started on a port another process holds
+			Assertions.assertNull(server.getSocket());
+			Assertions.assertTrue(server.getSockets().isEmpty());
+		}
+	}
+
+
+	private static int findFreePort() throws IOException {
+		// A port of zero would give each acceptor's socket a different port
+		try (ServerSocket probe = new ServerSocket(0)) {
+			return probe.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,362 @@
+package net.ethandankiw.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.utils.http.HttpResponseReader;
+import net.ethandankiw.utils.http.HttpResponseUtils;
+
+class NioConnectionTest {
+
+	// Size of the response that cannot be written to the client in one go
+	private static final int LARGE_BODY_SIZE = 4 * 1024 * 1024;
+
+	// Client side of the connection, and the side the connection reads from
+	private Socket client;
+	private SocketChannel channel;
+
+	private Selector selector;
+	private SelectionKey key;
+	private NioConnection connection;
+	private HttpResponseReader responses;
+
+	// Requests handed to the dispatcher, in the order they were dispatched
+	private final List<HttpRequest> dispatched = new ArrayList<>();
+
+	// Responses to /slow requests, completed by the test
+	private final Map<String, CompletableFuture<HttpResponse>> slowResponses = new ConcurrentHashMap<>();
+
+	// Tasks the connection hands to its reactor, run by the test in place of a reactor thread
+	private final Queue<Runnable> reactorTasks = new ConcurrentLinkedQueue<>();
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+			listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+			// Keep the client's receive buffer small, so a large response cannot be written at once
+			client = new Socket();
+			client.setReceiveBufferSize(4096);
+			client.connect(listener.getLocalAddress());
+			client.setSoTimeout(5000);
+			channel = listener.accept();
+		}
+
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+
+		selector = Selector.open();
+		key = channel.register(selector, SelectionKey.OP_READ);
+		connection = new NioConnection(channel, key, this::dispatch, new LamportClock(), reactorTasks::add);
+		key.attach(connection);
+
+		responses = new HttpResponseReader(client.getInputStream());
+	}
+
+
+	@AfterEach
+	void teardown() throws IOException {
+		client.close();
+		connection.close();
+		selector.close();
+	}
+
+
+	@Test
+	void testRequestSplitAcrossReads() throws IOException {
+		String body = "{\"id\":\"IDS60901\"}";
+		byte[] request = ("PUT /weather.json HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length() + "\r\n\r\n" + body)
+				.getBytes(StandardCharsets.ISO_8859_1);
+
+		// Deliver the request a few bytes at a time, each in its own read
+		for (int i = 0; i < request.length; i += 5) {
+			Assertions.assertTrue(dispatched.isEmpty());
+			send(request, i, Math.min(5, request.length - i));
+			poll();
+		}
+
+		// The request is only dispatched once it has arrived in full
+		pollUntil(() -> !dispatched.isEmpty());
+		Assertions.assertEquals(1, dispatched.size());
+		Assertions.assertEquals(body, dispatched.get(0)
+												.getBody());
+		Assertions.assertEquals("/weather.json", readResponse().getBody());
+	}
+
+
+	@Test
+	void testFullPipelineResumesOnResponse() throws IOException {
+		int limit = GlobalConstants.MAX_PIPELINED_REQUESTS;
+
+		// Send more requests than the pipeline holds, all waiting on the test
+		StringBuilder requests = new StringBuilder();
+		for (int i = 0; i < limit + 2; i++) {
+			requests.append("GET /slow/")
+					.append(i)
+					.append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		}
+		send(requests.toString());
+		pollUntil(() -> dispatched.size() == limit);
+
+		// Once the pipeline is full, no more requests are read
+		poll();
+		Assertions.assertEquals(limit, dispatched.size());
+		Assertions.assertEquals(0, key.interestOps() & SelectionKey.OP_READ);
+
+		// Answering the oldest request makes room for the next one
+		slowResponses.get("/slow/0")
+					 .complete(createResponse("/slow/0"));
+		pollUntil(() -> dispatched.size() == limit + 1);
+
+		// Answering the rest lets the last request in
+		for (int i = 1; i < limit + 1; i++) {
+			slowResponses.get("/slow/" + i)
+						 .complete(createResponse("/slow/" + i));
+		}
+		pollUntil(() -> dispatched.size() == limit + 2);
+		slowResponses.get("/slow/" + (limit + 1))
+					 .complete(createResponse("/slow/" + (limit + 1)));
+		runReactorTasks();
+
+		// The responses are written in the order the requests were sent
+		for (int i = 0; i < limit + 2; i++) {
+			Assertions.assertEquals("/slow/" + i, readResponse().getBody());
+		}
+	}
+
+
+	@Test
+	void testPartialWriteKeepsWriteInterest() throws Exception {
+		send("GET /large HTTP/1.1\r\nHost: localhost\r\n\r\nGET /after HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		pollUntil(() -> dispatched.size() == 2);
+		runReactorTasks();
+
+		// The client is not reading, so the response is only partly written
+		Assertions.assertNotEquals(0, key.interestOps() & SelectionKey.OP_WRITE);
+
+		// The rest is written as the client reads, followed by the next response
+		CompletableFuture<List<HttpResponse>> read = CompletableFuture.supplyAsync(() -> List.of(readResponse(), readResponse()));
+		pollUntil(read::isDone);
+
+		List<HttpResponse> received = read.get(1, TimeUnit.SECONDS);
+		Assertions.assertEquals(LARGE_BODY_SIZE, received.get(0)
+														 .getBody()
+														 .length());
+		Assertions.assertEquals("/after", received.get(1)
+												  .getBody());
+		Assertions.assertEquals(0, key.interestOps() & SelectionKey.OP_WRITE);
+	}
+
+
+	@Test
+	void testHalfClosedClientStillAnswered() throws IOException {
+		send("GET /slow/0 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		client.shutdownOutput();
+		pollUntil(() -> dispatched.size() == 1);
+		poll();
+
+		// The client has stopped sending, but is still waiting for its response
+		Assertions.assertTrue(channel.isOpen());
+
+		slowResponses.get("/slow/0")
+					 .complete(createResponse("/slow/0"));
+		runReactorTasks();
+
+		// The connection closes once the last response is written
+		Assertions.assertEquals("/slow/0", readResponse().getBody());
+		Assertions.assertEquals(-1, client.getInputStream()
+										  .read());
+		Assertions.assertFalse(channel.isOpen());
+	}
+
+
+	@Test
+	void testIncompleteHeadTimesOut() throws IOException {
+		long timeouts = ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.HEADER_READ);
+		send("GET /health HTTP/1.1\r\nHo");
+		poll();
+
+		// Nothing happens before the deadline
+		long start = System.currentTimeMillis();
+		connection.expireDeadlines(start);
+		Assertions.assertTrue(reactorTasks.isEmpty());
+
+		connection.expireDeadlines(start + GlobalConstants.HEADER_READ_TIMEOUT + 1000);
+		runReactorTasks();
+
+		// The client is told it was too slow, and the connection is closed
+		HttpResponse response = readResponse();
+		Assertions.assertEquals(HttpStatusCode.REQUEST_TIMEOUT.getStatusCode(), response.getStatusCode());
+		Assertions.assertFalse(channel.isOpen());
+		Assertions.assertEquals(timeouts + 1, ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.HEADER_READ));
+		Assertions.assertTrue(dispatched.isEmpty());
+	}
+
+
+	@Test
+	void testIncompleteBodyTimesOut() throws IOException {
+		long timeouts = ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.BODY_READ);
+		send("PUT /weather.json HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\n{\"i");
+		poll();
+
+		// The head arrived in time, so only the body deadline applies
+		long start = System.currentTimeMillis();
+		connection.expireDeadlines(start + GlobalConstants.HEADER_READ_TIMEOUT + 1000);
+		Assertions.assertTrue(reactorTasks.isEmpty());
+
+		connection.expireDeadlines(start + GlobalConstants.BODY_READ_TIMEOUT + 1000);
+		runReactorTasks();
+
+		Assertions.assertEquals(HttpStatusCode.REQUEST_TIMEOUT.getStatusCode(), readResponse().getStatusCode());
+		Assertions.assertEquals(timeouts + 1, ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.BODY_READ));
+	}
+
+
+	@Test
+	void testStalledWriteCloses() throws IOException {
+		long timeouts = ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.WRITE);
+		send("GET /large HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		pollUntil(() -> dispatched.size() == 1);
+		runReactorTasks();
+
+		// The client never reads, so the response cannot be written before its deadline
+		connection.expireDeadlines(System.currentTimeMillis() + GlobalConstants.WRITE_TIMEOUT + 1000);
+
+		Assertions.assertFalse(channel.isOpen());
+		Assertions.assertEquals(timeouts + 1, ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.WRITE));
+	}
+
+
+	@Test
+	void testIdleOnlyWithNothingOutstanding() throws IOException {
+		long idleAt = System.currentTimeMillis() + GlobalConstants.KEEP_ALIVE_TIMEOUT + 1000;
+		Assertions.assertFalse(connection.isIdle(System.currentTimeMillis()));
+		Assertions.assertTrue(connection.isIdle(idleAt));
+
+		// A request waiting for its response keeps the connection open
+		send("GET /slow/0 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		pollUntil(() -> dispatched.size() == 1);
+		Assertions.assertFalse(connection.isIdle(idleAt));
+
+		slowResponses.get("/slow/0")
+					 .complete(createResponse("/slow/0"));
+		runReactorTasks();
+		readResponse();
+		Assertions.assertTrue(connection.isIdle(System.currentTimeMillis() + GlobalConstants.KEEP_ALIVE_TIMEOUT + 1000));
+	}
+
+
+	private CompletableFuture<HttpResponse> dispatch(HttpRequest request) {
+		dispatched.add(request);
+
+		// Answer /slow requests only when the test completes them
+		if (request.getPath()
+				   .startsWith("/slow")) {
+			return slowResponses.computeIfAbsent(request.getPath(), path -> new CompletableFuture<>());
+		}
+
+		// Answer /large with a body too big for the socket buffers
+		if (request.getPath()
+				   .equals("/large")) {
+			return CompletableFuture.completedFuture(createResponse("a".repeat(LARGE_BODY_SIZE)));
+		}
+
+		// Echo the path of every other request
+		return CompletableFuture.completedFuture(createResponse(request.getPath()));
+	}
+
+
+	private static HttpResponse createResponse(String body) {
+		return HttpResponseUtils.generateResponse(HttpStatusCode.OK, body, 0);
+	}
+
+
+	/**
+	 * Handle the connection's ready events once, as its reactor would.
+	 */
+	private void poll() throws IOException {
+		runReactorTasks();
+		selector.selectedKeys()
+				.clear();
+
+		if (selector.select(100) > 0 && key.isValid()) {
+			if (key.isWritable()) {
+				connection.onWritable();
+			}
+
+			if (key.isValid() && key.isReadable()) {
+				connection.onReadable();
+			}
+		}
+
+		runReactorTasks();
+	}
+
+
+	private void pollUntil(BooleanSupplier condition) throws IOException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition was not met in time");
+			poll();
+		}
+	}
+
+
+	private void runReactorTasks() {
+		Runnable task;
+		while ((task = reactorTasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+
+	private void send(String data) throws IOException {
+		byte[] bytes = data.getBytes(StandardCharsets.ISO_8859_1);
+		send(bytes, 0, bytes.length);
+	}
+
+
+	private void send(byte[] data, int offset, int length) throws IOException {
+		OutputStream out = client.getOutputStream();
+		out.write(data, offset, length);
+		out.flush();
+	}
+
+
+	private HttpResponse readResponse() {
+		Optional<HttpResponse> response = responses.readResponse();
+		Assertions.assertTrue(response.isPresent());
+		return response.get();
+	}
+
+}
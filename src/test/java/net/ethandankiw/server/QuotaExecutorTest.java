@@ -0,0 +1,116 @@
+package net.ethandankiw.server;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class QuotaExecutorTest {
+
+	private static final int QUOTA = 2;
+
+	private final ExecutorService shared = Executors.newCachedThreadPool();
+
+	private final QuotaExecutor executor = new QuotaExecutor(shared, QUOTA);
+
+
+	@AfterEach
+	void teardown() {
+		executor.shutdownNow();
+		shared.shutdownNow();
+	}
+
+
+	@Test
+	void testQuotaLimitsRunningTasks() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(5);
+		AtomicInteger running = new AtomicInteger(0);
+		AtomicInteger mostRunning = new AtomicInteger(0);
+
+		for (int i = 0; i < 5; i++) {
+			executor.execute(() -> {
+				mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				finished.countDown();
+			});
+		}
+
+		// Only the quota is handed to the shared pool, however many threads it has
+		Thread.sleep(100);
+		Assertions.assertEquals(QUOTA, running.get());
+
+		// The waiting tasks run as the first ones finish
+		release.countDown();
+		Assertions.assertTrue(finished.await(2, TimeUnit.SECONDS));
+		Assertions.assertEquals(QUOTA, mostRunning.get());
+	}
+
+
+	@Test
+	void testShutdownRejectsNewTasks() throws InterruptedException {
+		executor.shutdown();
+
+		Assertions.assertTrue(executor.isShutdown());
+		Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+		}));
+
+		// The shared pool keeps running for other servers
+		Assertions.assertFalse(shared.isShutdown());
+		Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+		Assertions.assertTrue(executor.isTerminated());
+	}
+
+
+	@Test
+	void testShutdownNowReturnsWaitingTasks() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		Runnable blocked = () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		Runnable waiting = () -> {
+		};
+
+		executor.execute(blocked);
+		executor.execute(blocked);
+		executor.execute(waiting);
+
+		Assertions.assertEquals(List.of(waiting), executor.shutdownNow());
+
+		// Running tasks are left to finish on the shared pool
+		Assertions.assertFalse(executor.awaitTermination(50, TimeUnit.MILLISECONDS));
+		release.countDown();
+		Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+	}
+
+
+	@Test
+	void testRejectedTaskFreesQuota() throws InterruptedException {
+		ExecutorService stopped = Executors.newSingleThreadExecutor();
+		stopped.shutdown();
+		QuotaExecutor rejecting = new QuotaExecutor(stopped, 1);
+
+		Assertions.assertThrows(RejectedExecutionException.class, () -> rejecting.execute(() -> {
+		}));
+
+		// The rejected task is not counted as running, so the executor can still terminate
+		rejecting.shutdown();
+		Assertions.assertTrue(rejecting.awaitTermination(1, TimeUnit.SECONDS));
+	}
+}
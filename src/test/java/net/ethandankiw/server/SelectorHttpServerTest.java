@@ -0,0 +1,83 @@
+package net.ethandankiw.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.LamportClock;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+import net.ethandankiw.utils.http.HttpResponseReader;
+import net.ethandankiw.utils.http.HttpResponseUtils;
+
+class SelectorHttpServerTest {
+
+	private SelectorHttpServer server;
+	private Socket client;
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		// Echo the path of every request
+		server = new SelectorHttpServer("Selector-Test", 0, 2, new LamportClock(), this::dispatch);
+		server.start();
+		server.startReactors();
+
+		client = new Socket("localhost", server.getSocket().getLocalPort());
+		client.setSoTimeout(GlobalConstants.KEEP_ALIVE_TIMEOUT * 3);
+	}
+
+
+	@AfterEach
+	void teardown() throws IOException {
+		client.close();
+		server.shutdown();
+	}
+
+
+	@Test
+	void testRequestAnswered() throws IOException {
+		send("GET /health HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+		Optional<HttpResponse> response = new HttpResponseReader(client.getInputStream()).readResponse();
+
+		Assertions.assertTrue(response.isPresent());
+		Assertions.assertEquals(HttpStatusCode.OK.getStatusCode(), response.get().getStatusCode());
+		Assertions.assertEquals("/health", response.get().getBody());
+	}
+
+
+	@Test
+	void testIdleConnectionClosed() throws IOException {
+		long start = System.currentTimeMillis();
+
+		// Send nothing, so the reactor closes the connection once the keep-alive timeout passes
+		Assertions.assertEquals(-1, client.getInputStream().read());
+
+		long elapsed = System.currentTimeMillis() - start;
+		Assertions.assertTrue(elapsed >= GlobalConstants.KEEP_ALIVE_TIMEOUT, "Closed after " + elapsed + " ms");
+	}
+
+
+	private CompletableFuture<HttpResponse> dispatch(HttpRequest request) {
+		return CompletableFuture.completedFuture(HttpResponseUtils.generateResponse(HttpStatusCode.OK, request.getPath(), 0));
+	}
+
+
+	private void send(String data) throws IOException {
+		OutputStream out = client.getOutputStream();
+		out.write(data.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+}
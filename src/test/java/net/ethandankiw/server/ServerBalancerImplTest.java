@@ -0,0 +1,173 @@
+package net.ethandankiw.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.aggregation.AggregationServer;
+import net.ethandankiw.data.server.ServerPool;
+
+class ServerBalancerImplTest {
+
+	private final TestServerPool pool = new TestServerPool();
+
+
+	@AfterEach
+	void teardown() {
+		pool.servers.forEach(AggregationServer::shutdown);
+	}
+
+
+	@Test
+	void testNoScalingDuringCooldown() {
+		pool.addServer(GlobalConstants.MAX_IN_FLIGHT_REQUESTS);
+		ServerBalancerImpl balancer = new ServerBalancerImpl(pool);
+
+		// The server is full, but the pool has only just been sized
+		for (int i = 0; i < 5; i++) {
+			balancer.balanceServers();
+		}
+
+		Assertions.assertEquals(0, pool.created);
+		Assertions.assertEquals(1, pool.getServerCount());
+	}
+
+
+	@Test
+	void testScaleOutToTargetInOneStep() throws InterruptedException {
+		// Two full servers are a demand of two servers
+		pool.addServer(GlobalConstants.MAX_IN_FLIGHT_REQUESTS);
+		pool.addServer(GlobalConstants.MAX_IN_FLIGHT_REQUESTS);
+		ServerBalancerImpl balancer = new ServerBalancerImpl(pool);
+
+		// Let the fast average rise while the pool is still cooling down
+		for (int i = 0; i < 10; i++) {
+			balancer.balanceServers();
+		}
+		Assertions.assertEquals(0, pool.created);
+
+		Thread.sleep(GlobalConstants.SCALE_OUT_COOLDOWN + 100);
+		balancer.balanceServers();
+
+		// The pool is sized so each server runs at the target load, all at once
+		int expected = (int) Math.ceil(2 / GlobalConstants.TARGET_SERVER_LOAD);
+		Assertions.assertEquals(expected, pool.getServerCount());
+
+		// The cooldown starts again, so the new servers can take their share
+		balancer.balanceServers();
+		Assertions.assertEquals(expected, pool.getServerCount());
+	}
+
+
+	@Test
+	void testIdleServersKeptDuringScaleInCooldown() {
+		pool.addServer(0);
+		pool.addServer(0);
+		pool.addServer(0);
+		ServerBalancerImpl balancer = new ServerBalancerImpl(pool);
+
+		// A lull shorter than the scale in cooldown does not remove servers
+		for (int i = 0; i < 10; i++) {
+			balancer.balanceServers();
+		}
+
+		Assertions.assertEquals(0, pool.removed);
+	}
+
+
+	/**
+	 * Pool of servers that records how the balancer changes it.
+	 */
+	private static final class TestServerPool implements ServerPool {
+
+		private final List<AggregationServer> servers = new ArrayList<>();
+		private int created = 0;
+		private int removed = 0;
+
+
+		private void addServer(int inFlight) {
+			AggregationServer server = new AggregationServer(ExecutionMode.VIRTUAL);
+			for (int i = 0; i < inFlight; i++) {
+				server.incrementInFlightRequests();
+			}
+			servers.add(server);
+		}
+
+
+		@Override
+		public Iterable<AggregationServer> getAllServers() {
+			return new ArrayList<>(servers);
+		}
+
+
+		@Override
+		public void register(AggregationServer server) {
+			servers.add(server);
+		}
+
+
+		@Override
+		public AggregationServer createAndRegister() {
+			created += 1;
+			addServer(0);
+			return servers.get(servers.size() - 1);
+		}
+
+
+		@Override
+		public AggregationServer getAvailableServer() {
+			return servers.get(0);
+		}
+
+
+		@Override
+		public AggregationServer getAvailableServer(String stationId) {
+			return servers.get(0);
+		}
+
+
+		@Override
+		public AggregationServer getLeastLoadedServer() {
+			return servers.get(0);
+		}
+
+
+		@Override
+		public AggregationServer peekLeastLoadedServer() {
+			return servers.get(0);
+		}
+
+
+		@Override
+		public AggregationServer popLeastLoadedServer() {
+			removed += 1;
+			return servers.remove(0);
+		}
+
+
+		@Override
+		public Double calculateAverageServerLoad() {
+			return 0.0;
+		}
+
+
+		@Override
+		public Integer getServerCount() {
+			return servers.size();
+		}
+
+
+		@Override
+		public void printStats() {
+		}
+
+
+		@Override
+		public void shutdownStandbyServers() {
+		}
+	}
+}
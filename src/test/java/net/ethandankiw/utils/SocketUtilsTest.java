@@ -0,0 +1,138 @@
+package net.ethandankiw.utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.server.ConnectionMetrics;
+
+class SocketUtilsTest {
+
+	@Test
+	void testStalledWriteClosesSocket() throws IOException {
+		try (ServerSocket listener = new ServerSocket(0);
+			 Socket client = new Socket("localhost", listener.getLocalPort());
+			 Socket accepted = listener.accept()) {
+			long timeouts = ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.WRITE);
+
+			// The client never reads, so the write fills the socket buffers and blocks
+			byte[] message = new byte[64 * 1024 * 1024];
+			Assertions.assertFalse(SocketUtils.writeToSocket(accepted, message, 200));
+
+			// The deadline closed the socket and counted the timeout
+			Assertions.assertTrue(accepted.isClosed());
+			Assertions.assertEquals(timeouts + 1, ConnectionMetrics.getTimeoutCount(ConnectionMetrics.Timeout.WRITE));
+		}
+	}
+
+
+	@Test
+	void testWriteWithinDeadline() throws IOException {
+		try (ServerSocket listener = new ServerSocket(0);
+			 Socket client = new Socket("localhost", listener.getLocalPort());
+			 Socket accepted = listener.accept()) {
+			Assertions.assertTrue(SocketUtils.writeToSocket(accepted, new byte[]{'o', 'k'}, 1000));
+
+			// The socket stays open once the write has finished
+			Assertions.assertFalse(accepted.isClosed());
+			Assertions.assertEquals('o', client.getInputStream().read());
+		}
+	}
+
+
+	@Test
+	void testReusePortSocketsShareAPort() throws IOException {
+		// Only some platforms let sockets share a port
+		if (!SocketUtils.supportsReusePort()) {
+			return;
+		}
+
+		ServerSocket first = SocketUtils.createServerSocket(0, true).orElseThrow();
+		try (first) {
+			Optional<ServerSocket> second = SocketUtils.createServerSocket(first.getLocalPort(), true);
+
+			Assertions.assertTrue(second.isPresent());
+			Assertions.assertEquals(first.getLocalPort(), second.get().getLocalPort());
+			second.get().close();
+		}
+	}
+
+
+	@Test
+	void testTakenPortNotShared() throws IOException {
+		try (ServerSocket listener = new ServerSocket(0)) {
+			Assertions.assertTrue(SocketUtils.createServerSocket(listener.getLocalPort()).isEmpty());
+		}
+	}
+
+
+	@Test
+	void testFailedBindReleasesSocket() throws IOException {
+		// Only some platforms report their open file descriptors
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (!(os instanceof UnixOperatingSystemMXBean unix)) {
+			return;
+		}
+
+		try (ServerSocket listener = new ServerSocket(0)) {
+			long before = unix.getOpenFileDescriptorCount();
+
+			// Each attempt creates a socket before finding the port taken
+			for (int i = 0; i < 50; i++) {
+				Assertions.assertTrue(SocketUtils.createServerSocket(listener.getLocalPort()).isEmpty());
+				Assertions.assertTrue(SocketUtils.createServerSocketChannel(listener.getLocalPort()).isEmpty());
+			}
+
+			Assertions.assertTrue(unix.getOpenFileDescriptorCount() - before < 10);
+		}
+	}
+
+
+	@Test
+	void testAcceptedConnectionConfigured() throws IOException {
+		ServerSocket listener = SocketUtils.createServerSocket(0).orElseThrow();
+		try (listener; Socket client = new Socket("localhost", listener.getLocalPort())) {
+			Socket accepted = SocketUtils.acceptClientConnection(listener).orElseThrow();
+
+			try (accepted) {
+				Assertions.assertEquals(GlobalConstants.TCP_NO_DELAY, accepted.getTcpNoDelay());
+			}
+		}
+	}
+
+
+	@Test
+	void testAcceptBackOffGrows() {
+		long start = System.nanoTime();
+		Assertions.assertTrue(SocketUtils.backOffAccept(1));
+		long first = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		Assertions.assertTrue(SocketUtils.backOffAccept(4));
+		long fourth = System.nanoTime() - start;
+
+		// Each failure in a row doubles the wait
+		Assertions.assertTrue(first >= GlobalConstants.ACCEPT_RETRY_DELAY * 1_000_000L);
+		Assertions.assertTrue(fourth >= GlobalConstants.ACCEPT_RETRY_DELAY * 8 * 1_000_000L);
+	}
+
+
+	@Test
+	void testAcceptBackOffStopsWhenInterrupted() {
+		Thread.currentThread()
+			  .interrupt();
+
+		// The acceptor is being stopped, so it should not wait
+		Assertions.assertFalse(SocketUtils.backOffAccept(1_000));
+		Assertions.assertTrue(Thread.interrupted());
+	}
+}
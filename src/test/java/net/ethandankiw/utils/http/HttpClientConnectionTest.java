@@ -0,0 +1,144 @@
+package net.ethandankiw.utils.http;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpResponse;
+
+class HttpClientConnectionTest {
+
+	private static final int TIMEOUT = 5000; // milliseconds
+
+	// Server that answers every request with a framed response
+	private ServerSocket server;
+	private Thread acceptor;
+
+	// Number of connections the server has accepted
+	private final AtomicInteger accepted = new AtomicInteger(0);
+
+	// Flag for if the server closes each connection after responding
+	private volatile boolean closeAfterResponse = false;
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		server = new ServerSocket(0);
+		acceptor = new Thread(this::acceptConnections);
+		acceptor.start();
+	}
+
+
+	@AfterEach
+	void teardown() throws IOException, InterruptedException {
+		HttpClientConnection.closeAll();
+		server.close();
+		acceptor.join(2000);
+	}
+
+
+	@Test
+	void testConnectionReusedBetweenRequests() {
+		for (int i = 0; i < 3; i++) {
+			Optional<HttpResponse> response = HttpClientConnection.send("localhost", server.getLocalPort(), createRequest(), TIMEOUT);
+
+			Assertions.assertTrue(response.isPresent());
+			Assertions.assertEquals("ok", response.get().getBody());
+		}
+
+		// Every request went over the first connection
+		Assertions.assertEquals(1, accepted.get());
+	}
+
+
+	@Test
+	void testClosedConnectionNotReused() {
+		closeAfterResponse = true;
+
+		for (int i = 0; i < 2; i++) {
+			Optional<HttpResponse> response = HttpClientConnection.send("localhost", server.getLocalPort(), createRequest(), TIMEOUT);
+			Assertions.assertTrue(response.isPresent());
+		}
+
+		// The server asked for each connection to be closed, so each request opened its own
+		Assertions.assertEquals(2, accepted.get());
+	}
+
+
+	@Test
+	void testUnreachableServer() throws IOException {
+		// Find a port that nothing is listening on
+		int port;
+		try (ServerSocket unused = new ServerSocket(0)) {
+			port = unused.getLocalPort();
+		}
+
+		Assertions.assertTrue(HttpClientConnection.send("localhost", port, createRequest(), TIMEOUT).isEmpty());
+	}
+
+
+	private void acceptConnections() {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				accepted.incrementAndGet();
+				new Thread(() -> serve(socket)).start();
+			} catch (IOException ioe) {
+				return;
+			}
+		}
+	}
+
+
+	private void serve(Socket socket) {
+		try (socket) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+			OutputStream out = socket.getOutputStream();
+			String line;
+
+			while ((line = in.readLine()) != null) {
+				// Skip line breaks between requests
+				if (line.isEmpty()) {
+					continue;
+				}
+
+				// Read the rest of the request head
+				while ((line = in.readLine()) != null && !line.isEmpty()) {
+					// Only the head is needed, as the requests have no body
+				}
+
+				String connection = closeAfterResponse ? "close" : "keep-alive";
+				out.write(("HTTP/1.1 200 OK\r\nConnection: " + connection + "\r\nContent-Length: 2\r\n\r\nok").getBytes(StandardCharsets.ISO_8859_1));
+				out.flush();
+
+				if (closeAfterResponse) {
+					return;
+				}
+			}
+		} catch (IOException ignored) {
+		}
+	}
+
+
+	private static HttpRequest createRequest() {
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.GET);
+		request.setPath("/health");
+		request.addHeader(HttpHeaders.HOST, "localhost");
+		return request;
+	}
+}
@@ -0,0 +1,28 @@
+package net.ethandankiw.utils.http;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.http.HttpHeaders;
+
+class HttpHeaderUtilsTest {
+
+	@Test
+	void testHeadersParsedWithSharedNames() {
+		Optional<HttpHeaders> headers = HttpHeaderUtils.parseHeaders("Content-Length: 5\r\nX-Custom:  spaced \n\r\n");
+
+		// Lines may end without a carriage return, and empty lines are skipped
+		Assertions.assertTrue(headers.isPresent());
+		Assertions.assertEquals(2, headers.get().size());
+		Assertions.assertSame(HttpHeaders.CONTENT_LENGTH, headers.get().getName(0));
+		Assertions.assertEquals("spaced", headers.get().get("x-custom"));
+	}
+
+
+	@Test
+	void testBlankHeadersNotParsed() {
+		Assertions.assertTrue(HttpHeaderUtils.parseHeaders(" ").isEmpty());
+	}
+}
@@ -0,0 +1,168 @@
+package net.ethandankiw.utils.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+import net.ethandankiw.data.http.HttpStatusCode;
+
+class HttpRequestParserTest {
+
+	private static final int MAX_REQUEST_SIZE = 8192;
+
+	private final HttpRequestParser parser = new HttpRequestParser(MAX_REQUEST_SIZE);
+
+
+	@Test
+	void testParseCompleteRequest() {
+		ByteBuffer buffer = wrap("GET /?station=IDS60901.json HTTP/1.1\r\nHost: localhost\r\nAccept: */*\r\n\r\n");
+
+		Assertions.assertEquals(HttpRequestParser.Status.COMPLETE, parser.parse(buffer));
+
+		HttpRequest request = parser.getRequest();
+		Assertions.assertEquals(HttpRequestMethod.GET, request.getMethod());
+		Assertions.assertEquals("/?station=IDS60901.json", request.getPath());
+		Assertions.assertEquals("HTTP/1.1", request.getVersion());
+		Assertions.assertEquals("localhost", request.getHeaderValue(HttpHeaders.HOST));
+		Assertions.assertEquals("*/*", request.getHeaderValue(HttpHeaders.ACCEPT));
+
+		// The request is consumed from the buffer
+		Assertions.assertFalse(buffer.hasRemaining());
+	}
+
+
+	@Test
+	void testParseRequestSplitAcrossReads() {
+		String body = "{\"id\":\"IDS60901\"}";
+		String request = "PUT /weather.json HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+		ByteBuffer buffer = ByteBuffer.allocate(MAX_REQUEST_SIZE);
+
+		// Deliver the request a few bytes at a time, as a slow client would
+		byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+		HttpRequestParser.Status status = HttpRequestParser.Status.INCOMPLETE;
+		for (int i = 0; i < bytes.length; i += 7) {
+			Assertions.assertEquals(HttpRequestParser.Status.INCOMPLETE, status);
+
+			buffer.put(bytes, i, Math.min(7, bytes.length - i));
+			buffer.flip();
+			status = parser.parse(buffer);
+			buffer.compact();
+		}
+
+		Assertions.assertEquals(HttpRequestParser.Status.COMPLETE, status);
+		Assertions.assertEquals(HttpRequestMethod.PUT, parser.getRequest().getMethod());
+		Assertions.assertEquals(body, parser.getRequest().getBody());
+	}
+
+
+	@Test
+	void testParsePipelinedRequests() {
+		ByteBuffer buffer = wrap("GET /health HTTP/1.1\r\nHost: a\r\n\r\n\r\nGET /?station=B.json HTTP/1.1\r\nHost: b\r\n\r\n");
+
+		// Each call consumes only its own request
+		Assertions.assertEquals(HttpRequestParser.Status.COMPLETE, parser.parse(buffer));
+		Assertions.assertEquals("/health", parser.getRequest().getPath());
+		Assertions.assertTrue(buffer.hasRemaining());
+
+		// Skip the line break left between the requests
+		Assertions.assertTrue(parser.skipLineBreaks(buffer));
+		Assertions.assertEquals(HttpRequestParser.Status.COMPLETE, parser.parse(buffer));
+		Assertions.assertEquals("/?station=B.json", parser.getRequest().getPath());
+		Assertions.assertEquals("b", parser.getRequest().getHeaderValue(HttpHeaders.HOST));
+		Assertions.assertFalse(buffer.hasRemaining());
+	}
+
+
+	@Test
+	void testWellKnownHeaderNamesShared() {
+		ByteBuffer buffer = wrap("GET / HTTP/1.1\r\nCONTENT-TYPE: application/json\r\nX-Custom: 1\r\n\r\n");
+
+		Assertions.assertEquals(HttpRequestParser.Status.COMPLETE, parser.parse(buffer));
+
+		// Well-known names use the shared constant, whatever case they were sent in
+		HttpHeaders headers = parser.getRequest().getHeaders();
+		Assertions.assertSame(HttpHeaders.CONTENT_TYPE, headers.getName(0));
+		Assertions.assertEquals("1", headers.get("x-custom"));
+	}
+
+
+	@Test
+	void testBodyDecodedAsUtf8() {
+		String body = "{\"name\":\"Z\u00fcrich\"}";
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(MAX_REQUEST_SIZE);
+		buffer.put(("PUT /weather.json HTTP/1.1\r\nHost: a\r\nContent-Length: " + bytes.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		buffer.put(bytes);
+		buffer.flip();
+
+		// The content length counts bytes, not characters
+		Assertions.assertEquals(HttpRequestParser.Status.COMPLETE, parser.parse(buffer));
+		Assertions.assertEquals(body, parser.getRequest().getBody());
+	}
+
+
+	@Test
+	void testInvalidRequestLine() {
+		ByteBuffer buffer = wrap("GET /health\r\nHost: a\r\n\r\n");
+
+		Assertions.assertEquals(HttpRequestParser.Status.INVALID, parser.parse(buffer));
+		Assertions.assertNotNull(parser.getError());
+
+		// Nothing is consumed from an invalid request
+		Assertions.assertEquals(0, buffer.position());
+	}
+
+
+	@Test
+	void testPutWithoutContentLengthInvalid() {
+		ByteBuffer buffer = wrap("PUT /weather.json HTTP/1.1\r\nHost: a\r\n\r\n");
+
+		Assertions.assertEquals(HttpRequestParser.Status.INVALID, parser.parse(buffer));
+	}
+
+
+	@Test
+	void testTooManyHeadersRejected() {
+		HttpRequestParser limited = new HttpRequestParser(MAX_REQUEST_SIZE, 2, MAX_REQUEST_SIZE);
+		ByteBuffer buffer = wrap("GET / HTTP/1.1\r\nHost: a\r\nAccept: */*\r\nX-Third: 3\r\n\r\n");
+
+		Assertions.assertEquals(HttpRequestParser.Status.INVALID, limited.parse(buffer));
+		Assertions.assertEquals(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, limited.getErrorStatus());
+	}
+
+
+	@Test
+	void testLargeBodyRejected() {
+		HttpRequestParser limited = new HttpRequestParser(MAX_REQUEST_SIZE, 10, 16);
+		ByteBuffer buffer = wrap("PUT /weather.json HTTP/1.1\r\nHost: a\r\nContent-Length: 17\r\n\r\n");
+
+		// The body is rejected from its declared length, before it arrives
+		Assertions.assertEquals(HttpRequestParser.Status.INVALID, limited.parse(buffer));
+		Assertions.assertEquals(HttpStatusCode.PAYLOAD_TOO_LARGE, limited.getErrorStatus());
+	}
+
+
+	@Test
+	void testLargeHeadRejected() {
+		HttpRequestParser limited = new HttpRequestParser(64);
+		ByteBuffer buffer = wrap("GET / HTTP/1.1\r\nX-Long: " + "a".repeat(64));
+
+		// The head can never fit, even though it has not finished arriving
+		Assertions.assertEquals(HttpRequestParser.Status.INVALID, limited.parse(buffer));
+		Assertions.assertEquals(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, limited.getErrorStatus());
+
+		// A malformed request after a rejected one is a bad request again
+		Assertions.assertEquals(HttpRequestParser.Status.INVALID, limited.parse(wrap("GET /\r\n\r\n")));
+		Assertions.assertEquals(HttpStatusCode.BAD_REQUEST, limited.getErrorStatus());
+	}
+
+
+	private static ByteBuffer wrap(String request) {
+		return ByteBuffer.wrap(request.getBytes(StandardCharsets.ISO_8859_1));
+	}
+}
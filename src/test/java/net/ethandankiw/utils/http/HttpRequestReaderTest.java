@@ -0,0 +1,117 @@
+package net.ethandankiw.utils.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.GlobalConstants;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpStatusCode;
+
+class HttpRequestReaderTest {
+
+	// Client side of the connection, and the side the reader reads from
+	private Socket client;
+	private Socket accepted;
+
+	private HttpRequestReader reader;
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		try (ServerSocket listener = new ServerSocket(0)) {
+			client = new Socket("localhost", listener.getLocalPort());
+			accepted = listener.accept();
+		}
+
+		reader = new HttpRequestReader(accepted);
+	}
+
+
+	@AfterEach
+	void teardown() throws IOException {
+		client.close();
+		accepted.close();
+	}
+
+
+	@Test
+	void testReadPipelinedRequests() throws IOException {
+		send("GET /health HTTP/1.1\r\nHost: a\r\n\r\nGET /?station=B.json HTTP/1.1\r\nHost: b\r\n\r\n");
+
+		Assertions.assertTrue(reader.awaitNextRequest(1000));
+		Assertions.assertEquals("/health", reader.readRequest().orElseThrow().getPath());
+
+		// The second request was received with the first, so it can be read without waiting
+		Assertions.assertTrue(reader.isNextRequestBuffered());
+		Assertions.assertEquals("/?station=B.json", reader.readRequest().orElseThrow().getPath());
+		Assertions.assertFalse(reader.isNextRequestBuffered());
+	}
+
+
+	@Test
+	void testIdleConnectionTimesOut() {
+		// Nothing is sent, so the connection is idle until the timeout
+		Assertions.assertFalse(reader.awaitNextRequest(100));
+	}
+
+
+	@Test
+	void testClosedMidRequestNotAnswered() throws IOException {
+		send("GET /health HTTP/1.1\r\nHo");
+		client.shutdownOutput();
+
+		// There is no one to respond to once the client has gone
+		Assertions.assertTrue(reader.readRequest().isEmpty());
+		Assertions.assertTrue(reader.getFailureStatus().isEmpty());
+	}
+
+
+	@Test
+	void testTooManyHeadersRejected() throws IOException {
+		StringBuilder request = new StringBuilder("GET /health HTTP/1.1\r\n");
+		for (int i = 0; i <= GlobalConstants.MAX_HEADER_COUNT; i++) {
+			request.append("X-Header-").append(i).append(": ").append(i).append("\r\n");
+		}
+		send(request.append("\r\n").toString());
+
+		Optional<HttpRequest> read = reader.readRequest();
+
+		Assertions.assertTrue(read.isEmpty());
+		Assertions.assertEquals(Optional.of(HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE), reader.getFailureStatus());
+	}
+
+
+	@Test
+	void testLargeBodyRejectedBeforeItArrives() throws IOException {
+		// Only the head is sent, so the body is rejected from its declared length
+		send("PUT /weather.json HTTP/1.1\r\nHost: a\r\nContent-Length: " + (GlobalConstants.MAX_BODY_SIZE + 1) + "\r\n\r\n");
+
+		Assertions.assertTrue(reader.readRequest().isEmpty());
+		Assertions.assertEquals(Optional.of(HttpStatusCode.PAYLOAD_TOO_LARGE), reader.getFailureStatus());
+	}
+
+
+	@Test
+	void testMalformedRequestRejected() throws IOException {
+		send("GET\r\nHost: a\r\n\r\n");
+
+		Assertions.assertTrue(reader.readRequest().isEmpty());
+		Assertions.assertEquals(Optional.of(HttpStatusCode.BAD_REQUEST), reader.getFailureStatus());
+	}
+
+
+	private void send(String request) throws IOException {
+		OutputStream out = client.getOutputStream();
+		out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+}
@@ -0,0 +1,186 @@
+package net.ethandankiw.utils.http;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpRequest;
+import net.ethandankiw.data.http.HttpRequestMethod;
+
+class HttpRequestUtilsTest {
+
+	@Test
+	void testHttp11KeepAliveByDefault() {
+		HttpRequest request = createRequest("HTTP/1.1");
+
+		Assertions.assertTrue(HttpRequestUtils.isKeepAliveRequested(request));
+	}
+
+
+	@Test
+	void testConnectionCloseRequested() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.addHeader(HttpHeaders.CONNECTION, "Close");
+
+		Assertions.assertFalse(HttpRequestUtils.isKeepAliveRequested(request));
+	}
+
+
+	@Test
+	void testHttp10KeepAliveOnlyWhenRequested() {
+		HttpRequest request = createRequest("HTTP/1.0");
+		Assertions.assertFalse(HttpRequestUtils.isKeepAliveRequested(request));
+
+		request.addHeader(HttpHeaders.CONNECTION, "keep-alive");
+		Assertions.assertTrue(HttpRequestUtils.isKeepAliveRequested(request));
+	}
+
+
+	@Test
+	void testNotModifiedWhenTagMatches() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"3\", W/\"7\"");
+
+		// Tags are compared weakly, so a strong tag matches its weak form
+		Assertions.assertTrue(HttpRequestUtils.isNotModified(request, "W/\"3\""));
+		Assertions.assertTrue(HttpRequestUtils.isNotModified(request, "W/\"7\""));
+		Assertions.assertFalse(HttpRequestUtils.isNotModified(request, "W/\"8\""));
+	}
+
+
+	@Test
+	void testNotModifiedWildcard() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, " * ");
+
+		Assertions.assertTrue(HttpRequestUtils.isNotModified(request, "W/\"1\""));
+	}
+
+
+	@Test
+	void testModifiedWithoutCachedTag() {
+		HttpRequest request = createRequest("HTTP/1.1");
+
+		Assertions.assertFalse(HttpRequestUtils.isNotModified(request, "W/\"1\""));
+	}
+
+
+	@Test
+	void testEventStreamRequestedByPath() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.setPath("/events?station=IDS60901");
+		Assertions.assertTrue(HttpRequestUtils.isEventStreamRequest(request));
+
+		// Other paths starting with the events path are not subscriptions
+		request.setPath("/eventsx");
+		Assertions.assertFalse(HttpRequestUtils.isEventStreamRequest(request));
+	}
+
+
+	@Test
+	void testEventStreamRequestedByAccept() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.setPath("/?station=IDS60901.json");
+
+		request.addHeader(HttpHeaders.ACCEPT, "application/json, text/event-stream;q=0.5");
+		Assertions.assertTrue(HttpRequestUtils.isEventStreamRequest(request));
+
+		// A quality of zero refuses the stream
+		request.getHeaders().set(HttpHeaders.ACCEPT, "text/event-stream;q=0");
+		Assertions.assertFalse(HttpRequestUtils.isEventStreamRequest(request));
+
+		// Only the exact media type asks for a stream
+		request.getHeaders().set(HttpHeaders.ACCEPT, "text/event-streamx, */*");
+		Assertions.assertFalse(HttpRequestUtils.isEventStreamRequest(request));
+	}
+
+
+	@Test
+	void testEventStreamOnlyForGet() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.setMethod(HttpRequestMethod.PUT);
+		request.setPath("/events");
+
+		Assertions.assertFalse(HttpRequestUtils.isEventStreamRequest(request));
+	}
+
+
+	@Test
+	void testLastEventId() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		Assertions.assertEquals(0, HttpRequestUtils.getLastEventId(request));
+
+		request.addHeader(HttpHeaders.LAST_EVENT_ID, " 42 ");
+		Assertions.assertEquals(42, HttpRequestUtils.getLastEventId(request));
+
+		// An invalid ID replays every reading
+		request.getHeaders().set(HttpHeaders.LAST_EVENT_ID, "abc");
+		Assertions.assertEquals(0, HttpRequestUtils.getLastEventId(request));
+	}
+
+
+	@Test
+	void testFollowRequestedByDefault() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.setPath("/events");
+		Assertions.assertTrue(HttpRequestUtils.isFollowRequested(request));
+
+		request.setPath("/events?station=IDS60901&follow=false");
+		Assertions.assertFalse(HttpRequestUtils.isFollowRequested(request));
+	}
+
+
+	@Test
+	void testStationIdFromQuery() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.setPath("/?station=IDS%2060901&format=json");
+		Assertions.assertEquals("IDS 60901", HttpRequestUtils.getStationId(request).orElseThrow());
+
+		// A blank or missing station is not a station
+		request.setPath("/?station=");
+		Assertions.assertTrue(HttpRequestUtils.getStationId(request).isEmpty());
+		request.setPath("/weather.json");
+		Assertions.assertTrue(HttpRequestUtils.getStationId(request).isEmpty());
+	}
+
+
+	@Test
+	void testReplicationRequests() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		request.setPath("/replication");
+		Assertions.assertTrue(HttpRequestUtils.isReplicationRequest(request));
+		Assertions.assertTrue(HttpRequestUtils.isReplicationStreamRequest(request));
+		Assertions.assertFalse(HttpRequestUtils.isReplicationControlRequest(request));
+
+		request.setMethod(HttpRequestMethod.PUT);
+		request.setPath("/replication?primary=localhost:4600");
+		Assertions.assertTrue(HttpRequestUtils.isReplicationRequest(request));
+		Assertions.assertFalse(HttpRequestUtils.isReplicationStreamRequest(request));
+		Assertions.assertTrue(HttpRequestUtils.isReplicationControlRequest(request));
+
+		request.setPath("/replications");
+		Assertions.assertFalse(HttpRequestUtils.isReplicationRequest(request));
+	}
+
+
+	@Test
+	void testLamportClockFromHeader() {
+		HttpRequest request = createRequest("HTTP/1.1");
+		Assertions.assertEquals(0, HttpRequestUtils.getLamportClock(request));
+
+		request.addHeader(HttpHeaders.LAMPORT_CLOCK, "17");
+		Assertions.assertEquals(17, HttpRequestUtils.getLamportClock(request));
+
+		request.getHeaders().set(HttpHeaders.LAMPORT_CLOCK, "x");
+		Assertions.assertEquals(0, HttpRequestUtils.getLamportClock(request));
+	}
+
+
+	private static HttpRequest createRequest(String version) {
+		HttpRequest request = new HttpRequest();
+		request.setMethod(HttpRequestMethod.GET);
+		request.setPath("/health");
+		request.setVersion(version);
+		return request;
+	}
+}
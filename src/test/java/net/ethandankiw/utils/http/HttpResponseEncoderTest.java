@@ -0,0 +1,102 @@
+package net.ethandankiw.utils.http;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpResponse;
+import net.ethandankiw.data.http.HttpStatusCode;
+
+class HttpResponseEncoderTest {
+
+	@Test
+	void testEncodeHeadAndBody() {
+		HttpResponse response = createResponse(HttpStatusCode.OK, "{\"id\":\"IDS60901\"}");
+		response.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+		response.addHeader("X-Custom", "value");
+
+		ByteBuffer[] buffers = HttpResponseEncoder.encode(response);
+
+		// The body is sent as its own buffer after the head
+		Assertions.assertEquals(2, buffers.length);
+		Assertions.assertEquals("HTTP/1.1 200 OK\r\ncontent-type: application/json\r\nX-Custom: value\r\nContent-Length: 17\r\n\r\n",
+				decode(buffers[0]));
+		Assertions.assertEquals("{\"id\":\"IDS60901\"}", decode(buffers[1]));
+	}
+
+
+	@Test
+	void testEncodeToArrayMatchesBuffers() {
+		HttpResponse response = createResponse(HttpStatusCode.CREATED, "created");
+		response.addHeader(HttpHeaders.CONNECTION, "keep-alive");
+
+		ByteBuffer[] buffers = HttpResponseEncoder.encode(response);
+		String expected = decode(buffers[0]) + decode(buffers[1]);
+
+		Assertions.assertEquals(expected, new String(HttpResponseEncoder.encodeToArray(response), StandardCharsets.ISO_8859_1));
+	}
+
+
+	@Test
+	void testContentLengthCountsBytes() {
+		// Each accented character is two bytes in UTF-8
+		HttpResponse response = createResponse(HttpStatusCode.OK, "Z\u00fcrich");
+
+		// A stale length set on the response is replaced by the length of the body
+		response.addHeader(HttpHeaders.CONTENT_LENGTH, "6");
+
+		Optional<HttpResponse> decoded = readBack(HttpResponseEncoder.encodeToArray(response));
+
+		Assertions.assertTrue(decoded.isPresent());
+		Assertions.assertEquals("7", decoded.get().getHeaderValue(HttpHeaders.CONTENT_LENGTH));
+		Assertions.assertEquals("Z\u00fcrich", decoded.get().getBody());
+	}
+
+
+	@Test
+	void testNoContentHasNoBody() {
+		HttpResponse response = createResponse(HttpStatusCode.NO_CONTENT, "");
+
+		ByteBuffer[] buffers = HttpResponseEncoder.encode(response);
+
+		// A 204 response has no body and no content length
+		Assertions.assertEquals(1, buffers.length);
+		Assertions.assertEquals("HTTP/1.1 204 NO CONTENT\r\n\r\n", decode(buffers[0]));
+	}
+
+
+	@Test
+	void testStreamHeadHasNoContentLength() {
+		HttpResponse response = createResponse(HttpStatusCode.OK, "");
+		response.addHeader(HttpHeaders.CONTENT_TYPE, HttpResponseUtils.EVENT_STREAM_TYPE);
+
+		String head = new String(HttpResponseEncoder.encodeStreamHead(response), StandardCharsets.ISO_8859_1);
+
+		Assertions.assertFalse(head.contains("Content-Length"));
+		Assertions.assertTrue(head.endsWith("\r\n\r\n"));
+	}
+
+
+	private static HttpResponse createResponse(HttpStatusCode status, String body) {
+		HttpResponse response = new HttpResponse();
+		response.setStatus(status);
+		response.setBody(body);
+		return response;
+	}
+
+
+	private static Optional<HttpResponse> readBack(byte[] encoded) {
+		return new HttpResponseReader(new ByteArrayInputStream(encoded)).readResponse();
+	}
+
+
+	private static String decode(ByteBuffer buffer) {
+		return StandardCharsets.ISO_8859_1.decode(buffer.duplicate())
+										  .toString();
+	}
+}
@@ -0,0 +1,95 @@
+package net.ethandankiw.utils.http;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.http.HttpResponse;
+
+class HttpResponseReaderTest {
+
+	@Test
+	void testReadResponsesFramedByContentLength() {
+		HttpResponseReader reader = createReader("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nfirst"
+				+ "HTTP/1.1 201 Created\r\nContent-Length: 6\r\n\r\nsecond");
+
+		// Each response ends where its content length says, leaving the next one in the stream
+		Optional<HttpResponse> first = reader.readResponse();
+		Assertions.assertTrue(first.isPresent());
+		Assertions.assertEquals("first", first.get().getBody());
+		Assertions.assertTrue(reader.isReusable());
+
+		Optional<HttpResponse> second = reader.readResponse();
+		Assertions.assertTrue(second.isPresent());
+		Assertions.assertEquals(201, second.get().getStatusCode());
+		Assertions.assertEquals("second", second.get().getBody());
+		Assertions.assertTrue(reader.isReusable());
+	}
+
+
+	@Test
+	void testReadChunkedResponse() {
+		HttpResponseReader reader = createReader("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+				+ "4;ext=1\r\nWiki\r\n5\r\npedia\r\n0\r\nX-Trailer: ignored\r\n\r\n"
+				+ "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+
+		Optional<HttpResponse> chunked = reader.readResponse();
+		Assertions.assertTrue(chunked.isPresent());
+		Assertions.assertEquals("Wikipedia", chunked.get().getBody());
+
+		// The trailers are consumed along with the last chunk
+		Optional<HttpResponse> next = reader.readResponse();
+		Assertions.assertTrue(next.isPresent());
+		Assertions.assertEquals("ok", next.get().getBody());
+	}
+
+
+	@Test
+	void testUnframedBodyReadUntilClose() {
+		HttpResponseReader reader = createReader("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n\r\nuntil the end");
+
+		Optional<HttpResponse> response = reader.readResponse();
+
+		// Without framing, the connection cannot carry another request
+		Assertions.assertTrue(response.isPresent());
+		Assertions.assertEquals("until the end", response.get().getBody());
+		Assertions.assertFalse(reader.isReusable());
+	}
+
+
+	@Test
+	void testNotModifiedHasNoBody() {
+		HttpResponseReader reader = createReader("HTTP/1.1 304 Not Modified\r\nContent-Length: 10\r\n\r\n"
+				+ "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+
+		// A 304 response never has a body, whatever length it declares
+		Assertions.assertEquals(304, reader.readResponse().orElseThrow().getStatusCode());
+		Assertions.assertEquals("ok", reader.readResponse().orElseThrow().getBody());
+	}
+
+
+	@Test
+	void testTruncatedBodyRejected() {
+		HttpResponseReader reader = createReader("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort");
+
+		Assertions.assertTrue(reader.readResponse().isEmpty());
+		Assertions.assertFalse(reader.isReusable());
+	}
+
+
+	@Test
+	void testConnectionCloseNotReusable() {
+		HttpResponseReader reader = createReader("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\nok");
+
+		Assertions.assertTrue(reader.readResponse().isPresent());
+		Assertions.assertFalse(reader.isReusable());
+	}
+
+
+	private static HttpResponseReader createReader(String responses) {
+		return new HttpResponseReader(new ByteArrayInputStream(responses.getBytes(StandardCharsets.ISO_8859_1)));
+	}
+}
@@ -0,0 +1,28 @@
+package net.ethandankiw.utils.http;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.ethandankiw.data.http.HttpHeaders;
+import net.ethandankiw.data.http.HttpResponse;
+
+class HttpResponseUtilsTest {
+
+	@Test
+	void testETagFromLamportClock() {
+		// The tag is weak, as the same data is sent with different encodings
+		Assertions.assertEquals("W/\"42\"", HttpResponseUtils.createETag(42));
+		Assertions.assertNotEquals(HttpResponseUtils.createETag(42), HttpResponseUtils.createETag(43));
+	}
+
+
+	@Test
+	void testNotModifiedResponse() {
+		HttpResponse response = HttpResponseUtils.generateNotModifiedResponse("W/\"42\"", 50);
+
+		Assertions.assertEquals(304, response.getStatusCode());
+		Assertions.assertEquals("W/\"42\"", response.getHeaderValue(HttpHeaders.ETAG));
+		Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaderValue(HttpHeaders.VARY));
+		Assertions.assertEquals("50", response.getHeaderValue(HttpHeaders.LAMPORT_CLOCK));
+	}
+}
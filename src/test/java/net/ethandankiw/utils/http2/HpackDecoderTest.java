@@ -0,0 +1,82 @@
+package net.ethandankiw.utils.http2;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HpackDecoderTest {
+
+	private final HpackDecoder decoder = new HpackDecoder(HpackTable.DEFAULT_MAX_SIZE);
+
+
+	@Test
+	void testDecodeLiteralRequest() throws Http2Exception {
+		// First request from RFC 7541 C.3.1, with the authority sent as a plain literal
+		byte[] block = bytes(0x82, 0x86, 0x84, 0x41, 0x0f, 'w', 'w', 'w', '.', 'e', 'x', 'a', 'm', 'p', 'l', 'e', '.', 'c', 'o', 'm');
+
+		assertRequest(decoder.decode(block, block.length));
+	}
+
+
+	@Test
+	void testDecodeHuffmanRequest() throws Http2Exception {
+		// First request from RFC 7541 C.4.1, with the authority Huffman encoded
+		byte[] block = bytes(0x82, 0x86, 0x84, 0x41, 0x8c, 0xf1, 0xe3, 0xc2, 0xe5, 0xf2, 0x3a, 0x6b, 0xa0, 0xab, 0x90, 0xf4, 0xff);
+
+		assertRequest(decoder.decode(block, block.length));
+	}
+
+
+	@Test
+	void testIndexedAuthorityReused() throws Http2Exception {
+		byte[] first = bytes(0x82, 0x86, 0x84, 0x41, 0x0f, 'w', 'w', 'w', '.', 'e', 'x', 'a', 'm', 'p', 'l', 'e', '.', 'c', 'o', 'm');
+		decoder.decode(first, first.length);
+
+		// The second request refers to the authority stored by the first, at index 62
+		byte[] second = bytes(0x82, 0x86, 0x84, 0xbe);
+		List<String[]> fields = decoder.decode(second, second.length);
+
+		Assertions.assertEquals(4, fields.size());
+		Assertions.assertEquals(":authority", fields.get(3)[0]);
+		Assertions.assertEquals("www.example.com", fields.get(3)[1]);
+	}
+
+
+	@Test
+	void testInvalidIndexRejected() {
+		// Nothing has been stored in the dynamic table yet
+		byte[] block = bytes(0xbe);
+
+		Http2Exception exception = Assertions.assertThrows(Http2Exception.class, () -> decoder.decode(block, block.length));
+		Assertions.assertEquals(Http2ErrorCode.COMPRESSION_ERROR, exception.getErrorCode());
+	}
+
+
+	@Test
+	void testTruncatedStringRejected() {
+		// The literal claims 15 bytes but only 3 follow
+		byte[] block = bytes(0x41, 0x0f, 'w', 'w', 'w');
+
+		Http2Exception exception = Assertions.assertThrows(Http2Exception.class, () -> decoder.decode(block, block.length));
+		Assertions.assertEquals(Http2ErrorCode.COMPRESSION_ERROR, exception.getErrorCode());
+	}
+
+
+	private static void assertRequest(List<String[]> fields) {
+		Assertions.assertEquals(4, fields.size());
+		Assertions.assertArrayEquals(new String[]{":method", "GET"}, fields.get(0));
+		Assertions.assertArrayEquals(new String[]{":scheme", "http"}, fields.get(1));
+		Assertions.assertArrayEquals(new String[]{":path", "/"}, fields.get(2));
+		Assertions.assertArrayEquals(new String[]{":authority", "www.example.com"}, fields.get(3));
+	}
+
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
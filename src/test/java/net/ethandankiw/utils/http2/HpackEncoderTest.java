@@ -0,0 +1,73 @@
+package net.ethandankiw.utils.http2;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HpackEncoderTest {
+
+	private final HpackEncoder encoder = new HpackEncoder();
+	private final HpackDecoder decoder = new HpackDecoder(HpackTable.DEFAULT_MAX_SIZE);
+
+
+	@Test
+	void testRoundTrip() throws Http2Exception {
+		List<String[]> fields = List.of(
+				new String[]{":status", "200"},
+				new String[]{"content-type", "application/json"},
+				new String[]{"x-station", "IDS60901"});
+
+		byte[] block = encoder.encode(fields);
+		List<String[]> decoded = decoder.decode(block, block.length);
+
+		Assertions.assertEquals(fields.size(), decoded.size());
+		for (int i = 0; i < fields.size(); i++) {
+			Assertions.assertArrayEquals(fields.get(i), decoded.get(i));
+		}
+	}
+
+
+	@Test
+	void testRepeatedFieldsIndexed() throws Http2Exception {
+		List<String[]> fields = List.of(
+				new String[]{":status", "200"},
+				new String[]{"x-station", "IDS60901"});
+
+		byte[] first = encoder.encode(fields);
+		decoder.decode(first, first.length);
+
+		// The second block refers to the entries stored by the first
+		byte[] second = encoder.encode(fields);
+		Assertions.assertTrue(second.length < first.length);
+
+		List<String[]> decoded = decoder.decode(second, second.length);
+		Assertions.assertArrayEquals(fields.get(1), decoded.get(1));
+	}
+
+
+	@Test
+	void testContentLengthNotIndexed() throws Http2Exception {
+		List<String[]> fields = List.<String[]>of(new String[]{"content-length", "17"});
+
+		byte[] first = encoder.encode(fields);
+		decoder.decode(first, first.length);
+
+		// Values that change with every response are not stored, so the block does not shrink
+		byte[] second = encoder.encode(fields);
+		Assertions.assertEquals(first.length, second.length);
+		Assertions.assertArrayEquals(fields.get(0), decoder.decode(second, second.length).get(0));
+	}
+
+
+	@Test
+	void testTableSizeUpdateSent() throws Http2Exception {
+		encoder.setMaxTableSize(0);
+
+		byte[] block = encoder.encode(List.<String[]>of(new String[]{"x-station", "IDS60901"}));
+
+		// The block opens with a dynamic table size update
+		Assertions.assertEquals(0x20, block[0] & 0xe0);
+		Assertions.assertArrayEquals(new String[]{"x-station", "IDS60901"}, decoder.decode(block, block.length).get(0));
+	}
+}
@@ -0,0 +1,86 @@
+package net.ethandankiw.utils.http2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HpackTableTest {
+
+	// Size of an entry is its name and value plus 32 bytes of overhead
+	private static final int ENTRY_SIZE = "x-a".length() + "1".length() + 32;
+
+
+	@Test
+	void testStaticEntries() throws Http2Exception {
+		HpackTable table = new HpackTable(HpackTable.DEFAULT_MAX_SIZE);
+
+		Assertions.assertArrayEquals(new String[]{":method", "GET"}, table.get(2));
+		Assertions.assertEquals(2, table.indexOf(":method", "GET"));
+		Assertions.assertEquals(1, table.indexOfName(":authority"));
+		Assertions.assertEquals(0, table.indexOf("x-custom", "1"));
+	}
+
+
+	@Test
+	void testNewestDynamicEntryFirst() throws Http2Exception {
+		HpackTable table = new HpackTable(HpackTable.DEFAULT_MAX_SIZE);
+		table.add("x-a", "1");
+		table.add("x-b", "2");
+
+		// Dynamic entries follow the 61 static entries, newest first
+		Assertions.assertArrayEquals(new String[]{"x-b", "2"}, table.get(62));
+		Assertions.assertArrayEquals(new String[]{"x-a", "1"}, table.get(63));
+		Assertions.assertEquals(63, table.indexOf("x-a", "1"));
+		Assertions.assertEquals(62, table.indexOfName("x-b"));
+	}
+
+
+	@Test
+	void testOldestEntryEvicted() throws Http2Exception {
+		HpackTable table = new HpackTable(ENTRY_SIZE * 2);
+		table.add("x-a", "1");
+		table.add("x-b", "2");
+		table.add("x-c", "3");
+
+		Assertions.assertEquals(0, table.indexOf("x-a", "1"));
+		Assertions.assertArrayEquals(new String[]{"x-c", "3"}, table.get(62));
+		Assertions.assertArrayEquals(new String[]{"x-b", "2"}, table.get(63));
+		Assertions.assertThrows(Http2Exception.class, () -> table.get(64));
+	}
+
+
+	@Test
+	void testShrinkingEvicts() {
+		HpackTable table = new HpackTable(HpackTable.DEFAULT_MAX_SIZE);
+		table.add("x-a", "1");
+		table.add("x-b", "2");
+
+		table.setMaxSize(ENTRY_SIZE);
+
+		Assertions.assertEquals(ENTRY_SIZE, table.getMaxSize());
+		Assertions.assertEquals(0, table.indexOf("x-a", "1"));
+		Assertions.assertEquals(62, table.indexOf("x-b", "2"));
+	}
+
+
+	@Test
+	void testTableGrowsPastInitialSlots() throws Http2Exception {
+		HpackTable table = new HpackTable(HpackTable.DEFAULT_MAX_SIZE);
+		for (int i = 0; i < 40; i++) {
+			table.add("x-" + i, "v");
+		}
+
+		// Every entry is kept in order as the ring grows
+		Assertions.assertArrayEquals(new String[]{"x-39", "v"}, table.get(62));
+		Assertions.assertArrayEquals(new String[]{"x-0", "v"}, table.get(101));
+	}
+
+
+	@Test
+	void testInvalidIndex() {
+		HpackTable table = new HpackTable(HpackTable.DEFAULT_MAX_SIZE);
+
+		Http2Exception exception = Assertions.assertThrows(Http2Exception.class, () -> table.get(0));
+		Assertions.assertEquals(Http2ErrorCode.COMPRESSION_ERROR, exception.getErrorCode());
+		Assertions.assertThrows(Http2Exception.class, () -> table.get(62));
+	}
+}
@@ -0,0 +1,77 @@
+package net.ethandankiw.utils.http2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class Http2FrameTest {
+
+	@Test
+	void testWriteAndRead() throws IOException {
+		byte[] payload = {1, 2, 3, 4, 5};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		Http2Frame.write(out, Http2Frame.DATA, Http2Frame.FLAG_END_STREAM, 3, payload);
+		byte[] encoded = out.toByteArray();
+
+		// A nine byte header is followed by the payload
+		Assertions.assertEquals(Http2Frame.HEADER_LENGTH + payload.length, encoded.length);
+
+		Http2Frame frame = Http2Frame.read(new ByteArrayInputStream(encoded), Http2Frame.DEFAULT_MAX_FRAME_SIZE);
+		Assertions.assertEquals(Http2Frame.DATA, frame.getType());
+		Assertions.assertTrue(frame.hasFlag(Http2Frame.FLAG_END_STREAM));
+		Assertions.assertFalse(frame.hasFlag(Http2Frame.FLAG_PADDED));
+		Assertions.assertEquals(3, frame.getStreamId());
+		Assertions.assertEquals(payload.length, frame.getLength());
+		Assertions.assertArrayEquals(payload, frame.getPayload());
+	}
+
+
+	@Test
+	void testReservedBitIgnored() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Http2Frame.write(out, Http2Frame.SETTINGS, 0, 0x80000001, new byte[0]);
+
+		Http2Frame frame = Http2Frame.read(new ByteArrayInputStream(out.toByteArray()), Http2Frame.DEFAULT_MAX_FRAME_SIZE);
+
+		Assertions.assertEquals(1, frame.getStreamId());
+	}
+
+
+	@Test
+	void testOversizeFrameRejected() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Http2Frame.write(out, Http2Frame.DATA, 0, 1, new byte[17]);
+
+		Http2Exception exception = Assertions.assertThrows(Http2Exception.class,
+				() -> Http2Frame.read(new ByteArrayInputStream(out.toByteArray()), 16));
+		Assertions.assertEquals(Http2ErrorCode.FRAME_SIZE_ERROR, exception.getErrorCode());
+	}
+
+
+	@Test
+	void testTruncatedFrame() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Http2Frame.write(out, Http2Frame.DATA, 0, 1, new byte[10]);
+		byte[] encoded = out.toByteArray();
+
+		// The connection ends part way through the payload, and then part way through the header
+		Assertions.assertThrows(EOFException.class,
+				() -> Http2Frame.read(new ByteArrayInputStream(encoded, 0, encoded.length - 1), Http2Frame.DEFAULT_MAX_FRAME_SIZE));
+		Assertions.assertThrows(EOFException.class,
+				() -> Http2Frame.read(new ByteArrayInputStream(encoded, 0, 4), Http2Frame.DEFAULT_MAX_FRAME_SIZE));
+	}
+
+
+	@Test
+	void testIntRoundTrip() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Http2Frame.writeInt(out, 0x12345678);
+
+		Assertions.assertEquals(0x12345678, Http2Frame.readInt(out.toByteArray(), 0));
+	}
+}
@@ -0,0 +1,61 @@
+package net.ethandankiw.utils.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HuffmanTest {
+
+	@Test
+	void testEncode() {
+		byte[] octets = "www.example.com".getBytes(StandardCharsets.ISO_8859_1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		Huffman.encode(octets, out);
+
+		// Encoding from RFC 7541 C.4.1, padded with ones to a whole byte
+		Assertions.assertEquals("f1e3c2e5f23a6ba0ab90f4ff", hex(out.toByteArray()));
+		Assertions.assertEquals(12, Huffman.encodedLength(octets));
+	}
+
+
+	@Test
+	void testRoundTrip() throws Http2Exception {
+		byte[] octets = "{\"id\":\"IDS60901\",\"air_temp\":13.3}".getBytes(StandardCharsets.ISO_8859_1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Huffman.encode(octets, out);
+		byte[] encoded = out.toByteArray();
+
+		Assertions.assertEquals(encoded.length, Huffman.encodedLength(octets));
+		Assertions.assertArrayEquals(octets, Huffman.decode(encoded, 0, encoded.length));
+	}
+
+
+	@Test
+	void testDecodeRange() throws Http2Exception {
+		// Only the bytes between the offsets are decoded
+		byte[] buffer = {0x00, (byte) 0xf1, (byte) 0xe3, (byte) 0xc2, (byte) 0xe5, (byte) 0xf2, 0x3a, 0x6b, (byte) 0xa0, (byte) 0xab, (byte) 0x90, (byte) 0xf4, (byte) 0xff, 0x00};
+
+		Assertions.assertEquals("www.example.com", new String(Huffman.decode(buffer, 1, 13), StandardCharsets.ISO_8859_1));
+	}
+
+
+	@Test
+	void testInvalidPaddingRejected() {
+		// Padding longer than seven bits is an error
+		byte[] encoded = {(byte) 0xff, (byte) 0xff};
+
+		Assertions.assertThrows(Http2Exception.class, () -> Huffman.decode(encoded, 0, encoded.length));
+	}
+
+
+	private static String hex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder();
+		for (byte b : bytes) {
+			builder.append(String.format("%02x", b & 0xff));
+		}
+		return builder.toString();
+	}
+}